@@ -0,0 +1,147 @@
+package com.plenti.plentibackend.config;
+
+import io.netty.buffer.Unpooled;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.BufferingStompDecoder;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompDecoder;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import reactor.netty.Connection;
+import reactor.netty.DisposableServer;
+import reactor.netty.tcp.TcpServer;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal in-process STOMP broker for trying the broker-relay mode locally and in tests,
+ * without installing RabbitMQ or ActiveMQ. Supports CONNECT, SUBSCRIBE, UNSUBSCRIBE,
+ * SEND (fanned out to exact-destination subscribers), DISCONNECT and receipts; heartbeats
+ * are declined. Not meant for production traffic.
+ */
+@Component
+@ConditionalOnProperty(name = "websocket.broker.embedded.enabled", havingValue = "true")
+@Slf4j
+public class EmbeddedStompBroker {
+
+    private final String host;
+    private final int port;
+    private final StompEncoder encoder = new StompEncoder();
+    private final AtomicLong messageIds = new AtomicLong();
+
+    // destination -> subscriptions
+    private final Map<String, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private DisposableServer server;
+
+    private record Subscription(Connection connection, String id) {
+    }
+
+    public EmbeddedStompBroker(@Value("${websocket.broker.embedded.host:127.0.0.1}") String host,
+                               @Value("${websocket.broker.embedded.port:61613}") int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    @PostConstruct
+    public void start() {
+        server = TcpServer.create()
+                .host(host)
+                .port(port)
+                .handle((inbound, outbound) -> {
+                    BufferingStompDecoder decoder = new BufferingStompDecoder(new StompDecoder(), 64 * 1024);
+                    Connection[] connection = new Connection[1];
+                    inbound.withConnection(conn -> {
+                        connection[0] = conn;
+                        conn.onDispose(() -> unsubscribeAll(conn));
+                    });
+                    return inbound.receive().asByteArray()
+                            .doOnNext(bytes -> decoder.decode(ByteBuffer.wrap(bytes))
+                                    .forEach(frame -> handle(connection[0], frame)))
+                            .then();
+                })
+                .bindNow();
+        log.info("Embedded STOMP broker listening on {}:{}", host, server.port());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    public int getPort() {
+        return server != null ? server.port() : port;
+    }
+
+    private void handle(Connection connection, Message<byte[]> frame) {
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(frame);
+        StompCommand command = headers.getCommand();
+        if (command == null) {
+            // Heartbeat
+            return;
+        }
+        switch (command) {
+            case CONNECT, STOMP -> {
+                StompHeaderAccessor connected = StompHeaderAccessor.create(StompCommand.CONNECTED);
+                connected.setVersion("1.2");
+                connected.setHeartbeat(0, 0);
+                write(connection, connected, new byte[0]);
+            }
+            case SUBSCRIBE -> subscriptions
+                    .computeIfAbsent(headers.getDestination(), key -> ConcurrentHashMap.newKeySet())
+                    .add(new Subscription(connection, headers.getSubscriptionId()));
+            case UNSUBSCRIBE -> subscriptions.values().forEach(set ->
+                    set.remove(new Subscription(connection, headers.getSubscriptionId())));
+            case SEND -> fanOut(headers, frame.getPayload());
+            case DISCONNECT -> unsubscribeAll(connection);
+            default -> log.debug("Embedded STOMP broker ignoring {}", command);
+        }
+        String receipt = headers.getReceipt();
+        if (receipt != null) {
+            StompHeaderAccessor receiptHeaders = StompHeaderAccessor.create(StompCommand.RECEIPT);
+            receiptHeaders.setReceiptId(receipt);
+            write(connection, receiptHeaders, new byte[0]);
+        }
+        if (command == StompCommand.DISCONNECT) {
+            connection.dispose();
+        }
+    }
+
+    private void fanOut(StompHeaderAccessor send, byte[] payload) {
+        Set<Subscription> targets = subscriptions.get(send.getDestination());
+        if (targets == null) {
+            return;
+        }
+        for (Subscription subscription : targets) {
+            StompHeaderAccessor message = StompHeaderAccessor.create(StompCommand.MESSAGE);
+            message.setDestination(send.getDestination());
+            message.setSubscriptionId(subscription.id());
+            message.setMessageId(String.valueOf(messageIds.incrementAndGet()));
+            if (send.getContentType() != null) {
+                message.setContentType(send.getContentType());
+            }
+            write(subscription.connection(), message, payload);
+        }
+    }
+
+    private void unsubscribeAll(Connection connection) {
+        subscriptions.values().forEach(set -> set.removeIf(subscription -> subscription.connection() == connection));
+    }
+
+    private void write(Connection connection, StompHeaderAccessor headers, byte[] payload) {
+        byte[] frame = encoder.encode(MessageBuilder.createMessage(payload, headers.getMessageHeaders()));
+        connection.channel().writeAndFlush(Unpooled.wrappedBuffer(frame));
+    }
+}
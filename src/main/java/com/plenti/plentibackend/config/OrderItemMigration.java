@@ -0,0 +1,103 @@
+package com.plenti.plentibackend.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copies orders that only exist in the legacy order_products table (product id strings,
+ * no quantities) into order_items, once. Each legacy row counts as one unit at the
+ * product's current price, since the price paid was never stored. The copy records a
+ * marker row in data_migrations in the same transaction, so later startups skip it and
+ * an instance starting meanwhile waits on the marker's key and then skips it too.
+ */
+@Component
+@Slf4j
+@org.springframework.core.annotation.Order(3)
+public class OrderItemMigration implements CommandLineRunner {
+
+    static final String MIGRATION = "order_products_to_order_items";
+
+    private static final String CREATE_MARKERS_SQL =
+            "CREATE TABLE IF NOT EXISTS data_migrations (name VARCHAR(100) PRIMARY KEY, applied_at TIMESTAMP NOT NULL)";
+    private static final String APPLIED_SQL = "SELECT COUNT(*) FROM data_migrations WHERE name = ?";
+    private static final String MARK_SQL = "INSERT INTO data_migrations (name, applied_at) VALUES (?, ?)";
+
+    // The legacy ids are cast once per (order, id) in the grouped derived table, which is
+    // materialized before the join, so only numeric strings are cast and products.id stays indexed
+    private static final String COPY_SQL =
+            "INSERT INTO order_items (order_id, product_id, quantity, unit_price) "
+                    + "SELECT l.order_id, p.id, SUM(l.units), MAX(p.price) FROM ("
+                    + "SELECT order_id, CAST(product_id AS UNSIGNED) AS product_id, COUNT(*) AS units "
+                    + "FROM order_products WHERE product_id REGEXP '^[0-9]{1,18}$' "
+                    + "GROUP BY order_id, product_id) l "
+                    + "JOIN products p ON p.id = l.product_id "
+                    + "WHERE NOT EXISTS (SELECT 1 FROM order_items i WHERE i.order_id = l.order_id) "
+                    + "GROUP BY l.order_id, p.id";
+    private static final String ORPHANS_SQL =
+            "SELECT op.product_id AS product_id, COUNT(*) AS legacy_rows FROM order_products op "
+                    + "WHERE op.product_id NOT REGEXP '^[0-9]{1,18}$' "
+                    + "OR NOT EXISTS (SELECT 1 FROM products p WHERE p.id = CAST(op.product_id AS UNSIGNED)) "
+                    + "GROUP BY op.product_id ORDER BY op.product_id";
+    private static final int LOGGED_ORPHANS = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public OrderItemMigration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void run(String... args) {
+        jdbcTemplate.execute(CREATE_MARKERS_SQL);
+        Long applied = jdbcTemplate.queryForObject(APPLIED_SQL, Long.class, MIGRATION);
+        if (applied != null && applied > 0) {
+            return;
+        }
+        try {
+            Long legacyRows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_products", Long.class);
+            if (legacyRows == null || legacyRows == 0) {
+                return;
+            }
+        } catch (DataAccessException e) {
+            // No legacy table, nothing to migrate
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update(MARK_SQL, MIGRATION, Timestamp.valueOf(LocalDateTime.now()));
+                int copied = jdbcTemplate.update(COPY_SQL);
+                log.info("Copied legacy order products into {} order_items rows", copied);
+                logOrphans();
+            });
+        } catch (DuplicateKeyException e) {
+            log.info("Legacy order products were already copied by another instance");
+        }
+    }
+
+    /**
+     * Legacy rows whose product id isn't numeric or no longer exists can't be copied
+     */
+    private void logOrphans() {
+        List<Map<String, Object>> orphans = jdbcTemplate.queryForList(ORPHANS_SQL);
+        if (orphans.isEmpty()) {
+            return;
+        }
+        long rows = orphans.stream().mapToLong(orphan -> ((Number) orphan.get("legacy_rows")).longValue()).sum();
+        log.warn("Skipped {} legacy order product rows with {} unknown product ids, e.g. {}", rows, orphans.size(),
+                orphans.stream().limit(LOGGED_ORPHANS).map(orphan -> orphan.get("product_id")).toList());
+    }
+}
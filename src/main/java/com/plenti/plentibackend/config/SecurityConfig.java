@@ -57,6 +57,9 @@ public class SecurityConfig {
                 .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/banners").permitAll()
                 // Health checks - Public
                 .requestMatchers("/actuator/**").permitAll()
+                // Admin and search operations endpoints - ADMIN role only
+                .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                .requestMatchers("/api/es/reindex", "/api/es/sync-stats", "/api/es/health").hasRole("ADMIN")
                 // All other endpoints require authentication
                 .anyRequest().authenticated()
             )
@@ -1,22 +1,139 @@
 package com.plenti.plentibackend.config;
 
+import com.plenti.plentibackend.service.WebSocketMetrics;
+import com.plenti.plentibackend.util.StompAuthChannelInterceptor;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
+import org.springframework.messaging.simp.stomp.StompReactorNettyCodec;
+import org.springframework.messaging.tcp.reactor.ReactorNettyTcpClient;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.StringUtils;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+import reactor.netty.tcp.TcpClient;
+
+import java.time.Duration;
 
 /**
- * WebSocket configuration for real-time notifications
+ * WebSocket configuration for real-time notifications.
+ *
+ * websocket.broker.mode=simple keeps subscriptions in this JVM; relay forwards /topic
+ * traffic to an external STOMP broker (RabbitMQ, ActiveMQ) so every instance sees every
+ * message and the app can run behind a load balancer. SockJS fallbacks still need sticky
+ * sessions there, since a SockJS session lives on one instance.
  */
 @Configuration
 @EnableWebSocketMessageBroker
+@Slf4j
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${websocket.heartbeat.server-ms:10000}")
+    private long serverHeartbeatMs;
+
+    @Value("${websocket.heartbeat.client-ms:10000}")
+    private long clientHeartbeatMs;
+
+    @Value("${websocket.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${websocket.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${websocket.relay.virtual-host:}")
+    private String relayVirtualHost;
+
+    @Value("${websocket.relay.client-login:guest}")
+    private String relayClientLogin;
+
+    @Value("${websocket.relay.client-passcode:guest}")
+    private String relayClientPasscode;
+
+    @Value("${websocket.relay.system-login:guest}")
+    private String relaySystemLogin;
+
+    @Value("${websocket.relay.system-passcode:guest}")
+    private String relaySystemPasscode;
+
+    @Value("${websocket.relay.max-connections:1000}")
+    private int relayMaxConnections;
+
+    @Value("${websocket.relay.pending-acquire-timeout-ms:5000}")
+    private long relayPendingAcquireTimeoutMs;
+
+    @Value("${websocket.relay.io-threads:4}")
+    private int relayIoThreads;
+
+    @Value("${websocket.inbound.core-pool-size:8}")
+    private int inboundCorePoolSize;
+
+    @Value("${websocket.inbound.max-pool-size:32}")
+    private int inboundMaxPoolSize;
+
+    @Value("${websocket.inbound.queue-capacity:1000}")
+    private int inboundQueueCapacity;
+
+    @Value("${websocket.outbound.core-pool-size:8}")
+    private int outboundCorePoolSize;
+
+    @Value("${websocket.outbound.max-pool-size:32}")
+    private int outboundMaxPoolSize;
+
+    @Value("${websocket.outbound.queue-capacity:1000}")
+    private int outboundQueueCapacity;
+
+    @Autowired
+    private WebSocketMetrics webSocketMetrics;
+
+    @Autowired
+    private StompAuthChannelInterceptor stompAuthChannelInterceptor;
+
+    @Autowired
+    @Lazy
+    @Qualifier("messageBrokerTaskScheduler")
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    private ConnectionProvider relayConnections;
+    private LoopResources relayLoops;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        long[] heartbeat = {serverHeartbeatMs, clientHeartbeatMs};
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            StompBrokerRelayRegistration relay = config.enableStompBrokerRelay("/topic")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayClientLogin)
+                    .setClientPasscode(relayClientPasscode)
+                    .setSystemLogin(relaySystemLogin)
+                    .setSystemPasscode(relaySystemPasscode)
+                    .setSystemHeartbeatSendInterval(serverHeartbeatMs)
+                    .setSystemHeartbeatReceiveInterval(clientHeartbeatMs)
+                    .setTcpClient(relayTcpClient());
+            if (StringUtils.hasText(relayVirtualHost)) {
+                relay.setVirtualHost(relayVirtualHost);
+            }
+            log.info("WebSocket /topic relayed to STOMP broker {}:{}", relayHost, relayPort);
+        } else {
+            config.enableSimpleBroker("/topic")
+                    .setHeartbeatValue(heartbeat)
+                    .setTaskScheduler(messageBrokerTaskScheduler);
+        }
         config.setApplicationDestinationPrefixes("/app");
+        config.configureBrokerChannel().interceptors(webSocketMetrics.publishedInterceptor());
     }
 
     @Override
@@ -25,4 +142,50 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
     }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(inboundCorePoolSize)
+                .maxPoolSize(inboundMaxPoolSize)
+                .queueCapacity(inboundQueueCapacity);
+        registration.interceptors(stompAuthChannelInterceptor);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(outboundCorePoolSize)
+                .maxPoolSize(outboundMaxPoolSize)
+                .queueCapacity(outboundQueueCapacity);
+        registration.interceptors(webSocketMetrics.deliveredInterceptor());
+    }
+
+    @PreDestroy
+    public void releaseRelayResources() {
+        if (relayConnections != null) {
+            relayConnections.disposeLater().block(Duration.ofSeconds(5));
+        }
+        if (relayLoops != null) {
+            relayLoops.disposeLater().block(Duration.ofSeconds(5));
+        }
+    }
+
+    /**
+     * The relay opens one broker connection per STOMP session plus a shared system
+     * connection. A bounded pool caps those per instance and queues new sessions for up to
+     * pending-acquire-timeout-ms instead of exhausting the broker's connection limit.
+     */
+    private ReactorNettyTcpClient<byte[]> relayTcpClient() {
+        relayConnections = ConnectionProvider.builder("stomp-relay")
+                .maxConnections(relayMaxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(relayPendingAcquireTimeoutMs))
+                .build();
+        relayLoops = LoopResources.create("stomp-relay", relayIoThreads, true);
+        TcpClient tcpClient = TcpClient.create(relayConnections)
+                .host(relayHost)
+                .port(relayPort)
+                .runOn(relayLoops, false);
+        return new ReactorNettyTcpClient<>(tcpClient, new StompReactorNettyCodec());
+    }
 }
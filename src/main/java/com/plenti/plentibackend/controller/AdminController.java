@@ -6,9 +6,13 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -35,6 +39,36 @@ public class AdminController {
     @Autowired
     private AnalyticsService analyticsService;
 
+    @Autowired
+    private AuthenticationCache authenticationCache;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private SearchAnalyticsService searchAnalyticsService;
+
+    @Autowired
+    private RiderService riderService;
+
+    @Autowired
+    private OrderRollupService orderRollupService;
+
+    @Autowired
+    private SalesSeriesService salesSeriesService;
+
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+
+    @Autowired
+    private WebSocketMetrics webSocketMetrics;
+
+    @Autowired
+    private OrderTrackingProjection orderTrackingProjection;
+
+    @Autowired
+    private WaveFulfillmentService waveFulfillmentService;
+
     @GetMapping("/users")
     @Operation(summary = "List all users", description = "Get list of all users (admin only)")
     public ResponseEntity<ResponseDTO<List<UserDTO>>> getAllUsers() {
@@ -42,6 +76,21 @@ public class AdminController {
         return ResponseEntity.ok(ResponseDTO.success(users));
     }
 
+    @PutMapping("/users/{id}/roles")
+    @Operation(summary = "Update user roles", description = "Replace a user's roles (admin only)")
+    public ResponseEntity<ResponseDTO<UserDTO>> updateUserRoles(
+            @PathVariable Long id,
+            @RequestBody Map<String, List<String>> request) {
+        UserDTO user = userService.updateUserRoles(id, request.get("roles"));
+        return ResponseEntity.ok(ResponseDTO.success("Roles updated successfully", user));
+    }
+
+    @GetMapping("/auth/cache-stats")
+    @Operation(summary = "Authentication cache stats", description = "Hit/miss counters of the JWT filter caches")
+    public ResponseEntity<ResponseDTO<Map<String, Object>>> getAuthCacheStats() {
+        return ResponseEntity.ok(ResponseDTO.success(authenticationCache.getStats()));
+    }
+
     @PostMapping("/products")
     @Operation(summary = "Create product", description = "Add a new product (admin only)")
     public ResponseEntity<ResponseDTO<ProductDTO>> createProduct(@Valid @RequestBody ProductDTO productDTO) {
@@ -82,6 +131,58 @@ public class AdminController {
         return ResponseEntity.ok(ResponseDTO.success(products));
     }
 
+    @GetMapping(value = "/products/export", produces = "application/x-ndjson")
+    @Operation(summary = "Export products", description = "Stream the whole catalogue as newline-delimited JSON (admin only)")
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        StreamingResponseBody body = outputStream -> productService.exportProducts(outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    @GetMapping("/search/index-stats")
+    @Operation(summary = "Product search index stats", description = "Size and build info of the in-process product search index (admin only)")
+    public ResponseEntity<ResponseDTO<Map<String, Object>>> getSearchIndexStats() {
+        return ResponseEntity.ok(ResponseDTO.success(productSearchIndex.getStats()));
+    }
+
+    @PostMapping("/search/index/rebuild")
+    @Operation(summary = "Rebuild product search index", description = "Reload the in-process product search index from the database (admin only)")
+    public ResponseEntity<ResponseDTO<Map<String, Object>>> rebuildSearchIndex() {
+        productSearchIndex.rebuild();
+        return ResponseEntity.ok(ResponseDTO.success(productSearchIndex.getStats()));
+    }
+
+    @GetMapping("/search/ingest-stats")
+    @Operation(summary = "Search tracking buffer stats", description = "Buffer depth, sampling, drop and flush counters of the search tracking buffer (admin only)")
+    public ResponseEntity<ResponseDTO<Map<String, Object>>> getSearchIngestStats() {
+        return ResponseEntity.ok(ResponseDTO.success(searchAnalyticsService.getIngestStats()));
+    }
+
+    @GetMapping("/search/popular/stats")
+    @Operation(summary = "Popular search term stats", description = "Window, sketch and snapshot counters of the popular search terms (admin only)")
+    public ResponseEntity<ResponseDTO<Map<String, Object>>> getPopularSearchTermsStats() {
+        return ResponseEntity.ok(ResponseDTO.success(searchAnalyticsService.getPopularTermsStats()));
+    }
+
+    @GetMapping("/riders/location/ingest-stats")
+    @Operation(summary = "Rider location ingestion stats", description = "Buffer depth, coalescing, drop and flush counters of the rider GPS ping buffer (admin only)")
+    public ResponseEntity<ResponseDTO<Map<String, Object>>> getLocationIngestStats() {
+        return ResponseEntity.ok(ResponseDTO.success(riderService.getLocationIngestStats()));
+    }
+
+    @GetMapping("/riders/location/push-stats")
+    @Operation(summary = "Rider position push stats", description = "Tracked orders, accepted pings and keyframe, delta and suppression counters of the live rider position feed (admin only)")
+    public ResponseEntity<ResponseDTO<Map<String, Object>>> getPositionPushStats() {
+        return ResponseEntity.ok(ResponseDTO.success(riderService.getPositionPushStats()));
+    }
+
+    @GetMapping("/riders/location/retention-stats")
+    @Operation(summary = "Rider location retention stats", description = "Compaction and purge counters of the rider location history (admin only)")
+    public ResponseEntity<ResponseDTO<Map<String, Object>>> getLocationRetentionStats() {
+        return ResponseEntity.ok(ResponseDTO.success(riderService.getLocationRetentionStats()));
+    }
+
     @GetMapping("/categories")
     @Operation(summary = "List categories", description = "Get all categories (admin only)")
     public ResponseEntity<ResponseDTO<List<CategoryDTO>>> getAllCategories() {
@@ -102,4 +203,72 @@ public class AdminController {
         AnalyticsDTO analytics = analyticsService.getAnalyticsSummary();
         return ResponseEntity.ok(ResponseDTO.success(analytics));
     }
+
+    @GetMapping("/analytics/series")
+    @Operation(summary = "Sales time series", description = "Revenue, order count and average order value of delivered orders per hour, day, week or month, overall or per store or category (admin only)")
+    public ResponseEntity<ResponseDTO<SalesSeriesDTO>> getSalesSeries(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "day") String interval,
+            @RequestParam(defaultValue = "all") String groupBy,
+            @RequestParam(required = false) String key) {
+        return ResponseEntity.ok(ResponseDTO.success(salesSeriesService.getSeries(from, to, interval, groupBy, key)));
+    }
+
+    @GetMapping("/analytics/series/stats")
+    @Operation(summary = "Sales series stats", description = "Flush and backfill counters of the sales buckets (admin only)")
+    public ResponseEntity<ResponseDTO<Map<String, Object>>> getSalesSeriesStats() {
+        return ResponseEntity.ok(ResponseDTO.success(salesSeriesService.getStats()));
+    }
+
+    @PostMapping("/analytics/series/backfill")
+    @Operation(summary = "Backfill sales buckets", description = "Rebuild the sales buckets from delivered orders in the background (admin only)")
+    public ResponseEntity<ResponseDTO<Map<String, Object>>> backfillSalesSeries() {
+        boolean started = salesSeriesService.backfill();
+        return ResponseEntity.ok(ResponseDTO.success(
+                started ? "Backfill started" : "Backfill already running", salesSeriesService.getStats()));
+    }
+
+    @GetMapping("/analytics/rollups/stats")
+    @Operation(summary = "Order rollup stats", description = "Flush and rebuild counters of the order rollups (admin only)")
+    public ResponseEntity<ResponseDTO<Map<String, Object>>> getRollupStats() {
+        return ResponseEntity.ok(ResponseDTO.success(orderRollupService.getStats()));
+    }
+
+    @PostMapping("/analytics/rollups/rebuild")
+    @Operation(summary = "Rebuild order rollups", description = "Recompute the order rollups from the orders table (admin only)")
+    public ResponseEntity<ResponseDTO<Map<String, Object>>> rebuildRollups() {
+        orderRollupService.rebuild();
+        return ResponseEntity.ok(ResponseDTO.success(orderRollupService.getStats()));
+    }
+
+    @GetMapping("/notifications/outbox/stats")
+    @Operation(summary = "Notification outbox stats", description = "Backlog, retries and delivery lag of the notification outbox (admin only)")
+    public ResponseEntity<ResponseDTO<Map<String, Object>>> getOutboxStats() {
+        return ResponseEntity.ok(ResponseDTO.success(notificationDispatcher.getStats()));
+    }
+
+    @GetMapping("/orders/tracking/stats")
+    @Operation(summary = "Order tracking projection stats", description = "Cache hit/miss and update counters of the order tracking projection (admin only)")
+    public ResponseEntity<ResponseDTO<Map<String, Object>>> getOrderTrackingStats() {
+        return ResponseEntity.ok(ResponseDTO.success(orderTrackingProjection.getStats()));
+    }
+
+    @PostMapping("/fulfillment/waves")
+    @Operation(summary = "Run a fulfillment wave", description = "Assign stores and riders to a wave of pending orders now and report its throughput (admin only)")
+    public ResponseEntity<ResponseDTO<Map<String, Object>>> runFulfillmentWave() {
+        return ResponseEntity.ok(ResponseDTO.success(waveFulfillmentService.runWave()));
+    }
+
+    @GetMapping("/fulfillment/waves/stats")
+    @Operation(summary = "Fulfillment wave stats", description = "Totals and the last report of the fulfillment waves (admin only)")
+    public ResponseEntity<ResponseDTO<Map<String, Object>>> getFulfillmentWaveStats() {
+        return ResponseEntity.ok(ResponseDTO.success(waveFulfillmentService.getStats()));
+    }
+
+    @GetMapping("/websocket/stats")
+    @Operation(summary = "WebSocket stats", description = "Sessions, subscriptions and per-destination message rates of the STOMP broker (admin only)")
+    public ResponseEntity<ResponseDTO<Map<String, Object>>> getWebSocketStats() {
+        return ResponseEntity.ok(ResponseDTO.success(webSocketMetrics.getStats()));
+    }
 }
@@ -1,8 +1,10 @@
 package com.plenti.plentibackend.controller;
 
+import com.plenti.plentibackend.dto.ProductSearchPageDTO;
 import com.plenti.plentibackend.elasticsearch.document.CategoryDocument;
 import com.plenti.plentibackend.elasticsearch.document.ProductDocument;
 import com.plenti.plentibackend.elasticsearch.document.StoreDocument;
+import com.plenti.plentibackend.elasticsearch.service.ElasticsearchHealthMonitor;
 import com.plenti.plentibackend.elasticsearch.service.ElasticsearchService;
 import com.plenti.plentibackend.elasticsearch.service.ElasticsearchSyncService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -31,6 +33,9 @@ public class ElasticsearchController {
     @Autowired
     private ElasticsearchSyncService elasticsearchSyncService;
 
+    @Autowired
+    private ElasticsearchHealthMonitor healthMonitor;
+
     /**
      * Fast product search
      */
@@ -45,16 +50,21 @@ public class ElasticsearchController {
      * Advanced product search with filters
      */
     @GetMapping("/products/advanced-search")
-    @Operation(summary = "Advanced product search", description = "Search products with filters (category, price range, stock)")
-    public ResponseEntity<List<ProductDocument>> advancedSearch(
+    @Operation(summary = "Advanced product search",
+            description = "Search products with filters (category, price range, stock), sorting, paging and facet counts")
+    public ResponseEntity<ProductSearchPageDTO> advancedSearch(
             @RequestParam(required = false) String q,
             @RequestParam(required = false) Long category,
             @RequestParam(required = false) Double minPrice,
             @RequestParam(required = false) Double maxPrice,
-            @RequestParam(required = false) Boolean inStock) {
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(required = false) String sort,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String searchAfter) {
         
-        List<ProductDocument> results = elasticsearchService.advancedSearch(
-                q, category, minPrice, maxPrice, inStock);
+        ProductSearchPageDTO results = elasticsearchService.advancedSearch(
+                q, category, minPrice, maxPrice, inStock, sort, page, size, searchAfter);
         return ResponseEntity.ok(results);
     }
 
@@ -97,26 +107,39 @@ public class ElasticsearchController {
     @PostMapping("/reindex")
     @Operation(summary = "Reindex all data", description = "Manually trigger full reindex from MySQL to Elasticsearch")
     public ResponseEntity<Map<String, String>> reindex() {
-        elasticsearchSyncService.reindexAll();
+        boolean completed = elasticsearchSyncService.reindexAll();
         
         Map<String, String> response = new HashMap<>();
-        response.put("status", "success");
-        response.put("message", "Reindex started successfully");
+        response.put("status", completed ? "success" : "skipped");
+        response.put("message", completed
+                ? "Reindex completed successfully"
+                : "Reindex already in progress or Elasticsearch unavailable");
         
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Incremental sync and reindex statistics
+     */
+    @GetMapping("/sync-stats")
+    @Operation(summary = "Sync statistics", description = "Pending changes, bulk shipments and last reindex timings")
+    public ResponseEntity<Map<String, Object>> syncStats() {
+        return ResponseEntity.ok(elasticsearchSyncService.getStats());
+    }
+
     /**
      * Elasticsearch health check
      */
     @GetMapping("/health")
-    @Operation(summary = "Health check", description = "Check Elasticsearch availability")
+    @Operation(summary = "Health check", description = "Check Elasticsearch availability and circuit breaker state")
     public ResponseEntity<Map<String, Object>> health() {
-        boolean available = elasticsearchService.isElasticsearchAvailable();
+        boolean available = healthMonitor.isAvailable();
         
         Map<String, Object> response = new HashMap<>();
         response.put("elasticsearch", available ? "UP" : "DOWN");
         response.put("status", available ? "healthy" : "unavailable");
+        response.put("circuitBreaker", healthMonitor.getStats());
+        response.put("autocompleteCache", elasticsearchService.getAutocompleteCacheStats());
         
         return ResponseEntity.ok(response);
     }
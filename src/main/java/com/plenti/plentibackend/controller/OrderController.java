@@ -1,6 +1,7 @@
 package com.plenti.plentibackend.controller;
 
 import com.plenti.plentibackend.dto.OrderDTO;
+import com.plenti.plentibackend.dto.OrderTrackingDTO;
 import com.plenti.plentibackend.dto.ResponseDTO;
 import com.plenti.plentibackend.entity.OrderStatus;
 import com.plenti.plentibackend.service.FulfillmentService;
@@ -121,14 +122,14 @@ public class OrderController {
     @GetMapping("/{id}/progress")
     @Operation(summary = "Get order progress", description = "Get order progress with percentage and status stages")
     public ResponseEntity<ResponseDTO<Map<String, Object>>> getOrderProgress(@PathVariable Long id) {
-        OrderDTO order = orderService.getOrder(id);
+        OrderTrackingDTO tracking = fulfillmentService.getTracking(id);
         
         Map<String, Object> progress = Map.of(
             "orderId", id,
-            "currentStatus", order.getStatus(),
-            "percentage", calculateProgressPercentage(order.getStatus()),
-            "stages", getProgressStages(order.getStatus()),
-            "estimatedDelivery", order.getEstimatedDelivery() != null ? order.getEstimatedDelivery() : ""
+            "currentStatus", tracking.getStatus(),
+            "percentage", calculateProgressPercentage(tracking.getStatus()),
+            "stages", getProgressStages(tracking.getStatus()),
+            "estimatedDelivery", tracking.getEstimatedDelivery() != null ? tracking.getEstimatedDelivery() : ""
         );
         
         return ResponseEntity.ok(ResponseDTO.success(progress));
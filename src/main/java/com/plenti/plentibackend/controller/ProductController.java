@@ -1,5 +1,6 @@
 package com.plenti.plentibackend.controller;
 
+import com.plenti.plentibackend.dto.CursorPageDTO;
 import com.plenti.plentibackend.dto.ProductDTO;
 import com.plenti.plentibackend.dto.ResponseDTO;
 import com.plenti.plentibackend.service.ProductService;
@@ -23,12 +24,31 @@ public class ProductController {
     private ProductService productService;
 
     @GetMapping
-    @Operation(summary = "Get all products", description = "Get list of all products")
+    @Operation(summary = "Get all products", description = "Get the first products by ID, at most the max page size; use /page for the rest", deprecated = true)
+    @Deprecated
     public ResponseEntity<ResponseDTO<List<ProductDTO>>> getAllProducts() {
         List<ProductDTO> products = productService.getAllProducts();
         return ResponseEntity.ok(ResponseDTO.success(products));
     }
 
+    @GetMapping("/page")
+    @Operation(summary = "Get products page", description = "Get products using cursor (keyset) pagination ordered by ID")
+    public ResponseEntity<ResponseDTO<CursorPageDTO<ProductDTO>>> getProductsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        CursorPageDTO<ProductDTO> page = productService.getProductsPage(cursor, size);
+        return ResponseEntity.ok(ResponseDTO.success(page));
+    }
+
+    @GetMapping("/updated")
+    @Operation(summary = "Get recently updated products", description = "Get products ordered by last update using cursor pagination")
+    public ResponseEntity<ResponseDTO<CursorPageDTO<ProductDTO>>> getUpdatedProductsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        CursorPageDTO<ProductDTO> page = productService.getProductsUpdatedPage(cursor, size);
+        return ResponseEntity.ok(ResponseDTO.success(page));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get product by ID", description = "Get product details by ID")
     public ResponseEntity<ResponseDTO<ProductDTO>> getProductById(@PathVariable Long id) {
@@ -44,14 +64,36 @@ public class ProductController {
     }
 
     @GetMapping("/category")
-    @Operation(summary = "Get products by category", description = "Get products filtered by category")
+    @Operation(summary = "Get products by category", description = "Get the first products of a category, at most the max page size; use /category/page for the rest", deprecated = true)
+    @Deprecated
     public ResponseEntity<ResponseDTO<List<ProductDTO>>> getProductsByCategory(@RequestParam String category) {
         List<ProductDTO> products = productService.getProductsByCategory(category);
         return ResponseEntity.ok(ResponseDTO.success(products));
     }
 
+    @GetMapping("/category/page")
+    @Operation(summary = "Get products by category page", description = "Get products filtered by category using cursor pagination")
+    public ResponseEntity<ResponseDTO<CursorPageDTO<ProductDTO>>> getProductsByCategoryPage(
+            @RequestParam String category,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        CursorPageDTO<ProductDTO> page = productService.getProductsByCategoryPage(category, cursor, size);
+        return ResponseEntity.ok(ResponseDTO.success(page));
+    }
+
+    @GetMapping("/category/{categoryId}/page")
+    @Operation(summary = "Get products by category ID page", description = "Get products filtered by category ID using cursor pagination")
+    public ResponseEntity<ResponseDTO<CursorPageDTO<ProductDTO>>> getProductsByCategoryIdPage(
+            @PathVariable Long categoryId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        CursorPageDTO<ProductDTO> page = productService.getProductsByCategoryIdPage(categoryId, cursor, size);
+        return ResponseEntity.ok(ResponseDTO.success(page));
+    }
+
     @GetMapping("/category/{categoryId}")
-    @Operation(summary = "Get products by category ID", description = "Get products filtered by category ID")
+    @Operation(summary = "Get products by category ID", description = "Get the first products of a category ID, at most the max page size; use /category/{categoryId}/page for the rest", deprecated = true)
+    @Deprecated
     public ResponseEntity<ResponseDTO<List<ProductDTO>>> getProductsByCategoryId(@PathVariable Long categoryId) {
         List<ProductDTO> products = productService.getProductsByCategoryId(categoryId);
         return ResponseEntity.ok(ResponseDTO.success(products));
@@ -1,7 +1,9 @@
 package com.plenti.plentibackend.controller;
 
+import com.plenti.plentibackend.dto.CursorPageDTO;
 import com.plenti.plentibackend.entity.Rider;
 import com.plenti.plentibackend.entity.RiderLocation;
+import com.plenti.plentibackend.entity.RiderTrackPoint;
 import com.plenti.plentibackend.service.RiderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -71,9 +73,12 @@ public class RiderController {
     }
 
     @GetMapping("/{id}/location/history")
-    @Operation(summary = "Get rider's location history")
-    public ResponseEntity<List<RiderLocation>> getRiderLocationHistory(@PathVariable Long id) {
-        return ResponseEntity.ok(riderService.getRiderLocationHistory(id));
+    @Operation(summary = "Get a page of the rider's compacted location track, newest first")
+    public ResponseEntity<CursorPageDTO<RiderTrackPoint>> getRiderLocationHistory(
+            @PathVariable Long id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(riderService.getRiderLocationHistory(id, cursor, size));
     }
 
     @PostMapping
@@ -51,7 +51,11 @@ public class SearchController {
     @GetMapping("/popular")
     @Operation(summary = "Get popular search terms")
     public ResponseEntity<List<Map<String, Object>>> getPopularSearchTerms(
-            @RequestParam(defaultValue = "30") int days) {
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(required = false) Integer hours) {
+        if (hours != null) {
+            return ResponseEntity.ok(searchAnalyticsService.getPopularSearchTermsForHours(hours));
+        }
         return ResponseEntity.ok(searchAnalyticsService.getPopularSearchTerms(days));
     }
 }
@@ -22,7 +22,10 @@ public class OrderDTO {
     @NotNull(message = "User ID is required")
     private Long userId;
     
+    // Product ids of the items, kept for clients that predate items
     private List<String> productIds;
+
+    private List<OrderItemDTO> items;
     
     @NotNull(message = "Total amount is required")
     private Double totalAmount;
@@ -46,6 +49,9 @@ public class OrderDTO {
     
     public List<String> getProductIds() { return productIds; }
     public void setProductIds(List<String> productIds) { this.productIds = productIds; }
+
+    public List<OrderItemDTO> getItems() { return items; }
+    public void setItems(List<OrderItemDTO> items) { this.items = items; }
     
     public Double getTotalAmount() { return totalAmount; }
     public void setTotalAmount(Double totalAmount) { this.totalAmount = totalAmount; }
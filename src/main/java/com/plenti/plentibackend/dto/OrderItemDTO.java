@@ -0,0 +1,18 @@
+package com.plenti.plentibackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for one line of an order
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderItemDTO {
+
+    private Long productId;
+    private Integer quantity;
+    private Double unitPrice;
+}
@@ -0,0 +1,38 @@
+package com.plenti.plentibackend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.plenti.plentibackend.entity.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO for the tracking projection of an order
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderTrackingDTO {
+
+    private Long orderId;
+    private OrderStatus status;
+    private Long storeId;
+    private String riderId;
+    private String riderName;
+    private Double riderLatitude;
+    private Double riderLongitude;
+    private LocalDateTime riderLocationAt;
+    private LocalDateTime estimatedDelivery;
+    private List<Event> timeline;
+
+    /**
+     * One status change; the rider position is the one at the time of the change
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Event(OrderStatus status, String message, String description,
+                        Double riderLatitude, Double riderLongitude, LocalDateTime timestamp) {
+    }
+}
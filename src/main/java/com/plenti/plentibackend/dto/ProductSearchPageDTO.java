@@ -0,0 +1,38 @@
+package com.plenti.plentibackend.dto;
+
+import com.plenti.plentibackend.elasticsearch.document.ProductDocument;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for one page of faceted product search results.
+ * Facet counts for a filter ignore that filter's own selection, so the client can
+ * offer the other categories or price ranges next to the current choice.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchPageDTO {
+
+    private List<ProductDocument> items;
+    private long total;
+    private int page;
+    private int size;
+    private boolean hasMore;
+    // Pass back as searchAfter to fetch the next page without deep from/size paging
+    private String nextSearchAfter;
+    private List<FacetBucket> categories;
+    private List<FacetBucket> priceRanges;
+    private long inStockCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FacetBucket {
+        private String key;
+        private long count;
+    }
+}
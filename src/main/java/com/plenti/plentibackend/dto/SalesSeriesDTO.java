@@ -0,0 +1,35 @@
+package com.plenti.plentibackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO for a sales time series. Buckets without delivered orders are omitted.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesSeriesDTO {
+
+    private String interval;
+    private String groupBy;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private List<Point> points;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Point {
+        private LocalDateTime bucketStart;
+        // Store or category id, or "all"
+        private String key;
+        private long orderCount;
+        private double revenue;
+        private double averageOrderValue;
+    }
+}
@@ -1,6 +1,6 @@
 package com.plenti.plentibackend.elasticsearch;
 
-import com.plenti.plentibackend.elasticsearch.service.ElasticsearchService;
+import com.plenti.plentibackend.elasticsearch.service.ElasticsearchHealthMonitor;
 import com.plenti.plentibackend.elasticsearch.service.ElasticsearchSyncService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,7 +22,7 @@ public class ElasticsearchInitializer implements CommandLineRunner {
     private static final Logger logger = LoggerFactory.getLogger(ElasticsearchInitializer.class);
 
     @Autowired
-    private ElasticsearchService elasticsearchService;
+    private ElasticsearchHealthMonitor healthMonitor;
 
     @Autowired
     private ElasticsearchSyncService elasticsearchSyncService;
@@ -31,7 +31,7 @@ public class ElasticsearchInitializer implements CommandLineRunner {
     public void run(String... args) throws Exception {
         logger.info("Initializing Elasticsearch...");
 
-        if (!elasticsearchService.isElasticsearchAvailable()) {
+        if (!healthMonitor.checkNow()) {
             logger.warn("Elasticsearch is not available. Skipping initialization. Application will continue with MySQL-based search.");
             return;
         }
@@ -0,0 +1,38 @@
+package com.plenti.plentibackend.elasticsearch;
+
+import com.plenti.plentibackend.elasticsearch.service.SearchIndexChangeQueue;
+import com.plenti.plentibackend.elasticsearch.service.SearchIndexChangeQueue.DocumentType;
+import com.plenti.plentibackend.entity.Category;
+import com.plenti.plentibackend.entity.Product;
+import com.plenti.plentibackend.entity.Store;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * JPA listener on the indexed entities that records changed ids for the incremental
+ * Elasticsearch sync. Instantiated by Spring through Hibernate's bean container.
+ */
+@Component
+public class SearchIndexEntityListener {
+
+    @Autowired
+    private SearchIndexChangeQueue changeQueue;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        if (entity instanceof Product product) {
+            changeQueue.recordAfterCommit(DocumentType.PRODUCT, List.of(product.getId()));
+        } else if (entity instanceof Category category) {
+            changeQueue.recordAfterCommit(DocumentType.CATEGORY, List.of(category.getId()));
+        } else if (entity instanceof Store store) {
+            changeQueue.recordAfterCommit(DocumentType.STORE, List.of(store.getId()));
+        }
+    }
+}
@@ -4,9 +4,11 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.CompletionField;
 import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.core.suggest.Completion;
 
 import java.time.LocalDateTime;
 
@@ -60,4 +62,10 @@ public class ProductDocument {
 
     @Field(type = FieldType.Date)
     private LocalDateTime lastUpdated;
+
+    /**
+     * Completion suggester input for autocomplete, weighted by popularity
+     */
+    @CompletionField(maxInputLength = 100)
+    private Completion suggest;
 }
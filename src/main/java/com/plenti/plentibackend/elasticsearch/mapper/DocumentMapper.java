@@ -6,14 +6,21 @@ import com.plenti.plentibackend.elasticsearch.document.StoreDocument;
 import com.plenti.plentibackend.entity.Category;
 import com.plenti.plentibackend.entity.Product;
 import com.plenti.plentibackend.entity.Store;
+import org.springframework.data.elasticsearch.core.suggest.Completion;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 /**
  * Mapper to convert JPA entities to Elasticsearch documents
  */
 @Component
 public class DocumentMapper {
 
+    private static final int MAX_SUGGEST_INPUTS = 5;
+
     /**
      * Convert Product entity to ProductDocument
      */
@@ -37,10 +44,32 @@ public class DocumentMapper {
         document.setIsFreebie(product.getIsFreebie());
         document.setIsFeatured(product.getIsFeatured());
         document.setLastUpdated(product.getLastUpdated());
+        document.setSuggest(toSuggestion(product));
         
         return document;
     }
 
+    /**
+     * Completion inputs are the full name plus every word-aligned suffix, so "rice" also
+     * completes "Golden Penny Rice". Weight grows with review count and average rating.
+     */
+    Completion toSuggestion(Product product) {
+        if (product.getName() == null || product.getName().isBlank()) {
+            return null;
+        }
+        String[] words = product.getName().trim().split("\\s+");
+        Set<String> inputs = new LinkedHashSet<>();
+        for (int i = 0; i < words.length && inputs.size() < MAX_SUGGEST_INPUTS; i++) {
+            inputs.add(String.join(" ", Arrays.copyOfRange(words, i, words.length)));
+        }
+
+        int reviews = product.getReviewCount() != null ? product.getReviewCount() : 0;
+        double rating = product.getAverageRating() != null ? product.getAverageRating() : 0.0;
+        Completion completion = new Completion(inputs.toArray(new String[0]));
+        completion.setWeight(1 + (int) Math.round(Math.log1p(reviews) * 10 + rating * 4));
+        return completion;
+    }
+
     /**
      * Convert Category entity to CategoryDocument
      */
@@ -0,0 +1,209 @@
+package com.plenti.plentibackend.elasticsearch.service;
+
+import com.plenti.plentibackend.elasticsearch.document.ProductDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Circuit breaker over Elasticsearch availability, so queries check a volatile flag
+ * instead of making an extra cluster round trip.
+ * CLOSED: requests flow; a background probe and failing queries count consecutive
+ * connectivity failures, and the breaker opens at the threshold.
+ * OPEN: requests are short-circuited until the open duration has passed.
+ * HALF_OPEN: the background job probes the cluster; success closes the breaker and
+ * failure opens it again.
+ */
+@Component
+@ConditionalOnProperty(name = "elasticsearch.enabled", havingValue = "true", matchIfMissing = false)
+public class ElasticsearchHealthMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ElasticsearchHealthMonitor.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final int failureThreshold;
+    private final long openDurationNanos;
+
+    private volatile State state = State.CLOSED;
+    private volatile long openedAtNanos;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private final Map<String, AtomicLong> transitions = new ConcurrentHashMap<>();
+    private final AtomicLong shortCircuited = new AtomicLong();
+    private final AtomicLong probes = new AtomicLong();
+    private final AtomicLong failedProbes = new AtomicLong();
+    private volatile long lastProbeMillis;
+    private volatile LocalDateTime lastStateChangeAt = LocalDateTime.now();
+    private volatile String lastFailure;
+
+    public ElasticsearchHealthMonitor(ElasticsearchOperations elasticsearchOperations,
+                                      @Value("${elasticsearch.health.failure-threshold:3}") int failureThreshold,
+                                      @Value("${elasticsearch.health.open-duration-ms:10000}") long openDurationMs) {
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMs);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isAvailable() {
+        return state == State.CLOSED;
+    }
+
+    /**
+     * Whether a query may go to Elasticsearch; counts the ones turned away
+     */
+    public boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        shortCircuited.incrementAndGet();
+        return false;
+    }
+
+    public void recordSuccess() {
+        // Only write when there is something to reset, to keep the hot path read-only
+        if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+    }
+
+    /**
+     * Count a failed call. Errors that say nothing about the cluster being reachable
+     * (such as a malformed query) are ignored.
+     */
+    public void recordFailure(Throwable error) {
+        if (!isConnectivityFailure(error)) {
+            return;
+        }
+        lastFailure = error.getMessage();
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold && state == State.CLOSED) {
+            open();
+        }
+    }
+
+    /**
+     * Background refresh: probes while closed, and after the open duration probes in
+     * half-open state to decide whether to close again
+     */
+    @Scheduled(fixedDelayString = "${elasticsearch.health.probe-interval-ms:5000}")
+    public void refresh() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAtNanos < openDurationNanos) {
+                return;
+            }
+            transition(State.OPEN, State.HALF_OPEN);
+        }
+
+        if (probe()) {
+            consecutiveFailures.set(0);
+            if (state == State.HALF_OPEN) {
+                transition(State.HALF_OPEN, State.CLOSED);
+            }
+        } else if (state == State.HALF_OPEN) {
+            open();
+        }
+    }
+
+    /**
+     * Probe the cluster now and update the breaker; used before startup sync and reindex
+     */
+    public boolean checkNow() {
+        if (state == State.OPEN) {
+            transition(State.OPEN, State.HALF_OPEN);
+        }
+        boolean reachable = probe();
+        if (reachable && state == State.HALF_OPEN) {
+            transition(State.HALF_OPEN, State.CLOSED);
+        } else if (!reachable && state == State.HALF_OPEN) {
+            open();
+        }
+        return reachable && state == State.CLOSED;
+    }
+
+    private boolean probe() {
+        probes.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            elasticsearchOperations.indexOps(ProductDocument.class).exists();
+            return true;
+        } catch (Exception e) {
+            failedProbes.incrementAndGet();
+            lastFailure = e.getMessage();
+            if (state == State.CLOSED && consecutiveFailures.incrementAndGet() >= failureThreshold) {
+                open();
+            }
+            return false;
+        } finally {
+            lastProbeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+    }
+
+    private synchronized void open() {
+        if (state != State.OPEN) {
+            State from = state;
+            openedAtNanos = System.nanoTime();
+            transition(from, State.OPEN);
+            logger.warn("Elasticsearch circuit opened after {} consecutive failures: {}",
+                    consecutiveFailures.get(), lastFailure);
+        }
+    }
+
+    private synchronized void transition(State from, State to) {
+        if (state != from) {
+            return;
+        }
+        state = to;
+        lastStateChangeAt = LocalDateTime.now();
+        transitions.computeIfAbsent(from + "->" + to, key -> new AtomicLong()).incrementAndGet();
+        if (to == State.CLOSED) {
+            logger.info("Elasticsearch circuit closed, cluster reachable again");
+        }
+    }
+
+    private static boolean isConnectivityFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataAccessResourceFailureException || cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("state", state.name());
+        stats.put("consecutiveFailures", consecutiveFailures.get());
+        stats.put("failureThreshold", failureThreshold);
+        Map<String, Long> transitionCounts = new HashMap<>();
+        transitions.forEach((key, count) -> transitionCounts.put(key, count.get()));
+        stats.put("transitions", transitionCounts);
+        stats.put("shortCircuited", shortCircuited.get());
+        stats.put("probes", probes.get());
+        stats.put("failedProbes", failedProbes.get());
+        stats.put("lastProbeMillis", lastProbeMillis);
+        stats.put("lastStateChangeAt", lastStateChangeAt);
+        stats.put("lastFailure", lastFailure);
+        return stats;
+    }
+}
@@ -1,11 +1,14 @@
 package com.plenti.plentibackend.elasticsearch.service;
 
+import com.plenti.plentibackend.dto.ProductSearchPageDTO;
 import com.plenti.plentibackend.elasticsearch.document.CategoryDocument;
 import com.plenti.plentibackend.elasticsearch.document.ProductDocument;
 import com.plenti.plentibackend.elasticsearch.document.StoreDocument;
 import com.plenti.plentibackend.elasticsearch.repository.CategorySearchRepository;
 import com.plenti.plentibackend.elasticsearch.repository.ProductSearchRepository;
 import com.plenti.plentibackend.elasticsearch.repository.StoreSearchRepository;
+import com.plenti.plentibackend.util.LruCache;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,13 +18,19 @@ import org.springframework.data.elasticsearch.client.elc.NativeQuery;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
 import org.springframework.data.elasticsearch.core.SearchHit;
 import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilterBuilder;
 import org.springframework.data.elasticsearch.core.query.Query;
+import org.springframework.data.elasticsearch.core.suggest.response.CompletionSuggestion;
+import org.springframework.data.elasticsearch.core.suggest.response.Suggest;
 import org.springframework.stereotype.Service;
 
-import co.elastic.clients.json.JsonData;
+import co.elastic.clients.elasticsearch.core.search.FieldSuggester;
+import co.elastic.clients.elasticsearch.core.search.Suggester;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -33,6 +42,8 @@ public class ElasticsearchService {
 
     private static final Logger logger = LoggerFactory.getLogger(ElasticsearchService.class);
 
+    private static final String PRODUCT_SUGGESTION = "product-suggest";
+
     @Autowired
     private ProductSearchRepository productSearchRepository;
 
@@ -45,23 +56,36 @@ public class ElasticsearchService {
     @Autowired
     private ElasticsearchOperations elasticsearchOperations;
 
+    @Autowired
+    private ElasticsearchHealthMonitor healthMonitor;
+
     @Value("${elasticsearch.enabled:true}")
     private boolean elasticsearchEnabled;
 
+    @Value("${elasticsearch.autocomplete.cache-size:2000}")
+    private int autocompleteCacheSize;
+
+    @Value("${elasticsearch.autocomplete.cache-ttl-ms:60000}")
+    private long autocompleteCacheTtlMs;
+
+    @Value("${elasticsearch.search.max-page-size:100}")
+    private int maxPageSize;
+
+    @Value("${elasticsearch.search.price-buckets:500,1000,2500,5000,10000}")
+    private List<Double> priceBuckets;
+
+    private LruCache<String, List<String>> autocompleteCache;
+
+    @PostConstruct
+    void init() {
+        autocompleteCache = new LruCache<>(autocompleteCacheSize, autocompleteCacheTtlMs);
+    }
+
     /**
-     * Check if Elasticsearch is available
+     * Check if Elasticsearch is available. Reads the circuit breaker state; no cluster round trip.
      */
     public boolean isElasticsearchAvailable() {
-        if (!elasticsearchEnabled) {
-            return false;
-        }
-        try {
-            elasticsearchOperations.indexOps(ProductDocument.class).exists();
-            return true;
-        } catch (Exception e) {
-            logger.warn("Elasticsearch is not available: {}", e.getMessage());
-            return false;
-        }
+        return elasticsearchEnabled && healthMonitor.allowRequest();
     }
 
     /**
@@ -69,7 +93,7 @@ public class ElasticsearchService {
      */
     public List<ProductDocument> searchProducts(String query) {
         if (!isElasticsearchAvailable()) {
-            logger.warn("Elasticsearch not available, returning empty results");
+            logger.debug("Elasticsearch not available, returning empty results");
             return new ArrayList<>();
         }
 
@@ -90,132 +114,156 @@ public class ElasticsearchService {
                     .build();
 
             SearchHits<ProductDocument> searchHits = elasticsearchOperations.search(searchQuery, ProductDocument.class);
+            healthMonitor.recordSuccess();
             return searchHits.stream()
                     .map(SearchHit::getContent)
                     .collect(Collectors.toList());
         } catch (Exception e) {
             logger.error("Error searching products: {}", e.getMessage(), e);
+            healthMonitor.recordFailure(e);
             return new ArrayList<>();
         }
     }
 
     /**
-     * Advanced search with filters
+     * Advanced search with filters, sorting, paging and facet counts in one round trip.
+     * Pass the previous page's nextSearchAfter to page deeply without from/size.
      */
-    public List<ProductDocument> advancedSearch(String query, Long categoryId, Double minPrice, Double maxPrice, Boolean inStockOnly) {
+    public ProductSearchPageDTO advancedSearch(String query, Long categoryId, Double minPrice, Double maxPrice,
+                                               Boolean inStockOnly, String sort, int page, int size,
+                                               String searchAfter) {
+        int pageSize = Math.max(1, Math.min(size, maxPageSize));
+        int pageNumber = Math.max(0, page);
+        ProductSearchQuery.SortBy sortBy = ProductSearchQuery.SortBy.parse(sort);
+        Query searchQuery = ProductSearchQuery.build(query, categoryId, minPrice, maxPrice,
+                Boolean.TRUE.equals(inStockOnly), sortBy, pageNumber, pageSize, searchAfter, priceBuckets);
+
         if (!isElasticsearchAvailable()) {
-            logger.warn("Elasticsearch not available, returning empty results");
-            return new ArrayList<>();
+            logger.debug("Elasticsearch not available, returning empty results");
+            return new ProductSearchPageDTO(new ArrayList<>(), 0, pageNumber, pageSize, false, null,
+                    new ArrayList<>(), new ArrayList<>(), 0);
         }
 
         try {
-            Query searchQuery = NativeQuery.builder()
-                    .withQuery(q -> q
-                            .bool(b -> {
-                                // Text search
-                                if (query != null && !query.trim().isEmpty()) {
-                                    b.must(must -> must
-                                            .multiMatch(m -> m
-                                                    .query(query)
-                                                    .fields("name^3", "description^1", "category^2")
-                                                    .fuzziness("AUTO")
-                                            )
-                                    );
-                                }
-
-                                // Category filter
-                                if (categoryId != null) {
-                                    b.filter(filter -> filter
-                                            .term(t -> t
-                                                    .field("categoryId")
-                                                    .value(categoryId)
-                                            )
-                                    );
-                                }
-
-                                // Price range filter
-                                if (minPrice != null || maxPrice != null) {
-                                    b.filter(filter -> filter
-                                            .range(r -> {
-                                                r.field("price");
-                                                if (minPrice != null) {
-                                                    r.gte(JsonData.of(minPrice));
-                                                }
-                                                if (maxPrice != null) {
-                                                    r.lte(JsonData.of(maxPrice));
-                                                }
-                                                return r;
-                                            })
-                                    );
-                                }
-
-                                // Stock filter
-                                if (inStockOnly != null && inStockOnly) {
-                                    b.filter(filter -> filter
-                                            .range(r -> r
-                                                    .field("stock")
-                                                    .gt(JsonData.of(0))
-                                            )
-                                    );
-                                }
-
-                                return b;
-                            })
-                    )
-                    .build();
-
             SearchHits<ProductDocument> searchHits = elasticsearchOperations.search(searchQuery, ProductDocument.class);
-            return searchHits.stream()
-                    .map(SearchHit::getContent)
-                    .collect(Collectors.toList());
+            healthMonitor.recordSuccess();
+
+            List<SearchHit<ProductDocument>> hits = searchHits.getSearchHits();
+            boolean hasMore = hits.size() == pageSize
+                    && (searchAfter != null || (long) (pageNumber + 1) * pageSize < searchHits.getTotalHits());
+            String nextSearchAfter = hasMore
+                    ? ProductSearchQuery.encodeCursor(hits.get(hits.size() - 1).getSortValues())
+                    : null;
+
+            return new ProductSearchPageDTO(
+                    hits.stream().map(SearchHit::getContent).collect(Collectors.toList()),
+                    searchHits.getTotalHits(),
+                    pageNumber,
+                    pageSize,
+                    hasMore,
+                    nextSearchAfter,
+                    ProductSearchQuery.categoryFacet(searchHits.getAggregations()),
+                    ProductSearchQuery.priceFacet(searchHits.getAggregations(), priceBuckets),
+                    ProductSearchQuery.inStockCount(searchHits.getAggregations()));
         } catch (Exception e) {
             logger.error("Error in advanced search: {}", e.getMessage(), e);
-            return new ArrayList<>();
+            healthMonitor.recordFailure(e);
+            return new ProductSearchPageDTO(new ArrayList<>(), 0, pageNumber, pageSize, false, null,
+                    new ArrayList<>(), new ArrayList<>(), 0);
         }
     }
 
     /**
-     * Autocomplete suggestions based on product names
+     * Autocomplete product names from the completion suggester, which answers prefix
+     * lookups from an in-memory structure instead of scoring a full-text query.
+     * Hot prefixes are served from a small LRU without touching the cluster.
      */
     public List<String> autocomplete(String prefix, int limit) {
+        if (prefix == null || prefix.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        String normalized = prefix.trim().toLowerCase(Locale.ROOT);
+        String cacheKey = limit + ":" + normalized;
+        List<String> cached = autocompleteCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
         if (!isElasticsearchAvailable()) {
-            logger.warn("Elasticsearch not available, returning empty results");
+            logger.debug("Elasticsearch not available, returning empty results");
             return new ArrayList<>();
         }
 
         try {
-            if (prefix == null || prefix.trim().isEmpty()) {
-                return new ArrayList<>();
-            }
-
             Query searchQuery = NativeQuery.builder()
-                    .withQuery(q -> q
-                            .match(m -> m
-                                    .field("name")
-                                    .query(prefix)
-                            )
-                    )
-                    .withMaxResults(limit)
+                    .withSuggester(Suggester.of(s -> s
+                            .suggesters(PRODUCT_SUGGESTION, FieldSuggester.of(f -> f
+                                    .prefix(normalized)
+                                    .completion(c -> c
+                                            .field("suggest")
+                                            .size(limit)
+                                            .skipDuplicates(true)
+                                    )
+                            ))
+                    ))
+                    .withSourceFilter(new FetchSourceFilterBuilder().withIncludes("name").build())
+                    .withMaxResults(0)
                     .build();
 
             SearchHits<ProductDocument> searchHits = elasticsearchOperations.search(searchQuery, ProductDocument.class);
-            return searchHits.stream()
-                    .map(hit -> hit.getContent().getName())
+            healthMonitor.recordSuccess();
+
+            List<String> names = suggestedNames(searchHits.getSuggest()).stream()
                     .distinct()
                     .limit(limit)
-                    .collect(Collectors.toList());
+                    .toList();
+            autocompleteCache.put(cacheKey, names);
+            return names;
         } catch (Exception e) {
             logger.error("Error in autocomplete: {}", e.getMessage(), e);
+            healthMonitor.recordFailure(e);
             return new ArrayList<>();
         }
     }
 
+    private List<String> suggestedNames(Suggest suggest) {
+        List<String> names = new ArrayList<>();
+        if (suggest == null || suggest.getSuggestion(PRODUCT_SUGGESTION) == null) {
+            return names;
+        }
+        for (Suggest.Suggestion.Entry<? extends Suggest.Suggestion.Entry.Option> entry
+                : suggest.getSuggestion(PRODUCT_SUGGESTION).getEntries()) {
+            for (Suggest.Suggestion.Entry.Option option : entry.getOptions()) {
+                // The option text is the matched input, which may be a suffix of the name
+                if (option instanceof CompletionSuggestion.Entry.Option<?> completion
+                        && completion.getSearchHit() != null
+                        && completion.getSearchHit().getContent() instanceof ProductDocument document) {
+                    names.add(document.getName());
+                } else {
+                    names.add(option.getText());
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Drop cached autocomplete results, e.g. after a full reindex
+     */
+    public void clearAutocompleteCache() {
+        autocompleteCache.clear();
+    }
+
+    public Map<String, Object> getAutocompleteCacheStats() {
+        return autocompleteCache.getStats();
+    }
+
     /**
      * Search categories by name
      */
     public List<CategoryDocument> searchCategories(String query) {
         if (!isElasticsearchAvailable()) {
-            logger.warn("Elasticsearch not available, returning empty results");
+            logger.debug("Elasticsearch not available, returning empty results");
             return new ArrayList<>();
         }
 
@@ -235,11 +283,13 @@ public class ElasticsearchService {
                     .build();
 
             SearchHits<CategoryDocument> searchHits = elasticsearchOperations.search(searchQuery, CategoryDocument.class);
+            healthMonitor.recordSuccess();
             return searchHits.stream()
                     .map(SearchHit::getContent)
                     .collect(Collectors.toList());
         } catch (Exception e) {
             logger.error("Error searching categories: {}", e.getMessage(), e);
+            healthMonitor.recordFailure(e);
             return new ArrayList<>();
         }
     }
@@ -249,7 +299,7 @@ public class ElasticsearchService {
      */
     public List<StoreDocument> searchStores(String query) {
         if (!isElasticsearchAvailable()) {
-            logger.warn("Elasticsearch not available, returning empty results");
+            logger.debug("Elasticsearch not available, returning empty results");
             return new ArrayList<>();
         }
 
@@ -269,11 +319,13 @@ public class ElasticsearchService {
                     .build();
 
             SearchHits<StoreDocument> searchHits = elasticsearchOperations.search(searchQuery, StoreDocument.class);
+            healthMonitor.recordSuccess();
             return searchHits.stream()
                     .map(SearchHit::getContent)
                     .collect(Collectors.toList());
         } catch (Exception e) {
             logger.error("Error searching stores: {}", e.getMessage(), e);
+            healthMonitor.recordFailure(e);
             return new ArrayList<>();
         }
     }
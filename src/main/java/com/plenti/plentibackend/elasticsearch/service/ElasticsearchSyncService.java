@@ -4,9 +4,8 @@ import com.plenti.plentibackend.elasticsearch.document.CategoryDocument;
 import com.plenti.plentibackend.elasticsearch.document.ProductDocument;
 import com.plenti.plentibackend.elasticsearch.document.StoreDocument;
 import com.plenti.plentibackend.elasticsearch.mapper.DocumentMapper;
-import com.plenti.plentibackend.elasticsearch.repository.CategorySearchRepository;
 import com.plenti.plentibackend.elasticsearch.repository.ProductSearchRepository;
-import com.plenti.plentibackend.elasticsearch.repository.StoreSearchRepository;
+import com.plenti.plentibackend.elasticsearch.service.SearchIndexChangeQueue.DocumentType;
 import com.plenti.plentibackend.entity.Category;
 import com.plenti.plentibackend.entity.Product;
 import com.plenti.plentibackend.entity.Store;
@@ -16,15 +15,41 @@ import com.plenti.plentibackend.repository.StoreRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.index.AliasAction;
+import org.springframework.data.elasticsearch.core.index.AliasActionParameters;
+import org.springframework.data.elasticsearch.core.index.AliasActions;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
- * Service to synchronize data from MySQL to Elasticsearch
+ * Service to synchronize data from MySQL to Elasticsearch.
+ * Changes recorded by {@link SearchIndexChangeQueue} are shipped on a short interval with
+ * one bulk request per document type. A full reindex streams keyset pages into a fresh
+ * index and then atomically points the alias (the document's index name) at it.
  */
 @Service
 @ConditionalOnProperty(name = "elasticsearch.enabled", havingValue = "true", matchIfMissing = false)
@@ -45,54 +70,139 @@ public class ElasticsearchSyncService {
     private ProductSearchRepository productSearchRepository;
 
     @Autowired
-    private CategorySearchRepository categorySearchRepository;
+    private DocumentMapper documentMapper;
 
     @Autowired
-    private StoreSearchRepository storeSearchRepository;
+    private ElasticsearchService elasticsearchService;
 
     @Autowired
-    private DocumentMapper documentMapper;
+    private ElasticsearchOperations elasticsearchOperations;
 
     @Autowired
-    private ElasticsearchService elasticsearchService;
+    private SearchIndexChangeQueue changeQueue;
+
+    @Autowired
+    private ElasticsearchHealthMonitor healthMonitor;
+
+    @Value("${elasticsearch.sync.batch-size:500}")
+    private int batchSize;
+
+    @Value("${elasticsearch.reindex.page-size:1000}")
+    private int reindexPageSize;
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final ReentrantLock reindexLock = new ReentrantLock();
+
+    // Fresh indexes being filled by a reindex; incremental changes are written to them too
+    private final Map<Class<?>, IndexCoordinates> rebuildTargets = new ConcurrentHashMap<>();
+
+    private final AtomicLong indexed = new AtomicLong();
+    private final AtomicLong deleted = new AtomicLong();
+    private final AtomicLong bulkRequests = new AtomicLong();
+    private final AtomicLong failedBulkRequests = new AtomicLong();
+    private volatile LocalDateTime lastSyncAt;
+    private volatile Map<String, Object> lastReindex = Map.of();
+
+    @Scheduled(fixedDelayString = "${elasticsearch.sync.interval-ms:2000}")
+    public void scheduledSync() {
+        syncPendingChanges();
+    }
 
     /**
-     * Sync all products from MySQL to Elasticsearch with batch processing
+     * Ship every pending change. A failed batch is put back and retried on the next run.
+     *
+     * @return number of documents indexed or deleted
      */
-    @Transactional(readOnly = true)
-    public void syncAllProducts() {
-        if (!elasticsearchService.isElasticsearchAvailable()) {
-            logger.warn("Elasticsearch not available, skipping product sync");
-            return;
+    public int syncPendingChanges() {
+        // While the circuit is open, changes stay queued and coalesce until the cluster is back
+        if (!healthMonitor.isAvailable() || !syncLock.tryLock()) {
+            return 0;
         }
-
         try {
-            logger.info("Starting product sync to Elasticsearch");
-            List<Product> products = productRepository.findAll();
-            
-            // Process in batches to avoid memory issues with large datasets
-            int batchSize = 100;
-            int totalSynced = 0;
-            
-            for (int i = 0; i < products.size(); i += batchSize) {
-                int end = Math.min(i + batchSize, products.size());
-                List<Product> batch = products.subList(i, end);
-                
-                List<ProductDocument> documents = batch.stream()
-                        .map(documentMapper::toProductDocument)
-                        .collect(Collectors.toList());
-                
-                productSearchRepository.saveAll(documents);
-                totalSynced += documents.size();
-                logger.debug("Synced batch: {}/{} products", totalSynced, products.size());
+            int shipped = 0;
+            for (DocumentType type : DocumentType.values()) {
+                List<Long> ids = changeQueue.drain(type, batchSize);
+                while (!ids.isEmpty()) {
+                    try {
+                        ship(type, ids);
+                        shipped += ids.size();
+                    } catch (Exception e) {
+                        failedBulkRequests.incrementAndGet();
+                        healthMonitor.recordFailure(e);
+                        changeQueue.requeue(type, ids);
+                        logger.warn("Incremental sync of {} {} documents failed, will retry: {}",
+                                ids.size(), type, e.getMessage());
+                        return shipped;
+                    }
+                    ids = changeQueue.drain(type, batchSize);
+                }
             }
-            
-            logger.info("Successfully synced {} products to Elasticsearch", totalSynced);
-        } catch (Exception e) {
-            logger.error("Error syncing products to Elasticsearch: {}", e.getMessage(), e);
+            lastSyncAt = LocalDateTime.now();
+            return shipped;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void ship(DocumentType type, List<Long> ids) {
+        switch (type) {
+            case PRODUCT -> ship(ids, productRepository.findAllById(ids), Product::getId,
+                    documentMapper::toProductDocument, ProductDocument.class);
+            case CATEGORY -> ship(ids, categoryRepository.findAllById(ids), Category::getId,
+                    documentMapper::toCategoryDocument, CategoryDocument.class);
+            case STORE -> ship(ids, storeRepository.findAllById(ids), Store::getId,
+                    documentMapper::toStoreDocument, StoreDocument.class);
         }
     }
 
+    /**
+     * Index the rows that still exist and delete the ones that are gone
+     */
+    private <E, D> void ship(List<Long> ids, List<E> entities, Function<E, Long> idOf,
+                             Function<E, D> mapper, Class<D> documentClass) {
+        Set<Long> missing = new HashSet<>(ids);
+        List<IndexQuery> queries = new ArrayList<>(entities.size());
+        for (E entity : entities) {
+            Long id = idOf.apply(entity);
+            missing.remove(id);
+            queries.add(new IndexQueryBuilder()
+                    .withId(String.valueOf(id))
+                    .withObject(mapper.apply(entity))
+                    .build());
+        }
+
+        List<IndexCoordinates> targets = new ArrayList<>(2);
+        targets.add(elasticsearchOperations.getIndexCoordinatesFor(documentClass));
+        IndexCoordinates rebuildTarget = rebuildTargets.get(documentClass);
+        if (rebuildTarget != null) {
+            targets.add(rebuildTarget);
+        }
+
+        for (IndexCoordinates target : targets) {
+            if (!queries.isEmpty()) {
+                elasticsearchOperations.bulkIndex(queries, target);
+                bulkRequests.incrementAndGet();
+            }
+            if (!missing.isEmpty()) {
+                List<String> missingIds = missing.stream().map(String::valueOf).toList();
+                NativeQuery byIds = NativeQuery.builder()
+                        .withQuery(q -> q.ids(i -> i.values(missingIds)))
+                        .build();
+                elasticsearchOperations.delete(byIds, documentClass, target);
+            }
+        }
+        indexed.addAndGet(queries.size());
+        deleted.addAndGet(missing.size());
+    }
+
+    /**
+     * Rebuild the product index from MySQL
+     */
+    public void syncAllProducts() {
+        rebuildIndex(ProductDocument.class, productRepository::findByIdGreaterThanOrderByIdAsc,
+                Product::getId, documentMapper::toProductDocument);
+    }
+
     /**
      * Sync a single product to Elasticsearch
      */
@@ -129,85 +239,174 @@ public class ElasticsearchSyncService {
     }
 
     /**
-     * Sync all categories from MySQL to Elasticsearch with batch processing
+     * Rebuild the category index from MySQL
      */
-    @Transactional(readOnly = true)
     public void syncAllCategories() {
-        if (!elasticsearchService.isElasticsearchAvailable()) {
-            logger.warn("Elasticsearch not available, skipping category sync");
-            return;
+        rebuildIndex(CategoryDocument.class, categoryRepository::findByIdGreaterThanOrderByIdAsc,
+                Category::getId, documentMapper::toCategoryDocument);
+    }
+
+    /**
+     * Rebuild the store index from MySQL
+     */
+    public void syncAllStores() {
+        rebuildIndex(StoreDocument.class, storeRepository::findByIdGreaterThanOrderByIdAsc,
+                Store::getId, documentMapper::toStoreDocument);
+    }
+
+    /**
+     * Reindex all data from MySQL to Elasticsearch
+     *
+     * @return false if another reindex is already running
+     */
+    public boolean reindexAll() {
+        if (!healthMonitor.checkNow()) {
+            logger.warn("Elasticsearch not available, skipping reindex");
+            return false;
+        }
+        if (!reindexLock.tryLock()) {
+            logger.info("Reindex already in progress, ignoring request");
+            return false;
+        }
+        try {
+            logger.info("Starting full reindex of all data");
+            Map<String, Object> summary = new HashMap<>();
+            summary.put("startedAt", LocalDateTime.now());
+            summary.put("products", timed(this::syncAllProducts));
+            summary.put("categories", timed(this::syncAllCategories));
+            summary.put("stores", timed(this::syncAllStores));
+            lastReindex = summary;
+            elasticsearchService.clearAutocompleteCache();
+            logger.info("Completed full reindex");
+            return true;
+        } finally {
+            reindexLock.unlock();
         }
+    }
+
+    private long timed(Runnable step) {
+        long start = System.currentTimeMillis();
+        step.run();
+        return System.currentTimeMillis() - start;
+    }
+
+    /**
+     * Stream the table by id into a new physical index, then swap the alias onto it and
+     * drop the index it replaces. Changes shipped while the copy runs are written to both
+     * indexes; the copy uses create-only writes so it never overwrites them with older rows.
+     */
+    private <E, D> void rebuildIndex(Class<D> documentClass, BiFunction<Long, Pageable, List<E>> pageLoader,
+                                     Function<E, Long> idOf, Function<E, D> mapper) {
+        String alias = elasticsearchOperations.getIndexCoordinatesFor(documentClass).getIndexName();
+        IndexCoordinates target = IndexCoordinates.of(alias + "_" + System.currentTimeMillis());
+        IndexOperations targetOps = elasticsearchOperations.indexOps(target);
 
         try {
-            logger.info("Starting category sync to Elasticsearch");
-            List<Category> categories = categoryRepository.findAll();
-            
-            // Process in batches to avoid memory issues
-            int batchSize = 100;
-            int totalSynced = 0;
-            
-            for (int i = 0; i < categories.size(); i += batchSize) {
-                int end = Math.min(i + batchSize, categories.size());
-                List<Category> batch = categories.subList(i, end);
-                
-                List<CategoryDocument> documents = batch.stream()
-                        .map(documentMapper::toCategoryDocument)
-                        .collect(Collectors.toList());
-                
-                categorySearchRepository.saveAll(documents);
-                totalSynced += documents.size();
+            logger.info("Rebuilding {} into {}", alias, target.getIndexName());
+            targetOps.create(elasticsearchOperations.indexOps(documentClass).createSettings(documentClass),
+                    targetOps.createMapping(documentClass));
+            rebuildTargets.put(documentClass, target);
+
+            long total = 0;
+            Long afterId = 0L;
+            Pageable page = PageRequest.of(0, reindexPageSize);
+            List<E> rows = pageLoader.apply(afterId, page);
+            while (!rows.isEmpty()) {
+                List<IndexQuery> queries = rows.stream()
+                        .map(row -> new IndexQueryBuilder()
+                                .withId(String.valueOf(idOf.apply(row)))
+                                .withObject(mapper.apply(row))
+                                .withOpType(IndexQuery.OpType.CREATE)
+                                .build())
+                        .toList();
+                bulkCreate(queries, target);
+                total += queries.size();
+                afterId = idOf.apply(rows.get(rows.size() - 1));
+                rows = pageLoader.apply(afterId, page);
             }
-            
-            logger.info("Successfully synced {} categories to Elasticsearch", totalSynced);
+            targetOps.refresh();
+
+            swapAlias(alias, target.getIndexName());
+            logger.info("Successfully synced {} documents into {} (alias {})", total, target.getIndexName(), alias);
         } catch (Exception e) {
-            logger.error("Error syncing categories to Elasticsearch: {}", e.getMessage(), e);
+            logger.error("Error rebuilding {} in Elasticsearch: {}", alias, e.getMessage(), e);
+            try {
+                targetOps.delete();
+            } catch (Exception cleanup) {
+                logger.warn("Could not delete partial index {}: {}", target.getIndexName(), cleanup.getMessage());
+            }
+        } finally {
+            rebuildTargets.remove(documentClass);
         }
     }
 
     /**
-     * Sync all stores from MySQL to Elasticsearch with batch processing
+     * Bulk create, ignoring documents the incremental sync already wrote
      */
-    @Transactional(readOnly = true)
-    public void syncAllStores() {
-        if (!elasticsearchService.isElasticsearchAvailable()) {
-            logger.warn("Elasticsearch not available, skipping store sync");
-            return;
-        }
-
+    private void bulkCreate(List<IndexQuery> queries, IndexCoordinates target) {
         try {
-            logger.info("Starting store sync to Elasticsearch");
-            List<Store> stores = storeRepository.findAll();
-            
-            // Process in batches to avoid memory issues
-            int batchSize = 100;
-            int totalSynced = 0;
-            
-            for (int i = 0; i < stores.size(); i += batchSize) {
-                int end = Math.min(i + batchSize, stores.size());
-                List<Store> batch = stores.subList(i, end);
-                
-                List<StoreDocument> documents = batch.stream()
-                        .map(documentMapper::toStoreDocument)
-                        .collect(Collectors.toList());
-                
-                storeSearchRepository.saveAll(documents);
-                totalSynced += documents.size();
+            elasticsearchOperations.bulkIndex(queries, target);
+        } catch (BulkFailureException e) {
+            boolean onlyConflicts = e.getFailedDocuments().values().stream()
+                    .allMatch(failure -> failure.status() != null && failure.status() == 409);
+            if (!onlyConflicts) {
+                throw e;
             }
-            
-            logger.info("Successfully synced {} stores to Elasticsearch", totalSynced);
-        } catch (Exception e) {
-            logger.error("Error syncing stores to Elasticsearch: {}", e.getMessage(), e);
         }
     }
 
     /**
-     * Reindex all data from MySQL to Elasticsearch
+     * Point the alias at the new index in one atomic request. The first time, a concrete
+     * index still carries the alias name (created by the repositories) and is removed in
+     * the same request.
      */
-    public void reindexAll() {
-        logger.info("Starting full reindex of all data");
-        syncAllProducts();
-        syncAllCategories();
-        syncAllStores();
-        logger.info("Completed full reindex");
+    private void swapAlias(String alias, String newIndex) {
+        IndexOperations aliasOps = elasticsearchOperations.indexOps(IndexCoordinates.of(alias));
+        Set<String> previous = indicesBehindAlias(aliasOps, alias);
+
+        List<AliasAction> actions = new ArrayList<>();
+        actions.add(new AliasAction.Add(AliasActionParameters.builder()
+                .withIndices(newIndex)
+                .withAliases(alias)
+                .build()));
+        if (previous.isEmpty() && aliasOps.exists()) {
+            actions.add(new AliasAction.RemoveIndex(AliasActionParameters.builder()
+                    .withIndices(alias)
+                    .build()));
+        }
+        for (String index : previous) {
+            actions.add(new AliasAction.Remove(AliasActionParameters.builder()
+                    .withIndices(index)
+                    .withAliases(alias)
+                    .build()));
+        }
+        aliasOps.alias(new AliasActions(actions.toArray(new AliasAction[0])));
+
+        for (String index : previous) {
+            if (!index.equals(newIndex)) {
+                elasticsearchOperations.indexOps(IndexCoordinates.of(index)).delete();
+            }
+        }
+    }
+
+    private Set<String> indicesBehindAlias(IndexOperations aliasOps, String alias) {
+        try {
+            return new HashSet<>(aliasOps.getAliases(alias).keySet());
+        } catch (Exception e) {
+            // Elasticsearch answers 404 when no alias of that name exists yet
+            return Set.of();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>(changeQueue.getStats());
+        stats.put("indexed", indexed.get());
+        stats.put("deleted", deleted.get());
+        stats.put("bulkRequests", bulkRequests.get());
+        stats.put("failedBulkRequests", failedBulkRequests.get());
+        stats.put("lastSyncAt", lastSyncAt);
+        stats.put("reindexRunning", reindexLock.isLocked());
+        stats.put("lastReindex", lastReindex);
+        return stats;
     }
 }
@@ -0,0 +1,267 @@
+package com.plenti.plentibackend.elasticsearch.service;
+
+import co.elastic.clients.elasticsearch._types.SortOptions;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.aggregations.FiltersBucket;
+import co.elastic.clients.elasticsearch._types.mapping.FieldType;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.json.JsonData;
+import com.plenti.plentibackend.dto.ProductSearchPageDTO.FacetBucket;
+import com.plenti.plentibackend.exception.PlentiException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregation;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregations;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.client.elc.NativeQueryBuilder;
+import org.springframework.data.elasticsearch.core.AggregationsContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the single request behind a faceted product search page and reads its facets.
+ * The text query is the only scoring clause. Category, price and stock selections go in
+ * post_filter, and every facet is wrapped in a filter aggregation of the other
+ * selections. All of them run in filter context, so Elasticsearch can cache them.
+ */
+final class ProductSearchQuery {
+
+    static final String CATEGORY_FACET = "categories";
+    static final String PRICE_FACET = "priceRanges";
+    static final String IN_STOCK_FACET = "inStock";
+    private static final String BUCKETS = "buckets";
+    private static final int CATEGORY_FACET_SIZE = 50;
+    // Elasticsearch's default index.max_result_window; deeper pages must use searchAfter
+    static final int MAX_RESULT_WINDOW = 10_000;
+
+    enum SortBy {
+        RELEVANCE, PRICE_ASC, PRICE_DESC, RATING, NEWEST;
+
+        static SortBy parse(String value) {
+            if (value == null || value.isBlank()) {
+                return RELEVANCE;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new PlentiException("Unsupported sort: " + value);
+            }
+        }
+    }
+
+    private ProductSearchQuery() {
+    }
+
+    static NativeQuery build(String text, Long categoryId, Double minPrice, Double maxPrice, boolean inStockOnly,
+                             SortBy sortBy, int page, int size, String searchAfter, List<Double> priceBounds) {
+        if (searchAfter == null && (long) (page + 1) * size > MAX_RESULT_WINDOW) {
+            throw new PlentiException("Page too deep for offset paging, use searchAfter instead");
+        }
+
+        Query categoryFilter = categoryId == null ? null
+                : Query.of(q -> q.term(t -> t.field("categoryId").value(categoryId)));
+        Query priceFilter = minPrice == null && maxPrice == null ? null
+                : Query.of(q -> q.range(r -> {
+                    r.field("price");
+                    if (minPrice != null) {
+                        r.gte(JsonData.of(minPrice));
+                    }
+                    if (maxPrice != null) {
+                        r.lte(JsonData.of(maxPrice));
+                    }
+                    return r;
+                }));
+        Query stockFilter = inStockOnly ? inStock() : null;
+
+        NativeQueryBuilder builder = NativeQuery.builder();
+        if (text != null && !text.isBlank()) {
+            builder.withQuery(q -> q.multiMatch(m -> m
+                    .query(text)
+                    .fields("name^3", "description^1", "category^2")
+                    .fuzziness("AUTO")));
+        } else {
+            builder.withQuery(q -> q.matchAll(m -> m));
+        }
+
+        Query selection = allOf(categoryFilter, priceFilter, stockFilter);
+        if (selection != null) {
+            builder.withFilter(selection);
+        }
+
+        builder.withAggregation(CATEGORY_FACET, Aggregation.of(a -> a
+                .filter(allOfOrMatchAll(priceFilter, stockFilter))
+                .aggregations(BUCKETS, Aggregation.of(t -> t
+                        .terms(terms -> terms.field("categoryId").size(CATEGORY_FACET_SIZE))))));
+        builder.withAggregation(PRICE_FACET, Aggregation.of(a -> a
+                .filter(allOfOrMatchAll(categoryFilter, stockFilter))
+                .aggregations(BUCKETS, Aggregation.of(f -> f
+                        .filters(filters -> filters.filters(b -> b.keyed(priceRanges(priceBounds))))))));
+        builder.withAggregation(IN_STOCK_FACET, Aggregation.of(a -> a
+                .filter(allOfOrMatchAll(categoryFilter, priceFilter, inStock()))));
+
+        builder.withSort(sortOptions(sortBy));
+        builder.withPageable(PageRequest.of(searchAfter == null ? page : 0, size));
+        if (searchAfter != null) {
+            builder.withSearchAfter(decodeCursor(searchAfter));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Every sort ends on id, so search_after cursors are stable across pages
+     */
+    private static List<SortOptions> sortOptions(SortBy sortBy) {
+        List<SortOptions> sorts = new ArrayList<>();
+        switch (sortBy) {
+            case RELEVANCE -> sorts.add(SortOptions.of(s -> s.score(sc -> sc.order(SortOrder.Desc))));
+            case PRICE_ASC -> sorts.add(fieldSort("price", SortOrder.Asc));
+            case PRICE_DESC -> sorts.add(fieldSort("price", SortOrder.Desc));
+            case RATING -> {
+                sorts.add(fieldSort("averageRating", SortOrder.Desc));
+                sorts.add(fieldSort("reviewCount", SortOrder.Desc));
+            }
+            case NEWEST -> sorts.add(fieldSort("lastUpdated", SortOrder.Desc));
+        }
+        // unmapped_type keeps a brand-new, still empty index from failing the sort
+        sorts.add(SortOptions.of(s -> s.field(f -> f.field("id").order(SortOrder.Asc).unmappedType(FieldType.Long))));
+        return sorts;
+    }
+
+    private static SortOptions fieldSort(String field, SortOrder order) {
+        return SortOptions.of(s -> s.field(f -> f.field(field).order(order)));
+    }
+
+    private static Query inStock() {
+        return Query.of(q -> q.range(r -> r.field("stock").gt(JsonData.of(0))));
+    }
+
+    /**
+     * Price buckets keyed "*-500", "500-1000", ..., "10000-*"
+     */
+    static Map<String, Query> priceRanges(List<Double> bounds) {
+        Map<String, Query> ranges = new LinkedHashMap<>();
+        Double lower = null;
+        for (int i = 0; i <= bounds.size(); i++) {
+            Double upper = i < bounds.size() ? bounds.get(i) : null;
+            Double from = lower;
+            ranges.put(label(from) + "-" + label(upper), Query.of(q -> q.range(r -> {
+                r.field("price");
+                if (from != null) {
+                    r.gte(JsonData.of(from));
+                }
+                if (upper != null) {
+                    r.lt(JsonData.of(upper));
+                }
+                return r;
+            })));
+            lower = upper;
+        }
+        return ranges;
+    }
+
+    private static String label(Double bound) {
+        if (bound == null) {
+            return "*";
+        }
+        return bound == Math.rint(bound) ? String.valueOf(bound.longValue()) : String.valueOf(bound);
+    }
+
+    private static Query allOf(Query... filters) {
+        List<Query> present = new ArrayList<>();
+        for (Query filter : filters) {
+            if (filter != null) {
+                present.add(filter);
+            }
+        }
+        if (present.isEmpty()) {
+            return null;
+        }
+        return present.size() == 1 ? present.get(0) : Query.of(q -> q.bool(b -> b.filter(present)));
+    }
+
+    private static Query allOfOrMatchAll(Query... filters) {
+        Query combined = allOf(filters);
+        return combined != null ? combined : Query.of(q -> q.matchAll(m -> m));
+    }
+
+    static List<FacetBucket> categoryFacet(AggregationsContainer<?> container) {
+        Aggregate buckets = subAggregate(container, CATEGORY_FACET);
+        if (buckets == null) {
+            return List.of();
+        }
+        if (buckets.isLterms()) {
+            return buckets.lterms().buckets().array().stream()
+                    .map(bucket -> new FacetBucket(String.valueOf(bucket.key()), bucket.docCount()))
+                    .collect(Collectors.toList());
+        }
+        if (buckets.isSterms()) {
+            return buckets.sterms().buckets().array().stream()
+                    .map(bucket -> new FacetBucket(bucket.key().stringValue(), bucket.docCount()))
+                    .collect(Collectors.toList());
+        }
+        // Unmapped field, e.g. an empty index
+        return List.of();
+    }
+
+    static List<FacetBucket> priceFacet(AggregationsContainer<?> container, List<Double> priceBounds) {
+        Aggregate buckets = subAggregate(container, PRICE_FACET);
+        if (buckets == null || !buckets.isFilters()) {
+            return List.of();
+        }
+        Map<String, FiltersBucket> keyed = buckets.filters().buckets().keyed();
+        // Report buckets in price order whatever order the response map has
+        List<FacetBucket> facet = new ArrayList<>();
+        for (String key : priceRanges(priceBounds).keySet()) {
+            FiltersBucket bucket = keyed.get(key);
+            facet.add(new FacetBucket(key, bucket != null ? bucket.docCount() : 0));
+        }
+        return facet;
+    }
+
+    static long inStockCount(AggregationsContainer<?> container) {
+        Aggregate aggregate = aggregate(container, IN_STOCK_FACET);
+        return aggregate != null && aggregate.isFilter() ? aggregate.filter().docCount() : 0;
+    }
+
+    private static Aggregate subAggregate(AggregationsContainer<?> container, String name) {
+        Aggregate aggregate = aggregate(container, name);
+        return aggregate != null && aggregate.isFilter() ? aggregate.filter().aggregations().get(BUCKETS) : null;
+    }
+
+    private static Aggregate aggregate(AggregationsContainer<?> container, String name) {
+        if (!(container instanceof ElasticsearchAggregations aggregations)) {
+            return null;
+        }
+        ElasticsearchAggregation aggregation = aggregations.aggregationsAsMap().get(name);
+        return aggregation != null ? aggregation.aggregation().getAggregate() : null;
+    }
+
+    /**
+     * Opaque cursor holding the sort values of the last hit on a page
+     */
+    static String encodeCursor(List<Object> sortValues) {
+        String joined = sortValues.stream().map(String::valueOf).collect(Collectors.joining("|"));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(joined.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static List<Object> decodeCursor(String cursor) {
+        try {
+            String joined = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            List<Object> values = new ArrayList<>();
+            for (String value : joined.split("\\|", -1)) {
+                values.add(value.matches("-?\\d+") ? (Object) Long.parseLong(value) : (Object) Double.parseDouble(value));
+            }
+            return values;
+        } catch (IllegalArgumentException e) {
+            throw new PlentiException("Invalid searchAfter cursor");
+        }
+    }
+}
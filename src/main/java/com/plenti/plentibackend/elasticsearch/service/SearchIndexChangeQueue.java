@@ -0,0 +1,104 @@
+package com.plenti.plentibackend.elasticsearch.service;
+
+import com.plenti.plentibackend.util.TransactionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ids of catalog rows changed since they were last shipped to Elasticsearch.
+ * Only ids are kept, so repeated changes to a row coalesce into one entry and the
+ * sync job always ships the row's state at the time it runs (deleted rows become deletes).
+ * Not conditional on Elasticsearch, because the JPA entity listener needs it either way;
+ * when Elasticsearch is disabled every change is ignored.
+ */
+@Component
+public class SearchIndexChangeQueue {
+
+    public enum DocumentType {
+        PRODUCT, CATEGORY, STORE
+    }
+
+    private final boolean enabled;
+    private final Map<DocumentType, Set<Long>> pending = new EnumMap<>(DocumentType.class);
+
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong requeued = new AtomicLong();
+
+    public SearchIndexChangeQueue(@Value("${elasticsearch.enabled:false}") boolean enabled) {
+        this.enabled = enabled;
+        for (DocumentType type : DocumentType.values()) {
+            pending.put(type, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    public void record(DocumentType type, Long id) {
+        if (!enabled || id == null) {
+            return;
+        }
+        recorded.incrementAndGet();
+        if (!pending.get(type).add(id)) {
+            coalesced.incrementAndGet();
+        }
+    }
+
+    /**
+     * Record the changes once the surrounding transaction commits, so a rollback never
+     * reaches the index
+     */
+    public void recordAfterCommit(DocumentType type, Collection<Long> ids) {
+        if (!enabled || ids.isEmpty()) {
+            return;
+        }
+        List<Long> snapshot = List.copyOf(ids);
+        TransactionUtils.runAfterCommit(() -> snapshot.forEach(id -> record(type, id)));
+    }
+
+    /**
+     * Remove and return up to max pending ids of a type
+     */
+    public List<Long> drain(DocumentType type, int max) {
+        List<Long> ids = new ArrayList<>(Math.min(max, 1024));
+        Iterator<Long> iterator = pending.get(type).iterator();
+        while (ids.size() < max && iterator.hasNext()) {
+            ids.add(iterator.next());
+            iterator.remove();
+        }
+        return ids;
+    }
+
+    /**
+     * Put back ids whose shipment failed; they coalesce with anything recorded meanwhile
+     */
+    public void requeue(DocumentType type, Collection<Long> ids) {
+        pending.get(type).addAll(ids);
+        requeued.addAndGet(ids.size());
+    }
+
+    public int size() {
+        return pending.values().stream().mapToInt(Set::size).sum();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        Map<String, Integer> pendingByType = new HashMap<>();
+        pending.forEach((type, ids) -> pendingByType.put(type.name(), ids.size()));
+        stats.put("pending", pendingByType);
+        stats.put("recorded", recorded.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("requeued", requeued.get());
+        return stats;
+    }
+}
@@ -1,5 +1,6 @@
 package com.plenti.plentibackend.entity;
 
+import com.plenti.plentibackend.elasticsearch.SearchIndexEntityListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -13,6 +14,7 @@ import java.util.List;
  */
 @Entity
 @Table(name = "categories")
+@EntityListeners(SearchIndexEntityListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,29 @@
+package com.plenti.plentibackend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing a time-limited claim on a scheduled job, so that only one
+ * instance runs it at a time. A lease that is not released lapses at leasedUntil.
+ */
+@Entity
+@Table(name = "job_leases")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobLease {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(length = 64)
+    private String owner;
+
+    private LocalDateTime leasedUntil;
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -26,11 +27,13 @@ public class Order {
     @Column(nullable = false)
     private Long userId;
 
+    // Inserted with the order in one JDBC batch (hibernate.jdbc.batch_size)
     @ElementCollection(fetch = FetchType.EAGER)
-    @CollectionTable(name = "order_products", 
-                    joinColumns = @JoinColumn(name = "order_id"))
-    @Column(name = "product_id")
-    private List<String> productIds = new ArrayList<>();
+    @CollectionTable(name = "order_items",
+                    joinColumns = @JoinColumn(name = "order_id"),
+                    indexes = @Index(name = "idx_order_items_order", columnList = "order_id"))
+    @BatchSize(size = 100)
+    private List<OrderItem> items = new ArrayList<>();
 
     @Column(nullable = false)
     private Double totalAmount;
@@ -77,8 +80,8 @@ public class Order {
     public Long getUserId() { return userId; }
     public void setUserId(Long userId) { this.userId = userId; }
     
-    public List<String> getProductIds() { return productIds; }
-    public void setProductIds(List<String> productIds) { this.productIds = productIds; }
+    public List<OrderItem> getItems() { return items; }
+    public void setItems(List<OrderItem> items) { this.items = items; }
     
     public Double getTotalAmount() { return totalAmount; }
     public void setTotalAmount(Double totalAmount) { this.totalAmount = totalAmount; }
@@ -0,0 +1,39 @@
+package com.plenti.plentibackend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Entity representing the orders placed on one day that are currently in one status,
+ * with the sum of their totals. Maintained incrementally as orders change status.
+ */
+@Entity
+@Table(name = "order_daily_rollups", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_order_daily_rollups_day_status", columnNames = {"bucketDate", "status"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate bucketDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private OrderStatus status;
+
+    @Column(nullable = false)
+    private Long orderCount = 0L;
+
+    @Column(nullable = false)
+    private Double amountTotal = 0.0;
+}
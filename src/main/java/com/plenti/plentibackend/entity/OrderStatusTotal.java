@@ -0,0 +1,29 @@
+package com.plenti.plentibackend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entity representing the number of orders currently in a status and the sum of their
+ * totals, over all days. One row per status, so the dashboard reads a handful of rows.
+ */
+@Entity
+@Table(name = "order_status_totals")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusTotal {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32)
+    private OrderStatus status;
+
+    @Column(nullable = false)
+    private Long orderCount = 0L;
+
+    @Column(nullable = false)
+    private Double amountTotal = 0.0;
+}
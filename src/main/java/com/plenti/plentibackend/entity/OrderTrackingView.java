@@ -0,0 +1,54 @@
+package com.plenti.plentibackend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Denormalised tracking state of one order, kept up to date by the fulfillment write
+ * path so the tracking endpoints read a single row instead of the order, its tracking
+ * history and the rider's latest location.
+ */
+@Entity
+@Table(name = "order_tracking_views")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderTrackingView {
+
+    @Id
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 50)
+    private OrderStatus status;
+
+    private Long storeId;
+
+    private String riderId;
+
+    private String riderName;
+
+    /**
+     * Rider position at the last status change
+     */
+    private Double riderLatitude;
+
+    private Double riderLongitude;
+
+    private LocalDateTime riderLocationAt;
+
+    private LocalDateTime estimatedDelivery;
+
+    /**
+     * JSON array of the status changes, oldest first
+     */
+    @Column(nullable = false, length = 4000)
+    private String timeline;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
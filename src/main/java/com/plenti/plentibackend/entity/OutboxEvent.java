@@ -0,0 +1,94 @@
+package com.plenti.plentibackend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing a notification written in the same transaction as the change it
+ * announces. The notification dispatcher sends it once that transaction has committed.
+ */
+@Entity
+@Table(name = "outbox_events", indexes = {
+        @Index(name = "idx_outbox_events_status", columnList = "status, id"),
+        @Index(name = "idx_outbox_events_claim", columnList = "claimedBy, status")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+
+    public enum Channel {
+        WEBSOCKET, SMS, EMAIL
+    }
+
+    public enum Status {
+        PENDING, SENT, FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Events of the same order are sent in id order; null for events without an order
+     */
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Channel channel;
+
+    /**
+     * STOMP destination, phone number or email address
+     */
+    @Column(nullable = false)
+    private String destination;
+
+    /**
+     * JSON message body
+     */
+    @Column(nullable = false, length = 2000)
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    private LocalDateTime nextAttemptAt;
+
+    @Column(length = 500)
+    private String lastError;
+
+    /**
+     * Dispatcher instance holding the event until claimedUntil
+     */
+    @Column(length = 40)
+    private String claimedBy;
+
+    private LocalDateTime claimedUntil;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime sentAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+        if (status == null) {
+            status = Status.PENDING;
+        }
+        if (attempts == null) {
+            attempts = 0;
+        }
+    }
+}
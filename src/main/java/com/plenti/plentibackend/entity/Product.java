@@ -1,5 +1,6 @@
 package com.plenti.plentibackend.entity;
 
+import com.plenti.plentibackend.elasticsearch.SearchIndexEntityListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -11,7 +12,10 @@ import java.time.LocalDateTime;
  * Entity representing a product in the Plenti catalog
  */
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_average_rating", columnList = "averageRating, reviewCount")
+})
+@EntityListeners(SearchIndexEntityListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -11,7 +11,10 @@ import java.time.LocalDateTime;
  * Entity representing rider location tracking
  */
 @Entity
-@Table(name = "rider_locations")
+@Table(name = "rider_locations", indexes = {
+        @Index(name = "idx_rider_locations_rider_time", columnList = "riderId, timestamp"),
+        @Index(name = "idx_rider_locations_time", columnList = "timestamp")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,45 @@
+package com.plenti.plentibackend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing a downsampled point of a rider's track.
+ * Raw rider_locations rows are compacted into these before they are purged.
+ */
+@Entity
+@Table(name = "rider_track_points", indexes = {
+        @Index(name = "idx_rider_track_points_rider", columnList = "riderId, id"),
+        @Index(name = "idx_rider_track_points_source", columnList = "sourceLocationId", unique = true)
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RiderTrackPoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long riderId;
+
+    @Column(nullable = false)
+    private Double latitude;
+
+    @Column(nullable = false)
+    private Double longitude;
+
+    @Column(nullable = false)
+    private LocalDateTime timestamp;
+
+    /**
+     * Id of the raw rider_locations row this point was taken from
+     */
+    @Column(nullable = false)
+    private Long sourceLocationId;
+}
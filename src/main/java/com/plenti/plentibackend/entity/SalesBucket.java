@@ -0,0 +1,56 @@
+package com.plenti.plentibackend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing pre-aggregated sales of one hour or one day, either overall or for
+ * one store or category. Fed by delivered orders and read by the sales series API.
+ */
+@Entity
+@Table(name = "sales_buckets", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_sales_buckets_key",
+                columnNames = {"granularity", "dimension", "dimensionKey", "bucketStart"})
+}, indexes = {
+        @Index(name = "idx_sales_buckets_range", columnList = "granularity, dimension, bucketStart")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesBucket {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * HOUR or DAY
+     */
+    @Column(nullable = false, length = 8)
+    private String granularity;
+
+    @Column(nullable = false)
+    private LocalDateTime bucketStart;
+
+    /**
+     * ALL, STORE or CATEGORY
+     */
+    @Column(nullable = false, length = 16)
+    private String dimension;
+
+    /**
+     * Store or category id, or "all" for the ALL dimension
+     */
+    @Column(nullable = false, length = 64)
+    private String dimensionKey;
+
+    @Column(nullable = false)
+    private Long orderCount = 0L;
+
+    @Column(nullable = false)
+    private Double revenue = 0.0;
+}
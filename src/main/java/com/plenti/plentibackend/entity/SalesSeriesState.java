@@ -0,0 +1,27 @@
+package com.plenti.plentibackend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing the single row that sales bucket writers lock before writing.
+ * A rebuild holds it for its whole transaction, so flushes on every instance wait for
+ * the rebuild, and records when the rebuild read the orders so flushes can drop sales
+ * it already counted.
+ */
+@Entity
+@Table(name = "sales_series_state")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesSeriesState {
+
+    @Id
+    private Long id;
+
+    private LocalDateTime rebuiltAt;
+}
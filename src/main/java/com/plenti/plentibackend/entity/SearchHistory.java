@@ -11,7 +11,9 @@ import java.time.LocalDateTime;
  * Entity representing search history for analytics
  */
 @Entity
-@Table(name = "search_history")
+@Table(name = "search_history", indexes = {
+        @Index(name = "idx_search_history_user_searched_at", columnList = "userId, searchedAt")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,45 @@
+package com.plenti.plentibackend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing one counter of a persisted popular-search-terms window.
+ * Lets the in-memory heavy-hitters sketches survive a restart. Instances add their counts
+ * to the row of a term, which the unique key makes one per window.
+ */
+@Entity
+@Table(name = "search_term_snapshots", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_search_term_snapshots_term", columnNames = {"granularity", "windowStart", "searchTerm"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchTermSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * HOURLY or DAILY
+     */
+    @Column(nullable = false, length = 10)
+    private String granularity;
+
+    @Column(nullable = false)
+    private LocalDateTime windowStart;
+
+    @Column(nullable = false)
+    private String searchTerm;
+
+    @Column(nullable = false)
+    private Long termCount;
+
+    @Column(nullable = false)
+    private Long termError;
+}
@@ -1,5 +1,6 @@
 package com.plenti.plentibackend.entity;
 
+import com.plenti.plentibackend.elasticsearch.SearchIndexEntityListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -10,6 +11,7 @@ import lombok.NoArgsConstructor;
  */
 @Entity
 @Table(name = "stores")
+@EntityListeners(SearchIndexEntityListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -73,6 +73,13 @@ public class User extends Domain implements UserDetails {
 
     private LocalDateTime lockTime;
 
+    /**
+     * Bumped whenever the password, lock state, enabled flag or roles change; embedded in
+     * access tokens so stateless authentication can tell when a token's claims are stale
+     */
+    @Column(nullable = false)
+    private Long authVersion = 0L;
+
     @ElementCollection(fetch = FetchType.LAZY)
     @CollectionTable(name = "user_payment_methods", 
                     joinColumns = @JoinColumn(name = "user_id"))
@@ -103,6 +110,9 @@ public class User extends Domain implements UserDetails {
         if (accountLocked == null) {
             accountLocked = false;
         }
+        if (authVersion == null) {
+            authVersion = 0L;
+        }
     }
 
     // UserDetails implementation
@@ -183,6 +193,13 @@ public class User extends Domain implements UserDetails {
     
     public LocalDateTime getLockTime() { return lockTime; }
     public void setLockTime(LocalDateTime lockTime) { this.lockTime = lockTime; }
+
+    public Long getAuthVersion() { return authVersion; }
+    public void setAuthVersion(Long authVersion) { this.authVersion = authVersion; }
+
+    public void bumpAuthVersion() {
+        authVersion = authVersion == null ? 1L : authVersion + 1;
+    }
     
     public Map<String, String> getPaymentMethods() { return paymentMethods; }
     public void setPaymentMethods(Map<String, String> paymentMethods) { this.paymentMethods = paymentMethods; }
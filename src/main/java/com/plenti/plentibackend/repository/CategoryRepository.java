@@ -1,6 +1,7 @@
 package com.plenti.plentibackend.repository;
 
 import com.plenti.plentibackend.entity.Category;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -18,4 +19,7 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     List<Category> findByParentId(Long parentId);
     
     List<Category> findByParentIdIsNull();
+
+    // Keyset pagination: callers pass the last id they saw and a page-sized Pageable
+    List<Category> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
 }
@@ -2,9 +2,14 @@ package com.plenti.plentibackend.repository;
 
 import com.plenti.plentibackend.entity.Order;
 import com.plenti.plentibackend.entity.OrderStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -18,4 +23,16 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByStatus(OrderStatus status);
     
     List<Order> findByUserIdOrderByOrderDateDesc(Long userId);
+
+    // Keyset pagination over orders in one status, used by analytics backfills
+    List<Order> findByStatusAndIdGreaterThanOrderByIdAsc(OrderStatus status, Long afterId, Pageable pageable);
+
+    // (order id, rider id) pairs of orders riders are currently delivering
+    @Query("SELECT o.id, o.riderId FROM Order o WHERE o.riderId IS NOT NULL AND o.status IN :statuses")
+    List<Object[]> findRiderAssignments(@Param("statuses") Collection<OrderStatus> statuses);
+
+    // Conditional status change; only one of several concurrent callers gets a row back
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :to WHERE o.id = :id AND o.status IN :from")
+    int updateStatusIfIn(@Param("id") Long id, @Param("from") Collection<OrderStatus> from, @Param("to") OrderStatus to);
 }
@@ -0,0 +1,10 @@
+package com.plenti.plentibackend.repository;
+
+import com.plenti.plentibackend.entity.OrderStatus;
+import com.plenti.plentibackend.entity.OrderStatusTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OrderStatusTotalRepository extends JpaRepository<OrderStatusTotal, OrderStatus> {
+}
@@ -0,0 +1,9 @@
+package com.plenti.plentibackend.repository;
+
+import com.plenti.plentibackend.entity.OrderTrackingView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OrderTrackingViewRepository extends JpaRepository<OrderTrackingView, Long> {
+}
@@ -0,0 +1,28 @@
+package com.plenti.plentibackend.repository;
+
+import com.plenti.plentibackend.entity.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Oldest events that are due now; events waiting out a retry backoff don't take batch slots
+    @Query("SELECT e.id FROM OutboxEvent e WHERE e.status = :status "
+            + "AND (e.nextAttemptAt IS NULL OR e.nextAttemptAt <= :now) ORDER BY e.id")
+    List<Long> findDueIds(@Param("status") OutboxEvent.Status status, @Param("now") LocalDateTime now,
+                          Pageable pageable);
+
+    List<OutboxEvent> findByClaimedByAndStatusOrderByIdAsc(String claimedBy, OutboxEvent.Status status);
+
+    long countByStatus(OutboxEvent.Status status);
+
+    @Query("SELECT MIN(e.createdAt) FROM OutboxEvent e WHERE e.status = :status")
+    LocalDateTime findOldestCreatedAt(@Param("status") OutboxEvent.Status status);
+}
@@ -1,10 +1,18 @@
 package com.plenti.plentibackend.repository;
 
 import com.plenti.plentibackend.entity.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repository for Product entity
@@ -27,4 +35,26 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByIsFeaturedTrue();
     
     List<Product> findByFlashSaleEndAfter(java.time.LocalDateTime now);
+
+    // Dashboard top products, served by idx_products_average_rating
+    List<Product> findTop10ByOrderByAverageRatingDescReviewCountDesc();
+
+    // Keyset pagination: callers pass the last id they saw and a page-sized Pageable
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    List<Product> findByCategoryAndIdGreaterThanOrderByIdAsc(String category, Long afterId, Pageable pageable);
+
+    List<Product> findByCategoryIdAndIdGreaterThanOrderByIdAsc(Long categoryId, Long afterId, Pageable pageable);
+
+    @Query("SELECT p FROM Product p " +
+           "WHERE p.lastUpdated > :updatedAfter OR (p.lastUpdated = :updatedAfter AND p.id > :afterId) " +
+           "ORDER BY p.lastUpdated ASC, p.id ASC")
+    List<Product> findUpdatedAfter(@Param("updatedAfter") LocalDateTime updatedAfter,
+                                   @Param("afterId") Long afterId,
+                                   Pageable pageable);
+
+    // MySQL Connector/J only streams row by row when the fetch size is Integer.MIN_VALUE
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT p FROM Product p ORDER BY p.id ASC")
+    Stream<Product> streamAllOrderById();
 }
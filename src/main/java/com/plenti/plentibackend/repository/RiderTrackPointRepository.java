@@ -0,0 +1,30 @@
+package com.plenti.plentibackend.repository;
+
+import com.plenti.plentibackend.entity.RiderTrackPoint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RiderTrackPointRepository extends JpaRepository<RiderTrackPoint, Long> {
+
+    List<RiderTrackPoint> findByRiderIdAndIdLessThanOrderByIdDesc(Long riderId, Long beforeId, Pageable pageable);
+
+    /**
+     * Latest kept point of each given rider, used to continue downsampling across runs
+     */
+    @Query("SELECT t FROM RiderTrackPoint t WHERE t.id IN "
+            + "(SELECT MAX(t2.id) FROM RiderTrackPoint t2 WHERE t2.riderId IN :riderIds GROUP BY t2.riderId)")
+    List<RiderTrackPoint> findLatestByRiderIds(@Param("riderIds") Collection<Long> riderIds);
+
+    /**
+     * Highest raw location id already compacted; raw rows above it are still pending
+     */
+    @Query("SELECT COALESCE(MAX(t.sourceLocationId), 0) FROM RiderTrackPoint t")
+    Long findMaxSourceLocationId();
+}
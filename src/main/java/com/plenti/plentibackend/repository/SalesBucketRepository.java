@@ -0,0 +1,26 @@
+package com.plenti.plentibackend.repository;
+
+import com.plenti.plentibackend.entity.SalesBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SalesBucketRepository extends JpaRepository<SalesBucket, Long> {
+
+    /**
+     * Buckets in [from, to), optionally for a single store or category
+     */
+    @Query("SELECT b FROM SalesBucket b WHERE b.granularity = :granularity AND b.dimension = :dimension "
+            + "AND (:dimensionKey IS NULL OR b.dimensionKey = :dimensionKey) "
+            + "AND b.bucketStart >= :from AND b.bucketStart < :to ORDER BY b.bucketStart, b.dimensionKey")
+    List<SalesBucket> findRange(@Param("granularity") String granularity,
+                                @Param("dimension") String dimension,
+                                @Param("dimensionKey") String dimensionKey,
+                                @Param("from") LocalDateTime from,
+                                @Param("to") LocalDateTime to);
+}
@@ -1,8 +1,10 @@
 package com.plenti.plentibackend.repository;
 
 import com.plenti.plentibackend.entity.SearchHistory;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -11,10 +13,21 @@ import java.util.List;
 @Repository
 public interface SearchHistoryRepository extends JpaRepository<SearchHistory, Long> {
     List<SearchHistory> findByUserIdOrderBySearchedAtDesc(Long userId);
+
+    /**
+     * Terms of the user's latest searches, newest first; the page bounds the index range read
+     */
+    @Query("SELECT sh.searchTerm FROM SearchHistory sh WHERE sh.userId = :userId ORDER BY sh.searchedAt DESC, sh.id DESC")
+    List<String> findRecentSearchTerms(@Param("userId") Long userId, Pageable pageable);
     
     @Query("SELECT sh.searchTerm, COUNT(sh) as count FROM SearchHistory sh " +
            "WHERE sh.searchedAt >= :since " +
            "GROUP BY sh.searchTerm " +
            "ORDER BY count DESC")
     List<Object[]> findPopularSearchTerms(LocalDateTime since);
+
+    @Query("SELECT sh.searchTerm, COUNT(sh) FROM SearchHistory sh " +
+           "WHERE sh.searchedAt >= :from AND sh.searchedAt < :to " +
+           "GROUP BY sh.searchTerm")
+    List<Object[]> countSearchTermsBetween(LocalDateTime from, LocalDateTime to);
 }
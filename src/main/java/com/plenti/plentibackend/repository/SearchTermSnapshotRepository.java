@@ -0,0 +1,14 @@
+package com.plenti.plentibackend.repository;
+
+import com.plenti.plentibackend.entity.SearchTermSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SearchTermSnapshotRepository extends JpaRepository<SearchTermSnapshot, Long> {
+
+    List<SearchTermSnapshot> findByGranularityAndWindowStartGreaterThanEqual(String granularity, LocalDateTime since);
+}
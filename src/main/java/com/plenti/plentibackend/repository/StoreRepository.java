@@ -1,6 +1,7 @@
 package com.plenti.plentibackend.repository;
 
 import com.plenti.plentibackend.entity.Store;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -13,4 +14,7 @@ import java.util.List;
 public interface StoreRepository extends JpaRepository<Store, Long> {
     
     List<Store> findByType(String type);
+
+    // Keyset pagination: callers pass the last id they saw and a page-sized Pageable
+    List<Store> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
 }
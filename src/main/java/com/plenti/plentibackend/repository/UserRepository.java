@@ -2,6 +2,8 @@ package com.plenti.plentibackend.repository;
 
 import com.plenti.plentibackend.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -21,4 +23,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByPhoneNumber(String phoneNumber);
     
     boolean existsByEmail(String email);
+
+    @Query("SELECT u.authVersion FROM User u WHERE u.id = :id")
+    Optional<Long> findAuthVersionById(@Param("id") Long id);
 }
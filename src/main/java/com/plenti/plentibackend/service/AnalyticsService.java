@@ -1,10 +1,8 @@
 package com.plenti.plentibackend.service;
 
 import com.plenti.plentibackend.dto.AnalyticsDTO;
-import com.plenti.plentibackend.entity.Order;
 import com.plenti.plentibackend.entity.OrderStatus;
-import com.plenti.plentibackend.entity.Product;
-import com.plenti.plentibackend.repository.OrderRepository;
+import com.plenti.plentibackend.entity.OrderStatusTotal;
 import com.plenti.plentibackend.repository.ProductRepository;
 import com.plenti.plentibackend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,7 +18,7 @@ import java.util.stream.Collectors;
 public class AnalyticsService {
 
     @Autowired
-    private OrderRepository orderRepository;
+    private OrderRollupService orderRollupService;
 
     @Autowired
     private UserRepository userRepository;
@@ -28,32 +26,35 @@ public class AnalyticsService {
     @Autowired
     private ProductRepository productRepository;
 
+    /**
+     * Dashboard summary read from the order rollups, so its cost does not grow with the number of orders
+     */
     public AnalyticsDTO getAnalyticsSummary() {
         AnalyticsDTO analytics = new AnalyticsDTO();
 
-        List<Order> orders = orderRepository.findAll();
-        
-        analytics.setTotalOrders((long) orders.size());
+        Map<OrderStatus, OrderStatusTotal> totals = orderRollupService.getTotalsByStatus();
+        long totalOrders = totals.values().stream().mapToLong(OrderStatusTotal::getOrderCount).sum();
+
+        analytics.setTotalOrders(totalOrders);
         analytics.setTotalUsers(userRepository.count());
         analytics.setTotalProducts(productRepository.count());
 
-        // Calculate total revenue
-        double totalRevenue = orders.stream()
-                .filter(order -> order.getStatus() == OrderStatus.DELIVERED)
-                .mapToDouble(Order::getTotalAmount)
-                .sum();
+        // Revenue counts delivered orders only
+        OrderStatusTotal delivered = totals.get(OrderStatus.DELIVERED);
+        double totalRevenue = delivered != null ? delivered.getAmountTotal() : 0.0;
         analytics.setTotalRevenue(totalRevenue);
 
         // Calculate average order value
-        double avgOrderValue = orders.isEmpty() ? 0 : totalRevenue / orders.size();
+        double avgOrderValue = totalOrders == 0 ? 0 : totalRevenue / totalOrders;
         analytics.setAverageOrderValue(avgOrderValue);
 
         // Orders by status
-        Map<String, Long> ordersByStatus = orders.stream()
-                .collect(Collectors.groupingBy(
-                        order -> order.getStatus().toString(),
-                        Collectors.counting()
-                ));
+        Map<String, Long> ordersByStatus = new HashMap<>();
+        totals.forEach((status, total) -> {
+            if (total.getOrderCount() > 0) {
+                ordersByStatus.put(status.toString(), total.getOrderCount());
+            }
+        });
         analytics.setOrdersByStatus(ordersByStatus);
 
         // Top products
@@ -63,11 +64,7 @@ public class AnalyticsService {
     }
 
     private List<Map<String, Object>> getTopProducts() {
-        List<Product> products = productRepository.findAll();
-        
-        return products.stream()
-                .sorted(Comparator.comparingDouble(Product::getAverageRating).reversed())
-                .limit(10)
+        return productRepository.findTop10ByOrderByAverageRatingDescReviewCountDesc().stream()
                 .map(product -> {
                     Map<String, Object> productMap = new HashMap<>();
                     productMap.put("id", product.getId());
@@ -36,6 +36,7 @@ public class AuthServiceImpl implements AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final SmsService smsService;
+    private final AuthenticationCache authenticationCache;
 
     private static final int OTP_EXPIRY_MINUTES = 10;
     private static final int OTP_LENGTH = 6;
@@ -105,7 +106,9 @@ public class AuthServiceImpl implements AuthService {
         if (type == Otp.OtpType.REGISTRATION) {
             // Enable user account
             user.setEnabled(true);
+            user.bumpAuthVersion();
             userRepository.save(user);
+            authenticationCache.evictUserAfterCommit(user);
 
             // Generate tokens
             String token = jwtService.generateToken(user);
@@ -134,7 +137,8 @@ public class AuthServiceImpl implements AuthService {
     }
 
     @Override
-    @Transactional
+    // Rejections must still commit the failed-attempt count, the lock and its cache eviction
+    @Transactional(noRollbackFor = PlentiException.class)
     public AuthResponse login(LoginRequest request) {
         // Find user
         User user = userRepository.findByPhoneNumber(request.getPhoneNumber())
@@ -148,7 +152,9 @@ public class AuthServiceImpl implements AuthService {
             } else {
                 // Auto-unlock if lock time expired
                 unlockAccount(user);
+                user.bumpAuthVersion();
                 userRepository.save(user);
+                authenticationCache.evictUserAfterCommit(user);
             }
         }
 
@@ -166,7 +172,9 @@ public class AuthServiceImpl implements AuthService {
                 // Lock account
                 user.setAccountLocked(true);
                 user.setLockTime(LocalDateTime.now());
+                user.bumpAuthVersion();
                 userRepository.save(user);
+                authenticationCache.evictUserAfterCommit(user);
                 throw new PlentiException("Account locked due to too many failed login attempts. Please try again in " 
                         + LOCK_DURATION_MINUTES + " minutes.");
             }
@@ -267,7 +275,9 @@ public class AuthServiceImpl implements AuthService {
         user.setFailedLoginAttempts(0);
         user.setAccountLocked(false);
         user.setLockTime(null);
+        user.bumpAuthVersion();
         userRepository.save(user);
+        authenticationCache.evictUserAfterCommit(user);
 
         return AuthResponse.builder()
                 .success(true)
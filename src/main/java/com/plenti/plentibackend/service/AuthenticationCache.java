@@ -0,0 +1,180 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.entity.User;
+import com.plenti.plentibackend.repository.UserRepository;
+import com.plenti.plentibackend.util.TransactionUtils;
+import com.plenti.plentibackend.util.TtlCache;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded, TTL-limited caches used by the JWT filter: verified token to its claims,
+ * phone number to an immutable UserDetails snapshot, and user id to the user's current
+ * auth version stamp. A user's entries must be evicted whenever their password, lock
+ * state, enabled flag or roles change. Every eviction bumps a generation counter, and a
+ * value loaded from the database is only cached if no eviction ran while it was loading.
+ */
+@Component
+public class AuthenticationCache {
+
+    private final UserRepository userRepository;
+    private final TtlCache<String, VerifiedToken> tokens;
+    private final TtlCache<String, UserDetails> users;
+    private final TtlCache<Long, Long> authVersions;
+    private final AtomicLong generation = new AtomicLong();
+
+    public AuthenticationCache(UserRepository userRepository,
+                               @Value("${security.auth-cache.ttl-seconds:300}") long ttlSeconds,
+                               @Value("${security.auth-cache.max-tokens:50000}") int maxTokens,
+                               @Value("${security.auth-cache.max-users:20000}") int maxUsers,
+                               @Value("${security.jwt.version-check-ttl-seconds:60}") long versionTtlSeconds) {
+        this.userRepository = userRepository;
+        this.tokens = new TtlCache<>(maxTokens, ttlSeconds * 1000);
+        this.users = new TtlCache<>(maxUsers, ttlSeconds * 1000);
+        this.authVersions = new TtlCache<>(maxUsers, versionTtlSeconds * 1000);
+    }
+
+    /**
+     * Claims of a token whose signature and expiry have been verified. userId and
+     * authVersion are null for tokens issued before they were embedded.
+     */
+    public record VerifiedToken(String subject, Long userId, List<String> roles, Long authVersion) {
+
+        public static VerifiedToken of(Claims claims) {
+            List<String> roles = claims.get(JwtService.ROLES_CLAIM) instanceof List<?> list
+                    ? list.stream().map(String::valueOf).toList()
+                    : List.of();
+            return new VerifiedToken(claims.getSubject(), asLong(claims.get(JwtService.USER_ID_CLAIM)),
+                    roles, asLong(claims.get(JwtService.AUTH_VERSION_CLAIM)));
+        }
+
+        public boolean isStamped() {
+            return userId != null && authVersion != null;
+        }
+
+        /**
+         * Principal built from the signed claims alone
+         */
+        public UserDetails toUserDetails() {
+            return org.springframework.security.core.userdetails.User.withUsername(subject)
+                    .password("")
+                    .authorities(roles.stream().map(SimpleGrantedAuthority::new).toList())
+                    .build();
+        }
+
+        private static Long asLong(Object value) {
+            return value instanceof Number number ? number.longValue() : null;
+        }
+    }
+
+    public VerifiedToken getToken(String token) {
+        return tokens.get(token);
+    }
+
+    /**
+     * Remember a verified token, never beyond its own expiry
+     */
+    public void putToken(String token, VerifiedToken verified, Date expiration) {
+        long ttlMillis = expiration != null
+                ? expiration.getTime() - System.currentTimeMillis()
+                : Long.MAX_VALUE / 1_000_000L;
+        tokens.put(token, verified, ttlMillis);
+    }
+
+    public UserDetails getUser(String username) {
+        return users.get(username);
+    }
+
+    /**
+     * Cached details of a user, loading and caching a detached copy without the password
+     * hash on a miss
+     */
+    public UserDetails getOrLoadUser(String username, Function<String, UserDetails> loader) {
+        UserDetails cached = users.get(username);
+        if (cached != null) {
+            return cached;
+        }
+        long loadGeneration = generation.get();
+        UserDetails loaded = loader.apply(username);
+        UserDetails snapshot = org.springframework.security.core.userdetails.User.withUserDetails(loaded)
+                .password("")
+                .build();
+        putIfCurrent(users, snapshot.getUsername(), snapshot, loadGeneration);
+        return snapshot;
+    }
+
+    /**
+     * Current auth version stamp of a user, read with a single-column query at most once
+     * per version-check TTL. Null if the user no longer exists.
+     */
+    public Long getAuthVersion(Long userId) {
+        Long version = authVersions.get(userId);
+        if (version == null) {
+            long loadGeneration = generation.get();
+            version = userRepository.findAuthVersionById(userId).orElse(null);
+            if (version != null) {
+                putIfCurrent(authVersions, userId, version, loadGeneration);
+            }
+        }
+        return version;
+    }
+
+    /**
+     * Drop everything cached for a user, including the tokens issued to them
+     */
+    public void evictUser(Long userId, String username) {
+        // Before removing, so a load that read the old row can no longer cache it
+        generation.incrementAndGet();
+        users.remove(username);
+        tokens.removeIf((token, verified) -> username.equals(verified.subject()));
+        if (userId != null) {
+            authVersions.remove(userId);
+        }
+    }
+
+    /**
+     * Evict once the surrounding transaction commits. A request that read the pre-commit
+     * row is still loading at that point, so the generation check keeps it out of the cache.
+     */
+    public void evictUserAfterCommit(User user) {
+        Long userId = user.getId();
+        String username = user.getPhoneNumber();
+        TransactionUtils.runAfterCommit(() -> evictUser(userId, username));
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        tokens.clear();
+        users.clear();
+        authVersions.clear();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("tokens", tokens.getStats());
+        stats.put("users", users.getStats());
+        stats.put("authVersions", authVersions.getStats());
+        stats.put("generation", generation.get());
+        return stats;
+    }
+
+    private <K, V> void putIfCurrent(TtlCache<K, V> cache, K key, V value, long loadGeneration) {
+        if (generation.get() == loadGeneration) {
+            cache.put(key, value);
+            // An eviction may have slipped in between the check and the put
+            if (generation.get() != loadGeneration) {
+                cache.remove(key, value);
+            }
+        }
+    }
+}
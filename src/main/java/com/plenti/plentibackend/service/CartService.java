@@ -2,15 +2,15 @@ package com.plenti.plentibackend.service;
 
 import com.plenti.plentibackend.dto.CartDTO;
 import com.plenti.plentibackend.entity.Cart;
-import com.plenti.plentibackend.entity.Product;
 import com.plenti.plentibackend.exception.PlentiException;
 import com.plenti.plentibackend.repository.CartRepository;
-import com.plenti.plentibackend.repository.ProductRepository;
 import com.plenti.plentibackend.util.Mapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Map;
+
 /**
  * Service for shopping cart operations
  */
@@ -21,7 +21,7 @@ public class CartService {
     private CartRepository cartRepository;
 
     @Autowired
-    private ProductRepository productRepository;
+    private ProductCatalogSnapshot catalogSnapshot;
 
     @Autowired
     private Mapper mapper;
@@ -37,10 +37,12 @@ public class CartService {
         Cart cart = cartRepository.findByUserId(userId)
                 .orElseGet(() -> createNewCart(userId));
 
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new PlentiException("Product not found"));
+        ProductCatalogSnapshot.Entry product = catalogSnapshot.get(productId);
+        if (product == null) {
+            throw new PlentiException("Product not found");
+        }
 
-        if (product.getStock() < quantity) {
+        if (product.stock() < quantity) {
             throw new PlentiException("Insufficient stock");
         }
 
@@ -68,10 +70,12 @@ public class CartService {
         Cart cart = cartRepository.findByUserId(userId)
                 .orElseThrow(() -> new PlentiException("Cart not found"));
 
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new PlentiException("Product not found"));
+        ProductCatalogSnapshot.Entry product = catalogSnapshot.get(productId);
+        if (product == null) {
+            throw new PlentiException("Product not found");
+        }
 
-        if (product.getStock() < quantity) {
+        if (product.stock() < quantity) {
             throw new PlentiException("Insufficient stock");
         }
 
@@ -103,11 +107,14 @@ public class CartService {
     }
 
     private void calculateTotal(Cart cart) {
+        Map<Long, ProductCatalogSnapshot.Entry> products = catalogSnapshot.getAll(cart.getItems().keySet());
         double total = 0.0;
         for (var entry : cart.getItems().entrySet()) {
-            Product product = productRepository.findById(entry.getKey())
-                    .orElseThrow(() -> new PlentiException("Product not found"));
-            total += product.getPrice() * entry.getValue();
+            ProductCatalogSnapshot.Entry product = products.get(entry.getKey());
+            if (product == null) {
+                throw new PlentiException("Product not found");
+            }
+            total += product.price() * entry.getValue();
         }
         cart.setTotal(total);
     }
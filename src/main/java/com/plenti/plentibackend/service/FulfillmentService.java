@@ -1,11 +1,13 @@
 package com.plenti.plentibackend.service;
 
+import com.plenti.plentibackend.dto.OrderTrackingDTO;
 import com.plenti.plentibackend.entity.*;
 import com.plenti.plentibackend.exception.PlentiException;
 import com.plenti.plentibackend.repository.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,6 +22,9 @@ import java.util.stream.Collectors;
 @Slf4j
 public class FulfillmentService {
 
+    private static final String CLAIM_RIDER_SQL =
+            "UPDATE riders SET status = 'BUSY' WHERE id = ? AND status = 'AVAILABLE' AND is_active = TRUE";
+
     @Autowired
     private OrderRepository orderRepository;
 
@@ -29,9 +34,6 @@ public class FulfillmentService {
     @Autowired
     private RiderRepository riderRepository;
 
-    @Autowired
-    private RiderLocationRepository riderLocationRepository;
-
     @Autowired
     private OrderTrackingRepository orderTrackingRepository;
 
@@ -39,10 +41,28 @@ public class FulfillmentService {
     private StoreAssignmentService storeAssignmentService;
 
     @Autowired
-    private SmsService smsService;
+    private StoreSpatialIndex storeSpatialIndex;
+
+    @Autowired
+    private RiderLocationIndex riderLocationIndex;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NotificationOutbox notificationOutbox;
+
+    @Autowired
+    private OrderRollupService orderRollupService;
+
+    @Autowired
+    private RiderPositionPublisher riderPositionPublisher;
+
+    @Autowired
+    private OrderTrackingProjection orderTrackingProjection;
 
     @Autowired
-    private NotificationService notificationService;
+    private JdbcTemplate jdbcTemplate;
 
     @Value("${fulfillment.auto-assign.enabled:true}")
     private boolean autoAssignEnabled;
@@ -50,6 +70,9 @@ public class FulfillmentService {
     @Value("${fulfillment.max-rider-distance-km:10.0}")
     private double maxRiderDistanceKm;
 
+    @Value("${fulfillment.auto-assign.candidates:5}")
+    private int autoAssignCandidates;
+
     @Value("${fulfillment.default.latitude:6.5244}")
     private double defaultLatitude; // Default Lagos coordinates
     
@@ -81,9 +104,10 @@ public class FulfillmentService {
         order.setStoreId(nearestStore.getId());
         order.setStatus(OrderStatus.CONFIRMED);
         order = orderRepository.save(order);
+        orderRollupService.recordTransition(order, OrderStatus.PENDING);
 
         // Create tracking entry
-        createTrackingEntry(orderId, OrderStatus.CONFIRMED, 
+        createTrackingEntry(order, OrderStatus.CONFIRMED, 
             "Order confirmed and assigned to " + nearestStore.getName(), null);
 
         log.info("Order {} assigned to store {}", orderId, nearestStore.getName());
@@ -104,34 +128,16 @@ public class FulfillmentService {
      * Find nearest store with inventory availability
      */
     private Store findNearestStoreWithInventory(double lat, double lng) {
-        List<Store> stores = storeRepository.findAll();
-
-        if (stores.isEmpty()) {
-            throw new PlentiException("No stores available");
-        }
-
-        Store nearestStore = null;
-        double minDistance = Double.MAX_VALUE;
-
-        for (Store store : stores) {
-            if (store.getLatitude() != null && store.getLongitude() != null && Boolean.TRUE.equals(store.getActive())) {
-                double distance = calculateDistance(lat, lng, store.getLatitude(), store.getLongitude());
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    nearestStore = store;
-                }
-            }
-        }
-
-        if (nearestStore == null) {
+        StoreSpatialIndex.Hit nearest = storeSpatialIndex.findNearest(lat, lng, Double.POSITIVE_INFINITY);
+        if (nearest == null) {
             throw new PlentiException("No active stores with valid coordinates found");
         }
 
-        return nearestStore;
+        return nearest.store();
     }
 
     /**
-     * Auto-assign rider based on proximity and availability
+     * Auto-assign the nearest rider near the store that can still be claimed
      */
     @Transactional
     public Rider autoAssignRider(Order order, double destLat, double destLng) {
@@ -139,41 +145,27 @@ public class FulfillmentService {
         Store store = storeRepository.findById(order.getStoreId())
                 .orElseThrow(() -> new PlentiException("Store not found"));
 
-        List<Rider> availableRiders = riderRepository.findByStatusAndIsActiveTrue("AVAILABLE");
-
-        if (availableRiders.isEmpty()) {
-            log.warn("No available riders found for order {}", order.getId());
+        if (store.getLatitude() == null || store.getLongitude() == null) {
+            log.warn("Store {} has no coordinates; cannot auto-assign rider for order {}", store.getId(), order.getId());
             return null;
         }
 
-        // Find nearest available rider
-        Rider nearestRider = null;
-        double minDistance = Double.MAX_VALUE;
-
-        for (Rider rider : availableRiders) {
-            // Get rider's last known location
-            Optional<RiderLocation> locationOpt = riderLocationRepository
-                    .findFirstByRiderIdOrderByTimestampDesc(rider.getId());
-
-            if (locationOpt.isPresent()) {
-                RiderLocation location = locationOpt.get();
-                double distance = calculateDistance(
-                    store.getLatitude(), store.getLongitude(),
-                    location.getLatitude(), location.getLongitude()
-                );
-
-                if (distance < minDistance && distance <= maxRiderDistanceKm) {
-                    minDistance = distance;
-                    nearestRider = rider;
-                }
-            }
-        }
+        // Nearest available riders from the in-memory location index. The index can lag the
+        // riders table, so each candidate is claimed with a conditional UPDATE before it is used
+        List<RiderLocationIndex.Hit> candidates = riderLocationIndex.findNearestAvailable(
+                store.getLatitude(), store.getLongitude(), maxRiderDistanceKm, autoAssignCandidates);
 
-        if (nearestRider != null) {
-            assignRiderToOrder(order.getId(), nearestRider.getId());
-            log.info("Auto-assigned rider {} to order {} (distance: {} km)", 
-                nearestRider.getName(), order.getId(), minDistance);
-            return nearestRider;
+        for (RiderLocationIndex.Hit hit : candidates) {
+            if (jdbcTemplate.update(CLAIM_RIDER_SQL, hit.riderId()) != 1) {
+                // Taken or withdrawn since the index saw it; refresh the index and try the next one
+                riderRepository.findById(hit.riderId()).ifPresent(riderLocationIndex::syncAfterCommit);
+                continue;
+            }
+            assignRiderToOrder(order.getId(), hit.riderId());
+            Rider rider = riderRepository.findById(hit.riderId()).orElse(null);
+            log.info("Auto-assigned rider {} to order {} (distance: {} km)",
+                hit.riderId(), order.getId(), hit.distanceKm());
+            return rider;
         }
 
         log.warn("No riders within {} km found for order {}", maxRiderDistanceKm, order.getId());
@@ -198,25 +190,24 @@ public class FulfillmentService {
         // Update order
         order.setRiderId(String.valueOf(riderId));
         order.setRiderName(rider.getName());
+        OrderStatus previousStatus = order.getStatus();
         order.setStatus(OrderStatus.PROCESSING);
         order = orderRepository.save(order);
+        orderRollupService.recordTransition(order, previousStatus);
 
         // Update rider availability
         rider.setStatus("BUSY");
         riderRepository.save(rider);
+        riderLocationIndex.updateAvailabilityAfterCommit(riderId, false);
+        riderPositionPublisher.trackAfterCommit(orderId, riderId);
 
         // Create tracking entry
-        createTrackingEntry(orderId, OrderStatus.PROCESSING, 
+        createTrackingEntry(order, OrderStatus.PROCESSING, 
             "Rider " + rider.getName() + " assigned to order", riderId);
 
-        // Send notifications
-        try {
-            // Send notification to rider
-            notificationService.sendNotification("/topic/riders/" + riderId, 
-                Map.of("orderId", orderId, "message", "New order assigned"));
-        } catch (Exception e) {
-            log.error("Failed to send rider assignment notification: {}", e.getMessage());
-        }
+        // Notify the rider once the assignment commits
+        notificationOutbox.publish(orderId, "/topic/riders/" + riderId,
+            Map.of("orderId", orderId, "message", "New order assigned"));
 
         log.info("Rider {} assigned to order {}", rider.getName(), orderId);
         return order;
@@ -233,21 +224,19 @@ public class FulfillmentService {
         OrderStatus oldStatus = order.getStatus();
         order.setStatus(newStatus);
         order = orderRepository.save(order);
+        orderRollupService.recordTransition(order, oldStatus);
 
         // Create tracking entry
-        createTrackingEntry(orderId, newStatus, message, 
+        createTrackingEntry(order, newStatus, message, 
             order.getRiderId() != null ? Long.parseLong(order.getRiderId()) : null);
 
-        // Send status update notifications
-        try {
-            sendStatusUpdateNotifications(order, newStatus);
-        } catch (Exception e) {
-            log.error("Failed to send status update notifications: {}", e.getMessage());
-        }
+        // Queue status update notifications; they are sent after commit
+        sendStatusUpdateNotifications(order, newStatus);
 
         // If order is delivered or cancelled, mark rider as available
         if (newStatus == OrderStatus.DELIVERED || newStatus == OrderStatus.CANCELLED) {
             releaseRider(order.getRiderId());
+            riderPositionPublisher.untrackAfterCommit(orderId);
         }
 
         log.info("Order {} status updated: {} -> {}", orderId, oldStatus, newStatus);
@@ -273,106 +262,96 @@ public class FulfillmentService {
     }
 
     /**
-     * Get order fulfillment status with tracking history
+     * Get order fulfillment status with tracking history, read from the tracking projection
      */
     public Map<String, Object> getFulfillmentStatus(Long orderId) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new PlentiException("Order not found"));
-
-        List<OrderTracking> trackingHistory = orderTrackingRepository
-                .findByOrderIdOrderByTimestampAsc(orderId);
+        OrderTrackingDTO tracking = orderTrackingProjection.get(orderId);
 
         Map<String, Object> status = new HashMap<>();
         status.put("orderId", orderId);
-        status.put("currentStatus", order.getStatus());
-        status.put("storeId", order.getStoreId());
-        status.put("riderId", order.getRiderId());
-        status.put("riderName", order.getRiderName());
-        status.put("trackingHistory", trackingHistory);
-        status.put("estimatedDeliveryTime", calculateEstimatedDeliveryTime(order));
-
-        // Get rider current location if available
-        if (order.getRiderId() != null) {
+        status.put("currentStatus", tracking.getStatus());
+        status.put("storeId", tracking.getStoreId());
+        status.put("riderId", tracking.getRiderId());
+        status.put("riderName", tracking.getRiderName());
+        status.put("trackingHistory", tracking.getTimeline());
+        status.put("estimatedDeliveryTime", tracking.getEstimatedDelivery());
+
+        // Live position from the in-memory index, else the one stored at the last status change
+        RiderLocationIndex.RiderState live = null;
+        if (tracking.getRiderId() != null) {
             try {
-                Long riderId = Long.parseLong(order.getRiderId());
-                Optional<RiderLocation> locationOpt = riderLocationRepository
-                        .findFirstByRiderIdOrderByTimestampDesc(riderId);
-                locationOpt.ifPresent(location -> {
-                    status.put("riderLocation", Map.of(
-                        "latitude", location.getLatitude(),
-                        "longitude", location.getLongitude(),
-                        "timestamp", location.getTimestamp()
-                    ));
-                });
-            } catch (Exception e) {
-                log.warn("Failed to get rider location: {}", e.getMessage());
+                live = riderLocationIndex.get(Long.parseLong(tracking.getRiderId()));
+            } catch (NumberFormatException e) {
+                log.warn("Order {} has an invalid rider id {}", orderId, tracking.getRiderId());
             }
         }
+        if (live != null && !Double.isNaN(live.latitude()) && live.timestamp() != null) {
+            status.put("riderLocation", Map.of(
+                "latitude", live.latitude(),
+                "longitude", live.longitude(),
+                "timestamp", live.timestamp()
+            ));
+        } else if (tracking.getRiderLatitude() != null && tracking.getRiderLocationAt() != null) {
+            status.put("riderLocation", Map.of(
+                "latitude", tracking.getRiderLatitude(),
+                "longitude", tracking.getRiderLongitude(),
+                "timestamp", tracking.getRiderLocationAt()
+            ));
+        }
 
         return status;
     }
 
     /**
-     * Create order tracking entry
+     * Tracking projection of an order (status, rider, ETA and timeline)
      */
-    private void createTrackingEntry(Long orderId, OrderStatus status, String message, Long riderId) {
+    public OrderTrackingDTO getTracking(Long orderId) {
+        return orderTrackingProjection.get(orderId);
+    }
+
+    /**
+     * Create order tracking entry and update the order's tracking projection
+     */
+    private void createTrackingEntry(Order order, OrderStatus status, String message, Long riderId) {
         OrderTracking tracking = new OrderTracking();
-        tracking.setOrderId(orderId);
+        tracking.setOrderId(order.getId());
         tracking.setStatus(status);
         tracking.setStatusMessage(message);
-        tracking.setDescription(generateStatusDescription(status));
+        tracking.setDescription(OrderTrackingProjection.describe(status));
         
         if (riderId != null) {
             tracking.setRiderId(String.valueOf(riderId));
-            // Get rider location if available
-            Optional<RiderLocation> locationOpt = riderLocationRepository
-                    .findFirstByRiderIdOrderByTimestampDesc(riderId);
-            locationOpt.ifPresent(location -> {
-                tracking.setRiderLatitude(location.getLatitude());
-                tracking.setRiderLongitude(location.getLongitude());
-            });
+            // Rider position from the in-memory index
+            RiderLocationIndex.RiderState position = riderLocationIndex.get(riderId);
+            if (position != null && !Double.isNaN(position.latitude())) {
+                tracking.setRiderLatitude(position.latitude());
+                tracking.setRiderLongitude(position.longitude());
+            }
         }
-        
-        orderTrackingRepository.save(tracking);
-    }
 
-    /**
-     * Generate human-readable status description
-     */
-    private String generateStatusDescription(OrderStatus status) {
-        switch (status) {
-            case PENDING:
-                return "Your order has been received and is being processed";
-            case PROCESSING:
-                return "Your order is being processed";
-            case CONFIRMED:
-                return "Your order has been confirmed and assigned to a store";
-            case PACKED:
-                return "Your order has been packed and is ready for delivery";
-            case OUT_FOR_DELIVERY:
-                return "Your order is on its way";
-            case DELIVERED:
-                return "Your order has been delivered";
-            case CANCELLED:
-                return "Your order has been cancelled";
-            case REFUNDED:
-                return "Your order has been refunded";
-            default:
-                return "Order status updated";
-        }
+        // Before saving the entry, so a view first built from the history doesn't list it twice
+        orderTrackingProjection.record(order, message, calculateEstimatedDeliveryTime(order));
+        orderTrackingRepository.save(tracking);
     }
 
     /**
-     * Send status update notifications
+     * Queue status update notifications in the outbox
      */
     private void sendStatusUpdateNotifications(Order order, OrderStatus status) {
-        // Send push notification with orderId
-        notificationService.sendOrderStatusUpdate(order.getId(), status);
+        // Push notification with orderId
+        notificationOutbox.orderStatusChanged(order.getId(), status);
 
-        // Send SMS for important status changes
+        // SMS for important status changes. Email joins once EmailService has a real transport;
+        // until then the outbox would mark emails sent that never left the app
         if (status == OrderStatus.OUT_FOR_DELIVERY || status == OrderStatus.DELIVERED) {
-            // Get user phone from order or user service
-            // smsService.sendOrderStatusSms(phoneNumber, order.getId(), status);
+            userRepository.findById(order.getUserId()).ifPresent(user -> {
+                String orderRef = String.valueOf(order.getId());
+                if (user.getPhoneNumber() != null && !user.getPhoneNumber().isBlank()) {
+                    notificationOutbox.sms(order.getId(), user.getPhoneNumber(), status == OrderStatus.DELIVERED
+                            ? SmsService.deliveredMessage(orderRef)
+                            : SmsService.deliveryNotificationMessage(orderRef, order.getRiderName()));
+                }
+            });
         }
     }
 
@@ -387,6 +366,7 @@ public class FulfillmentService {
                 riderOpt.ifPresent(rider -> {
                     rider.setStatus("AVAILABLE");
                     riderRepository.save(rider);
+                    riderLocationIndex.syncAfterCommit(rider);
                     log.info("Rider {} marked as available", rider.getName());
                 });
             } catch (Exception e) {
@@ -398,7 +378,7 @@ public class FulfillmentService {
     /**
      * Calculate estimated delivery time
      */
-    private LocalDateTime calculateEstimatedDeliveryTime(Order order) {
+    LocalDateTime calculateEstimatedDeliveryTime(Order order) {
         // Base delivery time: 60 minutes
         int baseMinutes = 60;
 
@@ -434,7 +414,7 @@ public class FulfillmentService {
      * Extract coordinates from address (simplified version)
      * In production, use a geocoding service
      */
-    private double[] extractCoordinatesFromAddress(String address) {
+    double[] extractCoordinatesFromAddress(String address) {
         // Use configured default coordinates
         // In production, implement proper geocoding
         return new double[]{defaultLatitude, defaultLongitude};
@@ -0,0 +1,56 @@
+package com.plenti.plentibackend.service;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Cross-instance mutual exclusion for scheduled jobs, backed by one job_leases row per job.
+ * Acquiring is a single conditional UPDATE (or the first INSERT), so it works the same on
+ * every database; a crashed holder only blocks the job until its lease lapses.
+ */
+@Service
+public class JobLeaseService {
+
+    private static final String ACQUIRE_SQL =
+            "UPDATE job_leases SET owner = ?, leased_until = ? "
+                    + "WHERE name = ? AND (owner IS NULL OR owner = ? OR leased_until < ?)";
+    private static final String INSERT_SQL =
+            "INSERT INTO job_leases (name, owner, leased_until) VALUES (?, ?, ?)";
+    private static final String RELEASE_SQL =
+            "UPDATE job_leases SET owner = NULL, leased_until = NULL WHERE name = ? AND owner = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public JobLeaseService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Claim the job for this instance for the given duration.
+     * Returns false while another instance holds an unexpired lease.
+     */
+    public boolean tryAcquire(String name, Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp until = Timestamp.valueOf(now.plus(lease));
+        if (jdbcTemplate.update(ACQUIRE_SQL, instanceId, until, name, instanceId, Timestamp.valueOf(now)) > 0) {
+            return true;
+        }
+        try {
+            return jdbcTemplate.update(INSERT_SQL, name, instanceId, until) > 0;
+        } catch (DuplicateKeyException e) {
+            // The row exists and another instance holds it
+            return false;
+        }
+    }
+
+    public void release(String name) {
+        jdbcTemplate.update(RELEASE_SQL, name, instanceId);
+    }
+}
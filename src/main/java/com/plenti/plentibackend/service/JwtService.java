@@ -1,9 +1,13 @@
 package com.plenti.plentibackend.service;
 
+import com.plenti.plentibackend.entity.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.WeakKeyException;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
@@ -24,6 +28,10 @@ import java.util.stream.Collectors;
 @Slf4j
 public class JwtService {
 
+    public static final String ROLES_CLAIM = "roles";
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String AUTH_VERSION_CLAIM = "av";
+
     @Value("${jwt.secret}")
     private String secret;
 
@@ -33,8 +41,39 @@ public class JwtService {
     @Value("${jwt.refreshExpiration}")
     private Long refreshExpiration;
 
+    private Key signingKey;
+
+    private JwtParser parser;
+
+    /**
+     * Build the HMAC key and parser once; both are immutable and thread-safe
+     */
+    @PostConstruct
+    void init() {
+        try {
+            signingKey = Keys.hmacShaKeyFor(secret.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            parser = Jwts.parserBuilder()
+                    .setSigningKey(signingKey)
+                    .build();
+        } catch (WeakKeyException e) {
+            // Keep starting up; token operations fail with the same error until jwt.secret is fixed
+            log.error("jwt.secret is not a valid HS256 key: {}", e.getMessage());
+        }
+    }
+
     private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        if (signingKey == null) {
+            return Keys.hmacShaKeyFor(secret.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        }
+        return signingKey;
+    }
+
+    /**
+     * Verify the signature and expiry in a single parse and return the claims.
+     * Throws a JwtException if the token is malformed, tampered with or expired.
+     */
+    public Claims parseClaims(String token) {
+        return extractAllClaims(token);
     }
 
     public String extractUsername(String token) {
@@ -51,22 +90,20 @@ public class JwtService {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        JwtParser jwtParser = parser != null ? parser : Jwts.parserBuilder().setSigningKey(getSigningKey()).build();
+        return jwtParser.parseClaimsJws(token).getBody();
     }
 
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
-        claims.put("roles", userDetails.getAuthorities().stream()
+        claims.put(ROLES_CLAIM, userDetails.getAuthorities().stream()
                 .map(GrantedAuthority::getAuthority)
                 .collect(Collectors.toList()));
+        // Lets the filter authenticate from the token alone while the user's stamp is unchanged
+        if (userDetails instanceof User user && user.getId() != null) {
+            claims.put(USER_ID_CLAIM, user.getId());
+            claims.put(AUTH_VERSION_CLAIM, user.getAuthVersion());
+        }
         return createToken(claims, userDetails.getUsername(), expiration);
     }
 
@@ -87,8 +124,9 @@ public class JwtService {
 
     public Boolean isTokenValid(String token, UserDetails userDetails) {
         try {
-            final String username = extractUsername(token);
-            return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+            final Claims claims = extractAllClaims(token);
+            return (claims.getSubject().equals(userDetails.getUsername())
+                    && !claims.getExpiration().before(new Date()));
         } catch (Exception e) {
             log.error("Token validation failed: {}", e.getMessage());
             return false;
@@ -97,8 +135,8 @@ public class JwtService {
 
     public Boolean validateToken(String token, String username) {
         try {
-            final String extractedUsername = extractUsername(token);
-            return (extractedUsername.equals(username) && !isTokenExpired(token));
+            final Claims claims = extractAllClaims(token);
+            return (claims.getSubject().equals(username) && !claims.getExpiration().before(new Date()));
         } catch (Exception e) {
             log.error("Token validation failed: {}", e.getMessage());
             return false;
@@ -0,0 +1,348 @@
+package com.plenti.plentibackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.plenti.plentibackend.entity.OutboxEvent;
+import com.plenti.plentibackend.entity.OutboxEvent.Status;
+import com.plenti.plentibackend.repository.OutboxEventRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sends the notifications recorded in outbox_events to WebSocket and SMS.
+ * Each round claims the oldest batch-size due pending events for this instance with a lease,
+ * sends them in id order on the dispatcher's own thread and records the outcomes in one
+ * short transaction. Events of an order are sent strictly in order: once one of them has
+ * to wait for a retry, or is held by another instance, the order's later events wait too.
+ * A failed send is retried with exponential backoff and given up after max-attempts.
+ * Delivery is at least once: an event sent just before a crash is sent again once its
+ * lease expires. Slow sends (SMS can block for the Termii timeout) must not let the lease
+ * lapse mid-batch, or another instance would reclaim and resend the rest of it: once half
+ * the lease has gone the held events are renewed, and any whose lease already expired are
+ * skipped. Keep the lease above twice the slowest send.
+ */
+@Service
+@Slf4j
+public class NotificationDispatcher {
+
+    private static final String CLAIM_SQL =
+            "UPDATE outbox_events SET claimed_by = ?, claimed_until = ? "
+                    + "WHERE status = 'PENDING' AND id <= ? AND (claimed_until IS NULL OR claimed_until < ?) "
+                    + "AND (next_attempt_at IS NULL OR next_attempt_at <= ?)";
+    // Orders with an older pending event this instance does not hold
+    private static final String BLOCKED_ORDERS_SQL =
+            "SELECT DISTINCT order_id FROM outbox_events WHERE status = 'PENDING' AND id <= ? "
+                    + "AND order_id IS NOT NULL AND (claimed_by IS NULL OR claimed_by <> ?)";
+    private static final String MARK_SENT_SQL =
+            "UPDATE outbox_events SET status = 'SENT', attempts = ?, sent_at = ?, "
+                    + "claimed_by = NULL, claimed_until = NULL WHERE id = ?";
+    private static final String MARK_RETRY_SQL =
+            "UPDATE outbox_events SET attempts = ?, next_attempt_at = ?, last_error = ?, "
+                    + "claimed_by = NULL, claimed_until = NULL WHERE id = ?";
+    private static final String MARK_FAILED_SQL =
+            "UPDATE outbox_events SET status = 'FAILED', attempts = ?, last_error = ?, "
+                    + "claimed_by = NULL, claimed_until = NULL WHERE id = ?";
+    // Extends the lease of events still held; expired ones may already belong to another instance
+    private static final String RENEW_SQL =
+            "UPDATE outbox_events SET claimed_until = ? "
+                    + "WHERE claimed_by = ? AND status = 'PENDING' AND claimed_until >= ?";
+    private static final String HELD_SQL =
+            "SELECT id FROM outbox_events WHERE claimed_by = ? AND status = 'PENDING' AND claimed_until >= ?";
+    private static final String RELEASE_SQL =
+            "UPDATE outbox_events SET claimed_by = NULL, claimed_until = NULL WHERE claimed_by = ? AND status = 'PENDING'";
+    private static final String PURGE_SQL =
+            "DELETE FROM outbox_events WHERE status = 'SENT' AND sent_at < ?";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final NotificationService notificationService;
+    private final SmsService smsService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final long retryBaseMillis;
+    private final long retryMaxMillis;
+    private final int retentionDays;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final ReentrantLock dispatchLock = new ReentrantLock();
+    private final AtomicBoolean dispatchRequested = new AtomicBoolean();
+    private final ExecutorService dispatchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "notification-dispatch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong leaseExpired = new AtomicLong();
+    private volatile long lastBatchMillis;
+    private volatile int lastBatchSent;
+    private volatile long lastLagMillis;
+    private volatile long maxLagMillis;
+
+    public NotificationDispatcher(OutboxEventRepository outboxEventRepository,
+                                  NotificationService notificationService,
+                                  SmsService smsService,
+                                  JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  ObjectMapper objectMapper,
+                                  @Value("${notification.outbox.batch-size:200}") int batchSize,
+                                  @Value("${notification.outbox.lease-ms:30000}") long leaseMillis,
+                                  @Value("${notification.outbox.max-attempts:8}") int maxAttempts,
+                                  @Value("${notification.outbox.retry-base-ms:1000}") long retryBaseMillis,
+                                  @Value("${notification.outbox.retry-max-ms:300000}") long retryMaxMillis,
+                                  @Value("${notification.outbox.retention-days:7}") int retentionDays) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.notificationService = notificationService;
+        this.smsService = smsService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.lease = Duration.ofMillis(leaseMillis);
+        this.maxAttempts = maxAttempts;
+        this.retryBaseMillis = retryBaseMillis;
+        this.retryMaxMillis = retryMaxMillis;
+        this.retentionDays = retentionDays;
+    }
+
+    /**
+     * Dispatch on the dispatcher thread soon; called after each outbox write commits
+     */
+    public void requestDispatch() {
+        if (dispatchRequested.compareAndSet(false, true) && !dispatchExecutor.isShutdown()) {
+            dispatchExecutor.execute(() -> {
+                dispatchRequested.set(false);
+                dispatch();
+            });
+        }
+    }
+
+    /**
+     * Picks up retries that have come due and events written by other instances
+     */
+    @Scheduled(fixedDelayString = "${notification.outbox.poll-interval-ms:1000}")
+    public void scheduledDispatch() {
+        requestDispatch();
+    }
+
+    /**
+     * Send pending events until a round makes no progress. Concurrent callers skip,
+     * since the running round already picks up events written meanwhile.
+     */
+    public void dispatch() {
+        if (!dispatchLock.tryLock()) {
+            return;
+        }
+        try {
+            while (dispatchBatch()) {
+                // Keep going while full batches are being sent
+            }
+        } catch (RuntimeException e) {
+            failedBatches.incrementAndGet();
+            log.error("Notification dispatch failed: {}", e.getMessage());
+        } finally {
+            dispatchLock.unlock();
+        }
+    }
+
+    /**
+     * One claim-send-record round
+     *
+     * @return true when a full batch made progress and more events may be waiting
+     */
+    boolean dispatchBatch() {
+        long start = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = outboxEventRepository.findDueIds(Status.PENDING, now, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return false;
+        }
+        long maxId = ids.get(ids.size() - 1);
+        // Events still in backoff stay unclaimed, so BLOCKED_ORDERS_SQL holds their orders' later events
+        if (jdbcTemplate.update(CLAIM_SQL, instanceId, now.plus(lease), maxId, now, now) == 0) {
+            return false;
+        }
+        List<OutboxEvent> events = outboxEventRepository.findByClaimedByAndStatusOrderByIdAsc(instanceId, Status.PENDING);
+        Set<Long> blocked = new HashSet<>(jdbcTemplate.queryForList(BLOCKED_ORDERS_SQL, Long.class, maxId, instanceId));
+
+        List<Object[]> sentRows = new ArrayList<>();
+        List<Object[]> retryRows = new ArrayList<>();
+        List<Object[]> failedRows = new ArrayList<>();
+        long batchMaxLag = 0;
+        LocalDateTime leaseEnd = now.plus(lease);
+        Set<Long> held = null;
+        for (OutboxEvent event : events) {
+            Long orderId = event.getOrderId();
+            if (orderId != null && blocked.contains(orderId)) {
+                continue;
+            }
+            if (event.getNextAttemptAt() != null && event.getNextAttemptAt().isAfter(now)) {
+                block(blocked, orderId);
+                continue;
+            }
+            LocalDateTime sendAt = LocalDateTime.now();
+            if (sendAt.isAfter(leaseEnd.minus(lease.dividedBy(2)))) {
+                leaseEnd = sendAt.plus(lease);
+                jdbcTemplate.update(RENEW_SQL, leaseEnd, instanceId, sendAt);
+                held = new HashSet<>(jdbcTemplate.queryForList(HELD_SQL, Long.class, instanceId, sendAt));
+            }
+            if (held != null && !held.contains(event.getId())) {
+                // Lease ran out before this send; another instance may be sending it
+                leaseExpired.incrementAndGet();
+                block(blocked, orderId);
+                continue;
+            }
+            int attempts = event.getAttempts() + 1;
+            try {
+                send(event);
+                LocalDateTime sentAt = LocalDateTime.now();
+                sentRows.add(new Object[]{attempts, sentAt, event.getId()});
+                lastLagMillis = Duration.between(event.getCreatedAt(), sentAt).toMillis();
+                batchMaxLag = Math.max(batchMaxLag, lastLagMillis);
+            } catch (RuntimeException e) {
+                String error = abbreviate(e.getMessage());
+                if (attempts >= maxAttempts) {
+                    failedRows.add(new Object[]{attempts, error, event.getId()});
+                    log.warn("Giving up on {} notification {} to {} after {} attempts: {}",
+                            event.getChannel(), event.getId(), event.getDestination(), attempts, error);
+                } else {
+                    retryRows.add(new Object[]{attempts, now.plus(backoff(attempts)), error, event.getId()});
+                    block(blocked, orderId);
+                }
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!sentRows.isEmpty()) {
+                jdbcTemplate.batchUpdate(MARK_SENT_SQL, sentRows);
+            }
+            if (!retryRows.isEmpty()) {
+                jdbcTemplate.batchUpdate(MARK_RETRY_SQL, retryRows);
+            }
+            if (!failedRows.isEmpty()) {
+                jdbcTemplate.batchUpdate(MARK_FAILED_SQL, failedRows);
+            }
+            // Events held back for ordering or backoff go back to the pool
+            jdbcTemplate.update(RELEASE_SQL, instanceId);
+        });
+
+        sent.addAndGet(sentRows.size());
+        retried.addAndGet(retryRows.size());
+        deadLettered.addAndGet(failedRows.size());
+        batches.incrementAndGet();
+        lastBatchSent = sentRows.size();
+        lastBatchMillis = System.currentTimeMillis() - start;
+        maxLagMillis = batchMaxLag;
+        return ids.size() >= batchSize && sentRows.size() + failedRows.size() > 0;
+    }
+
+    /**
+     * Delete sent events past the retention period; failed ones are kept for inspection
+     */
+    @Scheduled(cron = "${notification.outbox.purge-cron:0 45 4 * * *}")
+    public void purge() {
+        int purged = jdbcTemplate.update(PURGE_SQL, LocalDateTime.now().minusDays(retentionDays));
+        if (purged > 0) {
+            log.info("Purged {} sent outbox events", purged);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatchExecutor.shutdown();
+        try {
+            dispatchExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        LocalDateTime oldest = outboxEventRepository.findOldestCreatedAt(Status.PENDING);
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pending", outboxEventRepository.countByStatus(Status.PENDING));
+        stats.put("failed", outboxEventRepository.countByStatus(Status.FAILED));
+        stats.put("oldestPendingMillis", oldest != null ? Duration.between(oldest, LocalDateTime.now()).toMillis() : 0);
+        stats.put("sent", sent.get());
+        stats.put("retried", retried.get());
+        stats.put("deadLettered", deadLettered.get());
+        stats.put("batches", batches.get());
+        stats.put("failedBatches", failedBatches.get());
+        stats.put("leaseExpired", leaseExpired.get());
+        stats.put("lastBatchMillis", lastBatchMillis);
+        stats.put("lastBatchSent", lastBatchSent);
+        stats.put("lastLagMillis", lastLagMillis);
+        stats.put("maxLagMillis", maxLagMillis);
+        return stats;
+    }
+
+    private void send(OutboxEvent event) {
+        Map<String, Object> message = readPayload(event.getPayload());
+        switch (event.getChannel()) {
+            case WEBSOCKET -> notificationService.sendNotification(event.getDestination(), message);
+            // Blocks until Termii answers, so a failed send is retried
+            case SMS -> smsService.deliverSms(event.getDestination(), String.valueOf(message.get("message")));
+            // EmailService only prints; fail so such events end up FAILED rather than falsely SENT
+            case EMAIL -> throw new IllegalStateException("No email transport configured");
+        }
+    }
+
+    private Map<String, Object> readPayload(String payload) {
+        try {
+            return objectMapper.readValue(payload, new TypeReference<>() {
+            });
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable payload: " + e.getOriginalMessage());
+        }
+    }
+
+    private Duration backoff(int attempts) {
+        long delay = retryBaseMillis << Math.min(attempts - 1, 20);
+        return Duration.ofMillis(Math.min(delay, retryMaxMillis));
+    }
+
+    private static void block(Set<Long> blocked, Long orderId) {
+        if (orderId != null) {
+            blocked.add(orderId);
+        }
+    }
+
+    private static String abbreviate(String message) {
+        if (message == null) {
+            return "unknown error";
+        }
+        return message.length() > 500 ? message.substring(0, 500) : message;
+    }
+}
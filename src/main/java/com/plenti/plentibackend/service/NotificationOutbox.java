@@ -0,0 +1,83 @@
+package com.plenti.plentibackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.plenti.plentibackend.entity.OrderStatus;
+import com.plenti.plentibackend.entity.OutboxEvent;
+import com.plenti.plentibackend.entity.OutboxEvent.Channel;
+import com.plenti.plentibackend.repository.OutboxEventRepository;
+import com.plenti.plentibackend.util.TransactionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records notifications in outbox_events inside the caller's transaction, so a message
+ * goes out only if the change it announces commits, and sending never holds the
+ * transaction open. NotificationDispatcher delivers the events after commit.
+ */
+@Service
+public class NotificationOutbox {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final NotificationDispatcher notificationDispatcher;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicLong enqueued = new AtomicLong();
+
+    public NotificationOutbox(OutboxEventRepository outboxEventRepository,
+                              NotificationDispatcher notificationDispatcher,
+                              ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.notificationDispatcher = notificationDispatcher;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Status update on /topic/orders/{orderId}, same message as NotificationService.sendOrderStatusUpdate
+     */
+    @Transactional
+    public void orderStatusChanged(Long orderId, OrderStatus status) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("orderId", orderId);
+        message.put("status", status.toString());
+        message.put("timestamp", System.currentTimeMillis());
+        enqueue(orderId, Channel.WEBSOCKET, "/topic/orders/" + orderId, message);
+    }
+
+    /**
+     * Any WebSocket message, ordered with the other events of orderId when it is not null
+     */
+    @Transactional
+    public void publish(Long orderId, String topic, Map<String, Object> message) {
+        enqueue(orderId, Channel.WEBSOCKET, topic, message);
+    }
+
+    @Transactional
+    public void sms(Long orderId, String phoneNumber, String text) {
+        enqueue(orderId, Channel.SMS, phoneNumber, Map.of("message", text));
+    }
+
+    public long getEnqueued() {
+        return enqueued.get();
+    }
+
+    private void enqueue(Long orderId, Channel channel, String destination, Map<String, Object> message) {
+        OutboxEvent event = new OutboxEvent();
+        event.setOrderId(orderId);
+        event.setChannel(channel);
+        event.setDestination(destination);
+        try {
+            event.setPayload(objectMapper.writeValueAsString(message));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Notification payload is not serializable", e);
+        }
+        outboxEventRepository.save(event);
+        enqueued.incrementAndGet();
+        // Deliver right after commit instead of waiting for the next poll
+        TransactionUtils.runAfterCommit(notificationDispatcher::requestDispatch);
+    }
+}
@@ -0,0 +1,258 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.entity.Order;
+import com.plenti.plentibackend.entity.OrderItem;
+import com.plenti.plentibackend.entity.OrderStatus;
+import com.plenti.plentibackend.entity.OrderStatusTotal;
+import com.plenti.plentibackend.repository.OrderStatusTotalRepository;
+import com.plenti.plentibackend.util.TransactionUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps order_daily_rollups and order_status_totals in step with order status changes.
+ * Services report each committed transition; the resulting count and amount deltas are
+ * summed in memory and applied every flush-interval, so a hot (day, status) row is
+ * updated once per flush rather than once per order. The dashboard then reads one row
+ * per status. A nightly rebuild from the orders table repairs any drift, e.g. deltas
+ * lost in a crash. Deliveries are also passed on to SalesSeriesService for the sales series.
+ */
+@Service
+@Slf4j
+public class OrderRollupService {
+
+    private static final String UPDATE_DAILY_SQL =
+            "UPDATE order_daily_rollups SET order_count = order_count + ?, amount_total = amount_total + ? "
+                    + "WHERE bucket_date = ? AND status = ?";
+    private static final String INSERT_DAILY_SQL =
+            "INSERT INTO order_daily_rollups (bucket_date, status, order_count, amount_total) VALUES (?, ?, ?, ?)";
+    private static final String UPDATE_TOTAL_SQL =
+            "UPDATE order_status_totals SET order_count = order_count + ?, amount_total = amount_total + ? WHERE status = ?";
+    private static final String INSERT_TOTAL_SQL =
+            "INSERT INTO order_status_totals (status, order_count, amount_total) VALUES (?, ?, ?)";
+    private static final String REBUILD_DAILY_SQL =
+            "INSERT INTO order_daily_rollups (bucket_date, status, order_count, amount_total) "
+                    + "SELECT CAST(order_date AS DATE), status, COUNT(*), COALESCE(SUM(total_amount), 0) "
+                    + "FROM orders GROUP BY CAST(order_date AS DATE), status";
+    private static final String REBUILD_TOTALS_SQL =
+            "INSERT INTO order_status_totals (status, order_count, amount_total) "
+                    + "SELECT status, SUM(order_count), SUM(amount_total) FROM order_daily_rollups GROUP BY status";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderStatusTotalRepository orderStatusTotalRepository;
+    private final SalesSeriesService salesSeriesService;
+
+    private record Key(LocalDate day, OrderStatus status) {
+    }
+
+    private record Delta(long count, double amount) {
+        Delta plus(Delta other) {
+            return new Delta(count + other.count, amount + other.amount);
+        }
+    }
+
+    private final Map<Key, Delta> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final AtomicLong transitions = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+    private volatile long lastFlushMillis;
+    private volatile int lastFlushRows;
+    private volatile LocalDateTime lastRebuildAt;
+    private volatile long lastRebuildMillis;
+
+    public OrderRollupService(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              OrderStatusTotalRepository orderStatusTotalRepository,
+                              SalesSeriesService salesSeriesService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.orderStatusTotalRepository = orderStatusTotalRepository;
+        this.salesSeriesService = salesSeriesService;
+    }
+
+    /**
+     * Count an order moving from previous (null for a new order) to its current status,
+     * once the surrounding transaction commits
+     */
+    public void recordTransition(Order order, OrderStatus previous) {
+        OrderStatus current = order.getStatus();
+        if (current == previous) {
+            return;
+        }
+        LocalDateTime orderDate = order.getOrderDate() != null ? order.getOrderDate() : LocalDateTime.now();
+        LocalDate day = orderDate.toLocalDate();
+        double amount = order.getTotalAmount() != null ? order.getTotalAmount() : 0.0;
+        // Sales count delivered orders, like revenue on the dashboard
+        int sale = (current == OrderStatus.DELIVERED ? 1 : 0) - (previous == OrderStatus.DELIVERED ? 1 : 0);
+        Long storeId = order.getStoreId();
+        List<OrderItem> items = order.getItems() != null ? List.copyOf(order.getItems()) : List.of();
+        TransactionUtils.runAfterCommit(() -> {
+            if (previous != null) {
+                pending.merge(new Key(day, previous), new Delta(-1, -amount), Delta::plus);
+            }
+            if (current != null) {
+                pending.merge(new Key(day, current), new Delta(1, amount), Delta::plus);
+            }
+            if (sale != 0) {
+                salesSeriesService.recordSale(orderDate, storeId, items, amount, sale);
+            }
+            transitions.incrementAndGet();
+        });
+    }
+
+    /**
+     * Current totals per status, straight from order_status_totals
+     */
+    public Map<OrderStatus, OrderStatusTotal> getTotalsByStatus() {
+        Map<OrderStatus, OrderStatusTotal> totals = new EnumMap<>(OrderStatus.class);
+        orderStatusTotalRepository.findAll().forEach(total -> totals.put(total.getStatus(), total));
+        return totals;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (orderStatusTotalRepository.count() == 0) {
+            rebuild();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.rollup.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    public void flush() {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            Map<Key, Delta> batch = drain();
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Recompute both tables from the orders table. Transitions committed while the
+     * rebuild runs may be counted twice or not at all until the next rebuild.
+     */
+    @Scheduled(cron = "${analytics.rollup.rebuild-cron:0 30 3 * * *}")
+    public void rebuild() {
+        flushLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            pending.clear();
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("DELETE FROM order_daily_rollups");
+                jdbcTemplate.update("DELETE FROM order_status_totals");
+                jdbcTemplate.update(REBUILD_DAILY_SQL);
+                jdbcTemplate.update(REBUILD_TOTALS_SQL);
+            });
+            rebuilds.incrementAndGet();
+            lastRebuildAt = LocalDateTime.now();
+            lastRebuildMillis = System.currentTimeMillis() - start;
+            log.info("Order rollups rebuilt in {} ms", lastRebuildMillis);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pending", pending.size());
+        stats.put("transitions", transitions.get());
+        stats.put("flushes", flushes.get());
+        stats.put("failedFlushes", failedFlushes.get());
+        stats.put("lastFlushMillis", lastFlushMillis);
+        stats.put("lastFlushRows", lastFlushRows);
+        stats.put("rebuilds", rebuilds.get());
+        stats.put("lastRebuildAt", lastRebuildAt);
+        stats.put("lastRebuildMillis", lastRebuildMillis);
+        return stats;
+    }
+
+    private Map<Key, Delta> drain() {
+        Map<Key, Delta> batch = new HashMap<>();
+        for (Key key : pending.keySet()) {
+            Delta delta = pending.remove(key);
+            if (delta != null && (delta.count() != 0 || delta.amount() != 0)) {
+                batch.put(key, delta);
+            }
+        }
+        return batch;
+    }
+
+    private void write(Map<Key, Delta> batch) {
+        long start = System.currentTimeMillis();
+        // Stable lock order across instances
+        List<Key> keys = new ArrayList<>(batch.keySet());
+        keys.sort(Comparator.comparing(Key::day).thenComparing(Key::status));
+        Map<OrderStatus, Delta> totals = new EnumMap<>(OrderStatus.class);
+        batch.forEach((key, delta) -> totals.merge(key.status(), delta, Delta::plus));
+
+        try {
+            // A handful of rows per flush, so plain updates with exact row counts rather than a batch
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Key key : keys) {
+                    Delta delta = batch.get(key);
+                    upsert(UPDATE_DAILY_SQL, new Object[]{delta.count(), delta.amount(), key.day(), key.status().name()},
+                            INSERT_DAILY_SQL, new Object[]{key.day(), key.status().name(), delta.count(), delta.amount()});
+                }
+                totals.forEach((orderStatus, delta) ->
+                        upsert(UPDATE_TOTAL_SQL, new Object[]{delta.count(), delta.amount(), orderStatus.name()},
+                                INSERT_TOTAL_SQL, new Object[]{orderStatus.name(), delta.count(), delta.amount()}));
+            });
+            flushes.incrementAndGet();
+            lastFlushRows = keys.size();
+            lastFlushMillis = System.currentTimeMillis() - start;
+        } catch (RuntimeException e) {
+            failedFlushes.incrementAndGet();
+            batch.forEach((key, delta) -> pending.merge(key, delta, Delta::plus));
+            log.error("Failed to flush {} order rollup deltas: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private void upsert(String updateSql, Object[] updateArgs, String insertSql, Object[] insertArgs) {
+        if (jdbcTemplate.update(updateSql, updateArgs) > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(insertSql, insertArgs);
+        } catch (DuplicateKeyException e) {
+            // Another instance created the row first
+            jdbcTemplate.update(updateSql, updateArgs);
+        }
+    }
+}
@@ -5,7 +5,6 @@ import com.plenti.plentibackend.entity.*;
 import com.plenti.plentibackend.exception.PlentiException;
 import com.plenti.plentibackend.repository.CartRepository;
 import com.plenti.plentibackend.repository.OrderRepository;
-import com.plenti.plentibackend.repository.ProductRepository;
 import com.plenti.plentibackend.util.Mapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -13,7 +12,11 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
 
 /**
@@ -22,6 +25,9 @@ import java.util.UUID;
 @Service
 public class OrderService {
 
+    private static final Set<OrderStatus> CANCELLABLE_STATUSES = EnumSet.of(
+            OrderStatus.PENDING, OrderStatus.PROCESSING, OrderStatus.CONFIRMED, OrderStatus.PACKED);
+
     @Autowired
     private OrderRepository orderRepository;
 
@@ -29,13 +35,22 @@ public class OrderService {
     private CartRepository cartRepository;
 
     @Autowired
-    private ProductRepository productRepository;
+    private Mapper mapper;
 
     @Autowired
-    private Mapper mapper;
+    private NotificationOutbox notificationOutbox;
+
+    @Autowired
+    private StockReservationService stockReservationService;
 
     @Autowired
-    private NotificationService notificationService;
+    private OrderRollupService orderRollupService;
+
+    @Autowired
+    private OrderTrackingProjection orderTrackingProjection;
+
+    @Autowired
+    private RiderPositionPublisher riderPositionPublisher;
 
     @Transactional
     public OrderDTO placeOrder(Long userId, String deliveryAddress, String promoCode, Double discountAmount) {
@@ -46,18 +61,12 @@ public class OrderService {
             throw new PlentiException("Cart is empty");
         }
 
-        // Check stock availability
-        for (var entry : cart.getItems().entrySet()) {
-            Product product = productRepository.findById(entry.getKey())
-                    .orElseThrow(() -> new PlentiException("Product not found"));
-            if (product.getStock() < entry.getValue()) {
-                throw new PlentiException("Insufficient stock for product: " + product.getName());
-            }
-        }
+        // Check and decrement stock for every line in one batch; rolls back on any shortfall
+        Map<Long, Product> products = stockReservationService.reserve(cart.getItems());
 
         Order order = new Order();
         order.setUserId(userId);
-        order.setProductIds(new ArrayList<>(cart.getItems().keySet().stream().map(String::valueOf).toList()));
+        order.setItems(toOrderItems(cart.getItems(), products));
         order.setTotalAmount(cart.getTotal() - (discountAmount != null ? discountAmount : 0.0));
         order.setStatus(OrderStatus.PENDING);
         order.setDeliveryAddress(deliveryAddress);
@@ -66,15 +75,9 @@ public class OrderService {
         order.setPromoCodeApplied(promoCode);
         order.setDiscountAmount(discountAmount != null ? discountAmount : 0.0);
 
-        // Reduce stock
-        for (var entry : cart.getItems().entrySet()) {
-            Product product = productRepository.findById(entry.getKey())
-                    .orElseThrow(() -> new PlentiException("Product not found"));
-            product.setStock(product.getStock() - entry.getValue());
-            productRepository.save(product);
-        }
-
         Order savedOrder = orderRepository.save(order);
+        orderRollupService.recordTransition(savedOrder, null);
+        orderTrackingProjection.record(savedOrder, null, null);
 
         // Clear cart
         cart.getItems().clear();
@@ -106,11 +109,17 @@ public class OrderService {
     public OrderDTO updateOrderStatus(Long orderId, OrderStatus status) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new PlentiException("Order not found"));
+        OrderStatus previousStatus = order.getStatus();
         order.setStatus(status);
         Order updatedOrder = orderRepository.save(order);
+        orderRollupService.recordTransition(updatedOrder, previousStatus);
+        orderTrackingProjection.record(updatedOrder, null, null);
 
-        // Send notification
-        notificationService.sendOrderStatusUpdate(orderId, status);
+        // Sent by the dispatcher once this transaction commits
+        notificationOutbox.orderStatusChanged(orderId, status);
+        if (status == OrderStatus.DELIVERED || status == OrderStatus.CANCELLED) {
+            riderPositionPublisher.untrackAfterCommit(orderId);
+        }
 
         return mapper.toOrderDTO(updatedOrder);
     }
@@ -119,12 +128,22 @@ public class OrderService {
     public OrderDTO assignRider(Long orderId, String riderId, String riderName) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new PlentiException("Order not found"));
+        Long riderKey;
+        try {
+            riderKey = Long.valueOf(riderId);
+        } catch (NumberFormatException e) {
+            throw new PlentiException("Invalid rider id");
+        }
         order.setRiderId(riderId);
         order.setRiderName(riderName);
+        OrderStatus previousStatus = order.getStatus();
         order.setStatus(OrderStatus.OUT_FOR_DELIVERY);
         Order updatedOrder = orderRepository.save(order);
+        orderRollupService.recordTransition(updatedOrder, previousStatus);
+        orderTrackingProjection.record(updatedOrder, null, null);
 
-        notificationService.sendOrderStatusUpdate(orderId, OrderStatus.OUT_FOR_DELIVERY);
+        notificationOutbox.orderStatusChanged(orderId, OrderStatus.OUT_FOR_DELIVERY);
+        riderPositionPublisher.trackAfterCommit(orderId, riderKey);
 
         return mapper.toOrderDTO(updatedOrder);
     }
@@ -134,36 +153,43 @@ public class OrderService {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new PlentiException("Order not found"));
 
-        if (order.getStatus() == OrderStatus.OUT_FOR_DELIVERY || 
-            order.getStatus() == OrderStatus.DELIVERED) {
+        if (order.getStatus() == OrderStatus.CANCELLED || order.getStatus() == OrderStatus.REFUNDED) {
+            throw new PlentiException("Order is already cancelled");
+        }
+        if (!CANCELLABLE_STATUSES.contains(order.getStatus())) {
             throw new PlentiException("Cannot cancel order at this stage");
         }
-
-        // Restore stock
-        if (order.getProductIds() != null) {
-            for (String productIdStr : order.getProductIds()) {
-                try {
-                    Long productId = Long.parseLong(productIdStr);
-                    Product product = productRepository.findById(productId).orElse(null);
-                    if (product != null) {
-                        product.setStock(product.getStock() + 1);
-                        productRepository.save(product);
-                    }
-                } catch (NumberFormatException e) {
-                    // Log and skip invalid product ID
-                    System.err.println("Invalid product ID in order: " + productIdStr);
-                }
-            }
+        // Claim the transition first so a concurrent cancel cannot release the stock twice
+        if (orderRepository.updateStatusIfIn(orderId, CANCELLABLE_STATUSES, OrderStatus.CANCELLED) == 0) {
+            throw new PlentiException("Order is already cancelled or no longer cancellable");
         }
 
+        // Restore the ordered quantities in one statement
+        stockReservationService.release(order.getId(),
+                order.getItems().stream().map(OrderItem::getProductId).toList());
+
+        OrderStatus previousStatus = order.getStatus();
         order.setStatus(OrderStatus.CANCELLED);
         Order updatedOrder = orderRepository.save(order);
+        orderRollupService.recordTransition(updatedOrder, previousStatus);
+        orderTrackingProjection.record(updatedOrder, null, null);
 
-        notificationService.sendOrderStatusUpdate(orderId, OrderStatus.CANCELLED);
+        notificationOutbox.orderStatusChanged(orderId, OrderStatus.CANCELLED);
+        riderPositionPublisher.untrackAfterCommit(orderId);
 
         return mapper.toOrderDTO(updatedOrder);
     }
 
+    /**
+     * Order lines in product id order, priced as reserved at checkout
+     */
+    private List<OrderItem> toOrderItems(Map<Long, Integer> cartItems, Map<Long, Product> products) {
+        List<OrderItem> items = new ArrayList<>(cartItems.size());
+        new TreeMap<>(cartItems).forEach((productId, quantity) ->
+                items.add(new OrderItem(productId, quantity, products.get(productId).getPrice())));
+        return items;
+    }
+
     private String generateTrackingUrl() {
         return "https://plenti.ng/track/" + UUID.randomUUID().toString();
     }
@@ -0,0 +1,285 @@
+package com.plenti.plentibackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.plenti.plentibackend.dto.OrderTrackingDTO;
+import com.plenti.plentibackend.dto.OrderTrackingDTO.Event;
+import com.plenti.plentibackend.entity.Order;
+import com.plenti.plentibackend.entity.OrderStatus;
+import com.plenti.plentibackend.entity.OrderTracking;
+import com.plenti.plentibackend.entity.OrderTrackingView;
+import com.plenti.plentibackend.exception.PlentiException;
+import com.plenti.plentibackend.repository.OrderRepository;
+import com.plenti.plentibackend.repository.OrderTrackingRepository;
+import com.plenti.plentibackend.repository.OrderTrackingViewRepository;
+import com.plenti.plentibackend.util.LruCache;
+import com.plenti.plentibackend.util.TransactionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maintains order_tracking_views, one row per order with its current status, store,
+ * rider, last known rider position, ETA and a compact timeline of status changes.
+ * Order writes update the row in their own transaction and put the result in a bounded
+ * cache once they commit, so tracking reads are a cache hit or a single primary-key read.
+ * Other instances pick up a change when their cached copy expires.
+ */
+@Service
+public class OrderTrackingProjection {
+
+    static final int MAX_EVENTS = 20;
+
+    private static final TypeReference<List<Event>> EVENT_LIST = new TypeReference<>() {
+    };
+
+    private final OrderTrackingViewRepository orderTrackingViewRepository;
+    private final OrderRepository orderRepository;
+    private final OrderTrackingRepository orderTrackingRepository;
+    private final RiderLocationIndex riderLocationIndex;
+    private final ObjectMapper objectMapper;
+    private final LruCache<Long, OrderTrackingDTO> cache;
+
+    private final AtomicLong updates = new AtomicLong();
+    private final AtomicLong viewReads = new AtomicLong();
+    private final AtomicLong legacyReads = new AtomicLong();
+
+    public OrderTrackingProjection(OrderTrackingViewRepository orderTrackingViewRepository,
+                                   OrderRepository orderRepository,
+                                   OrderTrackingRepository orderTrackingRepository,
+                                   RiderLocationIndex riderLocationIndex,
+                                   ObjectMapper objectMapper,
+                                   @Value("${order.tracking.cache-size:10000}") int cacheSize,
+                                   @Value("${order.tracking.cache-ttl-ms:5000}") long cacheTtlMillis) {
+        this.orderTrackingViewRepository = orderTrackingViewRepository;
+        this.orderRepository = orderRepository;
+        this.orderTrackingRepository = orderTrackingRepository;
+        this.riderLocationIndex = riderLocationIndex;
+        this.objectMapper = objectMapper;
+        this.cache = new LruCache<>(cacheSize, cacheTtlMillis);
+    }
+
+    /**
+     * One status change of an order for {@link #recordAll}
+     *
+     * @param estimatedDelivery new ETA, or null to keep the current one
+     */
+    public record Change(Order order, OrderStatus status, String message, LocalDateTime estimatedDelivery) {
+    }
+
+    /**
+     * Bring the order's view up to date after the order was saved. A timeline event is
+     * added when there is a message or the status changed.
+     *
+     * @param estimatedDelivery new ETA, or null to keep the current one
+     */
+    @Transactional
+    public OrderTrackingDTO record(Order order, String message, LocalDateTime estimatedDelivery) {
+        OrderTrackingView view = orderTrackingViewRepository.findById(order.getId())
+                .orElseGet(() -> newView(order));
+        List<Event> timeline = readTimeline(view.getTimeline());
+        apply(view, timeline, new Change(order, order.getStatus(), message, estimatedDelivery));
+        view.setTimeline(writeTimeline(timeline));
+        orderTrackingViewRepository.save(view);
+        updates.incrementAndGet();
+
+        OrderTrackingDTO dto = toDto(view, timeline);
+        TransactionUtils.runAfterCommit(() -> cache.put(order.getId(), dto));
+        return dto;
+    }
+
+    /**
+     * {@link #record} for many changes at once, e.g. a fulfillment wave: the views are read
+     * with one query and saved as one batch. Changes of the same order apply in list order.
+     */
+    @Transactional
+    public void recordAll(List<Change> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        Set<Long> orderIds = new LinkedHashSet<>();
+        changes.forEach(change -> orderIds.add(change.order().getId()));
+        Map<Long, OrderTrackingView> views = new HashMap<>();
+        orderTrackingViewRepository.findAllById(orderIds).forEach(view -> views.put(view.getOrderId(), view));
+
+        Map<Long, List<Event>> timelines = new LinkedHashMap<>();
+        for (Change change : changes) {
+            Long orderId = change.order().getId();
+            OrderTrackingView view = views.computeIfAbsent(orderId, id -> newView(change.order()));
+            List<Event> timeline = timelines.computeIfAbsent(orderId, id -> readTimeline(view.getTimeline()));
+            apply(view, timeline, change);
+        }
+
+        Map<Long, OrderTrackingDTO> dtos = new HashMap<>();
+        timelines.forEach((orderId, timeline) -> {
+            OrderTrackingView view = views.get(orderId);
+            view.setTimeline(writeTimeline(timeline));
+            dtos.put(orderId, toDto(view, timeline));
+        });
+        orderTrackingViewRepository.saveAll(timelines.keySet().stream().map(views::get).toList());
+        updates.addAndGet(timelines.size());
+        TransactionUtils.runAfterCommit(() -> dtos.forEach(cache::put));
+    }
+
+    /**
+     * Tracking state of an order: cached, else its view row. Orders placed before the
+     * projection existed are assembled from the order and its tracking history until
+     * their next status change writes a view.
+     */
+    public OrderTrackingDTO get(Long orderId) {
+        OrderTrackingDTO cached = cache.get(orderId);
+        if (cached != null) {
+            return cached;
+        }
+        OrderTrackingDTO dto = orderTrackingViewRepository.findById(orderId)
+                .map(view -> {
+                    viewReads.incrementAndGet();
+                    return toDto(view, readTimeline(view.getTimeline()));
+                })
+                .orElseGet(() -> fromHistory(orderId));
+        cache.put(orderId, dto);
+        return dto;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = cache.getStats();
+        stats.put("updates", updates.get());
+        stats.put("viewReads", viewReads.get());
+        stats.put("legacyReads", legacyReads.get());
+        return stats;
+    }
+
+    /**
+     * Human-readable description of a status, shown with each timeline event
+     */
+    public static String describe(OrderStatus status) {
+        return switch (status) {
+            case PENDING -> "Your order has been received and is being processed";
+            case PROCESSING -> "Your order is being processed";
+            case CONFIRMED -> "Your order has been confirmed and assigned to a store";
+            case PACKED -> "Your order has been packed and is ready for delivery";
+            case OUT_FOR_DELIVERY -> "Your order is on its way";
+            case DELIVERED -> "Your order has been delivered";
+            case CANCELLED -> "Your order has been cancelled";
+            case REFUNDED -> "Your order has been refunded";
+        };
+    }
+
+    private void apply(OrderTrackingView view, List<Event> timeline, Change change) {
+        Order order = change.order();
+        RiderLocationIndex.RiderState position = riderPosition(order.getRiderId());
+        if (position != null) {
+            view.setRiderLatitude(position.latitude());
+            view.setRiderLongitude(position.longitude());
+            view.setRiderLocationAt(position.timestamp());
+        } else if (order.getRiderId() == null || !order.getRiderId().equals(view.getRiderId())) {
+            view.setRiderLatitude(null);
+            view.setRiderLongitude(null);
+            view.setRiderLocationAt(null);
+        }
+
+        if (change.message() != null || change.status() != view.getStatus() || timeline.isEmpty()) {
+            timeline.add(new Event(change.status(), change.message(), null,
+                    view.getRiderLatitude(), view.getRiderLongitude(), LocalDateTime.now()));
+            if (timeline.size() > MAX_EVENTS) {
+                timeline.subList(0, timeline.size() - MAX_EVENTS).clear();
+            }
+        }
+
+        view.setStatus(change.status());
+        view.setStoreId(order.getStoreId());
+        view.setRiderId(order.getRiderId());
+        view.setRiderName(order.getRiderName());
+        if (change.estimatedDelivery() != null) {
+            view.setEstimatedDelivery(change.estimatedDelivery());
+        } else if (view.getEstimatedDelivery() == null) {
+            view.setEstimatedDelivery(order.getEstimatedDelivery());
+        }
+        view.setUpdatedAt(LocalDateTime.now());
+    }
+
+    private OrderTrackingView newView(Order order) {
+        OrderTrackingView view = new OrderTrackingView();
+        view.setOrderId(order.getId());
+        view.setRiderId(order.getRiderId());
+        List<Event> timeline = new ArrayList<>();
+        // An existing order gets its earlier changes from the tracking history
+        for (OrderTracking tracking : orderTrackingRepository.findByOrderIdOrderByTimestampAsc(order.getId())) {
+            timeline.add(new Event(tracking.getStatus(), tracking.getStatusMessage(), null,
+                    tracking.getRiderLatitude(), tracking.getRiderLongitude(), tracking.getTimestamp()));
+        }
+        if (!timeline.isEmpty()) {
+            Event last = timeline.get(timeline.size() - 1);
+            view.setStatus(last.status());
+            view.setRiderLatitude(last.riderLatitude());
+            view.setRiderLongitude(last.riderLongitude());
+        }
+        view.setTimeline(writeTimeline(timeline));
+        return view;
+    }
+
+    private OrderTrackingDTO fromHistory(Long orderId) {
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new PlentiException("Order not found"));
+        legacyReads.incrementAndGet();
+        OrderTrackingView view = newView(order);
+        List<Event> timeline = readTimeline(view.getTimeline());
+        view.setStatus(order.getStatus());
+        view.setStoreId(order.getStoreId());
+        view.setRiderName(order.getRiderName());
+        view.setEstimatedDelivery(order.getEstimatedDelivery());
+        return toDto(view, timeline);
+    }
+
+    private OrderTrackingDTO toDto(OrderTrackingView view, List<Event> timeline) {
+        List<Event> described = timeline.stream()
+                .map(event -> new Event(event.status(), event.message(), describe(event.status()),
+                        event.riderLatitude(), event.riderLongitude(), event.timestamp()))
+                .toList();
+        return new OrderTrackingDTO(view.getOrderId(), view.getStatus(), view.getStoreId(), view.getRiderId(),
+                view.getRiderName(), view.getRiderLatitude(), view.getRiderLongitude(), view.getRiderLocationAt(),
+                view.getEstimatedDelivery(), described);
+    }
+
+    private RiderLocationIndex.RiderState riderPosition(String riderId) {
+        if (riderId == null) {
+            return null;
+        }
+        try {
+            RiderLocationIndex.RiderState state = riderLocationIndex.get(Long.parseLong(riderId));
+            return state != null && state.hasPosition() ? state : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private List<Event> readTimeline(String json) {
+        if (json == null || json.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            return new ArrayList<>(objectMapper.readValue(json, EVENT_LIST));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable order tracking timeline", e);
+        }
+    }
+
+    private String writeTimeline(List<Event> timeline) {
+        try {
+            return objectMapper.writeValueAsString(timeline);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Order tracking timeline is not serializable", e);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.entity.SearchTermSnapshot;
+import com.plenti.plentibackend.exception.PlentiException;
+import com.plenti.plentibackend.repository.SearchHistoryRepository;
+import com.plenti.plentibackend.repository.SearchTermSnapshotRepository;
+import com.plenti.plentibackend.util.SpaceSavingSketch;
+import com.plenti.plentibackend.util.SpaceSavingSketch.Estimate;
+import com.plenti.plentibackend.util.TtlCache;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Streaming top-K of search terms in hourly and daily windows.
+ * Every tracked search updates the Space-Saving sketch of its hour and of its day, so the
+ * popular-terms ranking is read from memory instead of a GROUP BY over search_history.
+ * Periodically and on shutdown, the counts recorded since the previous snapshot are added
+ * to search_term_snapshots, so instances sharing the table sum up instead of overwriting
+ * each other; the combined counts are reloaded at startup. With no snapshot at all, the
+ * windows are seeded once from search_history.
+ */
+@Component
+@Slf4j
+public class PopularSearchTermTracker {
+
+    public enum Granularity {
+        HOURLY(ChronoUnit.HOURS), DAILY(ChronoUnit.DAYS);
+
+        private final ChronoUnit unit;
+
+        Granularity(ChronoUnit unit) {
+            this.unit = unit;
+        }
+    }
+
+    private static final String DELETE_EXPIRED_SQL =
+            "DELETE FROM search_term_snapshots WHERE granularity = ? AND window_start < ?";
+    private static final String ADD_SQL =
+            "INSERT INTO search_term_snapshots (granularity, window_start, search_term, term_count, term_error) "
+                    + "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE "
+                    + "term_count = term_count + VALUES(term_count), term_error = term_error + VALUES(term_error)";
+    // Every instance seeds the same counts from search_history, so seeding keeps the larger one
+    private static final String SEED_SQL =
+            "INSERT INTO search_term_snapshots (granularity, window_start, search_term, term_count, term_error) "
+                    + "VALUES (?, ?, ?, ?, 0) ON DUPLICATE KEY UPDATE "
+                    + "term_count = GREATEST(term_count, VALUES(term_count))";
+
+    private final SearchTermSnapshotRepository snapshotRepository;
+    private final SearchHistoryRepository searchHistoryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int capacity;
+    private final int hourlyRetention;
+    private final int dailyRetention;
+    private final TtlCache<String, List<Estimate>> resultCache;
+
+    private final Map<Granularity, ConcurrentSkipListMap<LocalDateTime, SpaceSavingSketch>> windows = Map.of(
+            Granularity.HOURLY, new ConcurrentSkipListMap<>(),
+            Granularity.DAILY, new ConcurrentSkipListMap<>());
+    // Counts recorded since the last snapshot, per window
+    private final Map<Granularity, ConcurrentHashMap<LocalDateTime, SpaceSavingSketch>> unsaved = Map.of(
+            Granularity.HOURLY, new ConcurrentHashMap<>(),
+            Granularity.DAILY, new ConcurrentHashMap<>());
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+
+    private volatile boolean ready;
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong snapshots = new AtomicLong();
+    private final AtomicLong failedSnapshots = new AtomicLong();
+    private volatile long lastSnapshotMillis;
+    private volatile int lastSnapshotRows;
+
+    public PopularSearchTermTracker(SearchTermSnapshotRepository snapshotRepository,
+                                    SearchHistoryRepository searchHistoryRepository,
+                                    JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${search.popular.enabled:true}") boolean enabled,
+                                    @Value("${search.popular.sketch-capacity:1000}") int capacity,
+                                    @Value("${search.popular.hourly-retention-hours:48}") int hourlyRetention,
+                                    @Value("${search.popular.daily-retention-days:90}") int dailyRetention,
+                                    @Value("${search.popular.cache-ttl-ms:5000}") long cacheTtlMillis) {
+        this.snapshotRepository = snapshotRepository;
+        this.searchHistoryRepository = searchHistoryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.hourlyRetention = hourlyRetention;
+        this.dailyRetention = dailyRetention;
+        this.resultCache = new TtlCache<>(256, cacheTtlMillis);
+    }
+
+    /**
+     * True once persisted windows are loaded; until then callers should query search_history
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void record(String term) {
+        record(term, LocalDateTime.now());
+    }
+
+    void record(String term, LocalDateTime at) {
+        if (!enabled) {
+            return;
+        }
+        for (Granularity granularity : Granularity.values()) {
+            LocalDateTime start = at.truncatedTo(granularity.unit);
+            windows.get(granularity).computeIfAbsent(start, key -> new SpaceSavingSketch(capacity)).offer(term);
+            // compute, so a snapshot taking this window's counts can't miss the offer
+            unsaved.get(granularity).compute(start, (key, counts) -> {
+                SpaceSavingSketch updated = counts != null ? counts : new SpaceSavingSketch(capacity);
+                updated.offer(term);
+                return updated;
+            });
+        }
+        recorded.incrementAndGet();
+    }
+
+    /**
+     * Most searched terms over the last days calendar days, today included. days must not
+     * exceed the daily retention.
+     */
+    public List<Estimate> topForDays(int days, int limit) {
+        return top(Granularity.DAILY, days, limit);
+    }
+
+    /**
+     * Most searched terms over the last hours clock hours, the current one included. hours
+     * must not exceed the hourly retention.
+     */
+    public List<Estimate> topForHours(int hours, int limit) {
+        return top(Granularity.HOURLY, hours, limit);
+    }
+
+    private List<Estimate> top(Granularity granularity, int span, int limit) {
+        if (span < 1 || span > retention(granularity)) {
+            throw new PlentiException((granularity == Granularity.HOURLY ? "hours" : "days")
+                    + " must be between 1 and " + retention(granularity));
+        }
+        String key = granularity + ":" + span + ":" + limit;
+        List<Estimate> cached = resultCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        LocalDateTime since = LocalDateTime.now().truncatedTo(granularity.unit)
+                .minus(span - 1L, granularity.unit);
+        List<SpaceSavingSketch> covered = new ArrayList<>(windows.get(granularity).tailMap(since, true).values());
+        List<Estimate> top = covered.size() == 1
+                ? covered.get(0).top(limit)
+                : SpaceSavingSketch.merged(covered, capacity).top(limit);
+        resultCache.put(key, top);
+        return top;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            load();
+        }
+    }
+
+    /**
+     * Restore the retained windows from their snapshots, or seed them from search_history
+     * when nothing has been snapshotted yet. Searches recorded meanwhile are kept.
+     */
+    void load() {
+        long start = System.currentTimeMillis();
+        boolean restored = false;
+        for (Granularity granularity : Granularity.values()) {
+            List<SearchTermSnapshot> rows = snapshotRepository
+                    .findByGranularityAndWindowStartGreaterThanEqual(granularity.name(), retainedSince(granularity));
+            for (SearchTermSnapshot row : rows) {
+                windows.get(granularity)
+                        .computeIfAbsent(row.getWindowStart(), key -> new SpaceSavingSketch(capacity))
+                        .offer(row.getSearchTerm(), row.getTermCount(), row.getTermError());
+            }
+            restored |= !rows.isEmpty();
+        }
+        if (!restored) {
+            seedFromHistory();
+        }
+        ready = true;
+        log.info("Popular search terms {} in {} ms ({} hourly, {} daily windows)",
+                restored ? "restored from snapshots" : "seeded from search history",
+                System.currentTimeMillis() - start,
+                windows.get(Granularity.HOURLY).size(), windows.get(Granularity.DAILY).size());
+    }
+
+    private void seedFromHistory() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>();
+        for (Granularity granularity : Granularity.values()) {
+            LocalDateTime end = now.truncatedTo(granularity.unit).plus(1, granularity.unit);
+            for (LocalDateTime from = retainedSince(granularity); from.isBefore(end); from = from.plus(1, granularity.unit)) {
+                List<Object[]> counts = searchHistoryRepository.countSearchTermsBetween(from, from.plus(1, granularity.unit));
+                if (counts.isEmpty()) {
+                    continue;
+                }
+                SpaceSavingSketch sketch = windows.get(granularity).computeIfAbsent(from, key -> new SpaceSavingSketch(capacity));
+                for (Object[] count : counts) {
+                    sketch.offer((String) count[0], ((Number) count[1]).longValue(), 0);
+                }
+                for (Estimate estimate : sorted(sketch.estimates())) {
+                    rows.add(new Object[]{granularity.name(), Timestamp.valueOf(from), estimate.item(), estimate.count()});
+                }
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(SEED_SQL, rows);
+        } catch (RuntimeException e) {
+            // The windows are still served from memory; the next start seeds again
+            log.error("Failed to persist {} seeded popular search term counts: {}", rows.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Add the counts recorded since the last snapshot and drop expired windows.
+     * Skipped until load() has run, so restored counts are never added twice.
+     */
+    @Scheduled(fixedDelayString = "${search.popular.snapshot-interval-ms:300000}")
+    public void snapshot() {
+        if (!ready || !snapshotLock.tryLock()) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            int rows = 0;
+            for (Granularity granularity : Granularity.values()) {
+                LocalDateTime since = retainedSince(granularity);
+                windows.get(granularity).headMap(since).clear();
+                unsaved.get(granularity).keySet().removeIf(windowStart -> windowStart.isBefore(since));
+                for (LocalDateTime windowStart : List.copyOf(unsaved.get(granularity).keySet())) {
+                    SpaceSavingSketch counts = unsaved.get(granularity).remove(windowStart);
+                    if (counts != null) {
+                        rows += write(granularity, windowStart, counts);
+                    }
+                }
+                jdbcTemplate.update(DELETE_EXPIRED_SQL, granularity.name(), Timestamp.valueOf(since));
+            }
+            snapshots.incrementAndGet();
+            lastSnapshotRows = rows;
+            lastSnapshotMillis = System.currentTimeMillis() - start;
+        } catch (RuntimeException e) {
+            failedSnapshots.incrementAndGet();
+            log.error("Failed to snapshot popular search terms: {}", e.getMessage());
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    private int write(Granularity granularity, LocalDateTime windowStart, SpaceSavingSketch counts) {
+        Timestamp start = Timestamp.valueOf(windowStart);
+        List<Object[]> rows = new ArrayList<>(counts.size());
+        for (Estimate estimate : sorted(counts.estimates())) {
+            rows.add(new Object[]{granularity.name(), start, estimate.item(), estimate.count(), estimate.error()});
+        }
+        try {
+            // All or nothing, so a retry never adds part of the counts twice
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(ADD_SQL, rows));
+        } catch (RuntimeException e) {
+            // Put the counts back for the next snapshot
+            unsaved.get(granularity).merge(windowStart, counts, (newer, failed) -> {
+                newer.merge(failed);
+                return newer;
+            });
+            throw e;
+        }
+        return rows.size();
+    }
+
+    // In term order, for a stable lock order with the snapshots of other instances
+    private static List<Estimate> sorted(List<Estimate> estimates) {
+        return estimates.stream().sorted(Comparator.comparing(Estimate::item)).toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshot();
+    }
+
+    private LocalDateTime retainedSince(Granularity granularity) {
+        return LocalDateTime.now().truncatedTo(granularity.unit).minus(retention(granularity) - 1L, granularity.unit);
+    }
+
+    private int retention(Granularity granularity) {
+        return granularity == Granularity.HOURLY ? hourlyRetention : dailyRetention;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ready", ready);
+        stats.put("sketchCapacity", capacity);
+        stats.put("hourlyWindows", windows.get(Granularity.HOURLY).size());
+        stats.put("dailyWindows", windows.get(Granularity.DAILY).size());
+        stats.put("unsavedWindows", unsaved.get(Granularity.HOURLY).size() + unsaved.get(Granularity.DAILY).size());
+        stats.put("recorded", recorded.get());
+        stats.put("snapshots", snapshots.get());
+        stats.put("failedSnapshots", failedSnapshots.get());
+        stats.put("lastSnapshotMillis", lastSnapshotMillis);
+        stats.put("lastSnapshotRows", lastSnapshotRows);
+        stats.put("resultCache", resultCache.getStats());
+        return stats;
+    }
+}
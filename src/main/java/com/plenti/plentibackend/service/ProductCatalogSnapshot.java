@@ -0,0 +1,149 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.entity.Product;
+import com.plenti.plentibackend.repository.ProductRepository;
+import com.plenti.plentibackend.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versioned, read-through in-memory snapshot of product pricing and stock.
+ * Used by cart operations so that totals are computed without reloading every product.
+ */
+@Component
+@Slf4j
+public class ProductCatalogSnapshot {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong version = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Immutable pricing/stock view of a product. Absent optional prices are stored as NaN,
+     * an absent flash sale end as Long.MIN_VALUE.
+     */
+    public record Entry(long productId, double price, double bulkPrice, double flashSalePrice,
+                        long flashSaleEndEpochSecond, int stock, long version) {
+
+        public boolean hasBulkPrice() {
+            return !Double.isNaN(bulkPrice);
+        }
+
+        public boolean hasFlashSalePrice() {
+            return !Double.isNaN(flashSalePrice);
+        }
+    }
+
+    /**
+     * Get a single product entry, loading it on a miss
+     */
+    public Entry get(Long productId) {
+        return getAll(List.of(productId)).get(productId);
+    }
+
+    /**
+     * Get entries for the given ids. Misses are loaded with a single multi-id query.
+     * Ids that do not exist are absent from the result.
+     */
+    public Map<Long, Entry> getAll(Collection<Long> productIds) {
+        Map<Long, Entry> result = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+
+        for (Long id : productIds) {
+            Entry entry = entries.get(id);
+            if (entry != null) {
+                result.put(id, entry);
+            } else {
+                missing.add(id);
+            }
+        }
+        hits.addAndGet(result.size());
+
+        if (!missing.isEmpty()) {
+            misses.addAndGet(missing.size());
+            // Only install what we load if nothing was invalidated while the query ran
+            long loadVersion = version.get();
+            for (Product product : productRepository.findAllById(missing)) {
+                Entry entry = toEntry(product, loadVersion);
+                result.put(product.getId(), entry);
+                if (version.get() == loadVersion) {
+                    entries.putIfAbsent(product.getId(), entry);
+                    // An eviction may have slipped in between the check and the put
+                    if (version.get() != loadVersion) {
+                        entries.remove(product.getId(), entry);
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Drop a product from the snapshot. Inside a transaction this happens after commit
+     * so a concurrent reader cannot re-cache the pre-commit row.
+     */
+    public void invalidate(Long productId) {
+        invalidateAll(List.of(productId));
+    }
+
+    public void invalidateAll(Collection<Long> productIds) {
+        List<Long> ids = List.copyOf(productIds);
+        TransactionUtils.runAfterCommit(() -> evict(ids));
+    }
+
+    public void clear() {
+        version.incrementAndGet();
+        entries.clear();
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", entries.size());
+        stats.put("version", version.get());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        return stats;
+    }
+
+    private void evict(Collection<Long> productIds) {
+        version.incrementAndGet();
+        for (Long id : productIds) {
+            entries.remove(id);
+        }
+    }
+
+    private Entry toEntry(Product product, long entryVersion) {
+        return new Entry(
+                product.getId(),
+                product.getPrice() != null ? product.getPrice() : 0.0,
+                product.getBulkPrice() != null ? product.getBulkPrice() : Double.NaN,
+                product.getFlashSalePrice() != null ? product.getFlashSalePrice() : Double.NaN,
+                product.getFlashSaleEnd() != null
+                        ? product.getFlashSaleEnd().toEpochSecond(ZoneOffset.UTC) : Long.MIN_VALUE,
+                product.getStock() != null ? product.getStock() : 0,
+                entryVersion
+        );
+    }
+}
@@ -0,0 +1,326 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.entity.Product;
+import com.plenti.plentibackend.repository.ProductRepository;
+import com.plenti.plentibackend.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process inverted index over product name, category and description, used for
+ * ranked product search when Elasticsearch is not in play.
+ * Each token maps to a posting list of product ids. A sorted dictionary answers prefix
+ * queries, and a trigram index over the dictionary tolerates typos. Reads are lock-free.
+ * Writes are serialized and applied after the surrounding transaction commits.
+ */
+@Component
+@Slf4j
+public class ProductSearchIndex {
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float CATEGORY_WEIGHT = 2.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    private static final float PREFIX_FACTOR = 0.7f;
+    private static final float FUZZY_FACTOR = 0.5f;
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final double MIN_FUZZY_SIMILARITY = 0.5;
+
+    private final ProductRepository productRepository;
+    private final boolean enabled;
+    private final int buildPageSize;
+
+    /**
+     * Indexed terms of one product with the weight of the best field each appears in
+     */
+    private record Doc(Map<String, Float> weights, int popularity) {
+    }
+
+    private final Map<Long, Doc> docs = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Set<Long>> postings = new ConcurrentSkipListMap<>();
+    private final Map<String, Set<String>> trigrams = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+    private volatile LocalDateTime builtAt;
+    private volatile long buildMillis;
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong updates = new AtomicLong();
+
+    public ProductSearchIndex(ProductRepository productRepository,
+                              @Value("${search.fallback-index.enabled:true}") boolean enabled,
+                              @Value("${search.fallback-index.build-page-size:1000}") int buildPageSize) {
+        this.productRepository = productRepository;
+        this.enabled = enabled;
+        this.buildPageSize = buildPageSize;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Reload every product by keyset pages and index it
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        ready = false;
+        docs.clear();
+        postings.clear();
+        trigrams.clear();
+
+        long afterId = 0L;
+        List<Product> page = productRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, buildPageSize));
+        while (!page.isEmpty()) {
+            page.forEach(this::add);
+            afterId = page.get(page.size() - 1).getId();
+            page = productRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, buildPageSize));
+        }
+
+        buildMillis = System.currentTimeMillis() - start;
+        builtAt = LocalDateTime.now();
+        ready = true;
+        log.info("Product search index built with {} products and {} terms in {} ms",
+                docs.size(), postings.size(), buildMillis);
+    }
+
+    /**
+     * Index or re-index a product once the surrounding transaction commits
+     */
+    public void refreshAfterCommit(Product product) {
+        if (enabled) {
+            TransactionUtils.runAfterCommit(() -> upsert(product));
+        }
+    }
+
+    public void removeAfterCommit(Long productId) {
+        if (enabled) {
+            TransactionUtils.runAfterCommit(() -> remove(productId));
+        }
+    }
+
+    public synchronized void upsert(Product product) {
+        remove(product.getId());
+        add(product);
+        updates.incrementAndGet();
+    }
+
+    public synchronized void remove(Long productId) {
+        Doc doc = docs.remove(productId);
+        if (doc == null) {
+            return;
+        }
+        for (String token : doc.weights().keySet()) {
+            Set<Long> ids = postings.get(token);
+            if (ids != null) {
+                ids.remove(productId);
+                if (ids.isEmpty()) {
+                    postings.remove(token);
+                    for (String trigram : trigramsOf(token)) {
+                        Set<String> tokens = trigrams.get(trigram);
+                        if (tokens != null) {
+                            tokens.remove(token);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void add(Product product) {
+        Map<String, Float> weights = new HashMap<>();
+        addTokens(weights, product.getName(), NAME_WEIGHT);
+        addTokens(weights, product.getCategory(), CATEGORY_WEIGHT);
+        addTokens(weights, product.getDescription(), DESCRIPTION_WEIGHT);
+        int popularity = product.getReviewCount() != null ? product.getReviewCount() : 0;
+        docs.put(product.getId(), new Doc(weights, popularity));
+
+        for (String token : weights.keySet()) {
+            Set<Long> ids = postings.computeIfAbsent(token, key -> ConcurrentHashMap.newKeySet());
+            if (ids.isEmpty()) {
+                for (String trigram : trigramsOf(token)) {
+                    trigrams.computeIfAbsent(trigram, key -> ConcurrentHashMap.newKeySet()).add(token);
+                }
+            }
+            ids.add(product.getId());
+        }
+    }
+
+    private static void addTokens(Map<String, Float> weights, String text, float weight) {
+        for (String token : tokenize(text)) {
+            weights.merge(token, weight, Math::max);
+        }
+    }
+
+    /**
+     * Rank products against a free-text query.
+     * Exact term matches score the full field weight, dictionary terms starting with a query
+     * term score less, and (for longer terms with no other match) trigram-similar terms
+     * score less again. Products matching more of the query's terms rank first.
+     *
+     * @return product ids, best first
+     */
+    public List<Long> search(String query, int limit) {
+        queries.incrementAndGet();
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, float[]> scores = new HashMap<>();
+        for (int i = 0; i < terms.size(); i++) {
+            String term = terms.get(i);
+            Map<String, Float> expansions = expand(term);
+            for (Map.Entry<String, Float> expansion : expansions.entrySet()) {
+                Set<Long> ids = postings.get(expansion.getKey());
+                if (ids == null) {
+                    continue;
+                }
+                for (Long id : ids) {
+                    Doc doc = docs.get(id);
+                    if (doc == null) {
+                        continue;
+                    }
+                    float score = doc.weights().getOrDefault(expansion.getKey(), 0f) * expansion.getValue();
+                    float[] perTerm = scores.computeIfAbsent(id, key -> new float[terms.size()]);
+                    // A term counts once per product, through its best expansion
+                    perTerm[i] = Math.max(perTerm[i], score);
+                }
+            }
+        }
+
+        Map<Long, Float> ranked = new HashMap<>();
+        scores.forEach((id, perTerm) -> {
+            float total = 0;
+            int matched = 0;
+            for (float score : perTerm) {
+                total += score;
+                if (score > 0) {
+                    matched++;
+                }
+            }
+            float coverage = (float) matched / perTerm.length;
+            ranked.put(id, total * coverage * coverage);
+        });
+
+        return ranked.entrySet().stream()
+                .sorted(Comparator.<Map.Entry<Long, Float>>comparingDouble(Map.Entry::getValue).reversed()
+                        .thenComparingInt(entry -> -popularity(entry.getKey()))
+                        .thenComparing(Map.Entry::getKey))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private int popularity(Long id) {
+        Doc doc = docs.get(id);
+        return doc != null ? doc.popularity() : 0;
+    }
+
+    /**
+     * Dictionary terms a query term matches, with the factor applied to their field weight
+     */
+    private Map<String, Float> expand(String term) {
+        Map<String, Float> expansions = new HashMap<>();
+        if (postings.containsKey(term)) {
+            expansions.put(term, 1.0f);
+        }
+        int prefixed = 0;
+        for (String token : postings.subMap(term, false, term + Character.MAX_VALUE, false).keySet()) {
+            if (prefixed++ >= MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+            expansions.put(token, PREFIX_FACTOR);
+        }
+        if (expansions.isEmpty() && term.length() >= MIN_FUZZY_LENGTH) {
+            expansions.putAll(fuzzy(term));
+        }
+        return expansions;
+    }
+
+    /**
+     * Terms whose trigram sets have a Dice similarity of at least MIN_FUZZY_SIMILARITY
+     */
+    private Map<String, Float> fuzzy(String term) {
+        Set<String> termTrigrams = trigramsOf(term);
+        Map<String, Integer> shared = new HashMap<>();
+        for (String trigram : termTrigrams) {
+            Set<String> tokens = trigrams.get(trigram);
+            if (tokens != null) {
+                tokens.forEach(token -> shared.merge(token, 1, Integer::sum));
+            }
+        }
+
+        Map<String, Float> matches = new HashMap<>();
+        shared.forEach((token, count) -> {
+            double similarity = 2.0 * count / (termTrigrams.size() + trigramsOf(token).size());
+            if (similarity >= MIN_FUZZY_SIMILARITY) {
+                matches.put(token, (float) (FUZZY_FACTOR * similarity));
+            }
+        });
+        return matches;
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty() && seen.add(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Trigrams of the term padded with boundary markers, so short terms still produce some
+     */
+    static Set<String> trigramsOf(String token) {
+        String padded = "$" + token + "$";
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            result.add(padded.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ready", ready);
+        stats.put("products", docs.size());
+        stats.put("terms", postings.size());
+        stats.put("trigrams", trigrams.size());
+        stats.put("builtAt", builtAt);
+        stats.put("buildMillis", buildMillis);
+        stats.put("queries", queries.get());
+        stats.put("updates", updates.get());
+        return stats;
+    }
+}
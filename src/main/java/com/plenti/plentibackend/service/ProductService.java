@@ -1,15 +1,32 @@
 package com.plenti.plentibackend.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.plenti.plentibackend.dto.CursorPageDTO;
 import com.plenti.plentibackend.dto.ProductDTO;
 import com.plenti.plentibackend.entity.Product;
 import com.plenti.plentibackend.exception.PlentiException;
 import com.plenti.plentibackend.repository.ProductRepository;
 import com.plenti.plentibackend.util.Mapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Service for product management operations
@@ -23,10 +40,35 @@ public class ProductService {
     @Autowired
     private Mapper mapper;
 
+    @Autowired
+    private ProductCatalogSnapshot catalogSnapshot;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${products.page.default-size:20}")
+    private int defaultPageSize;
+
+    @Value("${products.page.max-size:100}")
+    private int maxPageSize;
+
+    @Value("${search.fallback-index.max-results:50}")
+    private int searchLimit;
+
+    /**
+     * First page of products by id, at most the max page size
+     *
+     * @deprecated use {@link #getProductsPage(String, Integer)}, which can fetch the rest
+     */
+    @Deprecated
     public List<ProductDTO> getAllProducts() {
-        return productRepository.findAll().stream()
-                .map(mapper::toProductDTO)
-                .toList();
+        return getProductsPage(null, maxPageSize).getItems();
     }
 
     public ProductDTO getProductById(Long id) {
@@ -35,28 +77,115 @@ public class ProductService {
         return mapper.toProductDTO(product);
     }
 
+    /**
+     * Ranked search from the in-process index; until it is built (or when it is disabled)
+     * this falls back to a name LIKE query
+     */
     public List<ProductDTO> searchProducts(String query) {
-        return productRepository.findByNameContainingIgnoreCase(query).stream()
+        if (!productSearchIndex.isReady()) {
+            return productRepository.findByNameContainingIgnoreCase(query).stream()
+                    .map(mapper::toProductDTO)
+                    .toList();
+        }
+
+        List<Long> ids = productSearchIndex.search(query, searchLimit);
+        Map<Long, Product> products = new HashMap<>();
+        productRepository.findAllById(ids).forEach(product -> products.put(product.getId(), product));
+        return ids.stream()
+                .map(products::get)
+                .filter(Objects::nonNull)
                 .map(mapper::toProductDTO)
                 .toList();
     }
 
+    /**
+     * @deprecated use {@link #getProductsByCategoryPage(String, String, Integer)}
+     */
+    @Deprecated
     public List<ProductDTO> getProductsByCategory(String category) {
-        return productRepository.findByCategory(category).stream()
-                .map(mapper::toProductDTO)
-                .toList();
+        return getProductsByCategoryPage(category, null, maxPageSize).getItems();
     }
 
+    /**
+     * @deprecated use {@link #getProductsByCategoryIdPage(Long, String, Integer)}
+     */
+    @Deprecated
     public List<ProductDTO> getProductsByCategoryId(Long categoryId) {
-        return productRepository.findByCategoryId(categoryId).stream()
-                .map(mapper::toProductDTO)
-                .toList();
+        return getProductsByCategoryIdPage(categoryId, null, maxPageSize).getItems();
+    }
+
+    /**
+     * Get a page of products ordered by id, starting after the given cursor
+     */
+    public CursorPageDTO<ProductDTO> getProductsPage(String cursor, Integer size) {
+        int pageSize = resolvePageSize(size);
+        return toIdPage(productRepository.findByIdGreaterThanOrderByIdAsc(
+                parseIdCursor(cursor), PageRequest.of(0, pageSize + 1)), pageSize);
+    }
+
+    public CursorPageDTO<ProductDTO> getProductsByCategoryPage(String category, String cursor, Integer size) {
+        int pageSize = resolvePageSize(size);
+        return toIdPage(productRepository.findByCategoryAndIdGreaterThanOrderByIdAsc(
+                category, parseIdCursor(cursor), PageRequest.of(0, pageSize + 1)), pageSize);
+    }
+
+    public CursorPageDTO<ProductDTO> getProductsByCategoryIdPage(Long categoryId, String cursor, Integer size) {
+        int pageSize = resolvePageSize(size);
+        return toIdPage(productRepository.findByCategoryIdAndIdGreaterThanOrderByIdAsc(
+                categoryId, parseIdCursor(cursor), PageRequest.of(0, pageSize + 1)), pageSize);
+    }
+
+    /**
+     * Get a page of products ordered by (lastUpdated, id), for clients that sync incrementally
+     */
+    public CursorPageDTO<ProductDTO> getProductsUpdatedPage(String cursor, Integer size) {
+        int pageSize = resolvePageSize(size);
+        LocalDateTime updatedAfter = LocalDateTime.of(1970, 1, 1, 0, 0);
+        long afterId = 0L;
+
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.lastIndexOf('|');
+                updatedAfter = LocalDateTime.parse(decoded.substring(0, separator));
+                afterId = Long.parseLong(decoded.substring(separator + 1));
+            } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+                throw new PlentiException("Invalid cursor");
+            }
+        }
+
+        List<Product> products = productRepository.findUpdatedAfter(
+                updatedAfter, afterId, PageRequest.of(0, pageSize + 1));
+        return toPage(products, pageSize, last -> Base64.getUrlEncoder().withoutPadding().encodeToString(
+                (last.getLastUpdated() + "|" + last.getId()).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Write every product as newline-delimited JSON without materialising the catalogue.
+     * Each row is detached once written so the persistence context stays small.
+     */
+    @Transactional(readOnly = true)
+    public long exportProducts(OutputStream outputStream) throws IOException {
+        long count = 0;
+        try (Stream<Product> products = productRepository.streamAllOrderById()) {
+            var iterator = products.iterator();
+            while (iterator.hasNext()) {
+                Product product = iterator.next();
+                outputStream.write(objectMapper.writeValueAsBytes(mapper.toProductDTO(product)));
+                outputStream.write('\n');
+                entityManager.detach(product);
+                count++;
+            }
+        }
+        outputStream.flush();
+        return count;
     }
 
     @Transactional
     public ProductDTO createProduct(ProductDTO productDTO) {
         Product product = mapper.toProductEntity(productDTO);
         Product savedProduct = productRepository.save(product);
+        productSearchIndex.refreshAfterCommit(savedProduct);
         return mapper.toProductDTO(savedProduct);
     }
 
@@ -74,6 +203,8 @@ public class ProductService {
         if (productDTO.getCategoryId() != null) product.setCategoryId(productDTO.getCategoryId());
 
         Product updatedProduct = productRepository.save(product);
+        catalogSnapshot.invalidate(id);
+        productSearchIndex.refreshAfterCommit(updatedProduct);
         return mapper.toProductDTO(updatedProduct);
     }
 
@@ -83,6 +214,8 @@ public class ProductService {
             throw new PlentiException("Product not found");
         }
         productRepository.deleteById(id);
+        catalogSnapshot.invalidate(id);
+        productSearchIndex.removeAfterCommit(id);
     }
 
     @Transactional
@@ -91,6 +224,7 @@ public class ProductService {
                 .orElseThrow(() -> new PlentiException("Product not found"));
         product.setStock(product.getStock() + quantity);
         productRepository.save(product);
+        catalogSnapshot.invalidate(id);
     }
 
     public List<ProductDTO> getLowStockProducts(Integer threshold) {
@@ -131,4 +265,38 @@ public class ProductService {
                 .map(mapper::toProductDTO)
                 .toList();
     }
+
+    private int resolvePageSize(Integer size) {
+        if (size == null || size <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(size, maxPageSize);
+    }
+
+    private long parseIdCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new PlentiException("Invalid cursor");
+        }
+    }
+
+    private CursorPageDTO<ProductDTO> toIdPage(List<Product> products, int pageSize) {
+        return toPage(products, pageSize, last -> String.valueOf(last.getId()));
+    }
+
+    // Pages are fetched with one extra row so hasMore needs no count query
+    private CursorPageDTO<ProductDTO> toPage(List<Product> products, int pageSize,
+                                            Function<Product, String> cursorOf) {
+        boolean hasMore = products.size() > pageSize;
+        List<Product> page = hasMore ? products.subList(0, pageSize) : products;
+        String nextCursor = hasMore ? cursorOf.apply(page.get(page.size() - 1)) : null;
+        List<ProductDTO> items = page.stream()
+                .map(mapper::toProductDTO)
+                .toList();
+        return new CursorPageDTO<>(items, nextCursor, hasMore, items.size());
+    }
 }
@@ -0,0 +1,128 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.repository.SearchHistoryRepository;
+import com.plenti.plentibackend.util.LruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Last few distinct search terms of recently active users.
+ * Each user gets a small deduplicating ring: a repeated term moves to the front and the
+ * oldest term falls off the end. Rings live in an LRU cache, so memory is bounded by
+ * cache-size x ring-size terms. A ring missing from the cache is filled from the user's
+ * latest search_history rows, read in LIMIT pages until enough distinct terms are found,
+ * so only users who keep repeating the same term read further back than one page.
+ */
+@Component
+public class RecentSearchCache {
+
+    // Rows read per page for each distinct term wanted, to leave room for repeated terms
+    private static final int SCAN_FACTOR = 5;
+
+    private final SearchHistoryRepository searchHistoryRepository;
+    private final int ringSize;
+    private final LruCache<Long, Ring> rings;
+
+    public RecentSearchCache(SearchHistoryRepository searchHistoryRepository,
+                             @Value("${search.recent.ring-size:20}") int ringSize,
+                             @Value("${search.recent.cache-size:10000}") int cacheSize,
+                             @Value("${search.recent.cache-ttl-ms:1800000}") long cacheTtlMillis) {
+        this.searchHistoryRepository = searchHistoryRepository;
+        this.ringSize = ringSize;
+        this.rings = new LruCache<>(cacheSize, cacheTtlMillis);
+    }
+
+    /**
+     * Newest distinct terms first. Terms still waiting in the ingest buffer are included,
+     * since the ring is updated as searches are tracked rather than when they are written.
+     */
+    static final class Ring {
+        private final int size;
+        private final Deque<String> terms = new ArrayDeque<>();
+        private boolean loaded;
+
+        Ring(int size) {
+            this.size = size;
+        }
+
+        synchronized void push(String term) {
+            terms.remove(term);
+            terms.addFirst(term);
+            if (terms.size() > size) {
+                terms.removeLast();
+            }
+        }
+
+        synchronized boolean isLoaded() {
+            return loaded;
+        }
+
+        /**
+         * Append stored terms behind the ones pushed since the ring was created, which are newer
+         */
+        synchronized void fill(List<String> stored) {
+            if (loaded) {
+                return;
+            }
+            Iterator<String> older = stored.iterator();
+            while (terms.size() < size && older.hasNext()) {
+                String term = older.next();
+                if (!terms.contains(term)) {
+                    terms.addLast(term);
+                }
+            }
+            loaded = true;
+        }
+
+        synchronized List<String> latest(int limit) {
+            return terms.stream().limit(limit).toList();
+        }
+    }
+
+    public void record(Long userId, String term) {
+        if (userId != null) {
+            rings.computeIfAbsent(userId, id -> new Ring(ringSize)).push(term);
+        }
+    }
+
+    public List<String> getRecentSearches(Long userId, int limit) {
+        if (limit > ringSize) {
+            // Beyond what a ring holds; still bounded by the limit, not by the history size
+            return loadDistinct(userId, limit);
+        }
+        Ring ring = rings.computeIfAbsent(userId, id -> new Ring(ringSize));
+        if (!ring.isLoaded()) {
+            ring.fill(loadDistinct(userId, ringSize));
+        }
+        return ring.latest(limit);
+    }
+
+    /**
+     * Up to limit distinct stored terms, newest first, paging back until enough are found
+     */
+    private List<String> loadDistinct(Long userId, int limit) {
+        int pageSize = limit * SCAN_FACTOR;
+        Set<String> seen = new LinkedHashSet<>();
+        for (int page = 0; ; page++) {
+            List<String> terms = searchHistoryRepository.findRecentSearchTerms(userId, PageRequest.of(page, pageSize));
+            for (String term : terms) {
+                if (seen.size() >= limit) {
+                    break;
+                }
+                seen.add(term);
+            }
+            if (seen.size() >= limit || terms.size() < pageSize) {
+                return new ArrayList<>(seen);
+            }
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.entity.Rider;
+import com.plenti.plentibackend.repository.RiderRepository;
+import com.plenti.plentibackend.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Concurrent in-memory index of each rider's latest position and availability.
+ * Riders are bucketed into a uniform grid so assignment only inspects riders in
+ * cells around the pickup point instead of querying the location history per rider.
+ * A rebuild fills fresh maps on the side and swaps them in, so queries never see an
+ * empty or half-loaded index; updates that land mid-rebuild are replayed onto the new maps.
+ */
+@Component
+@Slf4j
+public class RiderLocationIndex {
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE = 111.32;
+
+    private final RiderRepository riderRepository;
+    private final double cellSizeDegrees;
+
+    private volatile Maps maps = new Maps();
+
+    // Updates take the read lock so they never straddle the swap; the rebuild takes the write lock
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private volatile Queue<Consumer<Maps>> updatesDuringRebuild;
+
+    public RiderLocationIndex(RiderRepository riderRepository,
+                              @Value("${fulfillment.rider-index.cell-size-km:2.0}") double cellSizeKm) {
+        this.riderRepository = riderRepository;
+        this.cellSizeDegrees = cellSizeKm / KM_PER_DEGREE;
+    }
+
+    /**
+     * Latest known state of a rider. Position fields are NaN until the first ping.
+     */
+    public record RiderState(long riderId, double latitude, double longitude,
+                             LocalDateTime timestamp, boolean available, long cellKey) {
+
+        boolean hasPosition() {
+            return !Double.isNaN(latitude);
+        }
+    }
+
+    /**
+     * A rider matched by a query with its Haversine distance
+     */
+    public record Hit(long riderId, double distanceKm, LocalDateTime timestamp) {
+    }
+
+    /**
+     * Rider states plus the grid cells that point at them, swapped together on rebuild
+     */
+    private record Maps(Map<Long, RiderState> riders, Map<Long, Set<Long>> cells) {
+
+        Maps() {
+            this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Rebuild from the riders table, whose current position columns mirror the latest ping
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        Queue<Consumer<Maps>> pending = new ConcurrentLinkedQueue<>();
+        swapLock.writeLock().lock();
+        try {
+            updatesDuringRebuild = pending;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        Maps fresh = new Maps();
+        List<Rider> activeRiders = List.of();
+        boolean loaded = false;
+        try {
+            activeRiders = riderRepository.findByIsActiveTrue();
+            for (Rider rider : activeRiders) {
+                sync(fresh, rider);
+            }
+            loaded = true;
+        } finally {
+            swapLock.writeLock().lock();
+            try {
+                // If loading failed, keep serving the old maps rather than a partial index
+                if (loaded) {
+                    pending.forEach(update -> update.accept(fresh));
+                    maps = fresh;
+                }
+                updatesDuringRebuild = null;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+        }
+        log.info("Rider location index built with {} active riders", activeRiders.size());
+    }
+
+    /**
+     * Record a new position for a rider, moving it between grid cells as needed
+     */
+    public void updatePosition(Long riderId, double latitude, double longitude, LocalDateTime timestamp) {
+        apply(target -> updatePosition(target, riderId, latitude, longitude, timestamp));
+    }
+
+    /**
+     * Mark a rider as available for (or withdrawn from) assignment
+     */
+    public void updateAvailability(Long riderId, boolean available) {
+        apply(target -> updateAvailability(target, riderId, available));
+    }
+
+    /**
+     * Refresh a rider's availability (and position, if known) from the entity
+     */
+    public void sync(Rider rider) {
+        apply(target -> sync(target, rider));
+    }
+
+    private void apply(Consumer<Maps> update) {
+        swapLock.readLock().lock();
+        try {
+            update.accept(maps);
+            Queue<Consumer<Maps>> pending = updatesDuringRebuild;
+            if (pending != null) {
+                pending.add(update);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private void updatePosition(Maps target, Long riderId, double latitude, double longitude,
+                                LocalDateTime timestamp) {
+        long newCell = cellKey(latitude, longitude);
+        target.riders().compute(riderId, (id, previous) -> {
+            if (previous != null && previous.timestamp() != null
+                    && timestamp != null && timestamp.isBefore(previous.timestamp())) {
+                // Out-of-order ping; keep the newer position
+                return previous;
+            }
+            // Unknown riders stay unassignable until their status is synced
+            boolean available = previous != null && previous.available();
+            moveCell(target, id, previous, newCell);
+            return new RiderState(id, latitude, longitude, timestamp, available, newCell);
+        });
+    }
+
+    private void updateAvailability(Maps target, Long riderId, boolean available) {
+        target.riders().compute(riderId, (id, previous) -> previous == null
+                ? new RiderState(id, Double.NaN, Double.NaN, null, available, Long.MIN_VALUE)
+                : new RiderState(id, previous.latitude(), previous.longitude(),
+                        previous.timestamp(), available, previous.cellKey()));
+    }
+
+    private void sync(Maps target, Rider rider) {
+        if (rider.getId() == null) {
+            return;
+        }
+        if (rider.getCurrentLatitude() != null && rider.getCurrentLongitude() != null) {
+            updatePosition(target, rider.getId(), rider.getCurrentLatitude(), rider.getCurrentLongitude(),
+                    rider.getLastLocationUpdate());
+        }
+        updateAvailability(target, rider.getId(), isAvailable(rider));
+    }
+
+    public void syncAfterCommit(Rider rider) {
+        TransactionUtils.runAfterCommit(() -> sync(rider));
+    }
+
+    public void updateAvailabilityAfterCommit(Long riderId, boolean available) {
+        TransactionUtils.runAfterCommit(() -> updateAvailability(riderId, available));
+    }
+
+    public RiderState get(Long riderId) {
+        return maps.riders().get(riderId);
+    }
+
+    /**
+     * Find up to k available riders within maxDistanceKm of the point, nearest first
+     */
+    public List<Hit> findNearestAvailable(double lat, double lng, double maxDistanceKm, int k) {
+        Maps current = maps;
+        List<Hit> hits = new ArrayList<>();
+        double cosLat = Math.cos(Math.toRadians(lat));
+        double latSpan = maxDistanceKm / KM_PER_DEGREE;
+        double lngSpan = maxDistanceKm / (KM_PER_DEGREE * Math.max(cosLat, 0.01));
+        long minLatCell = cellIndex(lat - latSpan);
+        long maxLatCell = cellIndex(lat + latSpan);
+        long minLngCell = cellIndex(lng - lngSpan);
+        long maxLngCell = cellIndex(lng + lngSpan);
+
+        for (long latCell = minLatCell; latCell <= maxLatCell; latCell++) {
+            for (long lngCell = minLngCell; lngCell <= maxLngCell; lngCell++) {
+                Set<Long> cell = current.cells().get(pack(latCell, lngCell));
+                if (cell == null) {
+                    continue;
+                }
+                for (Long riderId : cell) {
+                    RiderState state = current.riders().get(riderId);
+                    // A rider mid-move can briefly appear in two cells; only count its current one
+                    if (state == null || !state.available() || !state.hasPosition()
+                            || state.cellKey() != pack(latCell, lngCell)) {
+                        continue;
+                    }
+                    double distance = haversine(lat, lng, state.latitude(), state.longitude());
+                    if (distance <= maxDistanceKm) {
+                        hits.add(new Hit(riderId, distance, state.timestamp()));
+                    }
+                }
+            }
+        }
+
+        hits.sort(Comparator.comparingDouble(Hit::distanceKm));
+        return hits.size() > k ? new ArrayList<>(hits.subList(0, k)) : hits;
+    }
+
+    public int size() {
+        return maps.riders().size();
+    }
+
+    private void moveCell(Maps target, Long riderId, RiderState previous, long newCell) {
+        if (previous != null && previous.hasPosition() && previous.cellKey() == newCell) {
+            return;
+        }
+        target.cells().computeIfAbsent(newCell, key -> ConcurrentHashMap.newKeySet()).add(riderId);
+        if (previous != null && previous.hasPosition()) {
+            Set<Long> oldCell = target.cells().get(previous.cellKey());
+            if (oldCell != null) {
+                oldCell.remove(riderId);
+            }
+        }
+    }
+
+    private boolean isAvailable(Rider rider) {
+        return Boolean.TRUE.equals(rider.getIsActive()) && "AVAILABLE".equals(rider.getStatus());
+    }
+
+    private long cellKey(double lat, double lng) {
+        return pack(cellIndex(lat), cellIndex(lng));
+    }
+
+    private long cellIndex(double degrees) {
+        return (long) Math.floor(degrees / cellSizeDegrees);
+    }
+
+    private static long pack(long latCell, long lngCell) {
+        return (latCell << 32) | (lngCell & 0xffffffffL);
+    }
+
+    private static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS_KM * c;
+    }
+}
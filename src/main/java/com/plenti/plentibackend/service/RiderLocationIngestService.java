@@ -0,0 +1,286 @@
+package com.plenti.plentibackend.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for rider GPS pings.
+ * Every ping is kept for the location history, but a rider pinging several times between
+ * flushes only moves its current position once, to the latest ping. The buffer is flushed
+ * once it holds flush-size pings or every flush-interval, whichever comes first; each flush
+ * appends the locations with multi-row INSERTs and moves every rider's current position
+ * with a single batched UPDATE. Only when the buffer is full are a rider's buffered pings
+ * coalesced into its latest one.
+ */
+@Service
+@Slf4j
+public class RiderLocationIngestService {
+
+    // Locations go out as multi-row INSERTs built here rather than through the driver's
+    // rewriteBatchedStatements, which would also rewrite batches that need exact row counts
+    private static final String INSERT_LOCATIONS_SQL =
+            "INSERT INTO rider_locations (rider_id, latitude, longitude, timestamp) VALUES ";
+    private static final String LOCATION_ROW = "(?, ?, ?, ?)";
+    private static final int LOCATION_COLUMNS = 4;
+    private static final int ROWS_PER_INSERT = 1000;
+
+    // Never move a rider back to an older position than the one already stored
+    private static final String UPDATE_RIDER_SQL =
+            "UPDATE riders SET current_latitude = ?, current_longitude = ?, last_location_update = ? "
+                    + "WHERE id = ? AND (last_location_update IS NULL OR last_location_update <= ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int capacity;
+    private final int flushSize;
+
+    // Per-rider pings in arrival order; lists are replaced, never mutated, so readers need no lock
+    private final Map<Long, List<Ping>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger buffered = new AtomicInteger();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rider-location-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private volatile long lastFlushMillis;
+    private volatile int lastFlushRows;
+
+    public RiderLocationIngestService(JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${rider.location.ingest.capacity:10000}") int capacity,
+                                      @Value("${rider.location.ingest.flush-size:500}") int flushSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.capacity = capacity;
+        this.flushSize = flushSize;
+    }
+
+    /**
+     * A buffered ping. receivedNanos is only used to report how long pings wait for a flush.
+     */
+    public record Ping(long riderId, double latitude, double longitude,
+                       LocalDateTime timestamp, long receivedNanos) {
+    }
+
+    /**
+     * Buffer a ping. Returns false when the buffer is full and the rider has no ping
+     * waiting; the ping is dropped, which is safe for the current position because the
+     * next one supersedes it. A full buffer coalesces a buffered rider's pings instead.
+     */
+    public boolean submit(Long riderId, double latitude, double longitude, LocalDateTime timestamp) {
+        Ping ping = new Ping(riderId, latitude, longitude, timestamp, System.nanoTime());
+
+        boolean[] outcome = new boolean[2]; // {accepted, coalesced}
+        pending.compute(riderId, (id, current) -> {
+            boolean full = buffered.get() >= capacity;
+            if (current == null) {
+                if (full) {
+                    return null;
+                }
+                outcome[0] = true;
+                buffered.incrementAndGet();
+                return List.of(ping);
+            }
+            outcome[0] = true;
+            if (full) {
+                outcome[1] = true;
+                Ping latest = current.get(current.size() - 1);
+                buffered.addAndGet(1 - current.size());
+                return List.of(ping.timestamp().isBefore(latest.timestamp()) ? latest : ping);
+            }
+            List<Ping> pings = new ArrayList<>(current.size() + 1);
+            pings.addAll(current);
+            pings.add(ping);
+            buffered.incrementAndGet();
+            return pings;
+        });
+
+        if (!outcome[0]) {
+            dropped.incrementAndGet();
+            requestFlush();
+            return false;
+        }
+        accepted.incrementAndGet();
+        if (outcome[1]) {
+            coalesced.incrementAndGet();
+        }
+        if (buffered.get() >= flushSize) {
+            requestFlush();
+        }
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${rider.location.ingest.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    /**
+     * Write everything currently buffered. Concurrent callers skip rather than queue up
+     * behind a running flush, which already picks up pings that arrive while it runs.
+     */
+    public void flush() {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            Map<Long, List<Ping>> batch = drain();
+            while (!batch.isEmpty() && write(batch)) {
+                batch = drain();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long now = System.nanoTime();
+        long oldestNanos = pending.values().stream()
+                .mapToLong(pings -> pings.get(0).receivedNanos())
+                .min()
+                .orElse(now);
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pending", buffered.get());
+        stats.put("pendingRiders", pending.size());
+        stats.put("capacity", capacity);
+        stats.put("flushSize", flushSize);
+        stats.put("accepted", accepted.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("dropped", dropped.get());
+        stats.put("flushes", flushes.get());
+        stats.put("failedFlushes", failedFlushes.get());
+        stats.put("rowsWritten", rowsWritten.get());
+        stats.put("lastFlushMillis", lastFlushMillis);
+        stats.put("lastFlushRows", lastFlushRows);
+        stats.put("oldestPendingMillis", TimeUnit.NANOSECONDS.toMillis(now - oldestNanos));
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdown();
+        try {
+            flushExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        log.info("Rider location buffer flushed on shutdown ({} rows written in total)", rowsWritten.get());
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true) && !flushExecutor.isShutdown()) {
+            flushExecutor.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+
+    /**
+     * Remove up to about flushSize pings, whole riders at a time. Pings that arrive for a
+     * rider after its entry is removed start a new entry for the next batch.
+     */
+    private Map<Long, List<Ping>> drain() {
+        // Sorted for a stable lock order on the riders table
+        Map<Long, List<Ping>> batch = new TreeMap<>();
+        int pings = 0;
+        for (Long riderId : pending.keySet()) {
+            if (pings >= flushSize) {
+                break;
+            }
+            List<Ping> riderPings = pending.remove(riderId);
+            if (riderPings != null) {
+                buffered.addAndGet(-riderPings.size());
+                batch.put(riderId, riderPings);
+                pings += riderPings.size();
+            }
+        }
+        return batch;
+    }
+
+    private boolean write(Map<Long, List<Ping>> batch) {
+        long start = System.currentTimeMillis();
+        List<Object> locationArgs = new ArrayList<>();
+        List<Object[]> riderRows = new ArrayList<>(batch.size());
+        for (List<Ping> pings : batch.values()) {
+            Ping latest = pings.get(0);
+            for (Ping ping : pings) {
+                Collections.addAll(locationArgs, ping.riderId(), ping.latitude(), ping.longitude(),
+                        Timestamp.valueOf(ping.timestamp()));
+                if (!ping.timestamp().isBefore(latest.timestamp())) {
+                    latest = ping;
+                }
+            }
+            Timestamp timestamp = Timestamp.valueOf(latest.timestamp());
+            riderRows.add(new Object[]{latest.latitude(), latest.longitude(), timestamp, latest.riderId(), timestamp});
+        }
+        int rowCount = locationArgs.size() / LOCATION_COLUMNS;
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int from = 0; from < rowCount; from += ROWS_PER_INSERT) {
+                    int rows = Math.min(ROWS_PER_INSERT, rowCount - from);
+                    jdbcTemplate.update(insertLocationsSql(rows), locationArgs
+                            .subList(from * LOCATION_COLUMNS, (from + rows) * LOCATION_COLUMNS).toArray());
+                }
+                jdbcTemplate.batchUpdate(UPDATE_RIDER_SQL, riderRows);
+            });
+            flushes.incrementAndGet();
+            rowsWritten.addAndGet(rowCount);
+            lastFlushRows = rowCount;
+            lastFlushMillis = System.currentTimeMillis() - start;
+            return true;
+        } catch (RuntimeException e) {
+            failedFlushes.incrementAndGet();
+            // Put the pings back ahead of any that arrived meanwhile
+            batch.forEach((riderId, pings) -> {
+                pending.merge(riderId, pings, (newer, failed) -> {
+                    List<Ping> merged = new ArrayList<>(failed);
+                    merged.addAll(newer);
+                    return merged;
+                });
+                buffered.addAndGet(pings.size());
+            });
+            log.error("Failed to flush {} rider locations: {}", rowCount, e.getMessage());
+            return false;
+        }
+    }
+
+    private static String insertLocationsSql(int rows) {
+        return INSERT_LOCATIONS_SQL + String.join(", ", Collections.nCopies(rows, LOCATION_ROW));
+    }
+}
@@ -0,0 +1,312 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.entity.RiderTrackPoint;
+import com.plenti.plentibackend.repository.RiderTrackPointRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retention for the rider_locations history.
+ * Raw pings are compacted, in id order, into rider_track_points keeping one point per
+ * min-distance metres or max-interval seconds for each rider. Raw rows that have been
+ * compacted and are older than the horizon are then deleted in small primary-key ranges,
+ * each in its own short statement, so the purge never holds long locks on the table.
+ * Only one instance runs at a time, under a job lease. Compaction stops at the highest raw
+ * id seen at least commit-grace earlier: ids are allocated before their flush commits, so
+ * rows below the newest id may still be in flight, and compacting past them would move the
+ * watermark over rows that are then never compacted and eventually purged.
+ */
+@Service
+@Slf4j
+public class RiderLocationRetentionService {
+
+    private static final double EARTH_RADIUS_M = 6_371_000.0;
+    private static final String LEASE_NAME = "rider-location-retention";
+
+    private static final String SELECT_RAW_SQL =
+            "SELECT id, rider_id, latitude, longitude, timestamp FROM rider_locations "
+                    + "WHERE id > ? AND id <= ? ORDER BY id LIMIT ?";
+
+    // Skips points already written, e.g. by a run whose lease lapsed mid-chunk
+    private static final String INSERT_TRACK_POINT_SQL =
+            "INSERT INTO rider_track_points (rider_id, latitude, longitude, timestamp, source_location_id) "
+                    + "SELECT ?, ?, ?, ?, ? FROM DUAL WHERE NOT EXISTS "
+                    + "(SELECT 1 FROM rider_track_points WHERE source_location_id = ?)";
+
+    private static final String DELETE_RAW_RANGE_SQL =
+            "DELETE FROM rider_locations WHERE id >= ? AND id < ? AND timestamp < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RiderTrackPointRepository trackPointRepository;
+    private final JobLeaseService jobLeaseService;
+    private final double minDistanceMeters;
+    private final long maxIntervalSeconds;
+    private final Duration compactDelay;
+    private final Duration horizon;
+    private final int chunkSize;
+    private final long purgePauseMillis;
+    private final Duration commitGrace;
+    private final Duration lease;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong rawRowsCompacted = new AtomicLong();
+    private final AtomicLong trackPointsWritten = new AtomicLong();
+    private final AtomicLong rawRowsPurged = new AtomicLong();
+    private volatile LocalDateTime lastRunAt;
+    private volatile long lastRunMillis;
+    private volatile Fence fence;
+
+    public RiderLocationRetentionService(JdbcTemplate jdbcTemplate,
+                                         PlatformTransactionManager transactionManager,
+                                         RiderTrackPointRepository trackPointRepository,
+                                         JobLeaseService jobLeaseService,
+                                         @Value("${rider.location.retention.min-distance-meters:50}") double minDistanceMeters,
+                                         @Value("${rider.location.retention.max-interval-seconds:60}") long maxIntervalSeconds,
+                                         @Value("${rider.location.retention.compact-delay-minutes:2}") long compactDelayMinutes,
+                                         @Value("${rider.location.retention.horizon-days:7}") long horizonDays,
+                                         @Value("${rider.location.retention.chunk-size:1000}") int chunkSize,
+                                         @Value("${rider.location.retention.purge-pause-ms:50}") long purgePauseMillis,
+                                         @Value("${rider.location.retention.commit-grace-ms:60000}") long commitGraceMillis,
+                                         @Value("${rider.location.retention.lease-ms:900000}") long leaseMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.trackPointRepository = trackPointRepository;
+        this.jobLeaseService = jobLeaseService;
+        this.minDistanceMeters = minDistanceMeters;
+        this.maxIntervalSeconds = maxIntervalSeconds;
+        this.compactDelay = Duration.ofMinutes(compactDelayMinutes);
+        this.horizon = Duration.ofDays(horizonDays);
+        this.chunkSize = chunkSize;
+        this.purgePauseMillis = purgePauseMillis;
+        this.commitGrace = Duration.ofMillis(commitGraceMillis);
+        this.lease = Duration.ofMillis(leaseMillis);
+    }
+
+    private record Point(long id, long riderId, double latitude, double longitude, LocalDateTime timestamp) {
+    }
+
+    /**
+     * Highest raw id at a point in time; every row up to it has committed once commit-grace has passed
+     */
+    private record Fence(long maxId, LocalDateTime takenAt) {
+    }
+
+    @Scheduled(fixedDelayString = "${rider.location.retention.interval-ms:300000}",
+            initialDelayString = "${rider.location.retention.initial-delay-ms:60000}")
+    public void runRetention() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        boolean leased = false;
+        try {
+            // Another instance is already running retention
+            leased = jobLeaseService.tryAcquire(LEASE_NAME, lease);
+            if (!leased) {
+                return;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            Fence previous = fence;
+            Fence current = new Fence(findMaxLocationId(), now);
+            long compacted = 0;
+            if (previous == null) {
+                fence = current;
+            } else if (!previous.takenAt().isAfter(now.minus(commitGrace))) {
+                compacted = compact(now.minus(compactDelay), previous.maxId());
+                fence = current;
+            }
+            long purged = purge(now.minus(horizon));
+            if (compacted > 0 || purged > 0) {
+                log.info("Rider location retention: compacted {} raw rows, purged {}", compacted, purged);
+            }
+        } catch (RuntimeException e) {
+            log.error("Rider location retention failed: {}", e.getMessage());
+        } finally {
+            running.set(false);
+            if (leased) {
+                lastRunAt = LocalDateTime.now();
+                lastRunMillis = System.currentTimeMillis() - start;
+                releaseLease();
+            }
+        }
+    }
+
+    private void releaseLease() {
+        try {
+            jobLeaseService.release(LEASE_NAME);
+        } catch (RuntimeException e) {
+            // The lease lapses on its own
+            log.warn("Failed to release the rider location retention lease: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Downsample raw rows up to maxId recorded before the cutoff that have not been compacted
+     * yet. Stops at the first row newer than the cutoff so late-flushed pings are never skipped.
+     */
+    public long compact(LocalDateTime cutoff, long maxId) {
+        long watermark = trackPointRepository.findMaxSourceLocationId();
+        Map<Long, Point> lastKept = new HashMap<>();
+        long total = 0;
+
+        while (true) {
+            List<Point> chunk = loadChunk(watermark, maxId, cutoff);
+            if (chunk.isEmpty()) {
+                return total;
+            }
+
+            List<Point> kept = downsample(chunk, lastKept);
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_TRACK_POINT_SQL,
+                    kept.stream()
+                            .map(point -> new Object[]{point.riderId(), point.latitude(), point.longitude(),
+                                    Timestamp.valueOf(point.timestamp()), point.id(), point.id()})
+                            .toList()));
+
+            watermark = chunk.get(chunk.size() - 1).id();
+            total += chunk.size();
+            rawRowsCompacted.addAndGet(chunk.size());
+            trackPointsWritten.addAndGet(kept.size());
+            if (chunk.size() < chunkSize) {
+                return total;
+            }
+        }
+    }
+
+    /**
+     * Delete compacted raw rows older than the cutoff, one primary-key range at a time
+     */
+    public long purge(LocalDateTime cutoff) {
+        long watermark = trackPointRepository.findMaxSourceLocationId();
+        Long minId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM rider_locations", Long.class);
+        Long maxExpiredId = jdbcTemplate.queryForObject(
+                "SELECT MAX(id) FROM rider_locations WHERE timestamp < ?", Long.class, Timestamp.valueOf(cutoff));
+        if (minId == null || maxExpiredId == null) {
+            return 0;
+        }
+
+        // Never drop rows the compactor has not seen
+        long upper = Math.min(maxExpiredId, watermark);
+        Timestamp cutoffTimestamp = Timestamp.valueOf(cutoff);
+        long total = 0;
+        for (long from = minId; from <= upper; from += chunkSize) {
+            long to = Math.min(from + chunkSize, upper + 1);
+            total += jdbcTemplate.update(DELETE_RAW_RANGE_SQL, from, to, cutoffTimestamp);
+            pause();
+        }
+        rawRowsPurged.addAndGet(total);
+        return total;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("rawRowsCompacted", rawRowsCompacted.get());
+        stats.put("trackPointsWritten", trackPointsWritten.get());
+        stats.put("rawRowsPurged", rawRowsPurged.get());
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("lastRunMillis", lastRunMillis);
+        stats.put("running", running.get());
+        Fence current = fence;
+        stats.put("compactFenceId", current == null ? null : current.maxId());
+        return stats;
+    }
+
+    private long findMaxLocationId() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM rider_locations", Long.class);
+        return maxId == null ? 0 : maxId;
+    }
+
+    private List<Point> loadChunk(long afterId, long maxId, LocalDateTime cutoff) {
+        List<Point> rows = jdbcTemplate.query(SELECT_RAW_SQL, (rs, rowNum) -> new Point(
+                rs.getLong("id"),
+                rs.getLong("rider_id"),
+                rs.getDouble("latitude"),
+                rs.getDouble("longitude"),
+                rs.getTimestamp("timestamp").toLocalDateTime()), afterId, maxId, chunkSize);
+
+        for (int i = 0; i < rows.size(); i++) {
+            if (!rows.get(i).timestamp().isBefore(cutoff)) {
+                return rows.subList(0, i);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Pick the points to keep from a chunk, continuing from each rider's last kept point.
+     * The chunk's final row is always kept so the compaction watermark advances.
+     */
+    private List<Point> downsample(List<Point> chunk, Map<Long, Point> lastKept) {
+        Set<Long> unknown = new HashSet<>();
+        for (Point point : chunk) {
+            if (!lastKept.containsKey(point.riderId())) {
+                unknown.add(point.riderId());
+            }
+        }
+        if (!unknown.isEmpty()) {
+            for (RiderTrackPoint previous : trackPointRepository.findLatestByRiderIds(unknown)) {
+                lastKept.put(previous.getRiderId(), new Point(previous.getSourceLocationId(), previous.getRiderId(),
+                        previous.getLatitude(), previous.getLongitude(), previous.getTimestamp()));
+            }
+        }
+
+        List<Point> kept = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            Point point = chunk.get(i);
+            Point previous = lastKept.get(point.riderId());
+            boolean last = i == chunk.size() - 1;
+            if (previous != null && point.timestamp().isBefore(previous.timestamp())) {
+                // Out-of-order ping; only written when needed to advance the watermark
+                if (last) {
+                    kept.add(point);
+                }
+                continue;
+            }
+            if (previous == null
+                    || distanceMeters(previous, point) >= minDistanceMeters
+                    || Duration.between(previous.timestamp(), point.timestamp()).getSeconds() >= maxIntervalSeconds
+                    || last) {
+                kept.add(point);
+                lastKept.put(point.riderId(), point);
+            }
+        }
+        return kept;
+    }
+
+    private void pause() {
+        if (purgePauseMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(purgePauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static double distanceMeters(Point a, Point b) {
+        double dLat = Math.toRadians(b.latitude() - a.latitude());
+        double dLon = Math.toRadians(b.longitude() - a.longitude());
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(a.latitude())) * Math.cos(Math.toRadians(b.latitude()))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return EARTH_RADIUS_M * 2 * Math.atan2(Math.sqrt(h), Math.sqrt(1 - h));
+    }
+}
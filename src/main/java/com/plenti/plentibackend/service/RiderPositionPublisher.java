@@ -0,0 +1,338 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.entity.OrderStatus;
+import com.plenti.plentibackend.repository.OrderRepository;
+import com.plenti.plentibackend.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Pushes rider positions to customers on /topic/orders/{orderId}/location so the app
+ * doesn't have to poll the tracking endpoint.
+ *
+ * Pings of riders without an active order are ignored with one map lookup. Pings of the
+ * others are coalesced per order, and each order gets at most one message per
+ * min-interval-ms carrying the latest position. Messages are a "key" frame with the
+ * absolute position, then "delta" frames with the change since the previous message,
+ * both in microdegrees. A key frame is sent every keyframe-interval-ms, after a send
+ * failure and when someone subscribes, so a client that missed a frame (seq gap) only
+ * waits for the next one.
+ *
+ * With websocket.broker.mode=relay, every instance that receives a rider's pings publishes
+ * to the same topic with its own seq, and a delta could be applied to another instance's
+ * frame. Only key frames are sent then, and clients keep the frame with the newest "t".
+ */
+@Service
+@Slf4j
+public class RiderPositionPublisher {
+
+    static final List<OrderStatus> ACTIVE_STATUSES = List.of(
+            OrderStatus.PROCESSING, OrderStatus.CONFIRMED, OrderStatus.PACKED, OrderStatus.OUT_FOR_DELIVERY);
+
+    private static final Pattern LOCATION_TOPIC = Pattern.compile("^/topic/orders/(\\d+)/location$");
+    private static final double EARTH_RADIUS_METERS = 6_371_000.0;
+
+    private final NotificationService notificationService;
+    private final OrderRepository orderRepository;
+    private final RiderLocationIndex riderLocationIndex;
+    private final boolean enabled;
+    private final long minIntervalMs;
+    private final double minMoveMeters;
+    private final long keyframeIntervalMs;
+    private final boolean keyframesOnly;
+
+    // riderId -> orders the rider is delivering, and the reverse
+    private final Map<Long, Set<Long>> ordersByRider = new ConcurrentHashMap<>();
+    private final Map<Long, Long> riderByOrder = new ConcurrentHashMap<>();
+    // orderId -> latest position not pushed yet
+    private final Map<Long, Position> pending = new ConcurrentHashMap<>();
+    private final Map<Long, Stream> streams = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final AtomicLong ignored = new AtomicLong();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong keyframes = new AtomicLong();
+    private final AtomicLong deltas = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile long lastRefreshMillis;
+
+    public RiderPositionPublisher(NotificationService notificationService,
+                                  OrderRepository orderRepository,
+                                  RiderLocationIndex riderLocationIndex,
+                                  @Value("${rider.position.push.enabled:true}") boolean enabled,
+                                  @Value("${rider.position.push.min-interval-ms:2000}") long minIntervalMs,
+                                  @Value("${rider.position.push.min-move-meters:5}") double minMoveMeters,
+                                  @Value("${rider.position.push.keyframe-interval-ms:30000}") long keyframeIntervalMs,
+                                  @Value("${websocket.broker.mode:simple}") String brokerMode) {
+        this.notificationService = notificationService;
+        this.orderRepository = orderRepository;
+        this.riderLocationIndex = riderLocationIndex;
+        this.enabled = enabled;
+        this.minIntervalMs = minIntervalMs;
+        this.minMoveMeters = minMoveMeters;
+        this.keyframeIntervalMs = keyframeIntervalMs;
+        this.keyframesOnly = "relay".equalsIgnoreCase(brokerMode.trim());
+    }
+
+    public record Position(long riderId, double latitude, double longitude, LocalDateTime timestamp) {
+    }
+
+    /**
+     * Last message sent for one order. Only touched by the flushing thread, except
+     * forceKeyframe which subscribers set.
+     */
+    private static final class Stream {
+        long seq;
+        long lastSentMillis;
+        long lastKeyframeMillis;
+        long latE6;
+        long lngE6;
+        long timestampMillis;
+        volatile boolean forceKeyframe = true;
+    }
+
+    /**
+     * Called for every rider ping
+     */
+    public void onPing(Long riderId, double latitude, double longitude, LocalDateTime timestamp) {
+        Set<Long> orders = ordersByRider.get(riderId);
+        if (!enabled || orders == null) {
+            ignored.incrementAndGet();
+            return;
+        }
+        Position position = new Position(riderId, latitude, longitude, timestamp);
+        for (Long orderId : orders) {
+            accepted.incrementAndGet();
+            if (pending.put(orderId, position) != null) {
+                coalesced.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Start pushing the rider's position to the order's subscribers
+     */
+    public void track(Long orderId, Long riderId) {
+        Long previous = riderByOrder.put(orderId, riderId);
+        if (previous != null && !previous.equals(riderId)) {
+            removeOrder(previous, orderId);
+            streams.remove(orderId);
+        }
+        ordersByRider.compute(riderId, (id, orders) -> {
+            Set<Long> updated = orders != null ? orders : ConcurrentHashMap.newKeySet();
+            updated.add(orderId);
+            return updated;
+        });
+    }
+
+    public void untrack(Long orderId) {
+        Long riderId = riderByOrder.remove(orderId);
+        if (riderId != null) {
+            removeOrder(riderId, orderId);
+        }
+        pending.remove(orderId);
+        streams.remove(orderId);
+    }
+
+    public void trackAfterCommit(Long orderId, Long riderId) {
+        TransactionUtils.runAfterCommit(() -> track(orderId, riderId));
+    }
+
+    public void untrackAfterCommit(Long orderId) {
+        TransactionUtils.runAfterCommit(() -> untrack(orderId));
+    }
+
+    /**
+     * Reload the active assignments. Runs periodically so an instance also learns about
+     * assignments and deliveries handled by other instances.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${rider.position.push.refresh-interval-ms:60000}",
+            fixedDelayString = "${rider.position.push.refresh-interval-ms:60000}")
+    public void refresh() {
+        // Orders tracked while the query runs are not in this snapshot, so they are kept
+        Set<Long> before = new HashSet<>(riderByOrder.keySet());
+        Set<Long> active = new HashSet<>();
+        for (Object[] row : orderRepository.findRiderAssignments(ACTIVE_STATUSES)) {
+            Long orderId = (Long) row[0];
+            try {
+                Long riderId = Long.parseLong((String) row[1]);
+                active.add(orderId);
+                if (!riderId.equals(riderByOrder.get(orderId))) {
+                    track(orderId, riderId);
+                }
+            } catch (NumberFormatException e) {
+                log.warn("Order {} has an invalid rider id {}", orderId, row[1]);
+            }
+        }
+        before.removeAll(active);
+        before.forEach(this::untrack);
+        streams.keySet().retainAll(riderByOrder.keySet());
+        lastRefreshMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * A new subscriber needs an absolute position; send one on the next tick even if
+     * the rider is standing still
+     */
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        String destination = SimpMessageHeaderAccessor.getDestination(event.getMessage().getHeaders());
+        Matcher matcher = destination != null ? LOCATION_TOPIC.matcher(destination) : null;
+        if (matcher == null || !matcher.matches()) {
+            return;
+        }
+        Long orderId = Long.valueOf(matcher.group(1));
+        Long riderId = riderByOrder.get(orderId);
+        if (riderId == null) {
+            return;
+        }
+        streams.computeIfAbsent(orderId, id -> new Stream()).forceKeyframe = true;
+        RiderLocationIndex.RiderState state = riderLocationIndex.get(riderId);
+        if (state != null && !Double.isNaN(state.latitude()) && state.timestamp() != null) {
+            pending.putIfAbsent(orderId, new Position(riderId, state.latitude(), state.longitude(), state.timestamp()));
+        }
+    }
+
+    /**
+     * Push the latest position of every order whose min-interval has passed; the others
+     * stay pending and keep being coalesced
+     */
+    @Scheduled(fixedDelayString = "${rider.position.push.tick-ms:250}")
+    public void flush() {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            for (Long orderId : pending.keySet()) {
+                if (!riderByOrder.containsKey(orderId)) {
+                    pending.remove(orderId);
+                    continue;
+                }
+                Stream stream = streams.computeIfAbsent(orderId, id -> new Stream());
+                if (now - stream.lastSentMillis < minIntervalMs) {
+                    continue;
+                }
+                Position position = pending.remove(orderId);
+                if (position != null) {
+                    push(orderId, stream, position, now);
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("trackedOrders", riderByOrder.size());
+        stats.put("trackedRiders", ordersByRider.size());
+        stats.put("pending", pending.size());
+        stats.put("minIntervalMs", minIntervalMs);
+        stats.put("keyframesOnly", keyframesOnly);
+        stats.put("ignoredPings", ignored.get());
+        stats.put("acceptedPings", accepted.get());
+        stats.put("coalescedPings", coalesced.get());
+        stats.put("keyframes", keyframes.get());
+        stats.put("deltas", deltas.get());
+        stats.put("suppressed", suppressed.get());
+        stats.put("failed", failed.get());
+        stats.put("lastRefreshMillis", lastRefreshMillis);
+        return stats;
+    }
+
+    private void push(Long orderId, Stream stream, Position position, long now) {
+        long latE6 = Math.round(position.latitude() * 1_000_000);
+        long lngE6 = Math.round(position.longitude() * 1_000_000);
+        long timestampMillis = position.timestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        boolean keyframeDue = stream.forceKeyframe || now - stream.lastKeyframeMillis >= keyframeIntervalMs;
+
+        if (!keyframeDue && distanceMeters(stream.latE6, stream.lngE6, latE6, lngE6) < minMoveMeters) {
+            // Standing still; the next key frame confirms the position
+            suppressed.incrementAndGet();
+            return;
+        }
+        boolean keyframe = keyframeDue || keyframesOnly;
+
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("orderId", orderId);
+        message.put("seq", stream.seq + 1);
+        if (keyframe) {
+            message.put("type", "key");
+            message.put("riderId", position.riderId());
+            message.put("latE6", latE6);
+            message.put("lngE6", lngE6);
+            message.put("t", timestampMillis);
+        } else {
+            message.put("type", "delta");
+            message.put("dLatE6", latE6 - stream.latE6);
+            message.put("dLngE6", lngE6 - stream.lngE6);
+            message.put("dt", timestampMillis - stream.timestampMillis);
+        }
+
+        try {
+            notificationService.sendNotification("/topic/orders/" + orderId + "/location", message);
+        } catch (RuntimeException e) {
+            // Clients may have missed the frame; resync them with a key frame next time
+            failed.incrementAndGet();
+            stream.forceKeyframe = true;
+            log.warn("Failed to push rider position for order {}: {}", orderId, e.getMessage());
+            return;
+        }
+        stream.seq++;
+        stream.lastSentMillis = now;
+        stream.latE6 = latE6;
+        stream.lngE6 = lngE6;
+        stream.timestampMillis = timestampMillis;
+        if (keyframeDue) {
+            stream.forceKeyframe = false;
+            stream.lastKeyframeMillis = now;
+        }
+        if (keyframe) {
+            keyframes.incrementAndGet();
+        } else {
+            deltas.incrementAndGet();
+        }
+    }
+
+    private void removeOrder(Long riderId, Long orderId) {
+        ordersByRider.computeIfPresent(riderId, (id, orders) -> {
+            orders.remove(orderId);
+            return orders.isEmpty() ? null : orders;
+        });
+    }
+
+    private static double distanceMeters(long lat1E6, long lng1E6, long lat2E6, long lng2E6) {
+        double lat1 = Math.toRadians(lat1E6 / 1_000_000.0);
+        double lat2 = Math.toRadians(lat2E6 / 1_000_000.0);
+        double dLat = lat2 - lat1;
+        double dLng = Math.toRadians((lng2E6 - lng1E6) / 1_000_000.0);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
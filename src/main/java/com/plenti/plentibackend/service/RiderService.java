@@ -1,16 +1,23 @@
 package com.plenti.plentibackend.service;
 
+import com.plenti.plentibackend.dto.CursorPageDTO;
 import com.plenti.plentibackend.entity.Rider;
 import com.plenti.plentibackend.entity.RiderLocation;
+import com.plenti.plentibackend.entity.RiderTrackPoint;
+import com.plenti.plentibackend.exception.PlentiException;
 import com.plenti.plentibackend.repository.RiderLocationRepository;
 import com.plenti.plentibackend.repository.RiderRepository;
+import com.plenti.plentibackend.repository.RiderTrackPointRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service for managing delivery riders
@@ -23,6 +30,17 @@ public class RiderService {
     private final RiderRepository riderRepository;
     private final RiderLocationRepository riderLocationRepository;
     private final PasswordEncoder passwordEncoder;
+    private final RiderLocationIndex riderLocationIndex;
+    private final RiderLocationIngestService riderLocationIngestService;
+    private final RiderPositionPublisher riderPositionPublisher;
+    private final RiderLocationRetentionService riderLocationRetentionService;
+    private final RiderTrackPointRepository riderTrackPointRepository;
+
+    @Value("${rider.location.history.default-size:50}")
+    private int historyDefaultPageSize;
+
+    @Value("${rider.location.history.max-size:500}")
+    private int historyMaxPageSize;
 
     /**
      * Create new rider
@@ -32,7 +50,9 @@ public class RiderService {
         rider.setPassword(passwordEncoder.encode(rider.getPassword()));
         rider.setStatus("AVAILABLE");
         rider.setIsActive(true);
-        return riderRepository.save(rider);
+        Rider savedRider = riderRepository.save(rider);
+        riderLocationIndex.syncAfterCommit(savedRider);
+        return savedRider;
     }
 
     /**
@@ -76,28 +96,34 @@ public class RiderService {
         log.info("Updating rider {} status to: {}", riderId, status);
         Rider rider = getRiderById(riderId);
         rider.setStatus(status);
-        return riderRepository.save(rider);
+        Rider savedRider = riderRepository.save(rider);
+        riderLocationIndex.syncAfterCommit(savedRider);
+        return savedRider;
     }
 
     /**
-     * Update rider location
+     * Update rider location. The index is updated immediately so assignment sees the new
+     * position; the history row and the rider's current position are written behind.
      */
     public RiderLocation updateRiderLocation(Long riderId, Double latitude, Double longitude) {
-        log.info("Updating location for rider: {}", riderId);
-        
-        Rider rider = getRiderById(riderId);
-        rider.setCurrentLatitude(latitude);
-        rider.setCurrentLongitude(longitude);
-        rider.setLastLocationUpdate(LocalDateTime.now());
-        riderRepository.save(rider);
-        
+        log.debug("Updating location for rider: {}", riderId);
+
+        if (riderLocationIndex.get(riderId) == null && !riderRepository.existsById(riderId)) {
+            throw new RuntimeException("Rider not found with ID: " + riderId);
+        }
+
         RiderLocation location = new RiderLocation();
         location.setRiderId(riderId);
         location.setLatitude(latitude);
         location.setLongitude(longitude);
         location.setTimestamp(LocalDateTime.now());
-        
-        return riderLocationRepository.save(location);
+
+        riderLocationIndex.updatePosition(riderId, latitude, longitude, location.getTimestamp());
+        if (!riderLocationIngestService.submit(riderId, latitude, longitude, location.getTimestamp())) {
+            log.warn("Location buffer full, dropped ping from rider {}", riderId);
+        }
+        riderPositionPublisher.onPing(riderId, latitude, longitude, location.getTimestamp());
+        return location;
     }
 
     /**
@@ -110,11 +136,48 @@ public class RiderService {
     }
 
     /**
-     * Get rider's location history
+     * Get a page of the rider's compacted track, newest first, continuing before the cursor
      */
-    public List<RiderLocation> getRiderLocationHistory(Long riderId) {
+    public CursorPageDTO<RiderTrackPoint> getRiderLocationHistory(Long riderId, String cursor, Integer size) {
         log.info("Fetching location history for rider: {}", riderId);
-        return riderLocationRepository.findByRiderIdOrderByTimestampDesc(riderId);
+        int pageSize = size == null || size <= 0 ? historyDefaultPageSize : Math.min(size, historyMaxPageSize);
+        long beforeId = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                beforeId = Long.parseLong(cursor);
+            } catch (NumberFormatException e) {
+                throw new PlentiException("Invalid cursor");
+            }
+        }
+
+        // One extra row tells us whether another page exists
+        List<RiderTrackPoint> points = riderTrackPointRepository.findByRiderIdAndIdLessThanOrderByIdDesc(
+                riderId, beforeId, PageRequest.of(0, pageSize + 1));
+        boolean hasMore = points.size() > pageSize;
+        List<RiderTrackPoint> page = hasMore ? points.subList(0, pageSize) : points;
+        String nextCursor = hasMore ? String.valueOf(page.get(page.size() - 1).getId()) : null;
+        return new CursorPageDTO<>(page, nextCursor, hasMore, page.size());
+    }
+
+    /**
+     * Backpressure and flush metrics of the location write-behind buffer
+     */
+    public Map<String, Object> getLocationIngestStats() {
+        return riderLocationIngestService.getStats();
+    }
+
+    /**
+     * Coalescing and push metrics of the live position feed to customers
+     */
+    public Map<String, Object> getPositionPushStats() {
+        return riderPositionPublisher.getStats();
+    }
+
+    /**
+     * Compaction and purge metrics of the location history retention job
+     */
+    public Map<String, Object> getLocationRetentionStats() {
+        return riderLocationRetentionService.getStats();
     }
 
     /**
@@ -142,6 +205,8 @@ public class RiderService {
         log.info("Toggling active status for rider: {}", riderId);
         Rider rider = getRiderById(riderId);
         rider.setIsActive(!rider.getIsActive());
-        return riderRepository.save(rider);
+        Rider savedRider = riderRepository.save(rider);
+        riderLocationIndex.syncAfterCommit(savedRider);
+        return savedRider;
     }
 }
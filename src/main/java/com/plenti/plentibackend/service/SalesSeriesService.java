@@ -0,0 +1,503 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.dto.SalesSeriesDTO;
+import com.plenti.plentibackend.entity.Order;
+import com.plenti.plentibackend.entity.OrderItem;
+import com.plenti.plentibackend.entity.OrderStatus;
+import com.plenti.plentibackend.entity.Product;
+import com.plenti.plentibackend.entity.SalesBucket;
+import com.plenti.plentibackend.exception.PlentiException;
+import com.plenti.plentibackend.repository.OrderRepository;
+import com.plenti.plentibackend.repository.ProductRepository;
+import com.plenti.plentibackend.repository.SalesBucketRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pre-aggregated sales time series: order count and revenue of delivered orders per
+ * hour and per day, overall, per store and per category, in sales_buckets.
+ * Deliveries (and reversals of a delivery) are queued as they commit and folded into the
+ * buckets every flush-interval. Queries read buckets only; week and month series are
+ * summed from day buckets. A backfill rebuilds the buckets from delivered orders in
+ * keyset pages inside one transaction, so readers keep the old buckets until it commits.
+ * It runs nightly on one instance, repairing sales lost from a crashed instance's queue.
+ */
+@Service
+@Slf4j
+public class SalesSeriesService {
+
+    static final String ALL_KEY = "all";
+    static final String NONE_KEY = "none";
+
+    private static final String UPDATE_SQL =
+            "UPDATE sales_buckets SET order_count = order_count + ?, revenue = revenue + ? "
+                    + "WHERE granularity = ? AND dimension = ? AND dimension_key = ? AND bucket_start = ?";
+    private static final String INSERT_SQL =
+            "INSERT INTO sales_buckets (granularity, dimension, dimension_key, bucket_start, order_count, revenue) "
+                    + "VALUES (?, ?, ?, ?, ?, ?)";
+
+    // Every bucket write first locks this row; see SalesSeriesState
+    private static final String LOCK_STATE_SQL = "SELECT rebuilt_at FROM sales_series_state WHERE id = 1 FOR UPDATE";
+    private static final String INSERT_STATE_SQL = "INSERT INTO sales_series_state (id, rebuilt_at) VALUES (1, NULL)";
+    private static final String MARK_REBUILT_SQL = "UPDATE sales_series_state SET rebuilt_at = ? WHERE id = 1";
+    private static final String REBUILD_LEASE = "sales-series-rebuild";
+
+    enum Interval {
+        HOUR, DAY, WEEK, MONTH;
+
+        static Interval parse(String value) {
+            if (value == null || value.isBlank()) {
+                return DAY;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new PlentiException("Unsupported interval: " + value);
+            }
+        }
+
+        /**
+         * Stored bucket granularity this interval is summed from
+         */
+        String granularity() {
+            return this == HOUR ? "HOUR" : "DAY";
+        }
+
+        LocalDateTime align(LocalDateTime time) {
+            return switch (this) {
+                case HOUR -> time.truncatedTo(ChronoUnit.HOURS);
+                case DAY -> time.truncatedTo(ChronoUnit.DAYS);
+                case WEEK -> time.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH -> time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+            };
+        }
+
+        long approximateBuckets(LocalDateTime from, LocalDateTime to) {
+            Duration range = Duration.between(from, to);
+            return switch (this) {
+                case HOUR -> range.toHours() + 1;
+                case DAY -> range.toDays() + 1;
+                case WEEK -> range.toDays() / 7 + 1;
+                case MONTH -> range.toDays() / 28 + 1;
+            };
+        }
+    }
+
+    enum Dimension {
+        ALL, STORE, CATEGORY;
+
+        static Dimension parse(String value) {
+            if (value == null || value.isBlank()) {
+                return ALL;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new PlentiException("Unsupported groupBy: " + value);
+            }
+        }
+    }
+
+    /**
+     * A delivery (sign 1) or a reversed delivery (sign -1) waiting to be folded into buckets.
+     * recordedAt is just after the change committed and decides whether a rebuild counted it.
+     */
+    record Sale(LocalDateTime orderDate, Long storeId, List<OrderItem> items, double amount, int sign,
+                LocalDateTime recordedAt) {
+    }
+
+    private record Key(String granularity, LocalDateTime bucketStart, Dimension dimension, String dimensionKey) {
+    }
+
+    private record Delta(long count, double revenue) {
+        Delta plus(Delta other) {
+            return new Delta(count + other.count, revenue + other.revenue);
+        }
+    }
+
+    private final SalesBucketRepository salesBucketRepository;
+    private final OrderRepository orderRepository;
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate rebuildTransactionTemplate;
+    private final EntityManager entityManager;
+    private final JobLeaseService jobLeaseService;
+    private final int backfillPageSize;
+    private final int maxBuckets;
+
+    private final Queue<Sale> pending = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+    private final ExecutorService backfillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sales-series-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong sales = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private volatile long lastFlushMillis;
+    private volatile int lastFlushRows;
+    private volatile long backfillOrders;
+    private volatile LocalDateTime lastBackfillAt;
+    private volatile long lastBackfillMillis;
+    private volatile String lastBackfillError;
+
+    public SalesSeriesService(SalesBucketRepository salesBucketRepository,
+                              OrderRepository orderRepository,
+                              ProductRepository productRepository,
+                              JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              EntityManager entityManager,
+                              JobLeaseService jobLeaseService,
+                              @Value("${analytics.series.backfill-page-size:500}") int backfillPageSize,
+                              @Value("${analytics.series.max-buckets:2000}") int maxBuckets) {
+        this.salesBucketRepository = salesBucketRepository;
+        this.orderRepository = orderRepository;
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // One snapshot of the orders for the whole rebuild, taken after rebuilt_at is set
+        this.rebuildTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.rebuildTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.entityManager = entityManager;
+        this.jobLeaseService = jobLeaseService;
+        this.backfillPageSize = backfillPageSize;
+        this.maxBuckets = maxBuckets;
+    }
+
+    /**
+     * Queue a committed delivery (sign 1) or a delivered order changing status again (sign -1)
+     */
+    public void recordSale(LocalDateTime orderDate, Long storeId, List<OrderItem> items, double amount, int sign) {
+        pending.offer(new Sale(orderDate, storeId, items, amount, sign, LocalDateTime.now()));
+        sales.incrementAndGet();
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.series.flush-interval-ms:5000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    /**
+     * Rebuild nightly on whichever instance takes the lease first
+     */
+    @Scheduled(cron = "${analytics.series.rebuild-cron:0 45 3 * * *}")
+    public void scheduledRebuild() {
+        // Held until it lapses, so instances whose cron fires a little later skip this night
+        if (jobLeaseService.tryAcquire(REBUILD_LEASE, Duration.ofHours(1))) {
+            backfill();
+        }
+    }
+
+    /**
+     * Fold queued sales into the buckets. Skipped while a backfill on this instance holds
+     * the buckets, and waits on another instance's; sales queued meanwhile are applied
+     * once it finishes, except those the backfill already counted.
+     */
+    public void flush() {
+        if (!writeLock.tryLock()) {
+            return;
+        }
+        try {
+            List<Sale> batch = new ArrayList<>();
+            Sale sale;
+            while ((sale = pending.poll()) != null) {
+                batch.add(sale);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                long start = System.currentTimeMillis();
+                List<Sale> sales = batch;
+                Integer rows = transactionTemplate.execute(status -> {
+                    LocalDateTime rebuiltAt = lockState();
+                    Map<Key, Delta> deltas = toDeltas(rebuiltAt == null ? sales : sales.stream()
+                            .filter(queued -> !queued.recordedAt().isBefore(rebuiltAt))
+                            .toList());
+                    write(deltas);
+                    return deltas.size();
+                });
+                flushes.incrementAndGet();
+                lastFlushRows = rows != null ? rows : 0;
+                lastFlushMillis = System.currentTimeMillis() - start;
+            } catch (RuntimeException e) {
+                failedFlushes.incrementAndGet();
+                pending.addAll(batch);
+                log.error("Failed to flush {} sales into sales buckets: {}", batch.size(), e.getMessage());
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public SalesSeriesDTO getSeries(LocalDateTime from, LocalDateTime to, String intervalName, String groupBy, String key) {
+        Interval interval = Interval.parse(intervalName);
+        Dimension dimension = Dimension.parse(groupBy);
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = interval.align(from != null ? from : end.minusDays(7));
+        if (!start.isBefore(end)) {
+            throw new PlentiException("'from' must be before 'to'");
+        }
+        if (interval.approximateBuckets(start, end) > maxBuckets) {
+            throw new PlentiException("Range too long for " + interval.name().toLowerCase(Locale.ROOT)
+                    + " buckets, use a coarser interval");
+        }
+        String dimensionKey = dimension == Dimension.ALL || key == null || key.isBlank() ? null : key.trim();
+
+        List<SalesBucket> buckets = salesBucketRepository.findRange(
+                interval.granularity(), dimension.name(), dimensionKey, start, end);
+
+        // Sum stored buckets into the requested interval; rows arrive in time order
+        Map<Key, Delta> summed = new LinkedHashMap<>();
+        for (SalesBucket bucket : buckets) {
+            Key summedKey = new Key(interval.name(), interval.align(bucket.getBucketStart()), dimension, bucket.getDimensionKey());
+            summed.merge(summedKey, new Delta(bucket.getOrderCount(), bucket.getRevenue()), Delta::plus);
+        }
+
+        List<SalesSeriesDTO.Point> points = new ArrayList<>(summed.size());
+        summed.forEach((point, delta) -> points.add(new SalesSeriesDTO.Point(
+                point.bucketStart(), point.dimensionKey(), delta.count(), delta.revenue(),
+                delta.count() > 0 ? delta.revenue() / delta.count() : 0.0)));
+        points.sort(Comparator.comparing(SalesSeriesDTO.Point::getBucketStart).thenComparing(SalesSeriesDTO.Point::getKey));
+
+        return new SalesSeriesDTO(interval.name().toLowerCase(Locale.ROOT), dimension.name().toLowerCase(Locale.ROOT),
+                start, end, points);
+    }
+
+    /**
+     * Start rebuilding the buckets from delivered orders in the background
+     *
+     * @return false when a backfill is already running
+     */
+    public boolean backfill() {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        backfillExecutor.execute(() -> {
+            try {
+                runBackfill();
+            } finally {
+                backfillRunning.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Empty the buckets and replay every delivered order, reading orders in keyset pages
+     * and writing whenever enough distinct buckets have accumulated, all in one transaction.
+     * The state row stays locked throughout, so flushes on other instances wait rather than
+     * write into buckets being rebuilt, then drop sales recorded before rebuilt_at, which
+     * the rebuild's snapshot already includes. Only a change committing in the instant
+     * between the two (or within the clock skew between instances) can be counted twice.
+     */
+    void runBackfill() {
+        writeLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            backfillOrders = 0;
+            lastBackfillError = null;
+            rebuildTransactionTemplate.executeWithoutResult(status -> rebuild());
+
+            lastBackfillAt = LocalDateTime.now();
+            lastBackfillMillis = System.currentTimeMillis() - start;
+            log.info("Sales buckets backfilled from {} delivered orders in {} ms", backfillOrders, lastBackfillMillis);
+        } catch (RuntimeException e) {
+            lastBackfillError = e.getMessage();
+            log.error("Sales bucket backfill failed after {} orders: {}", backfillOrders, e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void rebuild() {
+        lockState();
+        jdbcTemplate.update(MARK_REBUILT_SQL, Timestamp.valueOf(LocalDateTime.now()));
+        jdbcTemplate.update("DELETE FROM sales_buckets");
+
+        Map<Key, Delta> accumulated = new HashMap<>();
+        long afterId = 0L;
+        List<Order> page = orderRepository.findByStatusAndIdGreaterThanOrderByIdAsc(
+                OrderStatus.DELIVERED, afterId, PageRequest.of(0, backfillPageSize));
+        while (!page.isEmpty()) {
+            List<Sale> pageSales = new ArrayList<>(page.size());
+            for (Order order : page) {
+                pageSales.add(new Sale(order.getOrderDate(), order.getStoreId(), order.getItems(),
+                        order.getTotalAmount() != null ? order.getTotalAmount() : 0.0, 1, null));
+            }
+            toDeltas(pageSales).forEach((key, delta) -> accumulated.merge(key, delta, Delta::plus));
+            // Consecutive ids mostly share hours and days, so flushing late coalesces well
+            if (accumulated.size() >= backfillPageSize * 4) {
+                write(accumulated);
+                accumulated.clear();
+            }
+            backfillOrders += page.size();
+            afterId = page.get(page.size() - 1).getId();
+            // The transaction spans every page; keep the persistence context to one page
+            entityManager.clear();
+            page = orderRepository.findByStatusAndIdGreaterThanOrderByIdAsc(
+                    OrderStatus.DELIVERED, afterId, PageRequest.of(0, backfillPageSize));
+        }
+        write(accumulated);
+    }
+
+    /**
+     * Lock the state row, creating it on first use, and return when the last rebuild read the orders
+     */
+    private LocalDateTime lockState() {
+        List<Timestamp> rows = jdbcTemplate.query(LOCK_STATE_SQL, (rs, rowNum) -> rs.getTimestamp(1));
+        if (rows.isEmpty()) {
+            try {
+                jdbcTemplate.update(INSERT_STATE_SQL);
+            } catch (DuplicateKeyException e) {
+                // Another instance created the row first
+            }
+            rows = jdbcTemplate.query(LOCK_STATE_SQL, (rs, rowNum) -> rs.getTimestamp(1));
+        }
+        return rows.isEmpty() || rows.get(0) == null ? null : rows.get(0).toLocalDateTime();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        backfillExecutor.shutdownNow();
+        flush();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pending", pending.size());
+        stats.put("sales", sales.get());
+        stats.put("flushes", flushes.get());
+        stats.put("failedFlushes", failedFlushes.get());
+        stats.put("lastFlushMillis", lastFlushMillis);
+        stats.put("lastFlushRows", lastFlushRows);
+        stats.put("backfillRunning", backfillRunning.get());
+        stats.put("backfillOrders", backfillOrders);
+        stats.put("lastBackfillAt", lastBackfillAt);
+        stats.put("lastBackfillMillis", lastBackfillMillis);
+        stats.put("lastBackfillError", lastBackfillError);
+        return stats;
+    }
+
+    /**
+     * Bucket deltas of a batch of sales. Products are loaded once for the whole batch to
+     * split each order's amount over its categories in proportion to its line totals.
+     */
+    private Map<Key, Delta> toDeltas(List<Sale> batch) {
+        Set<Long> productIds = new HashSet<>();
+        for (Sale sale : batch) {
+            if (sale.items() != null) {
+                sale.items().forEach(item -> productIds.add(item.getProductId()));
+            }
+        }
+        Map<Long, Product> products = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            productRepository.findAllById(productIds).forEach(product -> products.put(product.getId(), product));
+        }
+
+        Map<Key, Delta> deltas = new HashMap<>();
+        for (Sale sale : batch) {
+            LocalDateTime orderDate = sale.orderDate() != null ? sale.orderDate() : LocalDateTime.now();
+            Map<String, Double> shares = categoryShares(sale.items(), products);
+            for (Interval interval : List.of(Interval.HOUR, Interval.DAY)) {
+                LocalDateTime bucketStart = interval.align(orderDate);
+                Delta whole = new Delta(sale.sign(), sale.sign() * sale.amount());
+                deltas.merge(new Key(interval.granularity(), bucketStart, Dimension.ALL, ALL_KEY), whole, Delta::plus);
+                String store = sale.storeId() != null ? String.valueOf(sale.storeId()) : NONE_KEY;
+                deltas.merge(new Key(interval.granularity(), bucketStart, Dimension.STORE, store), whole, Delta::plus);
+                // The order counts once in every category it touches
+                shares.forEach((category, share) -> deltas.merge(
+                        new Key(interval.granularity(), bucketStart, Dimension.CATEGORY, category),
+                        new Delta(sale.sign(), sale.sign() * sale.amount() * share), Delta::plus));
+            }
+        }
+        return deltas;
+    }
+
+    static Map<String, Double> categoryShares(List<OrderItem> items, Map<Long, Product> products) {
+        Map<String, Double> weights = new HashMap<>();
+        double total = 0;
+        for (OrderItem item : items != null ? items : List.<OrderItem>of()) {
+            Product product = products.get(item.getProductId());
+            String category = product != null && product.getCategoryId() != null
+                    ? String.valueOf(product.getCategoryId()) : NONE_KEY;
+            double weight = Math.max(item.lineTotal(), 0);
+            weights.merge(category, weight, Double::sum);
+            total += weight;
+        }
+        if (weights.isEmpty()) {
+            return Map.of(NONE_KEY, 1.0);
+        }
+        Map<String, Double> shares = new HashMap<>();
+        double sum = total;
+        weights.forEach((category, weight) -> shares.put(category, sum > 0 ? weight / sum : 1.0 / weights.size()));
+        return shares;
+    }
+
+    private void write(Map<Key, Delta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Key, Delta>> rows = new ArrayList<>(deltas.entrySet());
+        // Stable lock order across instances
+        rows.sort(Comparator.comparing((Map.Entry<Key, Delta> entry) -> entry.getKey().granularity())
+                .thenComparing(entry -> entry.getKey().dimension())
+                .thenComparing(entry -> entry.getKey().dimensionKey())
+                .thenComparing(entry -> entry.getKey().bucketStart()));
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Map.Entry<Key, Delta> row : rows) {
+                Key key = row.getKey();
+                Delta delta = row.getValue();
+                Object[] updateArgs = {delta.count(), delta.revenue(), key.granularity(), key.dimension().name(),
+                        key.dimensionKey(), key.bucketStart()};
+                // Plain updates rather than a batch: the row count decides whether to insert
+                if (jdbcTemplate.update(UPDATE_SQL, updateArgs) > 0) {
+                    continue;
+                }
+                try {
+                    jdbcTemplate.update(INSERT_SQL, key.granularity(), key.dimension().name(), key.dimensionKey(),
+                            key.bucketStart(), delta.count(), delta.revenue());
+                } catch (DuplicateKeyException e) {
+                    jdbcTemplate.update(UPDATE_SQL, updateArgs);
+                }
+            }
+        });
+    }
+}
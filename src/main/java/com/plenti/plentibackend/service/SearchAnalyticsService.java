@@ -2,6 +2,7 @@ package com.plenti.plentibackend.service;
 
 import com.plenti.plentibackend.entity.SearchHistory;
 import com.plenti.plentibackend.repository.SearchHistoryRepository;
+import com.plenti.plentibackend.util.SpaceSavingSketch.Estimate;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -21,12 +22,17 @@ import java.util.stream.Collectors;
 public class SearchAnalyticsService {
 
     private final SearchHistoryRepository searchHistoryRepository;
+    private final SearchHistoryIngestService searchHistoryIngestService;
+    private final PopularSearchTermTracker popularSearchTermTracker;
+    private final RecentSearchCache recentSearchCache;
+
+    private static final int POPULAR_TERMS_LIMIT = 20;
 
     /**
-     * Track a search query
+     * Track a search query. The row is written asynchronously by the ingest buffer.
      */
     public void trackSearch(Long userId, String searchTerm, int resultCount) {
-        log.info("Tracking search: userId={}, term={}, results={}", userId, searchTerm, resultCount);
+        log.debug("Tracking search: userId={}, term={}, results={}", userId, searchTerm, resultCount);
         
         // Sanitize search term
         String sanitizedTerm = sanitizeSearchTerm(searchTerm);
@@ -35,12 +41,13 @@ public class SearchAnalyticsService {
             return;
         }
         
-        SearchHistory searchHistory = new SearchHistory();
-        searchHistory.setUserId(userId);
-        searchHistory.setSearchTerm(sanitizedTerm);
-        searchHistory.setResultCount(resultCount);
-        
-        searchHistoryRepository.save(searchHistory);
+        popularSearchTermTracker.record(sanitizedTerm);
+        recentSearchCache.record(userId, sanitizedTerm);
+        searchHistoryIngestService.submit(userId, sanitizedTerm, resultCount);
+    }
+
+    public Map<String, Object> getIngestStats() {
+        return searchHistoryIngestService.getStats();
     }
     
     /**
@@ -73,15 +80,19 @@ public class SearchAnalyticsService {
     }
 
     /**
-     * Get popular search terms
+     * Get popular search terms, from the in-memory sketches once they are loaded
      */
     public List<Map<String, Object>> getPopularSearchTerms(int days) {
+        if (popularSearchTermTracker.isReady()) {
+            return toPopularTerms(popularSearchTermTracker.topForDays(days, POPULAR_TERMS_LIMIT));
+        }
+
         log.info("Fetching popular search terms for last {} days", days);
         LocalDateTime since = LocalDateTime.now().minusDays(days);
         List<Object[]> results = searchHistoryRepository.findPopularSearchTerms(since);
         
         return results.stream()
-                .limit(20) // Top 20 search terms
+                .limit(POPULAR_TERMS_LIMIT)
                 .map(result -> {
                     Map<String, Object> map = new HashMap<>();
                     map.put("searchTerm", result[0]);
@@ -91,16 +102,33 @@ public class SearchAnalyticsService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Get popular search terms of the last few hours (only served from memory)
+     */
+    public List<Map<String, Object>> getPopularSearchTermsForHours(int hours) {
+        return toPopularTerms(popularSearchTermTracker.topForHours(hours, POPULAR_TERMS_LIMIT));
+    }
+
+    public Map<String, Object> getPopularTermsStats() {
+        return popularSearchTermTracker.getStats();
+    }
+
+    private List<Map<String, Object>> toPopularTerms(List<Estimate> estimates) {
+        return estimates.stream()
+                .map(estimate -> {
+                    Map<String, Object> map = new HashMap<>();
+                    map.put("searchTerm", estimate.item());
+                    map.put("count", estimate.count());
+                    return map;
+                })
+                .collect(Collectors.toList());
+    }
+
     /**
      * Get recent unique searches for a user (for autocomplete)
      */
     public List<String> getRecentSearches(Long userId, int limit) {
-        log.info("Fetching recent searches for user: {}", userId);
-        return searchHistoryRepository.findByUserIdOrderBySearchedAtDesc(userId)
-                .stream()
-                .map(SearchHistory::getSearchTerm)
-                .distinct()
-                .limit(limit)
-                .collect(Collectors.toList());
+        log.debug("Fetching recent searches for user: {}", userId);
+        return recentSearchCache.getRecentSearches(userId, limit);
     }
 }
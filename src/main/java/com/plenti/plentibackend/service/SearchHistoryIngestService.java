@@ -0,0 +1,228 @@
+package com.plenti.plentibackend.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for search history.
+ * Tracked searches go on a lock-free queue and a background writer inserts them with
+ * JDBC batches once flush-size rows are waiting or every flush-interval. Past the
+ * sample threshold only one in sample-rate anonymous searches is kept; they only feed
+ * the popular-terms aggregate, where sampling keeps the ranking. At capacity every new
+ * search is dropped.
+ */
+@Service
+@Slf4j
+public class SearchHistoryIngestService {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO search_history (user_id, search_term, result_count, searched_at) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int capacity;
+    private final int flushSize;
+    private final int sampleThreshold;
+    private final int sampleRate;
+
+    private final Queue<Search> pending = new ConcurrentLinkedQueue<>();
+    // ConcurrentLinkedQueue.size() walks the whole queue
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "search-history-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong sampledOut = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private volatile long lastFlushMillis;
+    private volatile int lastFlushRows;
+    private volatile long lastFlushLagMillis;
+
+    public SearchHistoryIngestService(JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${search.history.ingest.capacity:50000}") int capacity,
+                                      @Value("${search.history.ingest.flush-size:500}") int flushSize,
+                                      @Value("${search.history.ingest.sample-threshold:40000}") int sampleThreshold,
+                                      @Value("${search.history.ingest.sample-rate:10}") int sampleRate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.capacity = capacity;
+        this.flushSize = flushSize;
+        this.sampleThreshold = sampleThreshold;
+        this.sampleRate = Math.max(1, sampleRate);
+    }
+
+    /**
+     * A buffered search. receivedNanos is only used to report how long searches wait for a flush.
+     */
+    public record Search(Long userId, String searchTerm, int resultCount,
+                         LocalDateTime searchedAt, long receivedNanos) {
+    }
+
+    /**
+     * Buffer a search. Returns false when it was dropped or sampled out.
+     */
+    public boolean submit(Long userId, String searchTerm, int resultCount) {
+        int depth = pendingCount.get();
+        if (depth >= capacity) {
+            dropped.incrementAndGet();
+            requestFlush();
+            return false;
+        }
+        if (userId == null && depth >= sampleThreshold
+                && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            sampledOut.incrementAndGet();
+            return false;
+        }
+
+        pending.offer(new Search(userId, searchTerm, resultCount, LocalDateTime.now(), System.nanoTime()));
+        accepted.incrementAndGet();
+        if (pendingCount.incrementAndGet() >= flushSize) {
+            requestFlush();
+        }
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${search.history.ingest.flush-interval-ms:2000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    /**
+     * Write everything currently buffered. Concurrent callers skip rather than queue up
+     * behind a running flush, which already picks up searches that arrive while it runs.
+     */
+    public void flush() {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            List<Search> batch = drain();
+            while (!batch.isEmpty() && write(batch)) {
+                batch = drain();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Search oldest = pending.peek();
+        long lag = oldest != null ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest.receivedNanos()) : 0;
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pending", pendingCount.get());
+        stats.put("capacity", capacity);
+        stats.put("flushSize", flushSize);
+        stats.put("sampleThreshold", sampleThreshold);
+        stats.put("sampleRate", sampleRate);
+        stats.put("accepted", accepted.get());
+        stats.put("sampledOut", sampledOut.get());
+        stats.put("dropped", dropped.get());
+        stats.put("flushes", flushes.get());
+        stats.put("failedFlushes", failedFlushes.get());
+        stats.put("rowsWritten", rowsWritten.get());
+        stats.put("lastFlushMillis", lastFlushMillis);
+        stats.put("lastFlushRows", lastFlushRows);
+        stats.put("lastFlushLagMillis", lastFlushLagMillis);
+        stats.put("oldestPendingMillis", lag);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdown();
+        try {
+            flushExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        log.info("Search history buffer flushed on shutdown ({} rows written in total)", rowsWritten.get());
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true) && !flushExecutor.isShutdown()) {
+            flushExecutor.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+
+    private List<Search> drain() {
+        List<Search> batch = new ArrayList<>(Math.min(pendingCount.get(), flushSize));
+        Search search;
+        while (batch.size() < flushSize && (search = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            batch.add(search);
+        }
+        return batch;
+    }
+
+    private boolean write(List<Search> batch) {
+        long start = System.currentTimeMillis();
+        long oldestNanos = batch.get(0).receivedNanos();
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (Search search : batch) {
+            rows.add(new Object[]{search.userId(), search.searchTerm(), search.resultCount(),
+                    Timestamp.valueOf(search.searchedAt())});
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, rows));
+            flushes.incrementAndGet();
+            rowsWritten.addAndGet(batch.size());
+            lastFlushRows = batch.size();
+            lastFlushMillis = System.currentTimeMillis() - start;
+            lastFlushLagMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldestNanos);
+            return true;
+        } catch (RuntimeException e) {
+            failedFlushes.incrementAndGet();
+            // Retry on the next flush as far as capacity allows; searches are out of order afterwards
+            int requeued = 0;
+            for (Search search : batch) {
+                if (pendingCount.get() < capacity) {
+                    pending.offer(search);
+                    pendingCount.incrementAndGet();
+                    requeued++;
+                } else {
+                    dropped.incrementAndGet();
+                }
+            }
+            log.error("Failed to flush {} searches ({} requeued): {}", batch.size(), requeued, e.getMessage());
+            return false;
+        }
+    }
+}
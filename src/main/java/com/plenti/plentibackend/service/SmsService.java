@@ -6,6 +6,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -25,6 +26,9 @@ public class SmsService {
     @Value("${termii.sender.id:Plenti}")
     private String senderId;
 
+    @Value("${termii.api.timeout-ms:10000}")
+    private long timeoutMs;
+
     private final WebClient webClient;
 
     public SmsService(WebClient.Builder webClientBuilder) {
@@ -42,21 +46,8 @@ public class SmsService {
         }
 
         try {
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("to", phoneNumber);
-            requestBody.put("from", senderId);
-            requestBody.put("sms", message);
-            requestBody.put("type", "plain");
-            requestBody.put("channel", "generic");
-            requestBody.put("api_key", termiiApiKey);
-
             // Use subscribe() for async processing instead of block()
-            webClient.post()
-                    .uri(termiiApiUrl + "/sms/send")
-                    .header("Content-Type", "application/json")
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(String.class)
+            send(phoneNumber, message)
                     .subscribe(
                         result -> log.info("SMS sent successfully via Termii to {}: {}", phoneNumber, result),
                         error -> log.error("Failed to send SMS via Termii to {}: {}", phoneNumber, error.getMessage())
@@ -69,6 +60,37 @@ public class SmsService {
         }
     }
 
+    /**
+     * Send SMS and wait until Termii accepts it, for callers that retry failed sends
+     * (the notification outbox). Throws when the request fails or takes longer than timeout-ms.
+     */
+    public void deliverSms(String phoneNumber, String message) {
+        if (termiiApiKey == null || termiiApiKey.isEmpty()) {
+            log.warn("Termii API key not configured. Skipping SMS send to {}", phoneNumber);
+            log.info("SMS Message: {}", message);
+            return;
+        }
+        String result = send(phoneNumber, message).block(Duration.ofMillis(timeoutMs));
+        log.info("SMS sent successfully via Termii to {}: {}", phoneNumber, result);
+    }
+
+    private Mono<String> send(String phoneNumber, String message) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("to", phoneNumber);
+        requestBody.put("from", senderId);
+        requestBody.put("sms", message);
+        requestBody.put("type", "plain");
+        requestBody.put("channel", "generic");
+        requestBody.put("api_key", termiiApiKey);
+
+        return webClient.post()
+                .uri(termiiApiUrl + "/sms/send")
+                .header("Content-Type", "application/json")
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToMono(String.class);
+    }
+
     /**
      * Send OTP SMS
      */
@@ -89,7 +111,14 @@ public class SmsService {
      * Send delivery notification SMS
      */
     public boolean sendDeliveryNotificationSms(String phoneNumber, String orderId, String riderName) {
-        String message = String.format("Your Plenti order #%s is out for delivery with %s!", orderId, riderName);
-        return sendSms(phoneNumber, message);
+        return sendSms(phoneNumber, deliveryNotificationMessage(orderId, riderName));
+    }
+
+    public static String deliveryNotificationMessage(String orderId, String riderName) {
+        return String.format("Your Plenti order #%s is out for delivery with %s!", orderId, riderName);
+    }
+
+    public static String deliveredMessage(String orderId) {
+        return String.format("Your Plenti order #%s has been delivered. Enjoy!", orderId);
     }
 }
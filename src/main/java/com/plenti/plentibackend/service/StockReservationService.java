@@ -0,0 +1,138 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.elasticsearch.service.SearchIndexChangeQueue;
+import com.plenti.plentibackend.elasticsearch.service.SearchIndexChangeQueue.DocumentType;
+import com.plenti.plentibackend.entity.Product;
+import com.plenti.plentibackend.exception.PlentiException;
+import com.plenti.plentibackend.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Service for set-based stock reservation during checkout.
+ * Loads every cart product in one query and decrements stock with a single
+ * conditional JDBC batch, so concurrent checkouts can never oversell.
+ * Releasing an order's stock is one UPDATE joined to its order_items.
+ * Both bypass JPA, so they set last_updated themselves for the updated-products feed.
+ */
+@Service
+@Slf4j
+public class StockReservationService {
+
+    private static final String RESERVE_SQL =
+            "UPDATE products SET stock = stock - ?, last_updated = ? WHERE id = ? AND stock >= ?";
+    private static final String RELEASE_SQL =
+            "UPDATE products SET stock = stock + "
+                    + "(SELECT SUM(i.quantity) FROM order_items i WHERE i.order_id = ? AND i.product_id = products.id), "
+                    + "last_updated = ? WHERE id IN (SELECT product_id FROM order_items WHERE order_id = ?)";
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductCatalogSnapshot catalogSnapshot;
+
+    @Autowired
+    private SearchIndexChangeQueue searchIndexChangeQueue;
+
+    /**
+     * Reserve stock for every line of a basket.
+     * Runs inside the caller's transaction; any shortfall throws and rolls back all lines.
+     *
+     * @param items product id to requested quantity
+     * @return the reserved products keyed by id (stock values are as loaded, before the decrement)
+     */
+    @Transactional
+    public Map<Long, Product> reserve(Map<Long, Integer> items) {
+        if (items == null || items.isEmpty()) {
+            throw new PlentiException("Cart is empty");
+        }
+
+        // Sorted ids give every checkout the same row lock order and avoid deadlocks
+        TreeMap<Long, Integer> lines = new TreeMap<>(items);
+
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(lines.keySet())) {
+            products.put(product.getId(), product);
+        }
+
+        // Fail fast on the snapshot before touching any rows
+        for (var entry : lines.entrySet()) {
+            Product product = products.get(entry.getKey());
+            if (product == null) {
+                throw new PlentiException("Product not found");
+            }
+            if (entry.getValue() == null || entry.getValue() <= 0) {
+                throw new PlentiException("Invalid quantity for product: " + product.getName());
+            }
+            if (product.getStock() < entry.getValue()) {
+                throw new PlentiException("Insufficient stock for product: " + product.getName());
+            }
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batchArgs = new ArrayList<>(lines.size());
+        List<Long> batchIds = new ArrayList<>(lines.size());
+        for (var entry : lines.entrySet()) {
+            batchArgs.add(new Object[]{entry.getValue(), now, entry.getKey(), entry.getValue()});
+            batchIds.add(entry.getKey());
+        }
+
+        int[] updated = jdbcTemplate.batchUpdate(RESERVE_SQL, batchArgs);
+
+        // Exact row counts are required here, so the MySQL URL must not enable rewriteBatchedStatements
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] != 1) {
+                Product product = products.get(batchIds.get(i));
+                log.warn("Stock reservation lost race for product {} (requested {})",
+                        product.getId(), lines.get(product.getId()));
+                throw new PlentiException("Insufficient stock for product: " + product.getName());
+            }
+        }
+
+        catalogSnapshot.invalidateAll(lines.keySet());
+        // The batch bypasses JPA, so the entity listener never sees these stock changes
+        searchIndexChangeQueue.recordAfterCommit(DocumentType.PRODUCT, lines.keySet());
+        return products;
+    }
+
+    /**
+     * Put back the ordered quantity of every line of an order, e.g. when it is cancelled.
+     * Runs inside the caller's transaction.
+     *
+     * @param orderId    order whose order_items are released
+     * @param productIds products of those items, for cache and search index invalidation
+     * @return number of product rows updated
+     */
+    @Transactional
+    public int release(Long orderId, Collection<Long> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return 0;
+        }
+        int updated = jdbcTemplate.update(RELEASE_SQL, orderId, Timestamp.valueOf(LocalDateTime.now()), orderId);
+        if (updated < new HashSet<>(productIds).size()) {
+            // Products deleted since checkout have nothing to return stock to
+            log.warn("Released stock of order {} for {} of {} products", orderId, updated, productIds.size());
+        }
+
+        catalogSnapshot.invalidateAll(productIds);
+        searchIndexChangeQueue.recordAfterCommit(DocumentType.PRODUCT, productIds);
+        return updated;
+    }
+}
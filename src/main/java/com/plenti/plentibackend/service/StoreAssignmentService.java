@@ -11,13 +11,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalTime;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * Service for store assignment, delivery calculations, and inventory management
@@ -32,6 +29,9 @@ public class StoreAssignmentService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private StoreSpatialIndex storeSpatialIndex;
+
     private static final double EARTH_RADIUS_KM = 6371.0;
     
     @Value("${store.delivery.avg-speed-kmh:40.0}")
@@ -50,65 +50,34 @@ public class StoreAssignmentService {
      * Find nearest store to given coordinates (active stores only)
      */
     public StoreDTO findNearestStore(double lat, double lng) {
-        List<Store> stores = storeRepository.findAll().stream()
-                .filter(store -> Boolean.TRUE.equals(store.getActive()))
-                .collect(Collectors.toList());
-        
-        if (stores.isEmpty()) {
+        if (storeSpatialIndex.size() == 0) {
             throw new PlentiException("No active stores available");
         }
 
-        Store nearestStore = null;
-        double minDistance = Double.MAX_VALUE;
-
-        for (Store store : stores) {
-            if (store.getLatitude() != null && store.getLongitude() != null) {
-                double distance = calculateDistance(lat, lng, store.getLatitude(), store.getLongitude());
-                if (distance < minDistance && distance <= maxDeliveryDistanceKm) {
-                    minDistance = distance;
-                    nearestStore = store;
-                }
-            }
-        }
-
-        if (nearestStore == null) {
+        StoreSpatialIndex.Hit nearest = storeSpatialIndex.findNearest(lat, lng, maxDeliveryDistanceKm);
+        if (nearest == null) {
             throw new PlentiException("No stores available within delivery range");
         }
 
-        log.info("Found nearest store: {} at distance {} km", nearestStore.getName(), minDistance);
-        return toStoreDTO(nearestStore);
+        log.info("Found nearest store: {} at distance {} km", nearest.store().getName(), nearest.distanceKm());
+        return toStoreDTO(nearest.store());
     }
     
     /**
      * Find all stores within delivery range sorted by distance
      */
     public List<Map<String, Object>> findStoresInRange(double lat, double lng) {
-        List<Store> stores = storeRepository.findAll().stream()
-                .filter(store -> Boolean.TRUE.equals(store.getActive()))
-                .collect(Collectors.toList());
-        
         List<Map<String, Object>> storesInRange = new ArrayList<>();
         
-        for (Store store : stores) {
-            if (store.getLatitude() != null && store.getLongitude() != null) {
-                double distance = calculateDistance(lat, lng, store.getLatitude(), store.getLongitude());
-                if (distance <= maxDeliveryDistanceKm) {
-                    Map<String, Object> storeInfo = new HashMap<>();
-                    storeInfo.put("store", toStoreDTO(store));
-                    storeInfo.put("distance", Math.round(distance * 100.0) / 100.0);
-                    storeInfo.put("eta", calculateSimpleETA(distance));
-                    storeInfo.put("deliveryFee", calculateSimpleDeliveryFee(distance));
-                    storesInRange.add(storeInfo);
-                }
-            }
+        for (StoreSpatialIndex.Hit hit : storeSpatialIndex.findWithinRange(lat, lng, maxDeliveryDistanceKm)) {
+            Map<String, Object> storeInfo = new HashMap<>();
+            storeInfo.put("store", toStoreDTO(hit.store()));
+            storeInfo.put("distance", Math.round(hit.distanceKm() * 100.0) / 100.0);
+            storeInfo.put("eta", calculateSimpleETA(hit.distanceKm()));
+            storeInfo.put("deliveryFee", calculateSimpleDeliveryFee(hit.distanceKm()));
+            storesInRange.add(storeInfo);
         }
         
-        // Sort by distance
-        storesInRange.sort((a, b) -> Double.compare(
-            (Double) a.get("distance"), 
-            (Double) b.get("distance")
-        ));
-        
         log.info("Found {} stores within {} km range", storesInRange.size(), maxDeliveryDistanceKm);
         return storesInRange;
     }
@@ -117,38 +86,20 @@ public class StoreAssignmentService {
      * Auto-assign store based on proximity and inventory
      */
     public Store autoAssignStore(double lat, double lng, List<Long> productIds) {
-        List<Store> stores = storeRepository.findAll().stream()
-                .filter(store -> Boolean.TRUE.equals(store.getActive()))
-                .collect(Collectors.toList());
-        
-        if (stores.isEmpty()) {
+        if (storeSpatialIndex.size() == 0) {
             throw new PlentiException("No active stores available");
         }
         
-        // For now, return nearest store
+        // Candidates come back nearest first, so the first store with inventory wins
         // In production, this would check inventory availability
-        Store nearestStore = null;
-        double minDistance = Double.MAX_VALUE;
-        
-        for (Store store : stores) {
-            if (store.getLatitude() != null && store.getLongitude() != null) {
-                double distance = calculateDistance(lat, lng, store.getLatitude(), store.getLongitude());
-                if (distance < minDistance && distance <= maxDeliveryDistanceKm) {
-                    // In production, verify inventory here
-                    if (checkStoreHasInventory(store.getId(), productIds)) {
-                        minDistance = distance;
-                        nearestStore = store;
-                    }
-                }
+        for (StoreSpatialIndex.Hit hit : storeSpatialIndex.findWithinRange(lat, lng, maxDeliveryDistanceKm)) {
+            if (checkStoreHasInventory(hit.store().getId(), productIds)) {
+                log.info("Auto-assigned store: {} at distance {} km", hit.store().getName(), hit.distanceKm());
+                return hit.store();
             }
         }
         
-        if (nearestStore == null) {
-            throw new PlentiException("No stores with required products available within delivery range");
-        }
-        
-        log.info("Auto-assigned store: {} at distance {} km", nearestStore.getName(), minDistance);
-        return nearestStore;
+        throw new PlentiException("No stores with required products available within delivery range");
     }
     
     /**
@@ -165,34 +116,17 @@ public class StoreAssignmentService {
      * Check if location is within delivery coverage
      */
     public Map<String, Object> checkDeliveryCoverage(double lat, double lng) {
-        List<Store> nearbyStores = storeRepository.findAll().stream()
-                .filter(store -> Boolean.TRUE.equals(store.getActive()))
-                .filter(store -> {
-                    if (store.getLatitude() != null && store.getLongitude() != null) {
-                        double distance = calculateDistance(lat, lng, store.getLatitude(), store.getLongitude());
-                        return distance <= maxDeliveryDistanceKm;
-                    }
-                    return false;
-                })
-                .collect(Collectors.toList());
+        List<StoreSpatialIndex.Hit> nearbyStores = storeSpatialIndex.findWithinRange(lat, lng, maxDeliveryDistanceKm);
         
         Map<String, Object> coverage = new HashMap<>();
         coverage.put("covered", !nearbyStores.isEmpty());
         coverage.put("storeCount", nearbyStores.size());
         
         if (!nearbyStores.isEmpty()) {
-            Store nearest = nearbyStores.stream()
-                    .min(Comparator.comparingDouble(store -> 
-                        calculateDistance(lat, lng, store.getLatitude(), store.getLongitude())
-                    ))
-                    .orElse(null);
-            
-            if (nearest != null) {
-                double distance = calculateDistance(lat, lng, nearest.getLatitude(), nearest.getLongitude());
-                coverage.put("nearestStore", nearest.getName());
-                coverage.put("distance", Math.round(distance * 100.0) / 100.0);
-                coverage.put("estimatedDeliveryTime", calculateSimpleETA(distance));
-            }
+            StoreSpatialIndex.Hit nearest = nearbyStores.get(0);
+            coverage.put("nearestStore", nearest.store().getName());
+            coverage.put("distance", Math.round(nearest.distanceKm() * 100.0) / 100.0);
+            coverage.put("estimatedDeliveryTime", calculateSimpleETA(nearest.distanceKm()));
         }
         
         return coverage;
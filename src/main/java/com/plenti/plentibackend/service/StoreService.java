@@ -27,6 +27,9 @@ public class StoreService {
     @Autowired
     private StoreAssignmentService storeAssignmentService;
 
+    @Autowired
+    private StoreSpatialIndex storeSpatialIndex;
+
     public List<StoreDTO> getAllStores() {
         return storeRepository.findAll().stream()
                 .map(mapper::toStoreDTO)
@@ -49,6 +52,7 @@ public class StoreService {
     public StoreDTO createStore(StoreDTO storeDTO) {
         Store store = mapper.toStoreEntity(storeDTO);
         Store savedStore = storeRepository.save(store);
+        storeSpatialIndex.refreshAfterCommit(savedStore);
         return mapper.toStoreDTO(savedStore);
     }
 
@@ -65,6 +69,7 @@ public class StoreService {
         if (storeDTO.getLongitude() != null) store.setLongitude(storeDTO.getLongitude());
 
         Store updatedStore = storeRepository.save(store);
+        storeSpatialIndex.refreshAfterCommit(updatedStore);
         return mapper.toStoreDTO(updatedStore);
     }
 
@@ -74,6 +79,7 @@ public class StoreService {
             throw new PlentiException("Store not found");
         }
         storeRepository.deleteById(id);
+        storeSpatialIndex.removeAfterCommit(id);
     }
 
     public StoreDTO findNearestStore(Double latitude, Double longitude) {
@@ -0,0 +1,274 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.entity.Store;
+import com.plenti.plentibackend.repository.StoreRepository;
+import com.plenti.plentibackend.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory uniform grid of active stores with coordinates.
+ * Range and nearest queries only visit cells overlapping the search radius, reject
+ * candidates with a cheap equirectangular distance, and run Haversine on the survivors.
+ * The grid is immutable once published; writers build a new one and swap it in.
+ */
+@Component
+@Slf4j
+public class StoreSpatialIndex {
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE = 111.32;
+    // Equirectangular error at delivery distances is far below 1%; the slack keeps borderline stores
+    private static final double PREFILTER_SLACK = 1.01;
+
+    private final StoreRepository storeRepository;
+    private final double cellSizeDegrees;
+
+    private volatile Grid grid;
+
+    public StoreSpatialIndex(StoreRepository storeRepository,
+                             @Value("${store.index.cell-size-km:5.0}") double cellSizeKm) {
+        this.storeRepository = storeRepository;
+        this.cellSizeDegrees = cellSizeKm / KM_PER_DEGREE;
+    }
+
+    /**
+     * A store matched by a query with its exact (Haversine) distance
+     */
+    public record Hit(Store store, double distanceKm) {
+    }
+
+    private record Entry(Store store, double lat, double lng, double cosLat) {
+    }
+
+    private record Grid(Map<Long, Entry[]> cells, Map<Long, Long> cellByStore, Entry[] all) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Reload all stores from the database and publish a fresh grid
+     */
+    public synchronized void rebuild() {
+        rebuild(storeRepository.findAll());
+        log.info("Store spatial index built with {} active stores", grid.all().length);
+    }
+
+    public synchronized void rebuild(Collection<Store> stores) {
+        Map<Long, List<Entry>> cells = new HashMap<>();
+        Map<Long, Long> cellByStore = new HashMap<>();
+        List<Entry> all = new ArrayList<>();
+
+        for (Store store : stores) {
+            if (!isIndexable(store)) {
+                continue;
+            }
+            Entry entry = toEntry(store);
+            long key = cellKey(entry.lat(), entry.lng());
+            cells.computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+            cellByStore.put(store.getId(), key);
+            all.add(entry);
+        }
+
+        Map<Long, Entry[]> frozen = new HashMap<>();
+        cells.forEach((key, list) -> frozen.put(key, list.toArray(new Entry[0])));
+        grid = new Grid(frozen, cellByStore, all.toArray(new Entry[0]));
+    }
+
+    /**
+     * Insert, move or drop a store after the surrounding transaction commits
+     */
+    public void refreshAfterCommit(Store store) {
+        TransactionUtils.runAfterCommit(() -> upsert(store));
+    }
+
+    public void removeAfterCommit(Long storeId) {
+        TransactionUtils.runAfterCommit(() -> remove(storeId));
+    }
+
+    public synchronized void upsert(Store store) {
+        Grid current = current();
+        Grid withoutStore = without(current, store.getId());
+        if (!isIndexable(store)) {
+            grid = withoutStore;
+            return;
+        }
+
+        Entry entry = toEntry(store);
+        long key = cellKey(entry.lat(), entry.lng());
+
+        Map<Long, Entry[]> cells = new HashMap<>(withoutStore.cells());
+        Entry[] cell = cells.getOrDefault(key, new Entry[0]);
+        Entry[] grown = Arrays.copyOf(cell, cell.length + 1);
+        grown[cell.length] = entry;
+        cells.put(key, grown);
+
+        Map<Long, Long> cellByStore = new HashMap<>(withoutStore.cellByStore());
+        cellByStore.put(store.getId(), key);
+
+        Entry[] all = Arrays.copyOf(withoutStore.all(), withoutStore.all().length + 1);
+        all[all.length - 1] = entry;
+
+        grid = new Grid(cells, cellByStore, all);
+    }
+
+    public synchronized void remove(Long storeId) {
+        grid = without(current(), storeId);
+    }
+
+    /**
+     * Find the nearest indexed store within maxDistanceKm (use Double.POSITIVE_INFINITY for no limit)
+     */
+    public Hit findNearest(double lat, double lng, double maxDistanceKm) {
+        Hit nearest = null;
+        for (Hit hit : candidates(lat, lng, maxDistanceKm)) {
+            if (nearest == null || hit.distanceKm() < nearest.distanceKm()) {
+                nearest = hit;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Find all indexed stores within maxDistanceKm, nearest first
+     */
+    public List<Hit> findWithinRange(double lat, double lng, double maxDistanceKm) {
+        List<Hit> hits = candidates(lat, lng, maxDistanceKm);
+        hits.sort(Comparator.comparingDouble(Hit::distanceKm));
+        return hits;
+    }
+
+    public int size() {
+        return current().all().length;
+    }
+
+    private List<Hit> candidates(double lat, double lng, double maxDistanceKm) {
+        Grid current = current();
+        List<Hit> hits = new ArrayList<>();
+        double cosLat = Math.cos(Math.toRadians(lat));
+
+        if (Double.isInfinite(maxDistanceKm)) {
+            for (Entry entry : current.all()) {
+                hits.add(new Hit(entry.store(), haversine(lat, lng, cosLat, entry)));
+            }
+            return hits;
+        }
+
+        double latSpan = maxDistanceKm / KM_PER_DEGREE;
+        // Guard the poles, where a degree of longitude shrinks to nothing
+        double lngSpan = maxDistanceKm / (KM_PER_DEGREE * Math.max(cosLat, 0.01));
+        long minLatCell = cellIndex(lat - latSpan);
+        long maxLatCell = cellIndex(lat + latSpan);
+        long minLngCell = cellIndex(lng - lngSpan);
+        long maxLngCell = cellIndex(lng + lngSpan);
+        double prefilterKm = maxDistanceKm * PREFILTER_SLACK;
+
+        for (long latCell = minLatCell; latCell <= maxLatCell; latCell++) {
+            for (long lngCell = minLngCell; lngCell <= maxLngCell; lngCell++) {
+                Entry[] cell = current.cells().get(pack(latCell, lngCell));
+                if (cell == null) {
+                    continue;
+                }
+                for (Entry entry : cell) {
+                    if (equirectangular(lat, lng, cosLat, entry) > prefilterKm) {
+                        continue;
+                    }
+                    double distance = haversine(lat, lng, cosLat, entry);
+                    if (distance <= maxDistanceKm) {
+                        hits.add(new Hit(entry.store(), distance));
+                    }
+                }
+            }
+        }
+        return hits;
+    }
+
+    private Grid current() {
+        Grid current = grid;
+        if (current == null) {
+            // Queried before startup finished; build on demand
+            rebuild();
+            current = grid;
+        }
+        return current;
+    }
+
+    private Grid without(Grid current, Long storeId) {
+        Long key = current.cellByStore().get(storeId);
+        if (key == null) {
+            return current;
+        }
+
+        Map<Long, Entry[]> cells = new HashMap<>(current.cells());
+        Entry[] shrunk = Arrays.stream(cells.get(key))
+                .filter(entry -> !entry.store().getId().equals(storeId))
+                .toArray(Entry[]::new);
+        if (shrunk.length == 0) {
+            cells.remove(key);
+        } else {
+            cells.put(key, shrunk);
+        }
+
+        Map<Long, Long> cellByStore = new HashMap<>(current.cellByStore());
+        cellByStore.remove(storeId);
+
+        Entry[] all = Arrays.stream(current.all())
+                .filter(entry -> !entry.store().getId().equals(storeId))
+                .toArray(Entry[]::new);
+
+        return new Grid(cells, cellByStore, all);
+    }
+
+    private boolean isIndexable(Store store) {
+        return store.getId() != null
+                && Boolean.TRUE.equals(store.getActive())
+                && store.getLatitude() != null
+                && store.getLongitude() != null;
+    }
+
+    private Entry toEntry(Store store) {
+        return new Entry(store, store.getLatitude(), store.getLongitude(),
+                Math.cos(Math.toRadians(store.getLatitude())));
+    }
+
+    private long cellKey(double lat, double lng) {
+        return pack(cellIndex(lat), cellIndex(lng));
+    }
+
+    private long cellIndex(double degrees) {
+        return (long) Math.floor(degrees / cellSizeDegrees);
+    }
+
+    private static long pack(long latCell, long lngCell) {
+        return (latCell << 32) | (lngCell & 0xffffffffL);
+    }
+
+    private static double equirectangular(double lat, double lng, double cosLat, Entry entry) {
+        double x = Math.toRadians(entry.lng() - lng) * ((cosLat + entry.cosLat()) / 2);
+        double y = Math.toRadians(entry.lat() - lat);
+        return EARTH_RADIUS_KM * Math.sqrt(x * x + y * y);
+    }
+
+    private static double haversine(double lat, double lng, double cosLat, Entry entry) {
+        double dLat = Math.toRadians(entry.lat() - lat);
+        double dLon = Math.toRadians(entry.lng() - lng);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + cosLat * entry.cosLat() * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS_KM * c;
+    }
+}
@@ -1,8 +1,10 @@
 package com.plenti.plentibackend.service;
 
 import com.plenti.plentibackend.dto.UserDTO;
+import com.plenti.plentibackend.entity.Role;
 import com.plenti.plentibackend.entity.User;
 import com.plenti.plentibackend.exception.PlentiException;
+import com.plenti.plentibackend.repository.RoleRepository;
 import com.plenti.plentibackend.repository.UserRepository;
 import com.plenti.plentibackend.util.Mapper;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,7 +14,10 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Service for user management operations
@@ -26,6 +31,12 @@ public class UserService implements UserDetailsService {
     @Autowired
     private Mapper mapper;
 
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private AuthenticationCache authenticationCache;
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         User user = userRepository.findByPhoneNumber(username)
@@ -68,6 +79,31 @@ public class UserService implements UserDetailsService {
         userRepository.save(user);
     }
 
+    /**
+     * Replace a user's roles. Cached authentication for the user is dropped so the
+     * new authorities apply from the next request.
+     */
+    @Transactional
+    public UserDTO updateUserRoles(Long userId, Collection<String> roleNames) {
+        if (roleNames == null || roleNames.isEmpty()) {
+            throw new PlentiException("At least one role is required");
+        }
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new PlentiException("User not found"));
+
+        Set<Role> roles = new HashSet<>();
+        for (String roleName : roleNames) {
+            roles.add(roleRepository.findByName(roleName)
+                    .orElseThrow(() -> new PlentiException("Role not found: " + roleName)));
+        }
+        user.setRoles(roles);
+        user.bumpAuthVersion();
+
+        User updatedUser = userRepository.save(user);
+        authenticationCache.evictUserAfterCommit(updatedUser);
+        return mapper.toUserDTO(updatedUser);
+    }
+
     public List<UserDTO> getAllUsers() {
         return userRepository.findAll().stream()
                 .map(mapper::toUserDTO)
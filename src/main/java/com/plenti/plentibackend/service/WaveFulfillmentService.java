@@ -0,0 +1,412 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.entity.Order;
+import com.plenti.plentibackend.entity.OrderStatus;
+import com.plenti.plentibackend.entity.Rider;
+import com.plenti.plentibackend.entity.Store;
+import com.plenti.plentibackend.exception.PlentiException;
+import com.plenti.plentibackend.repository.OrderRepository;
+import com.plenti.plentibackend.repository.RiderRepository;
+import com.plenti.plentibackend.util.AssignmentSolver;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fulfills pending orders in waves instead of one by one. A wave takes the oldest
+ * max-size PENDING orders, gives each its nearest store, then matches riders to orders
+ * across the whole wave on the rider-to-store distance, so one order can't take the only
+ * rider another order could have had. The wave commits in one transaction of JDBC
+ * batches; conditional updates skip orders another path fulfilled meanwhile and riders
+ * that became busy, so waves can run next to {@link FulfillmentService} and on several
+ * instances.
+ */
+@Service
+@Slf4j
+public class WaveFulfillmentService {
+
+    public enum Matching { AUTO, HUNGARIAN, GREEDY }
+
+    private static final String CLAIM_RIDER_SQL =
+            "UPDATE riders SET status = 'BUSY' WHERE id = ? AND status = 'AVAILABLE' AND is_active = TRUE";
+    private static final String RELEASE_RIDER_SQL =
+            "UPDATE riders SET status = 'AVAILABLE' WHERE id = ? AND status = 'BUSY'";
+    private static final String CONFIRM_ORDER_SQL =
+            "UPDATE orders SET store_id = ?, status = ?, rider_id = ?, rider_name = ? WHERE id = ? AND status = 'PENDING'";
+    private static final String INSERT_TRACKING_SQL =
+            "INSERT INTO order_tracking (order_id, status, status_message, description, rider_id, "
+                    + "rider_latitude, rider_longitude, timestamp) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final OrderRepository orderRepository;
+    private final RiderRepository riderRepository;
+    private final StoreSpatialIndex storeSpatialIndex;
+    private final RiderLocationIndex riderLocationIndex;
+    private final FulfillmentService fulfillmentService;
+    private final OrderRollupService orderRollupService;
+    private final OrderTrackingProjection orderTrackingProjection;
+    private final NotificationOutbox notificationOutbox;
+    private final RiderPositionPublisher riderPositionPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final boolean assignRiders;
+    private final int maxSize;
+    private final Matching matching;
+    private final int hungarianMaxSize;
+    private final int candidatesPerOrder;
+    private final double maxRiderDistanceKm;
+
+    private final ReentrantLock waveLock = new ReentrantLock();
+    private final AtomicLong waves = new AtomicLong();
+    private final AtomicLong failedWaves = new AtomicLong();
+    private final AtomicLong confirmedOrders = new AtomicLong();
+    private final AtomicLong assignedRiders = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+    private volatile Map<String, Object> lastWave = Map.of();
+
+    public WaveFulfillmentService(OrderRepository orderRepository,
+                                  RiderRepository riderRepository,
+                                  StoreSpatialIndex storeSpatialIndex,
+                                  RiderLocationIndex riderLocationIndex,
+                                  FulfillmentService fulfillmentService,
+                                  OrderRollupService orderRollupService,
+                                  OrderTrackingProjection orderTrackingProjection,
+                                  NotificationOutbox notificationOutbox,
+                                  RiderPositionPublisher riderPositionPublisher,
+                                  JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${fulfillment.wave.enabled:false}") boolean enabled,
+                                  @Value("${fulfillment.auto-assign.enabled:true}") boolean assignRiders,
+                                  @Value("${fulfillment.wave.max-size:500}") int maxSize,
+                                  @Value("${fulfillment.wave.matching:auto}") String matching,
+                                  @Value("${fulfillment.wave.hungarian-max-size:500}") int hungarianMaxSize,
+                                  @Value("${fulfillment.wave.candidates-per-order:3}") int candidatesPerOrder,
+                                  @Value("${fulfillment.max-rider-distance-km:10.0}") double maxRiderDistanceKm) {
+        this.orderRepository = orderRepository;
+        this.riderRepository = riderRepository;
+        this.storeSpatialIndex = storeSpatialIndex;
+        this.riderLocationIndex = riderLocationIndex;
+        this.fulfillmentService = fulfillmentService;
+        this.orderRollupService = orderRollupService;
+        this.orderTrackingProjection = orderTrackingProjection;
+        this.notificationOutbox = notificationOutbox;
+        this.riderPositionPublisher = riderPositionPublisher;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.assignRiders = assignRiders;
+        this.maxSize = maxSize;
+        this.matching = parseMatching(matching);
+        this.hungarianMaxSize = hungarianMaxSize;
+        this.candidatesPerOrder = candidatesPerOrder;
+        this.maxRiderDistanceKm = maxRiderDistanceKm;
+    }
+
+    private static Matching parseMatching(String matching) {
+        try {
+            return Matching.valueOf(matching.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new PlentiException("Invalid fulfillment.wave.matching '" + matching
+                    + "'. Allowed: " + Arrays.toString(Matching.values()).toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * An order of the wave with its store and, once matched, its rider
+     */
+    private static final class Planned {
+        final Order order;
+        final Store store;
+        Rider rider;
+
+        Planned(Order order, Store store) {
+            this.order = order;
+            this.store = store;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${fulfillment.wave.interval-ms:30000}")
+    public void scheduledWave() {
+        if (!enabled || waveLock.isLocked()) {
+            return;
+        }
+        try {
+            runWave();
+        } catch (RuntimeException e) {
+            log.error("Fulfillment wave failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Fulfill one wave of pending orders now
+     *
+     * @return the wave's report: order counts, matching used, total pickup distance and throughput
+     */
+    public Map<String, Object> runWave() {
+        if (!waveLock.tryLock()) {
+            throw new PlentiException("A fulfillment wave is already running");
+        }
+        try {
+            return wave();
+        } catch (RuntimeException e) {
+            failedWaves.incrementAndGet();
+            throw e;
+        } finally {
+            waveLock.unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("running", waveLock.isLocked());
+        stats.put("waves", waves.get());
+        stats.put("failedWaves", failedWaves.get());
+        stats.put("confirmedOrders", confirmedOrders.get());
+        stats.put("assignedRiders", assignedRiders.get());
+        stats.put("conflicts", conflicts.get());
+        stats.put("lastWave", lastWave);
+        return stats;
+    }
+
+    private Map<String, Object> wave() {
+        long start = System.nanoTime();
+        List<Order> orders = orderRepository.findByStatusAndIdGreaterThanOrderByIdAsc(
+                OrderStatus.PENDING, 0L, PageRequest.of(0, maxSize));
+
+        // Nearest store per order; there is no store capacity to balance against
+        List<Planned> plan = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            double[] coords = fulfillmentService.extractCoordinatesFromAddress(order.getDeliveryAddress());
+            StoreSpatialIndex.Hit store = storeSpatialIndex.findNearest(coords[0], coords[1], Double.POSITIVE_INFINITY);
+            if (store != null) {
+                plan.add(new Planned(order, store.store()));
+            }
+        }
+
+        Matching used = null;
+        double pickupKm = 0;
+        if (assignRiders && !plan.isEmpty()) {
+            used = matching != Matching.AUTO ? matching
+                    : plan.size() <= hungarianMaxSize ? Matching.HUNGARIAN : Matching.GREEDY;
+            pickupKm = matchRiders(plan, used);
+        }
+
+        int[] outcome = commit(plan);
+        int confirmed = outcome[0];
+        int withRider = outcome[1];
+        int lost = outcome[2];
+
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        waves.incrementAndGet();
+        confirmedOrders.addAndGet(confirmed);
+        assignedRiders.addAndGet(withRider);
+        conflicts.addAndGet(lost);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("orders", orders.size());
+        report.put("confirmed", confirmed);
+        report.put("ridersAssigned", withRider);
+        report.put("noStore", orders.size() - plan.size());
+        report.put("noRider", confirmed - withRider);
+        report.put("conflicts", lost);
+        report.put("matching", used);
+        report.put("totalPickupKm", Math.round(pickupKm * 100) / 100.0);
+        report.put("millis", millis);
+        report.put("ordersPerSecond", millis > 0 ? Math.round(confirmed * 10_000.0 / millis) / 10.0 : confirmed);
+        report.put("finishedAt", LocalDateTime.now());
+        lastWave = report;
+        if (!orders.isEmpty()) {
+            log.info("Fulfillment wave: {} of {} orders confirmed, {} with riders, in {} ms",
+                    confirmed, orders.size(), withRider, millis);
+        }
+        return report;
+    }
+
+    /**
+     * Match riders to the planned orders on rider-to-store distance
+     *
+     * @return total pickup distance of the matched riders in km
+     */
+    private double matchRiders(List<Planned> plan, Matching used) {
+        // Candidates per store: enough nearest available riders for all of the store's orders
+        Map<Long, Integer> ordersPerStore = new HashMap<>();
+        Map<Long, Store> stores = new HashMap<>();
+        for (Planned planned : plan) {
+            ordersPerStore.merge(planned.store.getId(), 1, Integer::sum);
+            stores.put(planned.store.getId(), planned.store);
+        }
+        Map<Long, Integer> columns = new LinkedHashMap<>();
+        Map<Long, Map<Integer, Double>> distances = new HashMap<>();
+        for (Map.Entry<Long, Integer> entry : ordersPerStore.entrySet()) {
+            Store store = stores.get(entry.getKey());
+            Map<Integer, Double> reachable = new HashMap<>();
+            for (RiderLocationIndex.Hit hit : riderLocationIndex.findNearestAvailable(store.getLatitude(),
+                    store.getLongitude(), maxRiderDistanceKm, entry.getValue() * candidatesPerOrder)) {
+                int column = columns.computeIfAbsent(hit.riderId(), id -> columns.size());
+                reachable.put(column, hit.distanceKm());
+            }
+            distances.put(store.getId(), reachable);
+        }
+        if (columns.isEmpty()) {
+            return 0;
+        }
+
+        double[][] cost = new double[plan.size()][columns.size()];
+        for (int i = 0; i < plan.size(); i++) {
+            double[] row = cost[i];
+            Arrays.fill(row, Double.POSITIVE_INFINITY);
+            distances.get(plan.get(i).store.getId()).forEach((column, km) -> row[column] = km);
+        }
+        int[] match = used == Matching.HUNGARIAN ? AssignmentSolver.hungarian(cost) : AssignmentSolver.greedy(cost);
+
+        Long[] riderIds = columns.keySet().toArray(new Long[0]);
+        List<Long> matchedIds = new ArrayList<>();
+        for (int column : match) {
+            if (column >= 0) {
+                matchedIds.add(riderIds[column]);
+            }
+        }
+        Map<Long, Rider> riders = new HashMap<>();
+        riderRepository.findAllById(matchedIds).forEach(rider -> riders.put(rider.getId(), rider));
+
+        double totalKm = 0;
+        for (int i = 0; i < plan.size(); i++) {
+            if (match[i] >= 0) {
+                plan.get(i).rider = riders.get(riderIds[match[i]]);
+                if (plan.get(i).rider != null) {
+                    totalKm += cost[i][match[i]];
+                }
+            }
+        }
+        return totalKm;
+    }
+
+    /**
+     * Write the wave in one transaction
+     *
+     * @return confirmed orders, orders with a rider, and conflicts (orders or riders taken meanwhile)
+     */
+    private int[] commit(List<Planned> plan) {
+        if (plan.isEmpty()) {
+            return new int[]{0, 0, 0};
+        }
+        return transactionTemplate.execute(status -> {
+            int lost = 0;
+
+            // Claim riders first, in id order for a stable lock order with the location flushes
+            List<Planned> withRider = plan.stream()
+                    .filter(planned -> planned.rider != null)
+                    .sorted(Comparator.comparing((Planned planned) -> planned.rider.getId()))
+                    .toList();
+            int[] claimed = jdbcTemplate.batchUpdate(CLAIM_RIDER_SQL,
+                    withRider.stream().map(planned -> new Object[]{planned.rider.getId()}).toList());
+            for (int i = 0; i < claimed.length; i++) {
+                // Anything but exactly one row means the rider was no longer available
+                if (claimed[i] != 1) {
+                    withRider.get(i).rider = null;
+                    lost++;
+                }
+            }
+
+            List<Planned> sortedPlan = plan.stream()
+                    .sorted(Comparator.comparing((Planned planned) -> planned.order.getId()))
+                    .toList();
+            int[] updated = jdbcTemplate.batchUpdate(CONFIRM_ORDER_SQL, sortedPlan.stream()
+                    .map(planned -> new Object[]{
+                            planned.store.getId(),
+                            (planned.rider != null ? OrderStatus.PROCESSING : OrderStatus.CONFIRMED).name(),
+                            planned.rider != null ? String.valueOf(planned.rider.getId()) : null,
+                            planned.rider != null ? planned.rider.getName() : null,
+                            planned.order.getId()})
+                    .toList());
+
+            List<Planned> confirmed = new ArrayList<>(sortedPlan.size());
+            List<Object[]> releasedRiders = new ArrayList<>();
+            for (int i = 0; i < updated.length; i++) {
+                Planned planned = sortedPlan.get(i);
+                if (updated[i] != 1) {
+                    // Fulfilled elsewhere since the wave read it; give its rider back
+                    lost++;
+                    if (planned.rider != null) {
+                        releasedRiders.add(new Object[]{planned.rider.getId()});
+                    }
+                } else {
+                    confirmed.add(planned);
+                }
+            }
+            if (!releasedRiders.isEmpty()) {
+                jdbcTemplate.batchUpdate(RELEASE_RIDER_SQL, releasedRiders);
+            }
+
+            record(confirmed);
+            return new int[]{confirmed.size(), (int) confirmed.stream().filter(p -> p.rider != null).count(), lost};
+        });
+    }
+
+    /**
+     * Tracking, rollups, notifications and in-memory indexes of the confirmed orders,
+     * the same side effects processFulfillment and assignRiderToOrder have
+     */
+    private void record(List<Planned> confirmed) {
+        List<OrderTrackingProjection.Change> changes = new ArrayList<>();
+        List<Object[]> trackingRows = new ArrayList<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (Planned planned : confirmed) {
+            Order order = planned.order;
+            order.setStoreId(planned.store.getId());
+            String storeMessage = "Order confirmed and assigned to " + planned.store.getName();
+            trackingRows.add(new Object[]{order.getId(), OrderStatus.CONFIRMED.name(), storeMessage,
+                    OrderTrackingProjection.describe(OrderStatus.CONFIRMED), null, null, null, now});
+
+            if (planned.rider == null) {
+                order.setStatus(OrderStatus.CONFIRMED);
+                changes.add(new OrderTrackingProjection.Change(order, OrderStatus.CONFIRMED, storeMessage,
+                        fulfillmentService.calculateEstimatedDeliveryTime(order)));
+            } else {
+                Rider rider = planned.rider;
+                order.setRiderId(String.valueOf(rider.getId()));
+                order.setRiderName(rider.getName());
+                order.setStatus(OrderStatus.PROCESSING);
+                String riderMessage = "Rider " + rider.getName() + " assigned to order";
+                LocalDateTime eta = fulfillmentService.calculateEstimatedDeliveryTime(order);
+                changes.add(new OrderTrackingProjection.Change(order, OrderStatus.CONFIRMED, storeMessage, eta));
+                changes.add(new OrderTrackingProjection.Change(order, OrderStatus.PROCESSING, riderMessage, eta));
+
+                RiderLocationIndex.RiderState position = riderLocationIndex.get(rider.getId());
+                boolean located = position != null && position.hasPosition();
+                trackingRows.add(new Object[]{order.getId(), OrderStatus.PROCESSING.name(), riderMessage,
+                        OrderTrackingProjection.describe(OrderStatus.PROCESSING), order.getRiderId(),
+                        located ? position.latitude() : null, located ? position.longitude() : null, now});
+
+                riderLocationIndex.updateAvailabilityAfterCommit(rider.getId(), false);
+                riderPositionPublisher.trackAfterCommit(order.getId(), rider.getId());
+                notificationOutbox.publish(order.getId(), "/topic/riders/" + rider.getId(),
+                        Map.of("orderId", order.getId(), "message", "New order assigned"));
+            }
+            orderRollupService.recordTransition(order, OrderStatus.PENDING);
+        }
+
+        // Before the tracking rows, so a view first built from the history doesn't list them twice
+        orderTrackingProjection.recordAll(changes);
+        jdbcTemplate.batchUpdate(INSERT_TRACKING_SQL, trackingRows);
+    }
+}
@@ -0,0 +1,247 @@
+package com.plenti.plentibackend.service;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.config.WebSocketMessageBrokerStats;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Per-destination WebSocket counters: messages published to the broker, messages delivered
+ * to client sessions (the fan-out) with their rate over the last minute, and live
+ * subscriptions. Destinations are grouped by pattern, e.g. /topic/orders/{id}, so the
+ * number of entries stays small however many orders are being tracked.
+ */
+@Component
+public class WebSocketMetrics {
+
+    static final int MAX_PATTERNS = 256;
+    static final String OTHER_PATTERN = "other";
+
+    private static final Pattern ID_SEGMENT = Pattern.compile("/(\\d+|[0-9a-fA-F-]{32,36})(?=/|$)");
+
+    private final String brokerMode;
+    private final ObjectProvider<WebSocketMessageBrokerStats> brokerStats;
+
+    private final Map<String, DestinationStats> destinations = new ConcurrentHashMap<>();
+    // sessionId -> (subscriptionId -> destination)
+    private final Map<String, Map<String, String>> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong connectedTotal = new AtomicLong();
+
+    public WebSocketMetrics(@Value("${websocket.broker.mode:simple}") String brokerMode,
+                            ObjectProvider<WebSocketMessageBrokerStats> brokerStats) {
+        this.brokerMode = brokerMode;
+        this.brokerStats = brokerStats;
+    }
+
+    /**
+     * For the broker channel: everything the app publishes to /topic
+     */
+    public ChannelInterceptor publishedInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public void postSend(Message<?> message, MessageChannel channel, boolean sent) {
+                String destination = messageDestination(message);
+                if (sent && destination != null) {
+                    statsFor(destination).published.increment(nowSecond());
+                }
+            }
+        };
+    }
+
+    /**
+     * For the client outbound channel: one message per subscribed session
+     */
+    public ChannelInterceptor deliveredInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public void postSend(Message<?> message, MessageChannel channel, boolean sent) {
+                String destination = messageDestination(message);
+                if (sent && destination != null) {
+                    statsFor(destination).delivered.increment(nowSecond());
+                }
+            }
+        };
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (sessionId != null) {
+            sessions.putIfAbsent(sessionId, new ConcurrentHashMap<>());
+            connectedTotal.incrementAndGet();
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        if (headers.getSessionId() == null || headers.getSubscriptionId() == null || headers.getDestination() == null) {
+            return;
+        }
+        String previous = sessions.computeIfAbsent(headers.getSessionId(), id -> new ConcurrentHashMap<>())
+                .put(headers.getSubscriptionId(), headers.getDestination());
+        if (previous != null) {
+            statsFor(previous).subscriptions.decrementAndGet();
+        }
+        statsFor(headers.getDestination()).subscriptions.incrementAndGet();
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        Map<String, String> subscriptions = headers.getSessionId() != null ? sessions.get(headers.getSessionId()) : null;
+        if (subscriptions == null || headers.getSubscriptionId() == null) {
+            return;
+        }
+        String destination = subscriptions.remove(headers.getSubscriptionId());
+        if (destination != null) {
+            statsFor(destination).subscriptions.decrementAndGet();
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        // May be published more than once per session; only the first removal counts
+        Map<String, String> subscriptions = sessions.remove(event.getSessionId());
+        if (subscriptions != null) {
+            subscriptions.values().forEach(destination -> statsFor(destination).subscriptions.decrementAndGet());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long now = nowSecond();
+        Map<String, Set<String>> sessionsByPattern = new HashMap<>();
+        Map<String, Set<String>> destinationsByPattern = new HashMap<>();
+        sessions.forEach((sessionId, subscriptions) -> subscriptions.values().forEach(destination -> {
+            String pattern = patternKey(destination);
+            sessionsByPattern.computeIfAbsent(pattern, key -> new HashSet<>()).add(sessionId);
+            destinationsByPattern.computeIfAbsent(pattern, key -> new HashSet<>()).add(destination);
+        }));
+
+        Map<String, Object> byDestination = new TreeMap<>();
+        destinations.forEach((pattern, stats) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("subscriptions", stats.subscriptions.get());
+            entry.put("sessions", sessionsByPattern.getOrDefault(pattern, Set.of()).size());
+            entry.put("destinations", destinationsByPattern.getOrDefault(pattern, Set.of()).size());
+            entry.put("published", stats.published.total());
+            entry.put("publishedPerSecond", stats.published.perSecond(now));
+            entry.put("delivered", stats.delivered.total());
+            entry.put("deliveredPerSecond", stats.delivered.perSecond(now));
+            byDestination.put(pattern, entry);
+        });
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("brokerMode", brokerMode);
+        stats.put("activeSessions", sessions.size());
+        stats.put("connectedTotal", connectedTotal.get());
+        stats.put("destinations", byDestination);
+        WebSocketMessageBrokerStats spring = brokerStats.getIfAvailable();
+        if (spring != null) {
+            stats.put("webSocketSessions", spring.getWebSocketSessionStatsInfo());
+            stats.put("stompSubProtocol", spring.getStompSubProtocolStatsInfo());
+            stats.put("stompBrokerRelay", spring.getStompBrokerRelayStatsInfo());
+            stats.put("clientInboundExecutor", spring.getClientInboundExecutorStatsInfo());
+            stats.put("clientOutboundExecutor", spring.getClientOutboundExecutorStatsInfo());
+        }
+        return stats;
+    }
+
+    /**
+     * /topic/orders/42 -> /topic/orders/{id}
+     */
+    static String pattern(String destination) {
+        return ID_SEGMENT.matcher(destination).replaceAll("/{id}");
+    }
+
+    private String patternKey(String destination) {
+        String pattern = pattern(destination);
+        return destinations.containsKey(pattern) ? pattern : OTHER_PATTERN;
+    }
+
+    private DestinationStats statsFor(String destination) {
+        String pattern = pattern(destination);
+        DestinationStats stats = destinations.get(pattern);
+        if (stats != null) {
+            return stats;
+        }
+        // Clients choose what they subscribe to, so cap the number of tracked patterns
+        if (destinations.size() >= MAX_PATTERNS) {
+            return destinations.computeIfAbsent(OTHER_PATTERN, key -> new DestinationStats());
+        }
+        return destinations.computeIfAbsent(pattern, key -> new DestinationStats());
+    }
+
+    private static String messageDestination(Message<?> message) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return null;
+        }
+        return SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+    }
+
+    private static long nowSecond() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    private static final class DestinationStats {
+        final RateCounter published = new RateCounter();
+        final RateCounter delivered = new RateCounter();
+        final AtomicInteger subscriptions = new AtomicInteger();
+    }
+
+    /**
+     * Total count plus one-second buckets over the last minute
+     */
+    static final class RateCounter {
+        private static final int WINDOW_SECONDS = 60;
+
+        private final long[] counts = new long[WINDOW_SECONDS];
+        private final long[] seconds = new long[WINDOW_SECONDS];
+        private long total;
+
+        synchronized void increment(long nowSecond) {
+            int slot = (int) (nowSecond % WINDOW_SECONDS);
+            if (seconds[slot] != nowSecond) {
+                seconds[slot] = nowSecond;
+                counts[slot] = 0;
+            }
+            counts[slot]++;
+            total++;
+        }
+
+        synchronized double perSecond(long nowSecond) {
+            long sum = 0;
+            for (int i = 0; i < WINDOW_SECONDS; i++) {
+                if (nowSecond - seconds[i] < WINDOW_SECONDS) {
+                    sum += counts[i];
+                }
+            }
+            return (double) sum / WINDOW_SECONDS;
+        }
+
+        synchronized long total() {
+            return total;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.plenti.plentibackend.util;
+
+import java.util.Arrays;
+
+/**
+ * Matches rows (orders) to columns (riders) on a cost matrix, at most one column per row.
+ * Pairs with an infinite cost are never matched. Both methods return, for each row, the
+ * matched column or -1.
+ */
+public final class AssignmentSolver {
+
+    // Stands in for infinity in the Hungarian method; larger than any real total cost
+    private static final double INFEASIBLE = 1e9;
+
+    private AssignmentSolver() {
+    }
+
+    /**
+     * Minimum-cost matching with the most pairs (Hungarian method with potentials),
+     * O(n^2 * m) for n = min(rows, cols). Use for waves of up to a few hundred orders.
+     */
+    public static int[] hungarian(double[][] cost) {
+        int rows = cost.length;
+        int cols = rows == 0 ? 0 : cost[0].length;
+        int[] result = new int[rows];
+        Arrays.fill(result, -1);
+        if (rows == 0 || cols == 0) {
+            return result;
+        }
+
+        // The method needs rows <= cols, so solve the transpose when there are more orders than riders
+        boolean transposed = rows > cols;
+        int n = transposed ? cols : rows;
+        int m = transposed ? rows : cols;
+        double[][] a = new double[n + 1][m + 1];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) {
+                double c = transposed ? cost[j][i] : cost[i][j];
+                a[i + 1][j + 1] = Double.isInfinite(c) || Double.isNaN(c) ? INFEASIBLE : c;
+            }
+        }
+
+        double[] u = new double[n + 1];
+        double[] v = new double[m + 1];
+        int[] p = new int[m + 1];
+        int[] way = new int[m + 1];
+        for (int i = 1; i <= n; i++) {
+            p[0] = i;
+            int j0 = 0;
+            double[] minv = new double[m + 1];
+            Arrays.fill(minv, Double.POSITIVE_INFINITY);
+            boolean[] used = new boolean[m + 1];
+            do {
+                used[j0] = true;
+                int i0 = p[j0];
+                int j1 = 0;
+                double delta = Double.POSITIVE_INFINITY;
+                for (int j = 1; j <= m; j++) {
+                    if (!used[j]) {
+                        double cur = a[i0][j] - u[i0] - v[j];
+                        if (cur < minv[j]) {
+                            minv[j] = cur;
+                            way[j] = j0;
+                        }
+                        if (minv[j] < delta) {
+                            delta = minv[j];
+                            j1 = j;
+                        }
+                    }
+                }
+                for (int j = 0; j <= m; j++) {
+                    if (used[j]) {
+                        u[p[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (p[j0] != 0);
+            do {
+                int j1 = way[j0];
+                p[j0] = p[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+
+        for (int j = 1; j <= m; j++) {
+            if (p[j] == 0) {
+                continue;
+            }
+            int row = transposed ? j - 1 : p[j] - 1;
+            int col = transposed ? p[j] - 1 : j - 1;
+            if (a[p[j]][j] < INFEASIBLE) {
+                result[row] = col;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Cheapest pairs first, O(k log k) for k feasible pairs. Not optimal, but fast enough
+     * for waves too large for the Hungarian method. Costs must not be negative.
+     */
+    public static int[] greedy(double[][] cost) {
+        int rows = cost.length;
+        int cols = rows == 0 ? 0 : cost[0].length;
+        int[] result = new int[rows];
+        Arrays.fill(result, -1);
+
+        // Float bits of a non-negative cost sort like the cost, so each pair packs into one
+        // long (cost high, pair index low) and a primitive sort orders them
+        long[] pairs = new long[rows * cols];
+        int count = 0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (Double.isFinite(cost[i][j])) {
+                    pairs[count++] = ((long) Float.floatToIntBits((float) cost[i][j]) << 32) | (i * cols + j);
+                }
+            }
+        }
+        Arrays.sort(pairs, 0, count);
+
+        boolean[] takenCols = new boolean[cols];
+        for (int k = 0; k < count; k++) {
+            int pair = (int) pairs[k];
+            int row = pair / cols;
+            int col = pair % cols;
+            if (result[row] == -1 && !takenCols[col]) {
+                result[row] = col;
+                takenCols[col] = true;
+            }
+        }
+        return result;
+    }
+}
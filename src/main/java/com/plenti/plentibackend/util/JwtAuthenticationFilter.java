@@ -1,11 +1,15 @@
 package com.plenti.plentibackend.util;
 
+import com.plenti.plentibackend.service.AuthenticationCache;
+import com.plenti.plentibackend.service.AuthenticationCache.VerifiedToken;
 import com.plenti.plentibackend.service.JwtService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -25,6 +29,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final AuthenticationCache authenticationCache;
+
+    /**
+     * When enabled, tokens carrying a user id and auth version stamp are trusted as-is while
+     * the stamp matches the user's current one, so no user row is loaded per request
+     */
+    @Value("${security.jwt.stateless:false}")
+    private boolean stateless;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
@@ -32,22 +44,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String username = null;
-        String jwt = null;
-
-        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
-            try {
-                username = jwtService.extractUsername(jwt);
-            } catch (Exception e) {
-                logger.error("Error extracting username from JWT: " + e.getMessage());
-            }
-        }
-
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            UserDetails userDetails = resolveUser(authorizationHeader.substring(7));
 
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authenticationToken = 
                     new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
@@ -57,4 +58,51 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         chain.doFilter(request, response);
     }
+
+    /**
+     * User a bearer token authenticates, or null if the token is invalid. Also used for
+     * STOMP CONNECT frames, which carry the same Authorization header.
+     */
+    public UserDetails resolveUser(String jwt) {
+        VerifiedToken token = resolveToken(jwt);
+        return token != null ? authenticate(token) : null;
+    }
+
+    /**
+     * Claims of a valid token, verifying signature and expiry with a single parse on a cache miss
+     */
+    private VerifiedToken resolveToken(String jwt) {
+        VerifiedToken token = authenticationCache.getToken(jwt);
+        if (token != null) {
+            return token;
+        }
+        try {
+            Claims claims = jwtService.parseClaims(jwt);
+            if (claims.getSubject() == null) {
+                return null;
+            }
+            token = VerifiedToken.of(claims);
+            authenticationCache.putToken(jwt, token, claims.getExpiration());
+            return token;
+        } catch (Exception e) {
+            logger.error("Error validating JWT: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private UserDetails authenticate(VerifiedToken token) {
+        if (stateless && token.isStamped()) {
+            if (token.authVersion().equals(authenticationCache.getAuthVersion(token.userId()))) {
+                return token.toUserDetails();
+            }
+            // The account changed since the token was issued; re-check it against the database
+            UserDetails userDetails = loadUser(token.subject());
+            return userDetails.isAccountNonLocked() && userDetails.isEnabled() ? userDetails : null;
+        }
+        return loadUser(token.subject());
+    }
+
+    private UserDetails loadUser(String username) {
+        return authenticationCache.getOrLoadUser(username, this.userDetailsService::loadUserByUsername);
+    }
 }
@@ -4,6 +4,7 @@ import com.plenti.plentibackend.dto.*;
 import com.plenti.plentibackend.entity.*;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.stream.Collectors;
 
 /**
@@ -126,7 +127,12 @@ public class Mapper {
         OrderDTO dto = new OrderDTO();
         dto.setId(order.getId());
         dto.setUserId(order.getUserId());
-        dto.setProductIds(order.getProductIds());
+        if (order.getItems() != null) {
+            dto.setItems(order.getItems().stream()
+                    .map(item -> new OrderItemDTO(item.getProductId(), item.getQuantity(), item.getUnitPrice()))
+                    .toList());
+            dto.setProductIds(order.getItems().stream().map(item -> String.valueOf(item.getProductId())).toList());
+        }
         dto.setTotalAmount(order.getTotalAmount());
         dto.setStatus(order.getStatus());
         dto.setOrderDate(order.getOrderDate());
@@ -145,7 +151,11 @@ public class Mapper {
         Order order = new Order();
         order.setId(dto.getId());
         order.setUserId(dto.getUserId());
-        order.setProductIds(dto.getProductIds());
+        if (dto.getItems() != null) {
+            order.setItems(new ArrayList<>(dto.getItems().stream()
+                    .map(item -> new OrderItem(item.getProductId(), item.getQuantity(), item.getUnitPrice()))
+                    .toList()));
+        }
         order.setTotalAmount(dto.getTotalAmount());
         order.setStatus(dto.getStatus());
         order.setDeliveryAddress(dto.getDeliveryAddress());
@@ -0,0 +1,141 @@
+package com.plenti.plentibackend.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Space-Saving heavy-hitters sketch: approximate counts of the most frequent items of a
+ * stream in a fixed number of counters.
+ * When every counter is taken, a new item replaces the least counted one and inherits its
+ * count as the error bound, so any item seen more than total/capacity times is kept.
+ * Counters are grouped by count, so an update costs O(log distinct counts).
+ * Reads and updates take the sketch's monitor.
+ */
+public class SpaceSavingSketch {
+
+    /**
+     * Estimated count of an item; the true count lies between count - error and count
+     */
+    public record Estimate(String item, long count, long error) {
+    }
+
+    private static final class Counter {
+        private final String item;
+        private long count;
+        private long error;
+
+        private Counter(String item, long count, long error) {
+            this.item = item;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    private final int capacity;
+    private final Map<String, Counter> counters = new HashMap<>();
+    private final TreeMap<Long, LinkedHashSet<Counter>> byCount = new TreeMap<>();
+    private long total;
+
+    public SpaceSavingSketch(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    public synchronized void offer(String item) {
+        offer(item, 1, 0);
+    }
+
+    /**
+     * Add count occurrences of an item that already carry an error of error
+     */
+    public synchronized void offer(String item, long count, long error) {
+        total += count;
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            detach(counter);
+            counter.count += count;
+            counter.error += error;
+            attach(counter);
+            return;
+        }
+        if (counters.size() < capacity) {
+            counter = new Counter(item, count, error);
+        } else {
+            Map.Entry<Long, LinkedHashSet<Counter>> smallest = byCount.firstEntry();
+            Counter victim = smallest.getValue().iterator().next();
+            detach(victim);
+            counters.remove(victim.item);
+            counter = new Counter(item, victim.count + count, victim.count + error);
+        }
+        counters.put(item, counter);
+        attach(counter);
+    }
+
+    /**
+     * Fold another sketch into this one by summing the counts and errors of every item
+     */
+    public void merge(SpaceSavingSketch other) {
+        // Copy first, so two sketches merging into each other never hold both monitors
+        List<Estimate> estimates = other.estimates();
+        for (Estimate estimate : estimates) {
+            offer(estimate.item(), estimate.count(), estimate.error());
+        }
+    }
+
+    /**
+     * Sketch over the union of several sketches
+     */
+    public static SpaceSavingSketch merged(Collection<SpaceSavingSketch> sketches, int capacity) {
+        SpaceSavingSketch result = new SpaceSavingSketch(capacity);
+        sketches.forEach(result::merge);
+        return result;
+    }
+
+    /**
+     * The k items with the highest estimated counts, highest first
+     */
+    public synchronized List<Estimate> top(int k) {
+        List<Estimate> result = new ArrayList<>(Math.min(k, counters.size()));
+        for (LinkedHashSet<Counter> group : byCount.descendingMap().values()) {
+            List<Counter> sorted = new ArrayList<>(group);
+            // Within equal counts prefer the tighter estimate, then a stable order
+            sorted.sort(Comparator.<Counter>comparingLong(counter -> counter.error).thenComparing(counter -> counter.item));
+            for (Counter counter : sorted) {
+                if (result.size() >= k) {
+                    return result;
+                }
+                result.add(new Estimate(counter.item, counter.count, counter.error));
+            }
+        }
+        return result;
+    }
+
+    public synchronized List<Estimate> estimates() {
+        return top(counters.size());
+    }
+
+    public synchronized int size() {
+        return counters.size();
+    }
+
+    public synchronized long total() {
+        return total;
+    }
+
+    private void attach(Counter counter) {
+        byCount.computeIfAbsent(counter.count, key -> new LinkedHashSet<>()).add(counter);
+    }
+
+    private void detach(Counter counter) {
+        LinkedHashSet<Counter> group = byCount.get(counter.count);
+        group.remove(counter);
+        if (group.isEmpty()) {
+            byCount.remove(counter.count);
+        }
+    }
+}
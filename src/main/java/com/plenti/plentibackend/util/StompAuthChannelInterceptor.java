@@ -0,0 +1,135 @@
+package com.plenti.plentibackend.util;
+
+import com.plenti.plentibackend.entity.Order;
+import com.plenti.plentibackend.repository.OrderRepository;
+import com.plenti.plentibackend.repository.RiderRepository;
+import com.plenti.plentibackend.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Authenticates STOMP sessions and guards per-order topics.
+ *
+ * /ws is open at the HTTP level because browsers cannot set headers on the WebSocket
+ * handshake, so CONNECT frames carry the same "Authorization: Bearer" header as REST
+ * calls instead. Anonymous sessions may connect, but SUBSCRIBE to /topic/orders/{id} and
+ * anything below it is only allowed for the order's customer, its rider and admins.
+ * Wildcard subscriptions under /topic would match every order and are admin-only.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+    private static final Pattern ORDER_TOPIC = Pattern.compile("^/topic/orders/(\\d+)(/[^/]+)*$");
+    private static final String ADMIN_AUTHORITY = "ROLE_ADMIN";
+
+    private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+    private final RiderRepository riderRepository;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+        if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+            authenticate(accessor);
+        } else if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            authorizeSubscribe(accessor.getUser(), accessor.getDestination());
+        }
+        return message;
+    }
+
+    private void authenticate(StompHeaderAccessor accessor) {
+        String authorizationHeader = accessor.getFirstNativeHeader("Authorization");
+        if (authorizationHeader == null) {
+            return;
+        }
+        UserDetails userDetails = null;
+        if (authorizationHeader.startsWith("Bearer ")) {
+            try {
+                userDetails = jwtAuthenticationFilter.resolveUser(authorizationHeader.substring(7));
+            } catch (UsernameNotFoundException e) {
+                userDetails = null;
+            }
+        }
+        // A client that sent a token expects to be authenticated; don't silently downgrade it
+        if (userDetails == null) {
+            throw new BadCredentialsException("Invalid token");
+        }
+        accessor.setUser(new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities()));
+    }
+
+    void authorizeSubscribe(Principal user, String destination) {
+        if (destination == null || !destination.startsWith("/topic/")) {
+            return;
+        }
+        boolean wildcard = destination.contains("*") || destination.contains("#");
+        boolean orderTopic = destination.startsWith("/topic/orders/");
+        if (!wildcard && !orderTopic) {
+            return;
+        }
+        if (isAdmin(user)) {
+            return;
+        }
+        Matcher matcher = ORDER_TOPIC.matcher(destination);
+        if (wildcard || !matcher.matches() || user == null || !canTrack(user.getName(), Long.valueOf(matcher.group(1)))) {
+            log.warn("Refused subscription to {} for {}", destination, user != null ? user.getName() : "anonymous");
+            throw new AccessDeniedException("Not allowed to subscribe to " + destination);
+        }
+    }
+
+    /**
+     * Usernames are phone numbers; riders are matched to their account by phone number
+     */
+    private boolean canTrack(String username, Long orderId) {
+        Order order = orderRepository.findById(orderId).orElse(null);
+        if (order == null) {
+            return false;
+        }
+        boolean customer = userRepository.findByPhoneNumber(username)
+                .map(account -> account.getId().equals(order.getUserId()))
+                .orElse(false);
+        if (customer) {
+            return true;
+        }
+        Long riderId = parseId(order.getRiderId());
+        return riderId != null && riderRepository.findById(riderId)
+                .map(rider -> username.equals(rider.getPhoneNumber()))
+                .orElse(false);
+    }
+
+    private static boolean isAdmin(Principal user) {
+        return user instanceof Authentication authentication
+                && authentication.getAuthorities().stream()
+                        .anyMatch(authority -> ADMIN_AUTHORITY.equals(authority.getAuthority()));
+    }
+
+    private static Long parseId(String id) {
+        try {
+            return id != null ? Long.valueOf(id) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.plenti.plentibackend.util;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+
+/**
+ * Small concurrent cache with a per-entry time to live and a size bound.
+ * Reads are lock-free. When the bound is reached, expired entries are dropped first and
+ * then arbitrary entries until the cache is back under 90% of its capacity.
+ */
+public class TtlCache<K, V> {
+
+    private record Entry<V>(V value, long expiresAtNanos) {
+    }
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long ttlNanos;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public TtlCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+    }
+
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAtNanos() >= 0) {
+            entries.remove(key, entry);
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.value();
+    }
+
+    public void put(K key, V value) {
+        put(key, value, ttlNanos / 1_000_000L);
+    }
+
+    /**
+     * Cache a value for at most ttlMillis, never longer than the cache's own TTL
+     */
+    public void put(K key, V value, long ttlMillis) {
+        long ttl = Math.min(ttlMillis * 1_000_000L, ttlNanos);
+        if (ttl <= 0 || maxSize <= 0) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            shrink();
+        }
+        entries.put(key, new Entry<>(value, System.nanoTime() + ttl));
+    }
+
+    public void remove(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Remove the entry only if it still holds this exact value
+     */
+    public void remove(K key, V value) {
+        entries.computeIfPresent(key, (k, entry) -> entry.value() == value ? null : entry);
+    }
+
+    public void removeIf(BiPredicate<K, V> predicate) {
+        entries.entrySet().removeIf(entry -> predicate.test(entry.getKey(), entry.getValue().value()));
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    private void shrink() {
+        long now = System.nanoTime();
+        int before = entries.size();
+        entries.values().removeIf(entry -> now - entry.expiresAtNanos() >= 0);
+
+        int target = (int) (maxSize * 0.9);
+        Iterator<K> keys = entries.keySet().iterator();
+        while (entries.size() > target && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+        evictions.addAndGet(Math.max(0, before - entries.size()));
+    }
+}
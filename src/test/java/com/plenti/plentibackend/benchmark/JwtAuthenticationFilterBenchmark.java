@@ -0,0 +1,140 @@
+package com.plenti.plentibackend.benchmark;
+
+import com.plenti.plentibackend.entity.Role;
+import com.plenti.plentibackend.entity.User;
+import com.plenti.plentibackend.repository.UserRepository;
+import com.plenti.plentibackend.service.AuthenticationCache;
+import com.plenti.plentibackend.service.JwtService;
+import com.plenti.plentibackend.util.JwtAuthenticationFilter;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Per-request cost of the JWT filter with warm caches, with caching disabled, in stateless
+ * mode, and the previous path (key rebuilt per call, token parsed twice). The user lookups
+ * are in-memory stubs, so the numbers exclude the database round trips the caches save.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.plenti.plentibackend.benchmark.JwtAuthenticationFilterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final String SECRET = "benchmark-secret-key-for-jwt-token-generation-must-be-at-least-256-bits";
+    private static final String PHONE = "+2348012345678";
+
+    private JwtService jwtService;
+    private UserDetailsService userDetailsService;
+    private JwtAuthenticationFilter cachedFilter;
+    private JwtAuthenticationFilter uncachedFilter;
+    private JwtAuthenticationFilter statelessUncachedFilter;
+    private String authorizationHeader;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtService, "expiration", 3_600_000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 7_200_000L);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+
+        Role role = new Role();
+        role.setName("USER");
+        User user = new User();
+        user.setId(1L);
+        user.setPhoneNumber(PHONE);
+        user.setPassword("encoded");
+        user.setEnabled(true);
+        user.setRoles(Set.of(role));
+        userDetailsService = username -> user;
+
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findAuthVersionById(1L)).thenReturn(Optional.of(user.getAuthVersion()));
+
+        token = jwtService.generateToken(user);
+        authorizationHeader = "Bearer " + token;
+
+        cachedFilter = new JwtAuthenticationFilter(jwtService, userDetailsService,
+                new AuthenticationCache(userRepository, 300, 50_000, 20_000, 60));
+        uncachedFilter = new JwtAuthenticationFilter(jwtService, userDetailsService,
+                new AuthenticationCache(userRepository, 300, 0, 0, 60));
+        statelessUncachedFilter = new JwtAuthenticationFilter(jwtService, userDetailsService,
+                new AuthenticationCache(userRepository, 300, 0, 20_000, 60));
+        ReflectionTestUtils.setField(statelessUncachedFilter, "stateless", true);
+    }
+
+    @Benchmark
+    public void filterCached(Blackhole blackhole) throws Exception {
+        runFilter(cachedFilter, blackhole);
+    }
+
+    @Benchmark
+    public void filterUncached(Blackhole blackhole) throws Exception {
+        runFilter(uncachedFilter, blackhole);
+    }
+
+    /**
+     * Stateless mode with the token cache off: one parse, then claims plus a cached version check
+     */
+    @Benchmark
+    public void filterStatelessUncachedToken(Blackhole blackhole) throws Exception {
+        runFilter(statelessUncachedFilter, blackhole);
+    }
+
+    @Benchmark
+    public void legacyKeyRebuildAndDoubleParse(Blackhole blackhole) {
+        String username = parse(token).getSubject();
+        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        Claims claims = parse(token);
+        blackhole.consume(claims.getSubject().equals(userDetails.getUsername())
+                && claims.getExpiration().getTime() > System.currentTimeMillis());
+    }
+
+    private void runFilter(JwtAuthenticationFilter filter, Blackhole blackhole) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/orders");
+        request.addHeader("Authorization", authorizationHeader);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        blackhole.consume(SecurityContextHolder.getContext().getAuthentication());
+        SecurityContextHolder.clearContext();
+    }
+
+    private Claims parse(String jwt) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseClaimsJws(jwt)
+                .getBody();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtAuthenticationFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,117 @@
+package com.plenti.plentibackend.benchmark;
+
+import com.plenti.plentibackend.entity.Store;
+import com.plenti.plentibackend.service.StoreSpatialIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of grid-indexed store lookups against the previous full Haversine scan.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.plenti.plentibackend.benchmark.StoreSpatialIndexBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StoreSpatialIndexBenchmark {
+
+    private static final double MAX_DISTANCE_KM = 15.0;
+
+    // Roughly the Lagos metro area, where stores are densest
+    private static final double MIN_LAT = 6.35;
+    private static final double MAX_LAT = 6.75;
+    private static final double MIN_LNG = 3.0;
+    private static final double MAX_LNG = 3.7;
+
+    @Param({"10000"})
+    private int storeCount;
+
+    private List<Store> stores;
+    private StoreSpatialIndex index;
+    private double[][] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        stores = new ArrayList<>(storeCount);
+        for (long i = 1; i <= storeCount; i++) {
+            Store store = new Store();
+            store.setId(i);
+            store.setName("Store " + i);
+            store.setActive(true);
+            store.setLatitude(MIN_LAT + random.nextDouble() * (MAX_LAT - MIN_LAT));
+            store.setLongitude(MIN_LNG + random.nextDouble() * (MAX_LNG - MIN_LNG));
+            stores.add(store);
+        }
+
+        index = new StoreSpatialIndex(null, 5.0);
+        index.rebuild(stores);
+
+        queries = new double[1024][];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = new double[]{
+                    MIN_LAT + random.nextDouble() * (MAX_LAT - MIN_LAT),
+                    MIN_LNG + random.nextDouble() * (MAX_LNG - MIN_LNG)
+            };
+        }
+    }
+
+    @Benchmark
+    public void nearestIndexed(Blackhole blackhole) {
+        double[] query = nextQuery();
+        blackhole.consume(index.findNearest(query[0], query[1], MAX_DISTANCE_KM));
+    }
+
+    @Benchmark
+    public void inRangeIndexed(Blackhole blackhole) {
+        double[] query = nextQuery();
+        blackhole.consume(index.findWithinRange(query[0], query[1], MAX_DISTANCE_KM));
+    }
+
+    @Benchmark
+    public void nearestFullScan(Blackhole blackhole) {
+        double[] query = nextQuery();
+        Store nearest = null;
+        double minDistance = Double.MAX_VALUE;
+        for (Store store : stores) {
+            double distance = haversine(query[0], query[1], store.getLatitude(), store.getLongitude());
+            if (distance < minDistance && distance <= MAX_DISTANCE_KM) {
+                minDistance = distance;
+                nearest = store;
+            }
+        }
+        blackhole.consume(nearest);
+    }
+
+    private double[] nextQuery() {
+        next = (next + 1) & (queries.length - 1);
+        return queries[next];
+    }
+
+    private static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 6371.0 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StoreSpatialIndexBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
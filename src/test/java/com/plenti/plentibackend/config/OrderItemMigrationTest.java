@@ -0,0 +1,81 @@
+package com.plenti.plentibackend.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderItemMigrationTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OrderItemMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        migration = new OrderItemMigration(jdbcTemplate, transactionManager);
+    }
+
+    @Test
+    void run_WhenAlreadyApplied_ShouldNotTouchTheLegacyTable() {
+        appliedCount(1L);
+
+        migration.run();
+
+        verify(jdbcTemplate, never()).queryForObject("SELECT COUNT(*) FROM order_products", Long.class);
+        verify(jdbcTemplate, never()).update(anyString());
+    }
+
+    @Test
+    void run_ShouldMarkTheMigrationAndCopyInOneGo() {
+        appliedCount(0L);
+        when(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_products", Long.class)).thenReturn(5L);
+        when(jdbcTemplate.update(startsWith("INSERT INTO data_migrations"), eq(OrderItemMigration.MIGRATION),
+                any(Timestamp.class))).thenReturn(1);
+        when(jdbcTemplate.update(startsWith("INSERT INTO order_items"))).thenReturn(3);
+        when(jdbcTemplate.queryForList(startsWith("SELECT op.product_id")))
+                .thenReturn(List.of(Map.of("product_id", "legacy-12", "legacy_rows", 2L)));
+
+        migration.run();
+
+        InOrder inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).update(startsWith("INSERT INTO data_migrations"),
+                eq(OrderItemMigration.MIGRATION), any(Timestamp.class));
+        inOrder.verify(jdbcTemplate).update(startsWith("INSERT INTO order_items"));
+        inOrder.verify(jdbcTemplate).queryForList(startsWith("SELECT op.product_id"));
+    }
+
+    @Test
+    void run_WhenAnotherInstanceCopiedMeanwhile_ShouldSkipTheCopy() {
+        appliedCount(0L);
+        when(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_products", Long.class)).thenReturn(5L);
+        when(jdbcTemplate.update(startsWith("INSERT INTO data_migrations"), eq(OrderItemMigration.MIGRATION),
+                any(Timestamp.class))).thenThrow(new DuplicateKeyException("Duplicate entry"));
+
+        migration.run();
+
+        verify(jdbcTemplate, never()).update(startsWith("INSERT INTO order_items"));
+    }
+
+    private void appliedCount(long count) {
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*) FROM data_migrations"), eq(Long.class),
+                eq(OrderItemMigration.MIGRATION))).thenReturn(count);
+    }
+}
@@ -0,0 +1,44 @@
+package com.plenti.plentibackend.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Role checks on the admin and search operations endpoints
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:securitydb"
+})
+class SecurityConfigTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void adminEndpoints_ShouldRejectRegularUsers() throws Exception {
+        mockMvc.perform(post("/api/admin/fulfillment/waves")).andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/admin/analytics/rollups/rebuild")).andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/admin/riders/location/ingest-stats")).andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/es/reindex")).andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/es/sync-stats")).andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/es/health")).andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void adminEndpoints_ShouldAllowAdmins() throws Exception {
+        mockMvc.perform(get("/api/admin/riders/location/ingest-stats")).andExpect(status().isOk());
+    }
+}
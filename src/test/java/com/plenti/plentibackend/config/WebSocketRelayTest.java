@@ -0,0 +1,124 @@
+package com.plenti.plentibackend.config;
+
+import com.plenti.plentibackend.entity.User;
+import com.plenti.plentibackend.repository.RoleRepository;
+import com.plenti.plentibackend.repository.UserRepository;
+import com.plenti.plentibackend.service.JwtService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Relay mode end to end: a STOMP client subscribes through /ws and receives a message
+ * published by the app, routed through the embedded broker
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = {
+    "websocket.broker.mode=relay",
+    "websocket.broker.embedded.enabled=true",
+    "websocket.broker.embedded.port=61699",
+    "websocket.relay.host=127.0.0.1",
+    "websocket.relay.port=61699"
+})
+class WebSocketRelayTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    @Qualifier("stompBrokerRelayMessageHandler")
+    private AbstractBrokerMessageHandler relay;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Test
+    void publishedMessage_ShouldReachSubscriberThroughTheBroker() throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!relay.isBrokerAvailable() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue(relay.isBrokerAvailable());
+
+        // Receipts need a scheduler for their timeouts
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        WebSocketStompClient client = new WebSocketStompClient(new StandardWebSocketClient());
+        client.setMessageConverter(new MappingJackson2MessageConverter());
+        client.setTaskScheduler(scheduler);
+        // Order topics are only open to the order's customer, its rider and admins
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + jwtService.generateToken(admin()));
+        StompSession session = client.connectAsync("ws://localhost:" + port + "/ws/websocket",
+                new WebSocketHttpHeaders(), connectHeaders, new StompSessionHandlerAdapter() { })
+                .get(5, TimeUnit.SECONDS);
+        session.setAutoReceipt(true);
+
+        BlockingQueue<Map<?, ?>> received = new LinkedBlockingQueue<>();
+        CountDownLatch subscribed = new CountDownLatch(1);
+        session.subscribe("/topic/orders/42", new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                received.add((Map<?, ?>) payload);
+            }
+        }).addReceiptTask(subscribed::countDown);
+        assertTrue(subscribed.await(5, TimeUnit.SECONDS));
+
+        messagingTemplate.convertAndSend("/topic/orders/42", Map.of("status", "PACKED"));
+
+        Map<?, ?> message = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(message);
+        assertEquals("PACKED", message.get("status"));
+        session.disconnect();
+        client.stop();
+        scheduler.shutdown();
+    }
+
+    private User admin() {
+        User admin = new User();
+        admin.setName("Relay Admin");
+        admin.setPhoneNumber("08099990001");
+        admin.setPassword("unused");
+        admin.setEnabled(true);
+        admin.setRoles(Set.of(roleRepository.findByName("ADMIN").orElseThrow()));
+        return userRepository.save(admin);
+    }
+}
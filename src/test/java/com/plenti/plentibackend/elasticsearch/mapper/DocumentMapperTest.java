@@ -0,0 +1,45 @@
+package com.plenti.plentibackend.elasticsearch.mapper;
+
+import com.plenti.plentibackend.elasticsearch.document.ProductDocument;
+import com.plenti.plentibackend.entity.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.suggest.Completion;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentMapperTest {
+
+    private final DocumentMapper documentMapper = new DocumentMapper();
+
+    @Test
+    void toProductDocument_ShouldAddWordSuffixesAsSuggestionInputs() {
+        ProductDocument document = documentMapper.toProductDocument(product("Golden  Penny Rice", 0, null));
+
+        assertArrayEquals(new String[]{"Golden Penny Rice", "Penny Rice", "Rice"}, document.getSuggest().getInput());
+        assertEquals(1, document.getSuggest().getWeight());
+    }
+
+    @Test
+    void toSuggestion_ShouldWeightPopularWellRatedProductsHigher() {
+        Completion popular = documentMapper.toSuggestion(product("Indomie Chicken", 500, 4.6));
+        Completion obscure = documentMapper.toSuggestion(product("Indomie Onion", 2, 3.0));
+        Completion unrated = documentMapper.toSuggestion(product("Indomie Spicy", 500, null));
+
+        assertTrue(popular.getWeight() > unrated.getWeight());
+        assertTrue(unrated.getWeight() > obscure.getWeight());
+    }
+
+    @Test
+    void toSuggestion_WithoutName_ShouldReturnNull() {
+        assertNull(documentMapper.toSuggestion(product(" ", 10, 4.0)));
+    }
+
+    private Product product(String name, Integer reviewCount, Double averageRating) {
+        Product product = new Product();
+        product.setId(1L);
+        product.setName(name);
+        product.setReviewCount(reviewCount);
+        product.setAverageRating(averageRating);
+        return product;
+    }
+}
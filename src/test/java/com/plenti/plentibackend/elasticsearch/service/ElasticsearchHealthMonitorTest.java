@@ -0,0 +1,85 @@
+package com.plenti.plentibackend.elasticsearch.service;
+
+import com.plenti.plentibackend.elasticsearch.document.ProductDocument;
+import com.plenti.plentibackend.elasticsearch.service.ElasticsearchHealthMonitor.State;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ElasticsearchHealthMonitorTest {
+
+    @Mock
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Mock
+    private IndexOperations indexOperations;
+
+    private ElasticsearchHealthMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        monitor = new ElasticsearchHealthMonitor(elasticsearchOperations, 3, 0);
+    }
+
+    @Test
+    void recordFailure_ShouldOpenAfterConsecutiveConnectivityFailures() {
+        DataAccessResourceFailureException down = new DataAccessResourceFailureException("Connection refused");
+
+        monitor.recordFailure(down);
+        monitor.recordFailure(down);
+        monitor.recordSuccess();
+        monitor.recordFailure(down);
+        monitor.recordFailure(down);
+        assertEquals(State.CLOSED, monitor.getState());
+
+        monitor.recordFailure(down);
+        assertEquals(State.OPEN, monitor.getState());
+        assertFalse(monitor.allowRequest());
+        assertEquals(1L, monitor.getStats().get("shortCircuited"));
+        verifyNoInteractions(elasticsearchOperations);
+    }
+
+    @Test
+    void recordFailure_ShouldIgnoreQueryErrors() {
+        for (int i = 0; i < 5; i++) {
+            monitor.recordFailure(new IllegalArgumentException("bad query"));
+        }
+
+        assertTrue(monitor.allowRequest());
+    }
+
+    @Test
+    void refresh_ShouldProbeHalfOpenAndCloseWhenClusterIsBack() {
+        when(elasticsearchOperations.indexOps(ProductDocument.class)).thenReturn(indexOperations);
+        when(indexOperations.exists())
+                .thenThrow(new DataAccessResourceFailureException("down"))
+                .thenReturn(true);
+        for (int i = 0; i < 3; i++) {
+            monitor.recordFailure(new DataAccessResourceFailureException("down"));
+        }
+
+        monitor.refresh();
+        assertEquals(State.OPEN, monitor.getState());
+
+        monitor.refresh();
+        assertEquals(State.CLOSED, monitor.getState());
+        assertTrue(monitor.isAvailable());
+
+        @SuppressWarnings("unchecked")
+        Map<String, Long> transitions = (Map<String, Long>) monitor.getStats().get("transitions");
+        assertEquals(2L, transitions.get("CLOSED->OPEN") + transitions.get("HALF_OPEN->OPEN"));
+        assertEquals(2L, transitions.get("OPEN->HALF_OPEN"));
+        assertEquals(1L, transitions.get("HALF_OPEN->CLOSED"));
+    }
+}
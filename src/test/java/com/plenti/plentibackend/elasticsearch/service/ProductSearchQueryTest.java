@@ -0,0 +1,68 @@
+package com.plenti.plentibackend.elasticsearch.service;
+
+import com.plenti.plentibackend.elasticsearch.service.ProductSearchQuery.SortBy;
+import com.plenti.plentibackend.exception.PlentiException;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchQueryTest {
+
+    private static final List<Double> BUCKETS = List.of(500.0, 1000.0, 2500.5);
+
+    @Test
+    void build_ShouldKeepSelectionsOutOfTheScoringQuery() {
+        NativeQuery query = ProductSearchQuery.build("rice", 1L, 100.0, null, true,
+                SortBy.PRICE_ASC, 2, 20, null, BUCKETS);
+
+        assertTrue(query.getQuery().isMultiMatch());
+        assertTrue(query.getFilter().isBool());
+        assertEquals(3, query.getFilter().bool().filter().size());
+        assertEquals(3, query.getAggregations().size());
+        assertEquals(2, query.getSortOptions().size());
+        assertEquals(40, query.getPageable().getOffset());
+    }
+
+    @Test
+    void build_WithoutSelections_ShouldSkipPostFilter() {
+        NativeQuery query = ProductSearchQuery.build(null, null, null, null, false,
+                SortBy.RELEVANCE, 0, 20, null, BUCKETS);
+
+        assertTrue(query.getQuery().isMatchAll());
+        assertNull(query.getFilter());
+    }
+
+    @Test
+    void build_WithSearchAfter_ShouldStartFromTheCursor() {
+        String cursor = ProductSearchQuery.encodeCursor(List.of(849.99, 12L));
+
+        NativeQuery query = ProductSearchQuery.build("rice", null, null, null, false,
+                SortBy.PRICE_ASC, 7, 20, cursor, BUCKETS);
+
+        assertEquals(List.of(849.99, 12L), query.getSearchAfter());
+        assertEquals(0, query.getPageable().getOffset());
+    }
+
+    @Test
+    void build_BeyondResultWindow_ShouldRequireSearchAfter() {
+        assertThrows(PlentiException.class, () -> ProductSearchQuery.build("rice", null, null, null, false,
+                SortBy.RELEVANCE, 500, 20, null, BUCKETS));
+    }
+
+    @Test
+    void priceRanges_ShouldCoverOpenEndedBuckets() {
+        assertEquals(List.of("*-500", "500-1000", "1000-2500.5", "2500.5-*"),
+                List.copyOf(ProductSearchQuery.priceRanges(BUCKETS).keySet()));
+    }
+
+    @Test
+    void parse_ShouldRejectUnknownSortAndCursor() {
+        assertEquals(SortBy.PRICE_DESC, SortBy.parse("price_desc"));
+        assertEquals(SortBy.RELEVANCE, SortBy.parse(null));
+        assertThrows(PlentiException.class, () -> SortBy.parse("cheapest"));
+        assertThrows(PlentiException.class, () -> ProductSearchQuery.decodeCursor("not-a-cursor!"));
+    }
+}
@@ -0,0 +1,51 @@
+package com.plenti.plentibackend.elasticsearch.service;
+
+import com.plenti.plentibackend.elasticsearch.service.SearchIndexChangeQueue.DocumentType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchIndexChangeQueueTest {
+
+    @Test
+    void record_ShouldCoalesceRepeatedChangesToTheSameRow() {
+        SearchIndexChangeQueue queue = new SearchIndexChangeQueue(true);
+
+        queue.record(DocumentType.PRODUCT, 1L);
+        queue.record(DocumentType.PRODUCT, 1L);
+        queue.record(DocumentType.PRODUCT, 2L);
+        queue.record(DocumentType.STORE, 1L);
+
+        assertEquals(3, queue.size());
+        assertEquals(1L, queue.getStats().get("coalesced"));
+        assertEquals(List.of(1L, 2L), queue.drain(DocumentType.PRODUCT, 10).stream().sorted().toList());
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    void drain_ShouldRespectMaxAndRequeueShouldRestoreIds() {
+        SearchIndexChangeQueue queue = new SearchIndexChangeQueue(true);
+        queue.recordAfterCommit(DocumentType.CATEGORY, List.of(1L, 2L, 3L));
+
+        List<Long> batch = queue.drain(DocumentType.CATEGORY, 2);
+        assertEquals(2, batch.size());
+        assertEquals(1, queue.size());
+
+        queue.requeue(DocumentType.CATEGORY, batch);
+        assertEquals(3, queue.size());
+        assertEquals(Map.of("PRODUCT", 0, "CATEGORY", 3, "STORE", 0), queue.getStats().get("pending"));
+    }
+
+    @Test
+    void record_WhenElasticsearchDisabled_ShouldIgnoreChanges() {
+        SearchIndexChangeQueue queue = new SearchIndexChangeQueue(false);
+
+        queue.record(DocumentType.PRODUCT, 1L);
+        queue.recordAfterCommit(DocumentType.PRODUCT, List.of(2L));
+
+        assertEquals(0, queue.size());
+    }
+}
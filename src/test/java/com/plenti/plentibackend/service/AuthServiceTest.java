@@ -15,8 +15,10 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
@@ -47,6 +49,9 @@ class AuthServiceTest {
     @Mock
     private SmsService smsService;
 
+    @Mock
+    private AuthenticationCache authenticationCache;
+
     @InjectMocks
     private AuthServiceImpl authService;
 
@@ -238,6 +243,16 @@ class AuthServiceTest {
 
         assertTrue(exception.getMessage().contains("Account locked"));
         verify(userRepository).save(argThat(u -> u.getAccountLocked() && u.getFailedLoginAttempts() == 5));
+        verify(authenticationCache).evictUserAfterCommit(user);
+    }
+
+    @Test
+    void testLogin_RejectionsShouldNotRollBackTheLock() throws NoSuchMethodException {
+        // The lock and the after-commit eviction are written before the PlentiException is thrown
+        Transactional transactional = AuthServiceImpl.class.getMethod("login", LoginRequest.class)
+                .getAnnotation(Transactional.class);
+
+        assertTrue(Arrays.asList(transactional.noRollbackFor()).contains(PlentiException.class));
     }
 
     @Test
@@ -298,6 +313,7 @@ class AuthServiceTest {
         assertEquals("Password reset successfully", response.getMessage());
         verify(otpRepository).save(argThat(o -> o.getUsed()));
         verify(userRepository).save(argThat(u -> u.getFailedLoginAttempts() == 0 && !u.getAccountLocked()));
+        verify(authenticationCache).evictUserAfterCommit(user);
     }
 
     @Test
@@ -0,0 +1,122 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.entity.Role;
+import com.plenti.plentibackend.entity.User;
+import com.plenti.plentibackend.repository.UserRepository;
+import com.plenti.plentibackend.service.AuthenticationCache.VerifiedToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuthenticationCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private AuthenticationCache authenticationCache;
+    private JwtService jwtService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        authenticationCache = new AuthenticationCache(userRepository, 300, 100, 100, 60);
+
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secret",
+                "test-secret-key-for-jwt-token-generation-and-validation-must-be-at-least-256-bits");
+        ReflectionTestUtils.setField(jwtService, "expiration", 3_600_000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 7_200_000L);
+        jwtService.init();
+
+        Role role = new Role();
+        role.setName("ADMIN");
+        user = new User();
+        user.setId(7L);
+        user.setPhoneNumber("+2348012345678");
+        user.setPassword("encodedPassword");
+        user.setEnabled(true);
+        user.setRoles(Set.of(role));
+        user.setAuthVersion(3L);
+    }
+
+    @Test
+    void verifiedToken_ShouldCarryStampAndRolesFromClaims() {
+        String token = jwtService.generateToken(user);
+
+        VerifiedToken verified = VerifiedToken.of(jwtService.parseClaims(token));
+
+        assertTrue(verified.isStamped());
+        assertEquals(7L, verified.userId());
+        assertEquals(3L, verified.authVersion());
+        assertEquals(List.of("ROLE_ADMIN"), verified.toUserDetails().getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList());
+    }
+
+    @Test
+    void getAuthVersion_ShouldQueryOnceUntilUserIsEvicted() {
+        when(userRepository.findAuthVersionById(7L)).thenReturn(Optional.of(3L), Optional.of(4L));
+
+        assertEquals(3L, authenticationCache.getAuthVersion(7L));
+        assertEquals(3L, authenticationCache.getAuthVersion(7L));
+        verify(userRepository, times(1)).findAuthVersionById(7L);
+
+        authenticationCache.evictUser(7L, user.getPhoneNumber());
+
+        assertEquals(4L, authenticationCache.getAuthVersion(7L));
+        verify(userRepository, times(2)).findAuthVersionById(7L);
+    }
+
+    @Test
+    void evictUser_ShouldDropCachedTokensAndDetails() {
+        String token = jwtService.generateToken(user);
+        authenticationCache.putToken(token, VerifiedToken.of(jwtService.parseClaims(token)), null);
+        authenticationCache.getOrLoadUser(user.getPhoneNumber(), username -> user);
+
+        authenticationCache.evictUser(7L, user.getPhoneNumber());
+
+        assertNull(authenticationCache.getToken(token));
+        assertNull(authenticationCache.getUser(user.getPhoneNumber()));
+    }
+
+    @Test
+    void getOrLoadUser_WhenEvictedDuringLoad_ShouldNotCacheTheStaleDetails() {
+        UserDetails loaded = authenticationCache.getOrLoadUser(user.getPhoneNumber(), username -> {
+            // The password change commits while this request is still loading the old row
+            authenticationCache.evictUser(7L, username);
+            return user;
+        });
+
+        assertEquals(user.getPhoneNumber(), loaded.getUsername());
+        assertNull(authenticationCache.getUser(user.getPhoneNumber()));
+
+        authenticationCache.getOrLoadUser(user.getPhoneNumber(), username -> user);
+        assertNotNull(authenticationCache.getUser(user.getPhoneNumber()));
+    }
+
+    @Test
+    void getAuthVersion_WhenEvictedDuringLoad_ShouldQueryAgainNextTime() {
+        when(userRepository.findAuthVersionById(7L)).thenAnswer(invocation -> {
+            authenticationCache.evictUser(7L, user.getPhoneNumber());
+            return Optional.of(3L);
+        }).thenReturn(Optional.of(4L));
+
+        assertEquals(3L, authenticationCache.getAuthVersion(7L));
+        assertEquals(4L, authenticationCache.getAuthVersion(7L));
+        assertEquals(4L, authenticationCache.getAuthVersion(7L));
+        verify(userRepository, times(2)).findAuthVersionById(7L);
+    }
+}
@@ -2,10 +2,8 @@ package com.plenti.plentibackend.service;
 
 import com.plenti.plentibackend.dto.CartDTO;
 import com.plenti.plentibackend.entity.Cart;
-import com.plenti.plentibackend.entity.Product;
 import com.plenti.plentibackend.exception.PlentiException;
 import com.plenti.plentibackend.repository.CartRepository;
-import com.plenti.plentibackend.repository.ProductRepository;
 import com.plenti.plentibackend.util.Mapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,6 +13,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -28,7 +27,7 @@ class CartServiceTest {
     private CartRepository cartRepository;
 
     @Mock
-    private ProductRepository productRepository;
+    private ProductCatalogSnapshot catalogSnapshot;
 
     @Mock
     private Mapper mapper;
@@ -37,7 +36,7 @@ class CartServiceTest {
     private CartService cartService;
 
     private Cart cart;
-    private Product product;
+    private ProductCatalogSnapshot.Entry product;
     private CartDTO cartDTO;
 
     @BeforeEach
@@ -48,11 +47,8 @@ class CartServiceTest {
         cart.setItems(new HashMap<>());
         cart.setTotal(0.0);
 
-        product = new Product();
-        product.setId(1L);
-        product.setName("Test Product");
-        product.setPrice(100.0);
-        product.setStock(50);
+        product = new ProductCatalogSnapshot.Entry(1L, 100.0, Double.NaN, Double.NaN,
+                Long.MIN_VALUE, 50, 0L);
 
         cartDTO = new CartDTO();
         cartDTO.setId(1L);
@@ -63,20 +59,22 @@ class CartServiceTest {
     @Test
     void addToCart_WhenProductHasStock_ShouldAddItem() {
         when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(cart));
-        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(catalogSnapshot.get(1L)).thenReturn(product);
+        when(catalogSnapshot.getAll(any())).thenReturn(Map.of(1L, product));
         when(cartRepository.save(any(Cart.class))).thenReturn(cart);
         when(mapper.toCartDTO(cart)).thenReturn(cartDTO);
 
         CartDTO result = cartService.addToCart(1L, 1L, 2);
 
         assertNotNull(result);
+        assertEquals(200.0, cart.getTotal());
         verify(cartRepository, times(1)).save(any(Cart.class));
     }
 
     @Test
     void addToCart_WhenInsufficientStock_ShouldThrowException() {
         when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(cart));
-        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(catalogSnapshot.get(1L)).thenReturn(product);
 
         assertThrows(PlentiException.class, () -> cartService.addToCart(1L, 1L, 100));
     }
@@ -0,0 +1,131 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.entity.Order;
+import com.plenti.plentibackend.entity.OrderStatus;
+import com.plenti.plentibackend.entity.Rider;
+import com.plenti.plentibackend.entity.Store;
+import com.plenti.plentibackend.repository.OrderRepository;
+import com.plenti.plentibackend.repository.OrderTrackingRepository;
+import com.plenti.plentibackend.repository.RiderRepository;
+import com.plenti.plentibackend.repository.StoreRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FulfillmentServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private StoreRepository storeRepository;
+
+    @Mock
+    private RiderRepository riderRepository;
+
+    @Mock
+    private OrderTrackingRepository orderTrackingRepository;
+
+    @Mock
+    private RiderLocationIndex riderLocationIndex;
+
+    @Mock
+    private NotificationOutbox notificationOutbox;
+
+    @Mock
+    private OrderRollupService orderRollupService;
+
+    @Mock
+    private RiderPositionPublisher riderPositionPublisher;
+
+    @Mock
+    private OrderTrackingProjection orderTrackingProjection;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private FulfillmentService fulfillmentService;
+
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(fulfillmentService, "maxRiderDistanceKm", 10.0);
+        ReflectionTestUtils.setField(fulfillmentService, "autoAssignCandidates", 5);
+
+        Store store = new Store();
+        store.setId(1L);
+        store.setName("Ikeja");
+        store.setLatitude(6.60);
+        store.setLongitude(3.35);
+        when(storeRepository.findById(1L)).thenReturn(Optional.of(store));
+
+        order = new Order();
+        order.setId(10L);
+        order.setStoreId(1L);
+        order.setStatus(OrderStatus.CONFIRMED);
+        when(riderLocationIndex.findNearestAvailable(6.60, 3.35, 10.0, 5))
+                .thenReturn(List.of(hit(7L, 0.5), hit(8L, 1.5)));
+    }
+
+    @Test
+    void autoAssignRider_WhenTheNearestRiderWasTaken_ShouldClaimTheNextCandidate() {
+        Rider taken = rider(7L, "BUSY");
+        Rider next = rider(8L, "AVAILABLE");
+        when(jdbcTemplate.update(startsWith("UPDATE riders SET status = 'BUSY'"), eq(7L))).thenReturn(0);
+        when(jdbcTemplate.update(startsWith("UPDATE riders SET status = 'BUSY'"), eq(8L))).thenReturn(1);
+        when(riderRepository.findById(7L)).thenReturn(Optional.of(taken));
+        when(riderRepository.findById(8L)).thenReturn(Optional.of(next));
+        when(orderRepository.findById(10L)).thenReturn(Optional.of(order));
+        when(orderRepository.save(order)).thenReturn(order);
+
+        Rider assigned = fulfillmentService.autoAssignRider(order, 6.5, 3.3);
+
+        assertSame(next, assigned);
+        assertEquals("8", order.getRiderId());
+        assertEquals(OrderStatus.PROCESSING, order.getStatus());
+        verify(riderLocationIndex).syncAfterCommit(taken);
+        verify(riderLocationIndex).updateAvailabilityAfterCommit(8L, false);
+        verify(riderPositionPublisher).trackAfterCommit(10L, 8L);
+    }
+
+    @Test
+    void autoAssignRider_WhenNoCandidateCanBeClaimed_ShouldLeaveTheOrderUnassigned() {
+        when(jdbcTemplate.update(startsWith("UPDATE riders SET status = 'BUSY'"), anyLong())).thenReturn(0);
+        when(riderRepository.findById(anyLong())).thenReturn(Optional.empty());
+
+        assertNull(fulfillmentService.autoAssignRider(order, 6.5, 3.3));
+
+        assertNull(order.getRiderId());
+        verify(orderRepository, never()).save(any());
+        verify(jdbcTemplate, times(2)).update(anyString(), anyLong());
+    }
+
+    private static RiderLocationIndex.Hit hit(long riderId, double distanceKm) {
+        return new RiderLocationIndex.Hit(riderId, distanceKm, LocalDateTime.now());
+    }
+
+    private static Rider rider(Long id, String status) {
+        Rider rider = new Rider();
+        rider.setId(id);
+        rider.setName("Rider " + id);
+        rider.setStatus(status);
+        rider.setIsActive(true);
+        return rider;
+    }
+}
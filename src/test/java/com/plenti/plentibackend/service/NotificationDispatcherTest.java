@@ -0,0 +1,201 @@
+package com.plenti.plentibackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.plenti.plentibackend.entity.OutboxEvent;
+import com.plenti.plentibackend.entity.OutboxEvent.Channel;
+import com.plenti.plentibackend.entity.OutboxEvent.Status;
+import com.plenti.plentibackend.repository.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationDispatcherTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private SmsService smsService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private NotificationDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new NotificationDispatcher(outboxEventRepository, notificationService, smsService,
+                jdbcTemplate, transactionManager, new ObjectMapper(), 10, 30000, 3, 1000, 60000, 7);
+    }
+
+    @Test
+    void dispatchBatch_ShouldSendClaimedEventsInOrderAndMarkThemSent() {
+        OutboxEvent first = event(1L, 5L, Channel.WEBSOCKET, "/topic/orders/5", "{\"status\":\"CONFIRMED\"}");
+        OutboxEvent second = event(2L, 5L, Channel.SMS, "+2348000000000", "{\"message\":\"On its way\"}");
+        claim(List.of(first, second), List.of());
+
+        assertFalse(dispatcher.dispatchBatch());
+
+        InOrder inOrder = inOrder(notificationService, smsService);
+        inOrder.verify(notificationService).sendNotification("/topic/orders/5", Map.of("status", "CONFIRMED"));
+        inOrder.verify(smsService).deliverSms("+2348000000000", "On its way");
+        assertEquals(List.of(1L, 2L), idsOf(batchRows("UPDATE outbox_events SET status = 'SENT'"), 2));
+        assertEquals(2L, dispatcher.getStats().get("sent"));
+    }
+
+    @Test
+    void dispatchBatch_WhenSendFails_ShouldRetryLaterAndHoldThatOrdersLaterEvents() {
+        OutboxEvent failing = event(1L, 5L, Channel.WEBSOCKET, "/topic/orders/5", "{\"status\":\"PACKED\"}");
+        OutboxEvent later = event(2L, 5L, Channel.WEBSOCKET, "/topic/orders/5", "{\"status\":\"OUT_FOR_DELIVERY\"}");
+        OutboxEvent otherOrder = event(3L, 6L, Channel.WEBSOCKET, "/topic/orders/6", "{\"status\":\"PACKED\"}");
+        claim(List.of(failing, later, otherOrder), List.of());
+        doThrow(new IllegalStateException("broker down"))
+                .when(notificationService).sendNotification(eq("/topic/orders/5"), any());
+
+        dispatcher.dispatchBatch();
+
+        verify(notificationService, times(1)).sendNotification(eq("/topic/orders/5"), any());
+        verify(notificationService).sendNotification("/topic/orders/6", Map.of("status", "PACKED"));
+        List<Object[]> retries = batchRows("UPDATE outbox_events SET attempts = ?, next_attempt_at");
+        assertEquals(1, retries.get(0)[0]);
+        assertEquals(1L, retries.get(0)[3]);
+        assertEquals(List.of(3L), idsOf(batchRows("UPDATE outbox_events SET status = 'SENT'"), 2));
+    }
+
+    @Test
+    void dispatchBatch_ShouldSkipOrdersWithAnOlderEventHeldElsewhereOrNotYetDue() {
+        OutboxEvent heldElsewhere = event(4L, 5L, Channel.WEBSOCKET, "/topic/orders/5", "{}");
+        OutboxEvent notDue = event(5L, 6L, Channel.WEBSOCKET, "/topic/orders/6", "{}");
+        notDue.setNextAttemptAt(LocalDateTime.now().plusMinutes(1));
+        OutboxEvent afterNotDue = event(6L, 6L, Channel.WEBSOCKET, "/topic/orders/6", "{}");
+        claim(List.of(heldElsewhere, notDue, afterNotDue), List.of(5L));
+
+        assertFalse(dispatcher.dispatchBatch());
+
+        verifyNoInteractions(notificationService);
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        verify(jdbcTemplate).update(startsWith("UPDATE outbox_events SET claimed_by = NULL"), any(Object[].class));
+    }
+
+    @Test
+    void dispatchBatch_ShouldOnlyClaimEventsThatAreDue() {
+        OutboxEvent due = event(7L, 8L, Channel.WEBSOCKET, "/topic/orders/8", "{}");
+        claim(List.of(due), List.of());
+
+        dispatcher.dispatchBatch();
+
+        ArgumentCaptor<LocalDateTime> now = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(outboxEventRepository).findDueIds(eq(Status.PENDING), now.capture(), any());
+        ArgumentCaptor<Object[]> claimArgs = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).update(contains("next_attempt_at <= ?"), claimArgs.capture());
+        // instance, lease end, max id, lease check and due check
+        assertEquals(7L, claimArgs.getValue()[2]);
+        assertEquals(now.getValue(), claimArgs.getValue()[4]);
+        verify(notificationService).sendNotification("/topic/orders/8", Map.of());
+    }
+
+    @Test
+    void dispatchBatch_WhenAnEmailEventIsLeft_ShouldNotMarkItSent() {
+        OutboxEvent email = event(1L, null, Channel.EMAIL, "user@plenti.ng", "{\"status\":\"DELIVERED\"}");
+        claim(List.of(email), List.of());
+
+        dispatcher.dispatchBatch();
+
+        List<Object[]> retries = batchRows("UPDATE outbox_events SET attempts = ?, next_attempt_at");
+        assertEquals(1L, retries.get(0)[3]);
+        verify(jdbcTemplate, never()).batchUpdate(startsWith("UPDATE outbox_events SET status = 'SENT'"), anyList());
+    }
+
+    @Test
+    void dispatchBatch_AfterMaxAttempts_ShouldDeadLetterTheEvent() {
+        OutboxEvent event = event(1L, null, Channel.SMS, "+2348000000000", "{\"message\":\"Delivered\"}");
+        event.setAttempts(2);
+        claim(List.of(event), List.of());
+        doThrow(new IllegalStateException("Termii timeout"))
+                .when(smsService).deliverSms("+2348000000000", "Delivered");
+
+        dispatcher.dispatchBatch();
+
+        List<Object[]> failed = batchRows("UPDATE outbox_events SET status = 'FAILED'");
+        assertEquals(3, failed.get(0)[0]);
+        assertEquals("Termii timeout", failed.get(0)[1]);
+        assertEquals(1L, dispatcher.getStats().get("deadLettered"));
+    }
+
+    @Test
+    void dispatchBatch_WhenTheLeaseRunsOutMidBatch_ShouldSkipEventsItNoLongerHolds() {
+        dispatcher = new NotificationDispatcher(outboxEventRepository, notificationService, smsService,
+                jdbcTemplate, transactionManager, new ObjectMapper(), 10, 200, 3, 1000, 60000, 7);
+        OutboxEvent slowSms = event(1L, 5L, Channel.SMS, "+2348000000000", "{\"message\":\"Packed\"}");
+        OutboxEvent reclaimed = event(2L, 6L, Channel.WEBSOCKET, "/topic/orders/6", "{}");
+        OutboxEvent stillHeld = event(3L, 7L, Channel.WEBSOCKET, "/topic/orders/7", "{}");
+        claim(List.of(slowSms, reclaimed, stillHeld), List.of());
+        // Termii answers after most of the lease; by then event 2's lease has lapsed
+        doAnswer(invocation -> {
+            Thread.sleep(150);
+            return null;
+        }).when(smsService).deliverSms("+2348000000000", "Packed");
+        when(jdbcTemplate.queryForList(startsWith("SELECT id FROM outbox_events WHERE claimed_by"),
+                eq(Long.class), any(Object[].class))).thenReturn(List.of(3L));
+
+        dispatcher.dispatchBatch();
+
+        verify(jdbcTemplate).update(startsWith("UPDATE outbox_events SET claimed_until"), any(Object[].class));
+        verify(notificationService, never()).sendNotification(eq("/topic/orders/6"), any());
+        verify(notificationService).sendNotification("/topic/orders/7", Map.of());
+        assertEquals(List.of(1L, 3L), idsOf(batchRows("UPDATE outbox_events SET status = 'SENT'"), 2));
+        assertEquals(1L, dispatcher.getStats().get("leaseExpired"));
+    }
+
+    private void claim(List<OutboxEvent> events, List<Long> blockedOrders) {
+        when(outboxEventRepository.findDueIds(eq(Status.PENDING), any(), any()))
+                .thenReturn(events.stream().map(OutboxEvent::getId).toList());
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(events.size());
+        when(outboxEventRepository.findByClaimedByAndStatusOrderByIdAsc(anyString(), eq(Status.PENDING)))
+                .thenReturn(events);
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(Object[].class))).thenReturn(blockedOrders);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> batchRows(String sqlPrefix) {
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith(sqlPrefix), rows.capture());
+        return rows.getValue();
+    }
+
+    private static List<Long> idsOf(List<Object[]> rows, int idIndex) {
+        return rows.stream().map(row -> (Long) row[idIndex]).toList();
+    }
+
+    private static OutboxEvent event(Long id, Long orderId, Channel channel, String destination, String payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setId(id);
+        event.setOrderId(orderId);
+        event.setChannel(channel);
+        event.setDestination(destination);
+        event.setPayload(payload);
+        event.setCreatedAt(LocalDateTime.now().minusSeconds(1));
+        return event;
+    }
+}
@@ -0,0 +1,113 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.entity.Order;
+import com.plenti.plentibackend.entity.OrderItem;
+import com.plenti.plentibackend.entity.OrderStatus;
+import com.plenti.plentibackend.repository.OrderStatusTotalRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderRollupServiceTest {
+
+    private static final LocalDateTime ORDER_DATE = LocalDateTime.of(2024, 3, 1, 10, 0);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private OrderStatusTotalRepository orderStatusTotalRepository;
+
+    @Mock
+    private SalesSeriesService salesSeriesService;
+
+    private OrderRollupService rollupService;
+
+    @BeforeEach
+    void setUp() {
+        rollupService = new OrderRollupService(jdbcTemplate, transactionManager, orderStatusTotalRepository, salesSeriesService);
+    }
+
+    @Test
+    void flush_ShouldApplyNetDeltasPerDayAndStatus() {
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(1);
+        Order order = order(OrderStatus.PENDING);
+        rollupService.recordTransition(order, null);
+        order.setStatus(OrderStatus.CONFIRMED);
+        rollupService.recordTransition(order, OrderStatus.PENDING);
+
+        rollupService.flush();
+
+        LocalDate day = ORDER_DATE.toLocalDate();
+        verify(jdbcTemplate).update(startsWith("UPDATE order_daily_rollups"), eq(1L), eq(250.0), eq(day), eq("CONFIRMED"));
+        verify(jdbcTemplate).update(startsWith("UPDATE order_status_totals"), eq(1L), eq(250.0), eq("CONFIRMED"));
+        // PENDING nets out to zero, so its rows are not touched
+        verify(jdbcTemplate, never()).update(anyString(), any(), any(), any(), eq("PENDING"));
+        verify(jdbcTemplate, never()).update(anyString(), any(), any(), eq("PENDING"));
+        assertEquals(0, rollupService.getStats().get("pending"));
+    }
+
+    @Test
+    void recordTransition_ShouldPassDeliveriesOnToSalesSeries() {
+        Order order = order(OrderStatus.DELIVERED);
+        order.setStoreId(4L);
+        order.setItems(List.of(new OrderItem(7L, 1, 250.0)));
+
+        rollupService.recordTransition(order, OrderStatus.OUT_FOR_DELIVERY);
+        order.setStatus(OrderStatus.REFUNDED);
+        rollupService.recordTransition(order, OrderStatus.DELIVERED);
+
+        verify(salesSeriesService).recordSale(ORDER_DATE, 4L, List.of(new OrderItem(7L, 1, 250.0)), 250.0, 1);
+        verify(salesSeriesService).recordSale(ORDER_DATE, 4L, List.of(new OrderItem(7L, 1, 250.0)), 250.0, -1);
+    }
+
+    @Test
+    void flush_WhenRowMissing_ShouldInsertIt() {
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(0);
+        rollupService.recordTransition(order(OrderStatus.PENDING), null);
+
+        rollupService.flush();
+
+        verify(jdbcTemplate).update(startsWith("INSERT INTO order_daily_rollups"),
+                eq(ORDER_DATE.toLocalDate()), eq("PENDING"), eq(1L), eq(250.0));
+        verify(jdbcTemplate).update(startsWith("INSERT INTO order_status_totals"), eq("PENDING"), eq(1L), eq(250.0));
+    }
+
+    @Test
+    void flush_WhenWriteFails_ShouldKeepDeltas() {
+        when(jdbcTemplate.update(anyString(), any(Object[].class)))
+                .thenThrow(new DataAccessResourceFailureException("db down"));
+        rollupService.recordTransition(order(OrderStatus.PENDING), null);
+
+        rollupService.flush();
+
+        assertEquals(1, rollupService.getStats().get("pending"));
+        assertEquals(1L, rollupService.getStats().get("failedFlushes"));
+    }
+
+    private Order order(OrderStatus status) {
+        Order order = new Order();
+        order.setId(1L);
+        order.setTotalAmount(250.0);
+        order.setOrderDate(ORDER_DATE);
+        order.setStatus(status);
+        return order;
+    }
+}
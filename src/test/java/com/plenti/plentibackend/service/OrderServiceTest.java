@@ -5,21 +5,25 @@ import com.plenti.plentibackend.entity.*;
 import com.plenti.plentibackend.exception.PlentiException;
 import com.plenti.plentibackend.repository.CartRepository;
 import com.plenti.plentibackend.repository.OrderRepository;
-import com.plenti.plentibackend.repository.ProductRepository;
 import com.plenti.plentibackend.util.Mapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,13 +36,22 @@ class OrderServiceTest {
     private CartRepository cartRepository;
 
     @Mock
-    private ProductRepository productRepository;
+    private Mapper mapper;
 
     @Mock
-    private Mapper mapper;
+    private NotificationOutbox notificationOutbox;
+
+    @Mock
+    private StockReservationService stockReservationService;
 
     @Mock
-    private NotificationService notificationService;
+    private OrderRollupService orderRollupService;
+
+    @Mock
+    private OrderTrackingProjection orderTrackingProjection;
+
+    @Mock
+    private RiderPositionPublisher riderPositionPublisher;
 
     @InjectMocks
     private OrderService orderService;
@@ -66,7 +79,7 @@ class OrderServiceTest {
         order = new Order();
         order.setId(1L);
         order.setUserId(1L);
-        order.setProductIds(new ArrayList<>());
+        order.setItems(new ArrayList<>());
         order.setTotalAmount(200.0);
         order.setStatus(OrderStatus.PENDING);
 
@@ -79,7 +92,7 @@ class OrderServiceTest {
     @Test
     void placeOrder_WithValidCart_ShouldCreateOrder() {
         when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(cart));
-        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(stockReservationService.reserve(anyMap())).thenReturn(Map.of(1L, product));
         when(orderRepository.save(any(Order.class))).thenReturn(order);
         when(mapper.toOrderDTO(order)).thenReturn(orderDTO);
 
@@ -87,8 +100,23 @@ class OrderServiceTest {
 
         assertNotNull(result);
         assertEquals(OrderStatus.PENDING, order.getStatus());
-        verify(orderRepository, times(1)).save(any(Order.class));
-        verify(productRepository, times(1)).save(product);
+        ArgumentCaptor<Order> saved = ArgumentCaptor.forClass(Order.class);
+        verify(orderRepository, times(1)).save(saved.capture());
+        assertEquals(List.of(new OrderItem(1L, 2, 100.0)), saved.getValue().getItems());
+        verify(stockReservationService, times(1)).reserve(anyMap());
+        verify(orderRollupService).recordTransition(any(Order.class), isNull());
+    }
+
+    @Test
+    void placeOrder_WhenReservationFails_ShouldNotCreateOrder() {
+        when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(cart));
+        when(stockReservationService.reserve(anyMap()))
+                .thenThrow(new PlentiException("Insufficient stock for product: Test Product"));
+
+        assertThrows(PlentiException.class,
+            () -> orderService.placeOrder(1L, "Test Address", null, 0.0));
+        verify(orderRepository, never()).save(any(Order.class));
+        verify(cartRepository, never()).save(any(Cart.class));
     }
 
     @Test
@@ -103,16 +131,77 @@ class OrderServiceTest {
     @Test
     void cancelOrder_WhenOrderIsPending_ShouldCancelSuccessfully() {
         order.setStatus(OrderStatus.PENDING);
-        order.getProductIds().add("1");
-        
+        order.getItems().add(new OrderItem(1L, 2, 100.0));
+
         when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
-        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(orderRepository.updateStatusIfIn(eq(1L), anyCollection(), eq(OrderStatus.CANCELLED))).thenReturn(1);
         when(orderRepository.save(any(Order.class))).thenReturn(order);
         when(mapper.toOrderDTO(order)).thenReturn(orderDTO);
 
         OrderDTO result = orderService.cancelOrder(1L);
 
         assertNotNull(result);
-        verify(notificationService, times(1)).sendOrderStatusUpdate(1L, OrderStatus.CANCELLED);
+        assertEquals(OrderStatus.CANCELLED, order.getStatus());
+        verify(stockReservationService).release(1L, List.of(1L));
+        verify(notificationOutbox, times(1)).orderStatusChanged(1L, OrderStatus.CANCELLED);
+        verify(riderPositionPublisher).untrackAfterCommit(1L);
+    }
+
+    @Test
+    void cancelOrder_WhenAlreadyCancelled_ShouldNotReleaseStockAgain() {
+        order.setStatus(OrderStatus.CANCELLED);
+        order.getItems().add(new OrderItem(1L, 2, 100.0));
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+
+        assertThrows(PlentiException.class, () -> orderService.cancelOrder(1L));
+
+        order.setStatus(OrderStatus.REFUNDED);
+        assertThrows(PlentiException.class, () -> orderService.cancelOrder(1L));
+        verify(stockReservationService, never()).release(anyLong(), anyCollection());
+        verify(notificationOutbox, never()).orderStatusChanged(anyLong(), any());
+    }
+
+    @Test
+    void cancelOrder_WhenAConcurrentCancelWins_ShouldNotReleaseStockAgain() {
+        order.setStatus(OrderStatus.PENDING);
+        order.getItems().add(new OrderItem(1L, 2, 100.0));
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.updateStatusIfIn(eq(1L), anyCollection(), eq(OrderStatus.CANCELLED))).thenReturn(0);
+
+        assertThrows(PlentiException.class, () -> orderService.cancelOrder(1L));
+
+        verify(stockReservationService, never()).release(anyLong(), anyCollection());
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    @Test
+    void assignRider_ShouldStartPushingTheRidersPosition() {
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.save(any(Order.class))).thenReturn(order);
+        when(mapper.toOrderDTO(order)).thenReturn(orderDTO);
+
+        orderService.assignRider(1L, "9", "Tunde");
+
+        assertEquals(OrderStatus.OUT_FOR_DELIVERY, order.getStatus());
+        verify(riderPositionPublisher).trackAfterCommit(1L, 9L);
+    }
+
+    @Test
+    void assignRider_WithNonNumericRiderId_ShouldThrowException() {
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+
+        assertThrows(PlentiException.class, () -> orderService.assignRider(1L, "rider-9", "Tunde"));
+        verify(orderRepository, never()).save(any());
+    }
+
+    @Test
+    void updateOrderStatus_WhenDelivered_ShouldStopPushingTheRidersPosition() {
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.save(any(Order.class))).thenReturn(order);
+        when(mapper.toOrderDTO(order)).thenReturn(orderDTO);
+
+        orderService.updateOrderStatus(1L, OrderStatus.DELIVERED);
+
+        verify(riderPositionPublisher).untrackAfterCommit(1L);
     }
 }
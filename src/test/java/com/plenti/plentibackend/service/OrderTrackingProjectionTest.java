@@ -0,0 +1,193 @@
+package com.plenti.plentibackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.plenti.plentibackend.dto.OrderTrackingDTO;
+import com.plenti.plentibackend.entity.Order;
+import com.plenti.plentibackend.entity.OrderStatus;
+import com.plenti.plentibackend.entity.OrderTracking;
+import com.plenti.plentibackend.entity.OrderTrackingView;
+import com.plenti.plentibackend.repository.OrderRepository;
+import com.plenti.plentibackend.repository.OrderTrackingRepository;
+import com.plenti.plentibackend.repository.OrderTrackingViewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderTrackingProjectionTest {
+
+    @Mock
+    private OrderTrackingViewRepository orderTrackingViewRepository;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private OrderTrackingRepository orderTrackingRepository;
+
+    @Mock
+    private RiderLocationIndex riderLocationIndex;
+
+    private OrderTrackingProjection projection;
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        projection = new OrderTrackingProjection(orderTrackingViewRepository, orderRepository, orderTrackingRepository,
+                riderLocationIndex, new ObjectMapper().findAndRegisterModules(), 100, 60_000);
+
+        order = new Order();
+        order.setId(1L);
+        order.setStatus(OrderStatus.PENDING);
+        order.setEstimatedDelivery(LocalDateTime.now().plusHours(1));
+    }
+
+    @Test
+    void record_ForNewOrder_ShouldCreateTheViewAndServeReadsFromCache() {
+        when(orderTrackingViewRepository.findById(1L)).thenReturn(Optional.empty());
+        when(orderTrackingRepository.findByOrderIdOrderByTimestampAsc(1L)).thenReturn(List.of());
+
+        projection.record(order, null, null);
+        OrderTrackingDTO tracking = projection.get(1L);
+
+        OrderTrackingView saved = savedView();
+        assertEquals(OrderStatus.PENDING, saved.getStatus());
+        assertEquals(order.getEstimatedDelivery(), saved.getEstimatedDelivery());
+        assertEquals(OrderStatus.PENDING, tracking.getStatus());
+        assertEquals(1, tracking.getTimeline().size());
+        assertEquals(OrderTrackingProjection.describe(OrderStatus.PENDING), tracking.getTimeline().get(0).description());
+        // Only the write read the view; the get was a cache hit
+        verify(orderTrackingViewRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void record_ShouldAppendStatusChangesWithTheRiderPosition() {
+        when(orderTrackingViewRepository.findById(1L)).thenReturn(Optional.of(existingView()));
+        when(riderLocationIndex.get(9L)).thenReturn(new RiderLocationIndex.RiderState(
+                9L, 6.5, 3.3, LocalDateTime.now(), false, 0L));
+        order.setStatus(OrderStatus.PROCESSING);
+        order.setRiderId("9");
+        order.setRiderName("Tunde");
+        LocalDateTime eta = LocalDateTime.now().plusMinutes(55);
+
+        OrderTrackingDTO tracking = projection.record(order, "Rider Tunde assigned to order", eta);
+
+        assertEquals(OrderStatus.PROCESSING, tracking.getStatus());
+        assertEquals("Tunde", tracking.getRiderName());
+        assertEquals(6.5, tracking.getRiderLatitude());
+        assertEquals(eta, tracking.getEstimatedDelivery());
+        assertEquals(2, tracking.getTimeline().size());
+        OrderTrackingDTO.Event event = tracking.getTimeline().get(1);
+        assertEquals("Rider Tunde assigned to order", event.message());
+        assertEquals(3.3, event.riderLongitude());
+    }
+
+    @Test
+    void record_WithoutMessageOrStatusChange_ShouldNotAddAnEvent() {
+        when(orderTrackingViewRepository.findById(1L)).thenReturn(Optional.of(existingView()));
+
+        OrderTrackingDTO tracking = projection.record(order, null, null);
+
+        assertEquals(1, tracking.getTimeline().size());
+    }
+
+    @Test
+    void record_ShouldKeepOnlyTheLatestEvents() {
+        when(orderTrackingViewRepository.findById(1L)).thenReturn(Optional.of(existingView()));
+
+        OrderTrackingDTO tracking = null;
+        for (int i = 0; i < OrderTrackingProjection.MAX_EVENTS + 5; i++) {
+            tracking = projection.record(order, "update " + i, null);
+        }
+
+        assertEquals(OrderTrackingProjection.MAX_EVENTS, tracking.getTimeline().size());
+        assertEquals("update " + (OrderTrackingProjection.MAX_EVENTS + 4),
+                tracking.getTimeline().get(OrderTrackingProjection.MAX_EVENTS - 1).message());
+    }
+
+    @Test
+    void get_ForOrderWithoutView_ShouldBuildFromTrackingHistoryOnce() {
+        order.setStatus(OrderStatus.CONFIRMED);
+        order.setStoreId(3L);
+        when(orderTrackingViewRepository.findById(1L)).thenReturn(Optional.empty());
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(orderTrackingRepository.findByOrderIdOrderByTimestampAsc(1L)).thenReturn(List.of(
+                tracking(OrderStatus.PENDING, "Order placed"),
+                tracking(OrderStatus.CONFIRMED, "Order confirmed and assigned to Ikeja")));
+
+        OrderTrackingDTO first = projection.get(1L);
+        OrderTrackingDTO second = projection.get(1L);
+
+        assertSame(first, second);
+        assertEquals(OrderStatus.CONFIRMED, first.getStatus());
+        assertEquals(3L, first.getStoreId());
+        assertEquals(2, first.getTimeline().size());
+        assertEquals(1L, projection.getStats().get("legacyReads"));
+        verify(orderRepository, times(1)).findById(1L);
+        verify(orderTrackingViewRepository, never()).save(any());
+    }
+
+    @Test
+    void recordAll_ShouldApplyChangesInOrderAndSaveTheViewsTogether() {
+        Order other = new Order();
+        other.setId(2L);
+        other.setStatus(OrderStatus.CONFIRMED);
+        other.setStoreId(3L);
+        when(orderTrackingViewRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(existingView()));
+        when(orderTrackingRepository.findByOrderIdOrderByTimestampAsc(2L)).thenReturn(List.of());
+        order.setStatus(OrderStatus.PROCESSING);
+        order.setStoreId(3L);
+        order.setRiderId("9");
+
+        projection.recordAll(List.of(
+                new OrderTrackingProjection.Change(order, OrderStatus.CONFIRMED, "Order confirmed", null),
+                new OrderTrackingProjection.Change(order, OrderStatus.PROCESSING, "Rider assigned", null),
+                new OrderTrackingProjection.Change(other, OrderStatus.CONFIRMED, "Order confirmed", null)));
+
+        OrderTrackingDTO tracking = projection.get(1L);
+        assertEquals(OrderStatus.PROCESSING, tracking.getStatus());
+        assertEquals(List.of(OrderStatus.PENDING, OrderStatus.CONFIRMED, OrderStatus.PROCESSING),
+                tracking.getTimeline().stream().map(OrderTrackingDTO.Event::status).toList());
+        assertEquals(OrderStatus.CONFIRMED, projection.get(2L).getStatus());
+        verify(orderTrackingViewRepository).saveAll(argThat(views -> ((List<?>) views).size() == 2));
+        verify(orderTrackingViewRepository, never()).findById(any());
+    }
+
+    private OrderTrackingView savedView() {
+        ArgumentCaptor<OrderTrackingView> view = ArgumentCaptor.forClass(OrderTrackingView.class);
+        verify(orderTrackingViewRepository).save(view.capture());
+        return view.getValue();
+    }
+
+    private OrderTrackingView existingView() {
+        OrderTrackingView view = new OrderTrackingView();
+        view.setOrderId(1L);
+        view.setStatus(OrderStatus.PENDING);
+        view.setEstimatedDelivery(order.getEstimatedDelivery());
+        view.setTimeline("[{\"status\":\"PENDING\",\"timestamp\":\"2025-01-01T10:00:00\"}]");
+        view.setUpdatedAt(LocalDateTime.now());
+        return view;
+    }
+
+    private static OrderTracking tracking(OrderStatus status, String message) {
+        OrderTracking tracking = new OrderTracking();
+        tracking.setOrderId(1L);
+        tracking.setStatus(status);
+        tracking.setStatusMessage(message);
+        tracking.setTimestamp(LocalDateTime.now());
+        return tracking;
+    }
+}
@@ -0,0 +1,157 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.exception.PlentiException;
+import com.plenti.plentibackend.repository.SearchHistoryRepository;
+import com.plenti.plentibackend.repository.SearchTermSnapshotRepository;
+import com.plenti.plentibackend.util.SpaceSavingSketch;
+import com.plenti.plentibackend.util.SpaceSavingSketch.Estimate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PopularSearchTermTrackerTest {
+
+    @Mock
+    private SearchTermSnapshotRepository snapshotRepository;
+
+    @Mock
+    private SearchHistoryRepository searchHistoryRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PopularSearchTermTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new PopularSearchTermTracker(snapshotRepository, searchHistoryRepository, jdbcTemplate,
+                transactionManager, true, 100, 48, 90, 0);
+    }
+
+    @Test
+    void topForDays_ShouldMergeDailyWindows() {
+        LocalDateTime now = LocalDateTime.now();
+        record("rice", now, 3);
+        record("milk", now, 2);
+        record("milk", now.minusDays(1), 4);
+        record("beans", now.minusDays(5), 10);
+
+        List<Estimate> top = tracker.topForDays(2, 20);
+
+        assertEquals(List.of("milk", "rice"), top.stream().map(Estimate::item).toList());
+        assertEquals(6, top.get(0).count());
+        assertEquals("rice", tracker.topForHours(1, 1).get(0).item());
+    }
+
+    @Test
+    void sketch_WhenFull_ShouldKeepHeavyHittersWithErrorBounds() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(2);
+        for (int i = 0; i < 5; i++) {
+            sketch.offer("rice");
+        }
+        sketch.offer("milk");
+        sketch.offer("yam");
+
+        List<Estimate> top = sketch.top(2);
+        assertEquals(new Estimate("rice", 5, 0), top.get(0));
+        assertEquals(new Estimate("yam", 2, 1), top.get(1));
+        assertEquals(7, sketch.total());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void load_WithoutSnapshots_ShouldSeedFromSearchHistoryAndPersistIt() {
+        when(snapshotRepository.findByGranularityAndWindowStartGreaterThanEqual(anyString(), any()))
+                .thenReturn(List.of());
+        when(searchHistoryRepository.countSearchTermsBetween(any(), any())).thenReturn(List.of());
+        LocalDateTime today = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS);
+        when(searchHistoryRepository.countSearchTermsBetween(today, today.plusDays(1)))
+                .thenReturn(List.<Object[]>of(new Object[]{"garri", 7L}));
+
+        tracker.load();
+        tracker.snapshot();
+
+        assertTrue(tracker.isReady());
+        assertEquals(new Estimate("garri", 7, 0), tracker.topForDays(1, 20).get(0));
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("GREATEST"), rows.capture());
+        assertEquals("DAILY", rows.getValue().get(0)[0]);
+        assertEquals(7L, rows.getValue().get(0)[3]);
+        // Seeded counts are not added again by the snapshot
+        verify(jdbcTemplate, never()).batchUpdate(contains("term_count + VALUES"), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void snapshot_ShouldAddOnlyTheCountsRecordedSinceTheLastOne() {
+        LocalDateTime now = LocalDateTime.now();
+        loadEmpty();
+        record("rice", now, 3);
+        tracker.snapshot();
+        record("rice", now, 2);
+        tracker.snapshot();
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(4)).batchUpdate(contains("term_count + VALUES"), rows.capture());
+        // Hourly and daily window of each snapshot
+        assertEquals(List.of(3L, 3L, 2L, 2L), rows.getAllValues().stream().map(batch -> batch.get(0)[3]).toList());
+        assertEquals(5, tracker.topForHours(1, 1).get(0).count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void snapshot_WhenWriteFails_ShouldAddTheCountsNextTime() {
+        LocalDateTime now = LocalDateTime.now();
+        loadEmpty();
+        when(jdbcTemplate.batchUpdate(contains("term_count + VALUES"), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("db down"))
+                .thenReturn(new int[]{1});
+        record("rice", now, 3);
+        tracker.snapshot();
+        record("rice", now, 1);
+        tracker.snapshot();
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(3)).batchUpdate(contains("term_count + VALUES"), rows.capture());
+        assertEquals(4L, rows.getAllValues().get(2).get(0)[3]);
+        assertEquals(1L, tracker.getStats().get("failedSnapshots"));
+    }
+
+    @Test
+    void topForDays_BeyondTheRetention_ShouldThrowException() {
+        assertThrows(PlentiException.class, () -> tracker.topForDays(91, 20));
+        assertThrows(PlentiException.class, () -> tracker.topForHours(49, 20));
+        assertThrows(PlentiException.class, () -> tracker.topForDays(0, 20));
+    }
+
+    private void loadEmpty() {
+        when(snapshotRepository.findByGranularityAndWindowStartGreaterThanEqual(anyString(), any()))
+                .thenReturn(List.of());
+        when(searchHistoryRepository.countSearchTermsBetween(any(), any())).thenReturn(List.of());
+        tracker.load();
+    }
+
+    private void record(String term, LocalDateTime at, int times) {
+        for (int i = 0; i < times; i++) {
+            tracker.record(term, at);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.dto.CursorPageDTO;
+import com.plenti.plentibackend.dto.ProductDTO;
+import com.plenti.plentibackend.entity.Product;
+import com.plenti.plentibackend.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Keyset pagination against a real (H2) database, where rows share sort keys
+ */
+@SpringBootTest
+class ProductPaginationTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void getProductsUpdatedPage_WithTiesAcrossPageBoundaries_ShouldReturnEveryRowOnce() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(productRepository.save(newProduct("Tied " + i)).getId());
+        }
+        // Older than anything else in the table, so these rows come first
+        LocalDateTime tied = LocalDateTime.of(2000, 1, 1, 12, 0, 0, 500_000_000);
+        for (Long id : ids) {
+            jdbcTemplate.update("UPDATE products SET last_updated = ? WHERE id = ?", Timestamp.valueOf(tied), id);
+        }
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPageDTO<ProductDTO> page = productService.getProductsUpdatedPage(cursor, 2);
+            page.getItems().forEach(product -> seen.add(product.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null && seen.size() < ids.size());
+
+        assertEquals(3, pages);
+        assertEquals(ids, seen.subList(0, ids.size()));
+    }
+
+    @Test
+    void getProductsPage_ShouldWalkTheIdsInOrderWithoutGapsOrRepeats() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(productRepository.save(newProduct("Paged " + i)).getId());
+        }
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = String.valueOf(ids.get(0) - 1);
+        CursorPageDTO<ProductDTO> page;
+        do {
+            page = productService.getProductsPage(cursor, 2);
+            page.getItems().forEach(product -> seen.add(product.getId()));
+            cursor = page.getNextCursor();
+        } while (page.isHasMore());
+
+        assertEquals(ids, seen.subList(0, ids.size()));
+        assertEquals(seen.stream().distinct().count(), seen.size());
+    }
+
+    private Product newProduct(String name) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(100.0);
+        product.setStock(10);
+        return product;
+    }
+}
@@ -0,0 +1,80 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.entity.Product;
+import com.plenti.plentibackend.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProductSearchIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex(productRepository, true, 2);
+        when(productRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class))).thenReturn(List.of(
+                product(1L, "Golden Penny Rice 5kg", "Grains", "Long grain parboiled rice", 40),
+                product(2L, "Indomie Chicken Noodles", "Noodles", "Instant noodles", 500)));
+        when(productRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), any(Pageable.class))).thenReturn(List.of(
+                product(3L, "Rice Cakes", "Snacks", "Crunchy puffed snacks", 5),
+                product(4L, "Peak Milk", "Dairy", "Evaporated milk, great with rice pudding", 80)));
+        when(productRepository.findByIdGreaterThanOrderByIdAsc(eq(4L), any(Pageable.class))).thenReturn(List.of());
+        index.rebuild();
+    }
+
+    @Test
+    void search_ShouldRankNameMatchesAboveDescriptionMatches() {
+        List<Long> results = index.search("rice", 10);
+
+        assertTrue(index.isReady());
+        assertEquals(3, results.size());
+        // Products 1 and 3 name "rice" (1 is more popular); 4 only mentions it in the description
+        assertEquals(List.of(1L, 3L, 4L), results);
+    }
+
+    @Test
+    void search_ShouldMatchPrefixesAndTypos() {
+        assertEquals(List.of(2L), index.search("indo", 10));
+        assertEquals(List.of(2L), index.search("nodles", 10));
+    }
+
+    @Test
+    void search_ShouldPreferProductsMatchingEveryTerm() {
+        assertEquals(1L, index.search("golden rice", 10).get(0));
+    }
+
+    @Test
+    void upsertAndRemove_ShouldUpdatePostings() {
+        index.upsert(product(2L, "Indomie Onion Noodles", "Noodles", "Instant noodles", 500));
+        assertEquals(List.of(2L), index.search("onion", 10));
+        assertTrue(index.search("chicken", 10).isEmpty());
+
+        index.remove(2L);
+        assertTrue(index.search("indomie", 10).isEmpty());
+    }
+
+    private Product product(Long id, String name, String category, String description, int reviews) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setCategory(category);
+        product.setDescription(description);
+        product.setReviewCount(reviews);
+        return product;
+    }
+}
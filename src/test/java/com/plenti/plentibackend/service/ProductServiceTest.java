@@ -1,20 +1,30 @@
 package com.plenti.plentibackend.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.plenti.plentibackend.dto.CursorPageDTO;
 import com.plenti.plentibackend.dto.ProductDTO;
 import com.plenti.plentibackend.entity.Product;
 import com.plenti.plentibackend.exception.PlentiException;
 import com.plenti.plentibackend.repository.ProductRepository;
 import com.plenti.plentibackend.util.Mapper;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -29,6 +39,15 @@ class ProductServiceTest {
     @Mock
     private Mapper mapper;
 
+    @Mock
+    private ProductCatalogSnapshot catalogSnapshot;
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private EntityManager entityManager;
+
     @InjectMocks
     private ProductService productService;
 
@@ -51,15 +70,32 @@ class ProductServiceTest {
     }
 
     @Test
-    void getAllProducts_ShouldReturnListOfProducts() {
-        when(productRepository.findAll()).thenReturn(Arrays.asList(product));
+    void getAllProducts_ShouldReturnTheFirstKeysetPageAtTheMaxSize() {
+        ReflectionTestUtils.setField(productService, "maxPageSize", 100);
+        when(productRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 101)))
+                .thenReturn(Arrays.asList(product));
         when(mapper.toProductDTO(product)).thenReturn(productDTO);
 
         List<ProductDTO> result = productService.getAllProducts();
 
         assertNotNull(result);
         assertEquals(1, result.size());
-        verify(productRepository, times(1)).findAll();
+        verify(productRepository, never()).findAll();
+    }
+
+    @Test
+    void getProductsByCategory_ShouldStopAtTheMaxPageSize() {
+        ReflectionTestUtils.setField(productService, "maxPageSize", 2);
+        List<Product> rows = List.of(product(1L, LocalDateTime.now()), product(2L, LocalDateTime.now()),
+                product(3L, LocalDateTime.now()));
+        when(productRepository.findByCategoryAndIdGreaterThanOrderByIdAsc("Food", 0L, PageRequest.of(0, 3)))
+                .thenReturn(rows);
+        when(productRepository.findByCategoryIdAndIdGreaterThanOrderByIdAsc(4L, 0L, PageRequest.of(0, 3)))
+                .thenReturn(rows);
+        when(mapper.toProductDTO(any(Product.class))).thenReturn(productDTO);
+
+        assertEquals(2, productService.getProductsByCategory("Food").size());
+        assertEquals(2, productService.getProductsByCategoryId(4L).size());
     }
 
     @Test
@@ -92,6 +128,7 @@ class ProductServiceTest {
         assertNotNull(result);
         assertEquals("Test Product", result.getName());
         verify(productRepository, times(1)).save(product);
+        verify(productSearchIndex, times(1)).refreshAfterCommit(product);
     }
 
     @Test
@@ -102,5 +139,89 @@ class ProductServiceTest {
 
         assertEquals(70, product.getStock());
         verify(productRepository, times(1)).save(product);
+        verify(catalogSnapshot, times(1)).invalidate(1L);
+    }
+
+    @Test
+    void getProductsUpdatedPage_ShouldResumeAfterTheLastRowOfThePreviousPage() {
+        ReflectionTestUtils.setField(productService, "defaultPageSize", 2);
+        ReflectionTestUtils.setField(productService, "maxPageSize", 100);
+        LocalDateTime updated = LocalDateTime.of(2026, 3, 1, 9, 30, 15, 123_000_000);
+        Product first = product(10L, updated);
+        Product second = product(11L, updated);
+        Product third = product(12L, updated);
+        when(mapper.toProductDTO(any(Product.class))).thenReturn(productDTO);
+        when(productRepository.findUpdatedAfter(LocalDateTime.of(1970, 1, 1, 0, 0), 0L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(first, second, third));
+        when(productRepository.findUpdatedAfter(updated, 11L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(third));
+
+        CursorPageDTO<ProductDTO> page = productService.getProductsUpdatedPage(null, null);
+        CursorPageDTO<ProductDTO> next = productService.getProductsUpdatedPage(page.getNextCursor(), null);
+
+        assertTrue(page.isHasMore());
+        assertEquals(2, page.getSize());
+        assertFalse(next.isHasMore());
+        assertNull(next.getNextCursor());
+        assertEquals(1, next.getSize());
+    }
+
+    @Test
+    void getProductsPages_WithMalformedCursor_ShouldThrowException() {
+        ReflectionTestUtils.setField(productService, "defaultPageSize", 20);
+        for (String cursor : List.of("%%%", encode("no-separator"), encode("2026-13-01T00:00|5"),
+                encode("2026-03-01T09:30|five"), encode("|5"))) {
+            assertThrows(PlentiException.class, () -> productService.getProductsUpdatedPage(cursor, null), cursor);
+        }
+        assertThrows(PlentiException.class, () -> productService.getProductsPage("abc", null));
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void getProductsPage_ShouldCapThePageSizeAndFetchOneExtraRow() {
+        ReflectionTestUtils.setField(productService, "maxPageSize", 100);
+        when(productRepository.findByIdGreaterThanOrderByIdAsc(5L, PageRequest.of(0, 101))).thenReturn(List.of(product));
+        when(mapper.toProductDTO(product)).thenReturn(productDTO);
+
+        CursorPageDTO<ProductDTO> page = productService.getProductsPage("5", 1000);
+
+        assertFalse(page.isHasMore());
+        assertNull(page.getNextCursor());
+        assertEquals(1, page.getItems().size());
+    }
+
+    @Test
+    void exportProducts_ShouldWriteOneJsonLinePerProductAndDetachIt() throws Exception {
+        ReflectionTestUtils.setField(productService, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        Product second = product(2L, LocalDateTime.now());
+        ProductDTO secondDTO = new ProductDTO();
+        secondDTO.setId(2L);
+        secondDTO.setName("Second Product");
+        when(productRepository.streamAllOrderById()).thenReturn(Stream.of(product, second));
+        when(mapper.toProductDTO(product)).thenReturn(productDTO);
+        when(mapper.toProductDTO(second)).thenReturn(secondDTO);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = productService.exportProducts(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, exported);
+        assertEquals(2, lines.length);
+        assertEquals("Test Product", new ObjectMapper().readTree(lines[0]).get("name").asText());
+        assertEquals(2L, new ObjectMapper().readTree(lines[1]).get("id").asLong());
+        verify(entityManager).detach(product);
+        verify(entityManager).detach(second);
+    }
+
+    private static Product product(Long id, LocalDateTime lastUpdated) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Product " + id);
+        product.setLastUpdated(lastUpdated);
+        return product;
+    }
+
+    private static String encode(String cursor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
     }
 }
@@ -0,0 +1,82 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.repository.SearchHistoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecentSearchCacheTest {
+
+    @Mock
+    private SearchHistoryRepository searchHistoryRepository;
+
+    private RecentSearchCache recentSearchCache;
+
+    @BeforeEach
+    void setUp() {
+        recentSearchCache = new RecentSearchCache(searchHistoryRepository, 3, 100, 60_000);
+    }
+
+    @Test
+    void getRecentSearches_ShouldPutTrackedTermsBeforeStoredOnesOnce() {
+        when(searchHistoryRepository.findRecentSearchTerms(1L, PageRequest.of(0, 15)))
+                .thenReturn(List.of("milk", "milk", "rice", "beans", "yam"));
+        recentSearchCache.record(1L, "rice");
+        recentSearchCache.record(1L, "garri");
+
+        assertEquals(List.of("garri", "rice", "milk"), recentSearchCache.getRecentSearches(1L, 3));
+        assertEquals(List.of("garri", "rice"), recentSearchCache.getRecentSearches(1L, 2));
+        verify(searchHistoryRepository, times(1)).findRecentSearchTerms(eq(1L), any());
+    }
+
+    @Test
+    void record_ShouldMoveRepeatedTermToFrontAndDropOldest() {
+        when(searchHistoryRepository.findRecentSearchTerms(eq(2L), any())).thenReturn(List.of());
+        recentSearchCache.record(2L, "rice");
+        recentSearchCache.record(2L, "milk");
+        recentSearchCache.record(2L, "beans");
+        recentSearchCache.record(2L, "rice");
+        recentSearchCache.record(2L, "yam");
+
+        assertEquals(List.of("yam", "rice", "beans"), recentSearchCache.getRecentSearches(2L, 3));
+    }
+
+    @Test
+    void getRecentSearches_BeyondRingSize_ShouldQueryWithLimit() {
+        when(searchHistoryRepository.findRecentSearchTerms(3L, PageRequest.of(0, 25)))
+                .thenReturn(List.of("rice", "rice", "milk", "beans", "yam", "garri", "eba"));
+
+        assertEquals(List.of("rice", "milk", "beans", "yam", "garri"), recentSearchCache.getRecentSearches(3L, 5));
+    }
+
+    @Test
+    void getRecentSearches_WhenAPageIsMostlyRepeats_ShouldReadFurtherBack() {
+        when(searchHistoryRepository.findRecentSearchTerms(4L, PageRequest.of(0, 15)))
+                .thenReturn(List.of("rice", "rice", "rice", "rice", "rice", "rice", "rice", "rice",
+                        "rice", "rice", "rice", "rice", "rice", "rice", "milk"));
+        when(searchHistoryRepository.findRecentSearchTerms(4L, PageRequest.of(1, 15)))
+                .thenReturn(List.of("milk", "beans", "yam"));
+
+        assertEquals(List.of("rice", "milk", "beans"), recentSearchCache.getRecentSearches(4L, 3));
+        verify(searchHistoryRepository, times(2)).findRecentSearchTerms(eq(4L), any());
+    }
+
+    @Test
+    void getRecentSearches_WhenHistoryRunsOut_ShouldStopAtTheShortPage() {
+        when(searchHistoryRepository.findRecentSearchTerms(5L, PageRequest.of(0, 25)))
+                .thenReturn(List.of("rice", "rice", "milk"));
+
+        assertEquals(List.of("rice", "milk"), recentSearchCache.getRecentSearches(5L, 5));
+        verify(searchHistoryRepository, times(1)).findRecentSearchTerms(eq(5L), any());
+    }
+}
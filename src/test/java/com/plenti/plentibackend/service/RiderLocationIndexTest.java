@@ -0,0 +1,164 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.entity.Rider;
+import com.plenti.plentibackend.repository.RiderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RiderLocationIndexTest {
+
+    private static final double RANGE_KM = 5.0;
+
+    private List<Rider> riders;
+    private RiderLocationIndex index;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(7);
+        riders = new ArrayList<>();
+        index = new RiderLocationIndex(null, 2.0);
+        for (long i = 1; i <= 500; i++) {
+            Rider rider = rider(i, 6.3 + random.nextDouble() * 0.5, 3.0 + random.nextDouble() * 0.8,
+                    i % 7 == 0 ? "BUSY" : "AVAILABLE", i % 11 != 0);
+            riders.add(rider);
+            index.sync(rider);
+        }
+    }
+
+    @Test
+    void findNearestAvailable_ShouldMatchFullScan() {
+        Random random = new Random(11);
+        for (int i = 0; i < 200; i++) {
+            double lat = 6.3 + random.nextDouble() * 0.5;
+            double lng = 3.0 + random.nextDouble() * 0.8;
+
+            List<Long> expected = riders.stream()
+                    .filter(rider -> rider.getIsActive() && "AVAILABLE".equals(rider.getStatus()))
+                    .filter(rider -> distance(lat, lng, rider) <= RANGE_KM)
+                    .sorted((a, b) -> Double.compare(distance(lat, lng, a), distance(lat, lng, b)))
+                    .limit(5)
+                    .map(Rider::getId)
+                    .toList();
+
+            List<Long> actual = index.findNearestAvailable(lat, lng, RANGE_KM, 5).stream()
+                    .map(RiderLocationIndex.Hit::riderId)
+                    .toList();
+
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void findNearestAvailable_ShouldReturnTheNearestKInsideTheRadiusOnly() {
+        index = new RiderLocationIndex(null, 2.0);
+        index.sync(rider(1L, 6.500, 3.300, "AVAILABLE", true));
+        index.sync(rider(2L, 6.510, 3.300, "AVAILABLE", true));
+        index.sync(rider(3L, 6.520, 3.300, "AVAILABLE", true));
+        // About 11 km north of the pickup point
+        index.sync(rider(4L, 6.600, 3.300, "AVAILABLE", true));
+
+        List<RiderLocationIndex.Hit> nearestTwo = index.findNearestAvailable(6.5, 3.3, 10.0, 2);
+        List<RiderLocationIndex.Hit> all = index.findNearestAvailable(6.5, 3.3, 10.0, 10);
+
+        assertEquals(List.of(1L, 2L), nearestTwo.stream().map(RiderLocationIndex.Hit::riderId).toList());
+        assertEquals(List.of(1L, 2L, 3L), all.stream().map(RiderLocationIndex.Hit::riderId).toList());
+        assertEquals(2.22, all.get(2).distanceKm(), 0.01);
+    }
+
+    @Test
+    void findNearestAvailable_ShouldFollowAvailabilityAndMoves() {
+        index = new RiderLocationIndex(null, 2.0);
+        index.sync(rider(1L, 6.5, 3.3, "AVAILABLE", true));
+        assertEquals(1, index.findNearestAvailable(6.5, 3.3, 1.0, 5).size());
+
+        index.updateAvailability(1L, false);
+        assertTrue(index.findNearestAvailable(6.5, 3.3, 1.0, 5).isEmpty());
+
+        index.updateAvailability(1L, true);
+        index.updatePosition(1L, 6.7, 3.3, LocalDateTime.now());
+        assertTrue(index.findNearestAvailable(6.5, 3.3, 1.0, 5).isEmpty());
+        assertEquals(1L, index.findNearestAvailable(6.7, 3.3, 1.0, 5).get(0).riderId());
+
+        index.sync(rider(1L, 6.7, 3.3, "AVAILABLE", false));
+        assertTrue(index.findNearestAvailable(6.7, 3.3, 1.0, 5).isEmpty());
+    }
+
+    @Test
+    void updatePosition_ShouldIgnoreOutOfOrderPings() {
+        LocalDateTime now = LocalDateTime.now();
+        index = new RiderLocationIndex(null, 2.0);
+        index.updateAvailability(1L, true);
+        index.updatePosition(1L, 6.5, 3.3, now);
+
+        index.updatePosition(1L, 6.7, 3.3, now.minusSeconds(5));
+
+        assertEquals(6.5, index.get(1L).latitude());
+        assertEquals(1, index.findNearestAvailable(6.5, 3.3, 1.0, 5).size());
+    }
+
+    @Test
+    void rebuild_ShouldKeepServingTheOldIndexAndKeepUpdatesMadeWhileLoading() {
+        RiderRepository riderRepository = mock(RiderRepository.class);
+        index = new RiderLocationIndex(riderRepository, 2.0);
+        index.sync(rider(1L, 6.5, 3.3, "AVAILABLE", true));
+        LocalDateTime loadedAt = LocalDateTime.now();
+        Rider stale = rider(1L, 6.5, 3.3, "AVAILABLE", true);
+        stale.setLastLocationUpdate(loadedAt);
+
+        when(riderRepository.findByIsActiveTrue()).thenAnswer(invocation -> {
+            // Queries mid-rebuild still see the old riders, not an emptied index
+            assertEquals(1, index.findNearestAvailable(6.5, 3.3, 1.0, 5).size());
+            index.updatePosition(1L, 6.7, 3.3, loadedAt.plusSeconds(5));
+            index.sync(rider(2L, 6.7, 3.3, "AVAILABLE", true));
+            return List.of(stale);
+        });
+
+        index.rebuild();
+
+        assertEquals(6.7, index.get(1L).latitude());
+        assertEquals(List.of(1L, 2L), index.findNearestAvailable(6.7, 3.3, 1.0, 5).stream()
+                .map(RiderLocationIndex.Hit::riderId).sorted().toList());
+        assertTrue(index.findNearestAvailable(6.5, 3.3, 1.0, 5).isEmpty());
+    }
+
+    @Test
+    void rebuild_ShouldKeepTheOldIndexWhenLoadingFails() {
+        RiderRepository riderRepository = mock(RiderRepository.class);
+        index = new RiderLocationIndex(riderRepository, 2.0);
+        index.sync(rider(1L, 6.5, 3.3, "AVAILABLE", true));
+        when(riderRepository.findByIsActiveTrue()).thenThrow(new IllegalStateException("db down"));
+
+        assertThrows(IllegalStateException.class, () -> index.rebuild());
+
+        assertEquals(1, index.findNearestAvailable(6.5, 3.3, 1.0, 5).size());
+    }
+
+    private static Rider rider(Long id, double lat, double lng, String status, boolean active) {
+        Rider rider = new Rider();
+        rider.setId(id);
+        rider.setName("Rider " + id);
+        rider.setCurrentLatitude(lat);
+        rider.setCurrentLongitude(lng);
+        rider.setStatus(status);
+        rider.setIsActive(active);
+        return rider;
+    }
+
+    private static double distance(double lat, double lng, Rider rider) {
+        double dLat = Math.toRadians(rider.getCurrentLatitude() - lat);
+        double dLon = Math.toRadians(rider.getCurrentLongitude() - lng);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat)) * Math.cos(Math.toRadians(rider.getCurrentLatitude()))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 6371.0 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
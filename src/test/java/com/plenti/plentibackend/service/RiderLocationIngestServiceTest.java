@@ -0,0 +1,95 @@
+package com.plenti.plentibackend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RiderLocationIngestServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private RiderLocationIngestService ingestService;
+
+    @BeforeEach
+    void setUp() {
+        ingestService = new RiderLocationIngestService(jdbcTemplate, transactionManager, 2, 100);
+    }
+
+    @Test
+    void flush_ShouldWriteEveryPingButMoveEachRiderOnceInOneBatch() {
+        ingestService = new RiderLocationIngestService(jdbcTemplate, transactionManager, 10, 100);
+        LocalDateTime now = LocalDateTime.now();
+        ingestService.submit(1L, 6.50, 3.30, now);
+        ingestService.submit(1L, 6.51, 3.31, now.plusSeconds(2));
+        ingestService.submit(2L, 6.60, 3.40, now);
+
+        ingestService.flush();
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).update(sql.capture(), args.capture());
+        assertTrue(sql.getValue().startsWith("INSERT INTO rider_locations"));
+        assertTrue(sql.getValue().endsWith("VALUES (?, ?, ?, ?), (?, ?, ?, ?), (?, ?, ?, ?)"));
+        assertEquals(12, args.getValue().length);
+        assertEquals(6.50, args.getValue()[1]);
+        assertEquals(6.51, args.getValue()[5]);
+        assertEquals(2L, args.getValue()[8]);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> riderRows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE riders"), riderRows.capture());
+        assertEquals(2, riderRows.getValue().size());
+        assertEquals(6.51, riderRows.getValue().get(0)[0]);
+        assertEquals(1L, riderRows.getValue().get(0)[3]);
+        assertEquals(0L, ingestService.getStats().get("coalesced"));
+        assertEquals(0, ingestService.getStats().get("pending"));
+        assertEquals(3L, ingestService.getStats().get("rowsWritten"));
+    }
+
+    @Test
+    void submit_WhenBufferFull_ShouldDropNewRidersButCoalesceBufferedOnes() {
+        LocalDateTime now = LocalDateTime.now();
+        assertTrue(ingestService.submit(1L, 6.50, 3.30, now));
+        assertTrue(ingestService.submit(2L, 6.60, 3.40, now));
+
+        assertTrue(ingestService.submit(2L, 6.61, 3.41, now.plusSeconds(1)));
+        assertEquals(1L, ingestService.getStats().get("coalesced"));
+        assertEquals(2, ingestService.getStats().get("pending"));
+
+        // A drop also requests a flush, so the buffer may be drained from here on
+        assertFalse(ingestService.submit(3L, 6.70, 3.50, now));
+        assertEquals(1L, ingestService.getStats().get("dropped"));
+    }
+
+    @Test
+    void flush_WhenWriteFails_ShouldKeepPingsBuffered() {
+        when(jdbcTemplate.update(startsWith("INSERT INTO rider_locations"), any(Object[].class)))
+                .thenThrow(new DataAccessResourceFailureException("db down"));
+        LocalDateTime now = LocalDateTime.now();
+        ingestService.submit(1L, 6.50, 3.30, now);
+        ingestService.submit(1L, 6.51, 3.31, now.plusSeconds(1));
+
+        ingestService.flush();
+
+        assertEquals(2, ingestService.getStats().get("pending"));
+        assertEquals(1L, ingestService.getStats().get("failedFlushes"));
+    }
+}
@@ -0,0 +1,156 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.dto.CursorPageDTO;
+import com.plenti.plentibackend.entity.RiderTrackPoint;
+import com.plenti.plentibackend.repository.RiderTrackPointRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compaction and purge of rider location history against a real (H2) database
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:retentiondb",
+    "rider.location.retention.chunk-size=25",
+    "rider.location.retention.purge-pause-ms=0",
+    "rider.location.retention.initial-delay-ms=3600000",
+    "rider.location.retention.commit-grace-ms=0"
+})
+class RiderLocationRetentionServiceTest {
+
+    private static final long OLD_RIDER = 101L;
+    private static final long RECENT_RIDER = 102L;
+
+    @Autowired
+    private RiderLocationRetentionService retentionService;
+
+    @Autowired
+    private RiderService riderService;
+
+    @Autowired
+    private RiderTrackPointRepository trackPointRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM rider_track_points");
+        jdbcTemplate.update("DELETE FROM rider_locations");
+        jdbcTemplate.update("DELETE FROM job_leases");
+        ReflectionTestUtils.setField(retentionService, "fence", null);
+    }
+
+    @Test
+    void compactAndPurge_ShouldDownsampleOldPingsAndKeepRecentOnes() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime start = now.minusDays(10);
+        List<Object[]> rows = new ArrayList<>();
+        // A rider crawling ~0.5 m per second for 10 minutes: only the time rule should keep points
+        for (int i = 0; i < 600; i++) {
+            rows.add(new Object[]{OLD_RIDER, 6.5 + i * 0.0000045, 3.3, Timestamp.valueOf(start.plusSeconds(i))});
+        }
+        for (int i = 0; i < 10; i++) {
+            rows.add(new Object[]{RECENT_RIDER, 6.6, 3.4, Timestamp.valueOf(now.minusSeconds(10 - i))});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO rider_locations (rider_id, latitude, longitude, timestamp) VALUES (?, ?, ?, ?)", rows);
+
+        long compacted = retentionService.compact(now.minusMinutes(2), maxLocationId());
+        assertEquals(600, compacted);
+
+        long oldPoints = trackPointRepository.findAll().stream()
+                .filter(point -> point.getRiderId() == OLD_RIDER)
+                .count();
+        // 10 points from the 60 s rule plus at most one forced point per chunk
+        assertTrue(oldPoints >= 10 && oldPoints <= 10 + 600 / 25, "kept " + oldPoints);
+        assertTrue(trackPointRepository.findAll().stream().noneMatch(point -> point.getRiderId() == RECENT_RIDER));
+
+        long purged = retentionService.purge(now.minusDays(7));
+        assertEquals(600, purged);
+        assertEquals(10, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM rider_locations", Integer.class));
+
+        CursorPageDTO<RiderTrackPoint> first = riderService.getRiderLocationHistory(OLD_RIDER, null, 5);
+        assertEquals(5, first.getSize());
+        assertTrue(first.isHasMore());
+        CursorPageDTO<RiderTrackPoint> second = riderService.getRiderLocationHistory(OLD_RIDER, first.getNextCursor(), 5);
+        assertTrue(second.getItems().get(0).getId() < first.getItems().get(4).getId());
+    }
+
+    @Test
+    void compact_ShouldStopAtMaxIdAndKeepOnePointPerRawRow() {
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        insertPings(OLD_RIDER, start, 10);
+        long fenceId = maxLocationId();
+        insertPings(OLD_RIDER, start.plusMinutes(10), 10);
+
+        long compacted = retentionService.compact(LocalDateTime.now(), fenceId);
+
+        assertEquals(10, compacted);
+        assertEquals(fenceId, trackPointRepository.findMaxSourceLocationId());
+        // Overlapping runs cannot write a raw row twice
+        assertThrows(DataIntegrityViolationException.class, () -> jdbcTemplate.update(
+                "INSERT INTO rider_track_points (rider_id, latitude, longitude, timestamp, source_location_id) "
+                        + "VALUES (?, ?, ?, ?, ?)", OLD_RIDER, 6.5, 3.3, Timestamp.valueOf(start), fenceId));
+    }
+
+    @Test
+    void runRetention_ShouldOnlyCompactUpToTheIdSeenOnThePreviousRun() {
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        insertPings(OLD_RIDER, start, 10);
+
+        // The first run only records how far the raw table reached
+        retentionService.runRetention();
+        assertEquals(0, trackPointRepository.count());
+
+        long fenceId = maxLocationId();
+        insertPings(OLD_RIDER, start.plusMinutes(10), 10);
+        retentionService.runRetention();
+
+        assertEquals(fenceId, trackPointRepository.findMaxSourceLocationId());
+    }
+
+    @Test
+    void runRetention_ShouldSkipWhileAnotherInstanceHoldsTheLease() {
+        insertPings(OLD_RIDER, LocalDateTime.now().minusDays(1), 10);
+        jdbcTemplate.update("INSERT INTO job_leases (name, owner, leased_until) VALUES (?, ?, ?)",
+                "rider-location-retention", "other-instance", Timestamp.valueOf(LocalDateTime.now().plusMinutes(5)));
+
+        retentionService.runRetention();
+        retentionService.runRetention();
+        assertEquals(0, trackPointRepository.count());
+
+        // Once the other instance's lease lapses this instance takes over
+        jdbcTemplate.update("UPDATE job_leases SET leased_until = ?", Timestamp.valueOf(LocalDateTime.now().minusSeconds(1)));
+        retentionService.runRetention();
+        retentionService.runRetention();
+        assertTrue(trackPointRepository.count() > 0);
+    }
+
+    private void insertPings(long riderId, LocalDateTime start, int count) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{riderId, 6.5 + i * 0.001, 3.3, Timestamp.valueOf(start.plusSeconds(i * 30L))});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO rider_locations (rider_id, latitude, longitude, timestamp) VALUES (?, ?, ?, ?)", rows);
+    }
+
+    private long maxLocationId() {
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM rider_locations", Long.class);
+    }
+}
@@ -0,0 +1,180 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RiderPositionPublisherTest {
+
+    private static final String TOPIC = "/topic/orders/5/location";
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private RiderLocationIndex riderLocationIndex;
+
+    @Test
+    void onPing_ForRiderWithoutActiveOrder_ShouldNotPush() {
+        RiderPositionPublisher publisher = publisher(0);
+
+        publisher.onPing(9L, 6.5, 3.3, LocalDateTime.now());
+        publisher.flush();
+
+        verifyNoInteractions(notificationService);
+        assertEquals(1L, publisher.getStats().get("ignoredPings"));
+    }
+
+    @Test
+    void flush_ShouldPushOnlyTheLatestOfCoalescedPingsAsKeyFrame() {
+        RiderPositionPublisher publisher = publisher(0);
+        publisher.track(5L, 9L);
+
+        publisher.onPing(9L, 6.500000, 3.300000, LocalDateTime.now());
+        publisher.onPing(9L, 6.500100, 3.300100, LocalDateTime.now());
+        publisher.onPing(9L, 6.500200, 3.300200, LocalDateTime.now());
+        publisher.flush();
+
+        Map<String, Object> message = sent(1).get(0);
+        assertEquals("key", message.get("type"));
+        assertEquals(1L, message.get("seq"));
+        assertEquals(6_500_200L, message.get("latE6"));
+        assertEquals(3_300_200L, message.get("lngE6"));
+        assertEquals(2L, publisher.getStats().get("coalescedPings"));
+    }
+
+    @Test
+    void flush_AfterKeyFrame_ShouldSendDeltasAndSuppressTinyMoves() {
+        RiderPositionPublisher publisher = publisher(0);
+        publisher.track(5L, 9L);
+        LocalDateTime start = LocalDateTime.now();
+
+        publisher.onPing(9L, 6.500000, 3.300000, start);
+        publisher.flush();
+        publisher.onPing(9L, 6.501000, 3.299500, start.plusSeconds(3));
+        publisher.flush();
+        // About 1 m further, below min-move-meters
+        publisher.onPing(9L, 6.501009, 3.299500, start.plusSeconds(6));
+        publisher.flush();
+
+        Map<String, Object> delta = sent(2).get(1);
+        assertEquals("delta", delta.get("type"));
+        assertEquals(2L, delta.get("seq"));
+        assertEquals(1_000L, delta.get("dLatE6"));
+        assertEquals(-500L, delta.get("dLngE6"));
+        assertEquals(3_000L, delta.get("dt"));
+        assertEquals(1L, publisher.getStats().get("suppressed"));
+    }
+
+    @Test
+    void flush_WithinMinInterval_ShouldHoldTheLatestPositionBack() {
+        RiderPositionPublisher publisher = publisher(60_000);
+        publisher.track(5L, 9L);
+
+        publisher.onPing(9L, 6.5, 3.3, LocalDateTime.now());
+        publisher.flush();
+        publisher.onPing(9L, 6.6, 3.4, LocalDateTime.now());
+        publisher.flush();
+
+        sent(1);
+        assertEquals(1, publisher.getStats().get("pending"));
+    }
+
+    @Test
+    void onSubscribe_ShouldSendAKeyFrameFromTheLastKnownPosition() {
+        RiderPositionPublisher publisher = publisher(0);
+        publisher.track(5L, 9L);
+        publisher.onPing(9L, 6.5, 3.3, LocalDateTime.now());
+        publisher.flush();
+        when(riderLocationIndex.get(9L)).thenReturn(new RiderLocationIndex.RiderState(
+                9L, 6.5, 3.3, LocalDateTime.now(), false, 0L));
+
+        publisher.onSubscribe(new SessionSubscribeEvent(this, subscribeMessage(TOPIC)));
+        publisher.flush();
+
+        Map<String, Object> message = sent(2).get(1);
+        assertEquals("key", message.get("type"));
+        assertEquals(2L, message.get("seq"));
+    }
+
+    @Test
+    void refresh_ShouldTrackActiveAssignmentsAndDropFinishedOnes() {
+        RiderPositionPublisher publisher = publisher(0);
+        publisher.track(4L, 8L);
+        when(orderRepository.findRiderAssignments(RiderPositionPublisher.ACTIVE_STATUSES))
+                .thenReturn(List.<Object[]>of(new Object[]{5L, "9"}));
+
+        publisher.refresh();
+        publisher.onPing(8L, 6.5, 3.3, LocalDateTime.now());
+        publisher.onPing(9L, 6.5, 3.3, LocalDateTime.now());
+        publisher.flush();
+
+        verify(notificationService).sendNotification(eq(TOPIC), any());
+        verifyNoMoreInteractions(notificationService);
+        assertEquals(1, publisher.getStats().get("trackedOrders"));
+    }
+
+    @Test
+    void flush_InRelayMode_ShouldOnlySendKeyFrames() {
+        RiderPositionPublisher publisher = publisher(0, "relay");
+        publisher.track(5L, 9L);
+
+        publisher.onPing(9L, 6.500000, 3.300000, LocalDateTime.now());
+        publisher.flush();
+        publisher.onPing(9L, 6.501000, 3.301000, LocalDateTime.now());
+        publisher.flush();
+        // Standing still is still suppressed
+        publisher.onPing(9L, 6.501000, 3.301000, LocalDateTime.now());
+        publisher.flush();
+
+        List<Map<String, Object>> messages = sent(2);
+        assertEquals("key", messages.get(1).get("type"));
+        assertEquals(6_501_000L, messages.get(1).get("latE6"));
+        assertEquals(2L, publisher.getStats().get("keyframes"));
+        assertEquals(1L, publisher.getStats().get("suppressed"));
+    }
+
+    private RiderPositionPublisher publisher(long minIntervalMs) {
+        return publisher(minIntervalMs, "simple");
+    }
+
+    private RiderPositionPublisher publisher(long minIntervalMs, String brokerMode) {
+        return new RiderPositionPublisher(notificationService, orderRepository, riderLocationIndex,
+                true, minIntervalMs, 5, 30_000, brokerMode);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> sent(int count) {
+        ArgumentCaptor<Object> messages = ArgumentCaptor.forClass(Object.class);
+        verify(notificationService, times(count)).sendNotification(eq(TOPIC), messages.capture());
+        return messages.getAllValues().stream().map(message -> (Map<String, Object>) message).toList();
+    }
+
+    private static Message<byte[]> subscribeMessage(String destination) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        headers.setSessionId("s1");
+        headers.setSubscriptionId("sub-0");
+        headers.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], headers.getMessageHeaders());
+    }
+}
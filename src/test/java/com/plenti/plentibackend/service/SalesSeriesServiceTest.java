@@ -0,0 +1,188 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.dto.SalesSeriesDTO;
+import com.plenti.plentibackend.entity.Order;
+import com.plenti.plentibackend.entity.OrderItem;
+import com.plenti.plentibackend.entity.OrderStatus;
+import com.plenti.plentibackend.entity.Product;
+import com.plenti.plentibackend.entity.SalesBucket;
+import com.plenti.plentibackend.exception.PlentiException;
+import com.plenti.plentibackend.repository.OrderRepository;
+import com.plenti.plentibackend.repository.ProductRepository;
+import com.plenti.plentibackend.repository.SalesBucketRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SalesSeriesServiceTest {
+
+    private static final LocalDateTime ORDER_DATE = LocalDateTime.of(2024, 3, 6, 14, 25);
+
+    @Mock
+    private SalesBucketRepository salesBucketRepository;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private JobLeaseService jobLeaseService;
+
+    private SalesSeriesService salesSeriesService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        // The state row exists and no rebuild has run yet
+        lenient().when(jdbcTemplate.query(startsWith("SELECT rebuilt_at FROM sales_series_state"), any(RowMapper.class)))
+                .thenReturn(Collections.singletonList(null));
+        salesSeriesService = new SalesSeriesService(salesBucketRepository, orderRepository, productRepository,
+                jdbcTemplate, transactionManager, entityManager, jobLeaseService, 2, 100);
+    }
+
+    @Test
+    void flush_ShouldSplitRevenueAcrossCategoriesByLineTotals() {
+        when(productRepository.findAllById(anyCollection()))
+                .thenReturn(List.of(product(1L, 10L), product(2L, 20L)));
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(1);
+        salesSeriesService.recordSale(ORDER_DATE, 3L,
+                List.of(new OrderItem(1L, 1, 300.0), new OrderItem(2L, 2, 50.0)), 1000.0, 1);
+
+        salesSeriesService.flush();
+
+        LocalDateTime hour = LocalDateTime.of(2024, 3, 6, 14, 0);
+        verify(jdbcTemplate).update(startsWith("UPDATE sales_buckets"), eq(1L), eq(1000.0), eq("HOUR"), eq("ALL"), eq("all"), eq(hour));
+        verify(jdbcTemplate).update(startsWith("UPDATE sales_buckets"), eq(1L), eq(1000.0), eq("DAY"), eq("STORE"), eq("3"), eq(hour.withHour(0)));
+        verify(jdbcTemplate).update(startsWith("UPDATE sales_buckets"), eq(1L), eq(750.0), eq("HOUR"), eq("CATEGORY"), eq("10"), eq(hour));
+        verify(jdbcTemplate).update(startsWith("UPDATE sales_buckets"), eq(1L), eq(250.0), eq("HOUR"), eq("CATEGORY"), eq("20"), eq(hour));
+        // 2 granularities x (all + store + 2 categories)
+        verify(jdbcTemplate, times(8)).update(startsWith("UPDATE sales_buckets"), any(Object[].class));
+    }
+
+    @Test
+    void getSeries_ShouldSumDayBucketsIntoWeeks() {
+        LocalDateTime monday = LocalDateTime.of(2024, 3, 4, 0, 0);
+        when(salesBucketRepository.findRange(eq("DAY"), eq("ALL"), isNull(), eq(monday), any()))
+                .thenReturn(List.of(
+                        bucket(monday, 2, 100.0),
+                        bucket(monday.plusDays(3), 3, 400.0),
+                        bucket(monday.plusDays(7), 1, 50.0)));
+
+        SalesSeriesDTO series = salesSeriesService.getSeries(ORDER_DATE, monday.plusDays(14), "week", null, null);
+
+        assertEquals(2, series.getPoints().size());
+        SalesSeriesDTO.Point first = series.getPoints().get(0);
+        assertEquals(monday, first.getBucketStart());
+        assertEquals(5, first.getOrderCount());
+        assertEquals(100.0, first.getAverageOrderValue());
+    }
+
+    @Test
+    void getSeries_ShouldRejectTooManyBuckets() {
+        assertThrows(PlentiException.class, () -> salesSeriesService.getSeries(
+                ORDER_DATE.minusDays(30), ORDER_DATE, "hour", "all", null));
+        assertThrows(PlentiException.class, () -> salesSeriesService.getSeries(
+                ORDER_DATE, ORDER_DATE.minusDays(1), "day", "all", null));
+    }
+
+    @Test
+    void runBackfill_ShouldReplayDeliveredOrdersInKeysetPages() {
+        when(orderRepository.findByStatusAndIdGreaterThanOrderByIdAsc(eq(OrderStatus.DELIVERED), eq(0L), any()))
+                .thenReturn(List.of(order(1L), order(2L)));
+        when(orderRepository.findByStatusAndIdGreaterThanOrderByIdAsc(eq(OrderStatus.DELIVERED), eq(2L), any()))
+                .thenReturn(List.of(order(5L)));
+        when(orderRepository.findByStatusAndIdGreaterThanOrderByIdAsc(eq(OrderStatus.DELIVERED), eq(5L), any()))
+                .thenReturn(List.of());
+        when(jdbcTemplate.update("DELETE FROM sales_buckets")).thenReturn(0);
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(1);
+
+        salesSeriesService.runBackfill();
+
+        verify(jdbcTemplate).update("DELETE FROM sales_buckets");
+        verify(jdbcTemplate).update(startsWith("UPDATE sales_series_state SET rebuilt_at"), any(Object[].class));
+        verify(jdbcTemplate).update(startsWith("UPDATE sales_buckets"), eq(3L), eq(1500.0), eq("DAY"), eq("ALL"), eq("all"), any());
+        verify(entityManager, times(2)).clear();
+        assertEquals(3L, salesSeriesService.getStats().get("backfillOrders"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_ShouldDropSalesTheLastRebuildAlreadyCounted() {
+        salesSeriesService.recordSale(ORDER_DATE, 3L, List.of(), 1000.0, 1);
+        LocalDateTime rebuiltAt = LocalDateTime.now().plusSeconds(1);
+        when(jdbcTemplate.query(startsWith("SELECT rebuilt_at FROM sales_series_state"), any(RowMapper.class)))
+                .thenReturn(List.of(Timestamp.valueOf(rebuiltAt)));
+
+        salesSeriesService.flush();
+
+        verify(jdbcTemplate, never()).update(startsWith("UPDATE sales_buckets"), any(Object[].class));
+        assertEquals(0, salesSeriesService.getStats().get("pending"));
+    }
+
+    @Test
+    void scheduledRebuild_ShouldSkipWhenAnotherInstanceHoldsTheLease() {
+        when(jobLeaseService.tryAcquire(eq("sales-series-rebuild"), any())).thenReturn(false);
+
+        salesSeriesService.scheduledRebuild();
+
+        assertEquals(false, salesSeriesService.getStats().get("backfillRunning"));
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    void categoryShares_WithoutPrices_ShouldSplitEvenly() {
+        Map<String, Double> shares = SalesSeriesService.categoryShares(
+                List.of(new OrderItem(1L, 1, 0.0), new OrderItem(2L, 4, 0.0), new OrderItem(3L, 1, 0.0)),
+                Map.of(1L, product(1L, 10L), 2L, product(2L, 20L)));
+
+        assertEquals(Map.of("10", 1.0 / 3, "20", 1.0 / 3, "none", 1.0 / 3), shares);
+    }
+
+    private Product product(Long id, Long categoryId) {
+        Product product = new Product();
+        product.setId(id);
+        product.setCategoryId(categoryId);
+        return product;
+    }
+
+    private SalesBucket bucket(LocalDateTime start, long orders, double revenue) {
+        return new SalesBucket(null, "DAY", start, "ALL", "all", orders, revenue);
+    }
+
+    private Order order(Long id) {
+        Order order = new Order();
+        order.setId(id);
+        order.setOrderDate(ORDER_DATE);
+        order.setTotalAmount(500.0);
+        order.setStatus(OrderStatus.DELIVERED);
+        return order;
+    }
+}
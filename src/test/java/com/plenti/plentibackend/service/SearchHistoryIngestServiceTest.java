@@ -0,0 +1,72 @@
+package com.plenti.plentibackend.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SearchHistoryIngestServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_ShouldInsertBufferedSearchesInOneBatch() {
+        SearchHistoryIngestService ingestService = new SearchHistoryIngestService(jdbcTemplate, transactionManager, 100, 100, 100, 10);
+        ingestService.submit(1L, "rice", 15);
+        ingestService.submit(null, "milk", 3);
+
+        ingestService.flush();
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO search_history"), rows.capture());
+        assertEquals(2, rows.getValue().size());
+        assertEquals("rice", rows.getValue().get(0)[1]);
+        assertNull(rows.getValue().get(1)[0]);
+        assertEquals(0, ingestService.getStats().get("pending"));
+        assertEquals(2L, ingestService.getStats().get("rowsWritten"));
+    }
+
+    @Test
+    void submit_PastSampleThreshold_ShouldOnlySampleAnonymousSearches() {
+        // A sample rate this high keeps practically no anonymous search
+        SearchHistoryIngestService ingestService = new SearchHistoryIngestService(jdbcTemplate, transactionManager, 3, 100, 1, Integer.MAX_VALUE);
+        assertTrue(ingestService.submit(null, "rice", 15));
+
+        assertFalse(ingestService.submit(null, "milk", 3));
+        assertTrue(ingestService.submit(1L, "milk", 3));
+        assertTrue(ingestService.submit(2L, "beans", 8));
+        assertFalse(ingestService.submit(3L, "yam", 2));
+
+        assertEquals(1L, ingestService.getStats().get("sampledOut"));
+        assertEquals(1L, ingestService.getStats().get("dropped"));
+    }
+
+    @Test
+    void flush_WhenWriteFails_ShouldKeepSearchesBuffered() {
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO search_history"), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("db down"));
+        SearchHistoryIngestService ingestService = new SearchHistoryIngestService(jdbcTemplate, transactionManager, 100, 100, 100, 10);
+        ingestService.submit(1L, "rice", 15);
+
+        ingestService.flush();
+
+        assertEquals(1, ingestService.getStats().get("pending"));
+        assertEquals(1L, ingestService.getStats().get("failedFlushes"));
+    }
+}
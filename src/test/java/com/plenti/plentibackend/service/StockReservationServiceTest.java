@@ -0,0 +1,178 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.entity.Order;
+import com.plenti.plentibackend.entity.OrderItem;
+import com.plenti.plentibackend.entity.Product;
+import com.plenti.plentibackend.exception.PlentiException;
+import com.plenti.plentibackend.repository.OrderRepository;
+import com.plenti.plentibackend.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Concurrency test for set-based stock reservation against a real (H2) database
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:stockdb;LOCK_TIMEOUT=10000",
+    "spring.datasource.hikari.maximum-pool-size=20"
+})
+class StockReservationServiceTest {
+
+    private static final int INITIAL_STOCK = 50;
+    private static final int CHECKOUTS = 200;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @SpyBean
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Test
+    void reserve_UnderParallelCheckouts_ShouldNeverOversell() throws Exception {
+        Product product = productRepository.save(newProduct("Contended SKU", INITIAL_STOCK));
+        Long productId = product.getId();
+
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < CHECKOUTS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    stockReservationService.reserve(Map.of(productId, 1));
+                    reserved.incrementAndGet();
+                } catch (PlentiException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(INITIAL_STOCK, reserved.get());
+        assertEquals(CHECKOUTS - INITIAL_STOCK, rejected.get());
+        assertEquals(0, productRepository.findById(productId).orElseThrow().getStock());
+    }
+
+    @Test
+    void reserve_WhenAnyLineFallsShort_ShouldRollBackEveryLine() {
+        Product plenty = productRepository.save(newProduct("Plenty", 10));
+        Product scarce = productRepository.save(newProduct("Scarce", 1));
+
+        assertThrows(PlentiException.class, () -> stockReservationService.reserve(
+                Map.of(plenty.getId(), 3, scarce.getId(), 2)));
+
+        assertEquals(10, productRepository.findById(plenty.getId()).orElseThrow().getStock());
+        assertEquals(1, productRepository.findById(scarce.getId()).orElseThrow().getStock());
+    }
+
+    @Test
+    void reserve_WhenARowInTheMiddleOfTheBatchFallsShort_ShouldLeaveEveryStockUnchanged() {
+        List<Product> saved = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            saved.add(productRepository.save(newProduct("Batch " + i, i == 2 ? 1 : 10)));
+        }
+        Map<Long, Integer> items = new LinkedHashMap<>();
+        saved.forEach(product -> items.put(product.getId(), 2));
+        // A stale snapshot passes the fail-fast check, so the shortfall only shows up in the batch
+        doAnswer(invocation -> saved.stream().map(product -> {
+            Product stale = newProduct(product.getName(), 10);
+            stale.setId(product.getId());
+            return stale;
+        }).toList()).when(productRepository).findAllById(any());
+
+        PlentiException error = assertThrows(PlentiException.class, () -> stockReservationService.reserve(items));
+
+        assertEquals("Insufficient stock for product: Batch 2", error.getMessage());
+        for (Product product : saved) {
+            assertEquals(product.getStock(), productRepository.findById(product.getId()).orElseThrow().getStock());
+        }
+    }
+
+    @Test
+    void release_ShouldPutBackTheOrderedQuantities() {
+        Product first = productRepository.save(newProduct("First", 5));
+        Product second = productRepository.save(newProduct("Second", 0));
+        Order order = new Order();
+        order.setUserId(1L);
+        order.setTotalAmount(500.0);
+        order.setItems(new ArrayList<>(List.of(
+                new OrderItem(first.getId(), 3, 100.0),
+                new OrderItem(second.getId(), 2, 100.0))));
+        Long orderId = orderRepository.save(order).getId();
+
+        int updated = stockReservationService.release(orderId, List.of(first.getId(), second.getId()));
+
+        assertEquals(2, updated);
+        assertEquals(8, productRepository.findById(first.getId()).orElseThrow().getStock());
+        assertEquals(2, productRepository.findById(second.getId()).orElseThrow().getStock());
+    }
+
+    @Test
+    void reserveAndRelease_ShouldShowUpInTheUpdatedProductsFeed() {
+        Product product = productRepository.save(newProduct("Fed", 5));
+        LocalDateTime saved = productRepository.findById(product.getId()).orElseThrow().getLastUpdated();
+        Order order = new Order();
+        order.setUserId(1L);
+        order.setTotalAmount(200.0);
+        order.setItems(new ArrayList<>(List.of(new OrderItem(product.getId(), 2, 100.0))));
+        Long orderId = orderRepository.save(order).getId();
+
+        stockReservationService.reserve(Map.of(product.getId(), 2));
+
+        LocalDateTime reserved = productRepository.findById(product.getId()).orElseThrow().getLastUpdated();
+        assertTrue(reserved.isAfter(saved));
+        assertTrue(feedAfter(saved).contains(product.getId()));
+
+        stockReservationService.release(orderId, List.of(product.getId()));
+
+        assertTrue(feedAfter(reserved).contains(product.getId()));
+        assertEquals(5, productRepository.findById(product.getId()).orElseThrow().getStock());
+    }
+
+    private List<Long> feedAfter(LocalDateTime updatedAfter) {
+        return productRepository.findUpdatedAfter(updatedAfter, Long.MAX_VALUE, PageRequest.of(0, 100)).stream()
+                .map(Product::getId)
+                .toList();
+    }
+
+    private Product newProduct(String name, int stock) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(100.0);
+        product.setStock(stock);
+        return product;
+    }
+}
@@ -0,0 +1,91 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.entity.Store;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StoreSpatialIndexTest {
+
+    private static final double RANGE_KM = 15.0;
+
+    private List<Store> stores;
+    private StoreSpatialIndex index;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(7);
+        stores = new ArrayList<>();
+        for (long i = 1; i <= 500; i++) {
+            stores.add(store(i, 6.3 + random.nextDouble() * 0.5, 3.0 + random.nextDouble() * 0.8, i % 10 != 0));
+        }
+        index = new StoreSpatialIndex(null, 5.0);
+        index.rebuild(stores);
+    }
+
+    @Test
+    void findWithinRange_ShouldMatchFullScan() {
+        Random random = new Random(11);
+        for (int i = 0; i < 200; i++) {
+            double lat = 6.3 + random.nextDouble() * 0.5;
+            double lng = 3.0 + random.nextDouble() * 0.8;
+
+            List<Long> expected = stores.stream()
+                    .filter(store -> Boolean.TRUE.equals(store.getActive()))
+                    .filter(store -> haversine(lat, lng, store.getLatitude(), store.getLongitude()) <= RANGE_KM)
+                    .sorted((a, b) -> Double.compare(
+                            haversine(lat, lng, a.getLatitude(), a.getLongitude()),
+                            haversine(lat, lng, b.getLatitude(), b.getLongitude())))
+                    .map(Store::getId)
+                    .toList();
+
+            List<Long> actual = index.findWithinRange(lat, lng, RANGE_KM).stream()
+                    .map(hit -> hit.store().getId())
+                    .toList();
+
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void upsertAndRemove_ShouldUpdateLookups() {
+        Store remote = store(9999L, 9.05, 7.49, true);
+        assertNull(index.findNearest(9.05, 7.49, RANGE_KM));
+
+        index.upsert(remote);
+        assertEquals(9999L, index.findNearest(9.05, 7.49, RANGE_KM).store().getId());
+
+        remote.setActive(false);
+        index.upsert(remote);
+        assertNull(index.findNearest(9.05, 7.49, RANGE_KM));
+
+        remote.setActive(true);
+        index.upsert(remote);
+        index.remove(9999L);
+        assertNull(index.findNearest(9.05, 7.49, RANGE_KM));
+    }
+
+    private Store store(Long id, double lat, double lng, boolean active) {
+        Store store = new Store();
+        store.setId(id);
+        store.setName("Store " + id);
+        store.setLatitude(lat);
+        store.setLongitude(lng);
+        store.setActive(active);
+        return store;
+    }
+
+    private static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 6371.0 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
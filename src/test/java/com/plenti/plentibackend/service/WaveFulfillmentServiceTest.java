@@ -0,0 +1,237 @@
+package com.plenti.plentibackend.service;
+
+import com.plenti.plentibackend.entity.Order;
+import com.plenti.plentibackend.entity.OrderStatus;
+import com.plenti.plentibackend.entity.Rider;
+import com.plenti.plentibackend.entity.Store;
+import com.plenti.plentibackend.exception.PlentiException;
+import com.plenti.plentibackend.repository.OrderRepository;
+import com.plenti.plentibackend.repository.RiderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WaveFulfillmentServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private RiderRepository riderRepository;
+
+    @Mock
+    private StoreSpatialIndex storeSpatialIndex;
+
+    @Mock
+    private RiderLocationIndex riderLocationIndex;
+
+    @Mock
+    private FulfillmentService fulfillmentService;
+
+    @Mock
+    private OrderRollupService orderRollupService;
+
+    @Mock
+    private OrderTrackingProjection orderTrackingProjection;
+
+    @Mock
+    private NotificationOutbox notificationOutbox;
+
+    @Mock
+    private RiderPositionPublisher riderPositionPublisher;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final Store ikeja = store(1L, 6.60, 3.35);
+    private final Store lekki = store(2L, 6.45, 3.50);
+    private final Order first = order(10L, "Ikeja");
+    private final Order second = order(11L, "Lekki");
+
+    @BeforeEach
+    void setUp() {
+        when(orderRepository.findByStatusAndIdGreaterThanOrderByIdAsc(eq(OrderStatus.PENDING), eq(0L), any()))
+                .thenReturn(List.of(first, second));
+        when(fulfillmentService.extractCoordinatesFromAddress("Ikeja")).thenReturn(new double[]{6.60, 3.35});
+        when(fulfillmentService.extractCoordinatesFromAddress("Lekki")).thenReturn(new double[]{6.45, 3.50});
+        when(storeSpatialIndex.findNearest(eq(6.60), eq(3.35), anyDouble())).thenReturn(new StoreSpatialIndex.Hit(ikeja, 0.1));
+        when(storeSpatialIndex.findNearest(eq(6.45), eq(3.50), anyDouble())).thenReturn(new StoreSpatialIndex.Hit(lekki, 0.2));
+        // Rider 7 is closest to Ikeja but also the only one that reaches Lekki
+        when(riderLocationIndex.findNearestAvailable(eq(6.60), eq(3.35), eq(10.0), anyInt()))
+                .thenReturn(List.of(hit(7L, 1.0), hit(8L, 3.0)));
+        when(riderLocationIndex.findNearestAvailable(eq(6.45), eq(3.50), eq(10.0), anyInt()))
+                .thenReturn(List.of(hit(7L, 2.0)));
+        when(riderRepository.findAllById(any())).thenReturn(List.of(rider(7L, "Tunde"), rider(8L, "Ada")));
+    }
+
+    @Test
+    void runWave_ShouldMatchRidersAcrossTheWholeWaveAndCommitInBatches() {
+        WaveFulfillmentService service = service("hungarian");
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> updated(invocation.getArgument(1)));
+
+        Map<String, Object> report = service.runWave();
+
+        assertEquals(2, report.get("confirmed"));
+        assertEquals(2, report.get("ridersAssigned"));
+        assertEquals(5.0, report.get("totalPickupKm"));
+        assertEquals("8", first.getRiderId());
+        assertEquals("7", second.getRiderId());
+        assertEquals(OrderStatus.PROCESSING, first.getStatus());
+        assertEquals(2L, second.getStoreId());
+        verify(orderRollupService).recordTransition(first, OrderStatus.PENDING);
+        verify(orderRollupService).recordTransition(second, OrderStatus.PENDING);
+        verify(riderLocationIndex).updateAvailabilityAfterCommit(7L, false);
+        verify(riderPositionPublisher).trackAfterCommit(11L, 7L);
+        verify(notificationOutbox).publish(eq(10L), eq("/topic/riders/8"), anyMap());
+
+        ArgumentCaptor<List<OrderTrackingProjection.Change>> changes = changesCaptor();
+        verify(orderTrackingProjection).recordAll(changes.capture());
+        assertEquals(4, changes.getValue().size());
+        // A confirmed and a rider-assigned row per order
+        assertEquals(4, batch("INSERT INTO order_tracking").size());
+    }
+
+    @Test
+    void runWave_WithGreedyMatching_ShouldGiveTheSharedRiderToTheCheapestPair() {
+        WaveFulfillmentService service = service("greedy");
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> updated(invocation.getArgument(1)));
+
+        Map<String, Object> report = service.runWave();
+
+        assertEquals(2, report.get("confirmed"));
+        assertEquals(1, report.get("ridersAssigned"));
+        assertEquals(1, report.get("noRider"));
+        assertEquals("7", first.getRiderId());
+        assertEquals(OrderStatus.CONFIRMED, second.getStatus());
+        assertNull(second.getRiderId());
+    }
+
+    @Test
+    void runWave_ShouldSkipRidersAndOrdersTakenMeanwhile() {
+        WaveFulfillmentService service = service("hungarian");
+        // Rider 7 became busy; order 10 was fulfilled by another request
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE riders SET status = 'BUSY'"), anyList()))
+                .thenReturn(new int[]{0, 1});
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE orders"), anyList())).thenReturn(new int[]{0, 1});
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE riders SET status = 'AVAILABLE'"), anyList()))
+                .thenReturn(new int[]{1});
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO order_tracking"), anyList())).thenReturn(new int[]{1});
+
+        Map<String, Object> report = service.runWave();
+
+        assertEquals(1, report.get("confirmed"));
+        assertEquals(0, report.get("ridersAssigned"));
+        assertEquals(2, report.get("conflicts"));
+        assertEquals(OrderStatus.CONFIRMED, second.getStatus());
+        assertNull(second.getRiderId());
+        List<Object[]> released = batch("UPDATE riders SET status = 'AVAILABLE'");
+        assertEquals(8L, released.get(0)[0]);
+        verify(orderRollupService, never()).recordTransition(eq(first), any());
+        verifyNoInteractions(riderPositionPublisher, notificationOutbox);
+    }
+
+    @Test
+    // The wave stubbed in setUp never runs
+    @MockitoSettings(strictness = Strictness.LENIENT)
+    void constructor_WithUnknownMatching_ShouldFailWithAClearMessage() {
+        PlentiException error = assertThrows(PlentiException.class, () -> service("optimal"));
+
+        assertTrue(error.getMessage().contains("[auto, hungarian, greedy]"));
+    }
+
+    @Test
+    void runWave_WhenAClaimReportsNoExactCount_ShouldTreatTheRiderAsLost() {
+        WaveFulfillmentService service = service("hungarian");
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE riders SET status = 'BUSY'"), anyList()))
+                .thenReturn(new int[]{Statement.SUCCESS_NO_INFO, 1});
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE orders"), anyList())).thenReturn(new int[]{1, 1});
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO order_tracking"), anyList())).thenReturn(new int[]{3});
+
+        Map<String, Object> report = service.runWave();
+
+        assertEquals(2, report.get("confirmed"));
+        assertEquals(1, report.get("ridersAssigned"));
+        assertEquals("8", first.getRiderId());
+        assertNull(second.getRiderId());
+    }
+
+    private WaveFulfillmentService service(String matching) {
+        return new WaveFulfillmentService(orderRepository, riderRepository, storeSpatialIndex, riderLocationIndex,
+                fulfillmentService, orderRollupService, orderTrackingProjection, notificationOutbox,
+                riderPositionPublisher, jdbcTemplate, transactionManager, true, true, 500, matching, 500, 3, 10.0);
+    }
+
+    private List<Object[]> batch(String sqlPrefix) {
+        ArgumentCaptor<List<Object[]>> rows = rowsCaptor();
+        verify(jdbcTemplate).batchUpdate(startsWith(sqlPrefix), rows.capture());
+        return rows.getValue();
+    }
+
+    private static int[] updated(List<?> rows) {
+        int[] counts = new int[rows.size()];
+        Arrays.fill(counts, 1);
+        return counts;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ArgumentCaptor<List<Object[]>> rowsCaptor() {
+        return (ArgumentCaptor) ArgumentCaptor.forClass(List.class);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ArgumentCaptor<List<OrderTrackingProjection.Change>> changesCaptor() {
+        return (ArgumentCaptor) ArgumentCaptor.forClass(List.class);
+    }
+
+    private static RiderLocationIndex.Hit hit(long riderId, double distanceKm) {
+        return new RiderLocationIndex.Hit(riderId, distanceKm, LocalDateTime.now());
+    }
+
+    private static Order order(Long id, String address) {
+        Order order = new Order();
+        order.setId(id);
+        order.setUserId(1L);
+        order.setTotalAmount(2500.0);
+        order.setStatus(OrderStatus.PENDING);
+        order.setDeliveryAddress(address);
+        return order;
+    }
+
+    private static Store store(Long id, double lat, double lng) {
+        Store store = new Store();
+        store.setId(id);
+        store.setName("Store " + id);
+        store.setLatitude(lat);
+        store.setLongitude(lng);
+        store.setActive(true);
+        return store;
+    }
+
+    private static Rider rider(Long id, String name) {
+        Rider rider = new Rider();
+        rider.setId(id);
+        rider.setName(name);
+        return rider;
+    }
+}
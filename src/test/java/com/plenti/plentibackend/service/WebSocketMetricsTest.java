@@ -0,0 +1,122 @@
+package com.plenti.plentibackend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.config.WebSocketMessageBrokerStats;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class WebSocketMetricsTest {
+
+    @Mock
+    private ObjectProvider<WebSocketMessageBrokerStats> brokerStats;
+
+    @Mock
+    private MessageChannel channel;
+
+    private WebSocketMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new WebSocketMetrics("simple", brokerStats);
+    }
+
+    @Test
+    void pattern_ShouldReplaceIdSegments() {
+        assertEquals("/topic/orders/{id}", WebSocketMetrics.pattern("/topic/orders/42"));
+        assertEquals("/topic/orders/{id}/location", WebSocketMetrics.pattern("/topic/orders/42/location"));
+        assertEquals("/topic/riders/{id}", WebSocketMetrics.pattern("/topic/riders/7"));
+        assertEquals("/topic/announcements", WebSocketMetrics.pattern("/topic/announcements"));
+    }
+
+    @Test
+    void interceptors_ShouldCountPublishedAndDeliveredPerPattern() {
+        metrics.publishedInterceptor().postSend(message(null, "/topic/orders/1"), channel, true);
+        metrics.publishedInterceptor().postSend(message(null, "/topic/orders/2"), channel, true);
+        metrics.publishedInterceptor().postSend(message(null, "/topic/orders/3"), channel, false);
+        metrics.deliveredInterceptor().postSend(message("s1", "/topic/orders/1"), channel, true);
+        metrics.deliveredInterceptor().postSend(message("s2", "/topic/orders/1"), channel, true);
+        metrics.deliveredInterceptor().postSend(message("s3", "/topic/orders/2"), channel, true);
+
+        Map<String, Object> orders = destination("/topic/orders/{id}");
+        assertEquals(2L, orders.get("published"));
+        assertEquals(3L, orders.get("delivered"));
+        assertEquals(3.0 / 60, (double) orders.get("deliveredPerSecond"), 1e-9);
+    }
+
+    @Test
+    void sessionEvents_ShouldTrackSessionsAndSubscriptions() {
+        metrics.onConnected(new SessionConnectedEvent(this, message("s1", null)));
+        metrics.onConnected(new SessionConnectedEvent(this, message("s2", null)));
+        metrics.onSubscribe(new SessionSubscribeEvent(this, subscription("s1", "sub-0", "/topic/orders/5")));
+        metrics.onSubscribe(new SessionSubscribeEvent(this, subscription("s1", "sub-1", "/topic/orders/6")));
+        metrics.onSubscribe(new SessionSubscribeEvent(this, subscription("s2", "sub-0", "/topic/orders/5")));
+
+        Map<String, Object> orders = destination("/topic/orders/{id}");
+        assertEquals(3, orders.get("subscriptions"));
+        assertEquals(2, orders.get("sessions"));
+        assertEquals(2, orders.get("destinations"));
+        assertEquals(2, metrics.getStats().get("activeSessions"));
+
+        metrics.onUnsubscribe(new SessionUnsubscribeEvent(this, subscription("s1", "sub-1", null)));
+        metrics.onDisconnect(new SessionDisconnectEvent(this, message("s2", null), "s2", CloseStatus.NORMAL));
+        metrics.onDisconnect(new SessionDisconnectEvent(this, message("s2", null), "s2", CloseStatus.NORMAL));
+
+        orders = destination("/topic/orders/{id}");
+        assertEquals(1, orders.get("subscriptions"));
+        assertEquals(1, orders.get("sessions"));
+        assertEquals(1, metrics.getStats().get("activeSessions"));
+        assertEquals(2L, metrics.getStats().get("connectedTotal"));
+    }
+
+    @Test
+    void statsFor_ShouldCapTheNumberOfPatterns() {
+        for (int i = 0; i < WebSocketMetrics.MAX_PATTERNS + 10; i++) {
+            metrics.publishedInterceptor().postSend(message(null, "/topic/custom-" + i), channel, true);
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> destinations = (Map<String, Object>) metrics.getStats().get("destinations");
+        assertEquals(WebSocketMetrics.MAX_PATTERNS + 1, destinations.size());
+        assertEquals(10L, destination(WebSocketMetrics.OTHER_PATTERN).get("published"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> destination(String pattern) {
+        Map<String, Object> destinations = (Map<String, Object>) metrics.getStats().get("destinations");
+        return (Map<String, Object>) destinations.get(pattern);
+    }
+
+    private static Message<byte[]> message(String sessionId, String destination) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(sessionId);
+        headers.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], headers.getMessageHeaders());
+    }
+
+    private static Message<byte[]> subscription(String sessionId, String subscriptionId, String destination) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(
+                destination != null ? SimpMessageType.SUBSCRIBE : SimpMessageType.UNSUBSCRIBE);
+        headers.setSessionId(sessionId);
+        headers.setSubscriptionId(subscriptionId);
+        headers.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], headers.getMessageHeaders());
+    }
+}
@@ -0,0 +1,138 @@
+package com.plenti.plentibackend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssignmentSolverTest {
+
+    private static final double INF = Double.POSITIVE_INFINITY;
+
+    @Test
+    void hungarian_ShouldFindTheMinimumTotalCost() {
+        double[][] cost = {
+                {4, 1, 3},
+                {2, 0, 5},
+                {3, 2, 2}
+        };
+
+        int[] match = AssignmentSolver.hungarian(cost);
+
+        assertArrayEquals(new int[]{1, 0, 2}, match);
+    }
+
+    @Test
+    void hungarian_ShouldPreferMatchingMoreRowsOverACheaperPair() {
+        // Greedy takes the cheap (0, 0) pair and leaves row 1 without a column
+        double[][] cost = {
+                {1, 3},
+                {2, INF}
+        };
+
+        assertArrayEquals(new int[]{1, 0}, AssignmentSolver.hungarian(cost));
+        assertArrayEquals(new int[]{0, -1}, AssignmentSolver.greedy(cost));
+    }
+
+    @Test
+    void hungarian_WithMoreRowsThanColumns_ShouldLeaveTheCostliestRowsUnmatched() {
+        double[][] cost = {
+                {5, 9},
+                {1, 8},
+                {7, 2},
+                {INF, INF}
+        };
+
+        int[] match = AssignmentSolver.hungarian(cost);
+
+        assertArrayEquals(new int[]{-1, 0, 1, -1}, match);
+    }
+
+    @Test
+    void hungarian_ShouldMatchBruteForceOnRandomMatrices() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            int rows = 1 + random.nextInt(5);
+            int cols = 1 + random.nextInt(5);
+            double[][] cost = new double[rows][cols];
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    cost[i][j] = random.nextInt(4) == 0 ? INF : random.nextInt(20);
+                }
+            }
+
+            int[] match = AssignmentSolver.hungarian(cost);
+            double[] best = bruteForce(cost, 0, new boolean[cols]);
+
+            assertValid(cost, match);
+            assertEquals(best[0], matched(match), "matched rows in round " + round);
+            assertEquals(best[1], total(cost, match), 1e-9, "total cost in round " + round);
+        }
+    }
+
+    @Test
+    void greedy_ShouldNeverReuseAColumnOrTakeAnInfeasiblePair() {
+        Random random = new Random(7);
+        double[][] cost = new double[30][12];
+        for (double[] row : cost) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] = random.nextInt(3) == 0 ? INF : random.nextDouble() * 10;
+            }
+        }
+
+        assertValid(cost, AssignmentSolver.greedy(cost));
+    }
+
+    private static void assertValid(double[][] cost, int[] match) {
+        boolean[] used = new boolean[cost.length == 0 ? 0 : cost[0].length];
+        for (int i = 0; i < match.length; i++) {
+            if (match[i] >= 0) {
+                assertFalse(used[match[i]], "column reused");
+                assertTrue(Double.isFinite(cost[i][match[i]]), "infeasible pair matched");
+                used[match[i]] = true;
+            }
+        }
+    }
+
+    // {most matched rows, lowest total cost among those}
+    private static double[] bruteForce(double[][] cost, int row, boolean[] used) {
+        if (row == cost.length) {
+            return new double[]{0, 0};
+        }
+        double[] best = bruteForce(cost, row + 1, used);
+        for (int j = 0; j < used.length; j++) {
+            if (!used[j] && Double.isFinite(cost[row][j])) {
+                used[j] = true;
+                double[] rest = bruteForce(cost, row + 1, used);
+                used[j] = false;
+                double count = rest[0] + 1;
+                double total = rest[1] + cost[row][j];
+                if (count > best[0] || (count == best[0] && total < best[1])) {
+                    best = new double[]{count, total};
+                }
+            }
+        }
+        return best;
+    }
+
+    private static double matched(int[] match) {
+        int count = 0;
+        for (int column : match) {
+            if (column >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static double total(double[][] cost, int[] match) {
+        double total = 0;
+        for (int i = 0; i < match.length; i++) {
+            if (match[i] >= 0) {
+                total += cost[i][match[i]];
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,133 @@
+package com.plenti.plentibackend.util;
+
+import com.plenti.plentibackend.entity.Order;
+import com.plenti.plentibackend.entity.Rider;
+import com.plenti.plentibackend.entity.User;
+import com.plenti.plentibackend.repository.OrderRepository;
+import com.plenti.plentibackend.repository.RiderRepository;
+import com.plenti.plentibackend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StompAuthChannelInterceptorTest {
+
+    @Mock
+    private JwtAuthenticationFilter jwtAuthenticationFilter;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private RiderRepository riderRepository;
+
+    @Mock
+    private MessageChannel channel;
+
+    private StompAuthChannelInterceptor interceptor;
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        interceptor = new StompAuthChannelInterceptor(jwtAuthenticationFilter, orderRepository,
+                userRepository, riderRepository);
+        order = new Order();
+        order.setId(42L);
+        order.setUserId(7L);
+        order.setRiderId("3");
+    }
+
+    @Test
+    void subscribe_ToAnotherCustomersOrder_ShouldBeRefused() {
+        User stranger = new User();
+        stranger.setId(8L);
+        when(orderRepository.findById(42L)).thenReturn(Optional.of(order));
+        when(userRepository.findByPhoneNumber("08000000008")).thenReturn(Optional.of(stranger));
+        when(riderRepository.findById(3L)).thenReturn(Optional.of(rider("08000000003")));
+
+        Message<?> subscribe = subscribe("/topic/orders/42/location", principal("08000000008", "ROLE_USER"));
+
+        assertThrows(AccessDeniedException.class, () -> interceptor.preSend(subscribe, channel));
+    }
+
+    @Test
+    void subscribe_WithoutAuthentication_ShouldBeRefused() {
+        Message<?> subscribe = subscribe("/topic/orders/42", null);
+
+        assertThrows(AccessDeniedException.class, () -> interceptor.preSend(subscribe, channel));
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    void subscribe_ToAWildcardTopic_ShouldBeRefusedForNonAdmins() {
+        Message<?> subscribe = subscribe("/topic/orders/**", principal("08000000007", "ROLE_USER"));
+
+        assertThrows(AccessDeniedException.class, () -> interceptor.preSend(subscribe, channel));
+    }
+
+    @Test
+    void subscribe_ByTheOrdersCustomerRiderOrAdmin_ShouldBeAllowed() {
+        User customer = new User();
+        customer.setId(7L);
+        when(orderRepository.findById(42L)).thenReturn(Optional.of(order));
+        when(userRepository.findByPhoneNumber("08000000007")).thenReturn(Optional.of(customer));
+        when(userRepository.findByPhoneNumber("08000000003")).thenReturn(Optional.empty());
+        when(riderRepository.findById(3L)).thenReturn(Optional.of(rider("08000000003")));
+
+        for (Principal user : List.of(principal("08000000007", "ROLE_USER"),
+                principal("08000000003", "ROLE_RIDER"), principal("08000000001", "ROLE_ADMIN"))) {
+            Message<?> subscribe = subscribe("/topic/orders/42/location", user);
+            assertSame(subscribe, interceptor.preSend(subscribe, channel));
+        }
+    }
+
+    @Test
+    void connect_WithAnInvalidToken_ShouldBeRefused() {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.addNativeHeader("Authorization", "Bearer forged");
+        Message<?> connect = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+
+        assertThrows(BadCredentialsException.class, () -> interceptor.preSend(connect, channel));
+    }
+
+    private static Message<?> subscribe(String destination, Principal user) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setDestination(destination);
+        accessor.setSubscriptionId("sub-0");
+        accessor.setUser(user);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static Principal principal(String username, String role) {
+        return new UsernamePasswordAuthenticationToken(username, null, List.of(new SimpleGrantedAuthority(role)));
+    }
+
+    private static Rider rider(String phoneNumber) {
+        Rider rider = new Rider();
+        rider.setId(3L);
+        rider.setPhoneNumber(phoneNumber);
+        return rider;
+    }
+}